@@ -188,6 +188,83 @@ public class BinManager {
         }
     }
 
+    /**
+     * @param initialCapacity The initial number of bins.
+     *
+     * @return A new store for the temporal bins of this bin manager.
+     */
+    public BinStore createTemporalBinStore(int initialCapacity) {
+        return new BinStore(temporalFeatureCount, initialCapacity);
+    }
+
+    /**
+     * Creates a temporal bin from the given spatial bins and appends it to the given store. This is equivalent to
+     * {@link #createTemporalBin(long, Iterable)}, but no objects are created per bin.
+     *
+     * @param store       The store for the temporal bins, must have been created by this bin manager.
+     * @param binIndex    The bin index.
+     * @param spatialBins The spatial bins.
+     *
+     * @return The position of the new temporal bin in the store.
+     */
+    public int addTemporalBin(BinStore store, long binIndex, Iterable<? extends SpatialBin> spatialBins) {
+        final int position = store.add(binIndex);
+        final BinContext binContext = store.getBinContext(position);
+        final BinStore.FeatureVector temporalVector = store.getFeatureVector();
+        temporalVector.setPosition(position);
+        for (int i = 0; i < aggregators.length; i++) {
+            final Aggregator aggregator = aggregators[i];
+            temporalVector.setOffsetAndSize(temporalFeatureOffsets[i], aggregator.getTemporalFeatureNames().length);
+            aggregator.initTemporal(binContext, temporalVector);
+        }
+        int numObs = 0;
+        int numPasses = 0;
+        VectorImpl spatialVector = null;
+        for (SpatialBin spatialBin : spatialBins) {
+            if (spatialVector == null) {
+                spatialVector = new VectorImpl(spatialBin.featureValues);
+            } else {
+                spatialVector.setElements(spatialBin.featureValues);
+            }
+            for (int i = 0; i < aggregators.length; i++) {
+                final Aggregator aggregator = aggregators[i];
+                spatialVector.setOffsetAndSize(spatialFeatureOffsets[i], aggregator.getSpatialFeatureNames().length);
+                temporalVector.setOffsetAndSize(temporalFeatureOffsets[i], aggregator.getTemporalFeatureNames().length);
+                aggregator.aggregateTemporal(binContext, spatialVector, spatialBin.numObs, temporalVector);
+            }
+            numObs += spatialBin.numObs;
+            numPasses++;
+        }
+        for (int i = 0; i < aggregators.length; i++) {
+            final Aggregator aggregator = aggregators[i];
+            temporalVector.setOffsetAndSize(temporalFeatureOffsets[i], aggregator.getTemporalFeatureNames().length);
+            aggregator.completeTemporal(binContext, numObs, temporalVector);
+        }
+        store.setNumObs(position, numObs);
+        store.setNumPasses(position, numPasses);
+        return position;
+    }
+
+    /**
+     * Computes the output features of the temporal bin at the given position of the given store.
+     *
+     * @param store        The store for the temporal bins, must have been created by this bin manager.
+     * @param position     The position of the temporal bin in the store.
+     * @param outputVector The output vector, must have been created by {@link #createOutputVector()}.
+     */
+    public void computeOutput(BinStore store, int position, WritableVector outputVector) {
+        final BinStore.FeatureVector temporalVector = store.getFeatureVector();
+        temporalVector.setPosition(position);
+        final VectorImpl outputVectorImpl = (VectorImpl) outputVector;
+        for (int i = 0; i < aggregators.length; i++) {
+            final Aggregator aggregator = aggregators[i];
+            temporalVector.setOffsetAndSize(temporalFeatureOffsets[i], aggregator.getTemporalFeatureNames().length);
+            outputVectorImpl.setOffsetAndSize(outputFeatureOffsets[i], aggregator.getOutputFeatureNames().length);
+            aggregator.computeOutput(temporalVector, outputVector);
+        }
+        outputVectorImpl.setOffsetAndSize(0, outputFeatureCount);
+    }
+
     public void computeOutput(TemporalBin temporalBin, WritableVector outputVector) {
         final VectorImpl temporalVector = new VectorImpl(temporalBin.featureValues);
         final VectorImpl outputVectorImpl = (VectorImpl) outputVector;
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A columnar store for temporal bins. In contrast to a list of {@link TemporalBin}s, the store does not create
+ * an object per bin. Bins are addressed by their dense position in the store, their index, number of observations,
+ * number of passes and each of their features are kept in separate primitive arrays.
+ * <p/>
+ * Feature values are accessed through the flyweight {@link FeatureVector} and {@link BinContext} returned by
+ * {@link #getFeatureVector()} and {@link #getBinContext(int)}, which are reused by every call. Therefore a store
+ * must only be used by a single thread at a time.
+ *
+ * @see BinManager#addTemporalBin(BinStore, long, Iterable)
+ */
+public final class BinStore implements Iterable<TemporalBin> {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final int numFeatures;
+    private final float[][] featureValues;
+    private long[] indexes;
+    private int[] numObs;
+    private int[] numPasses;
+    private int size;
+    private FeatureVector featureVector;
+    private StoreBinContext binContext;
+
+    public BinStore(int numFeatures) {
+        this(numFeatures, DEFAULT_CAPACITY);
+    }
+
+    public BinStore(int numFeatures, int initialCapacity) {
+        if (numFeatures < 0) {
+            throw new IllegalArgumentException("numFeatures < 0");
+        }
+        final int capacity = Math.max(1, initialCapacity);
+        this.numFeatures = numFeatures;
+        this.indexes = new long[capacity];
+        this.numObs = new int[capacity];
+        this.numPasses = new int[capacity];
+        this.featureValues = new float[numFeatures][capacity];
+    }
+
+    public int getNumFeatures() {
+        return numFeatures;
+    }
+
+    /**
+     * @return The number of bins in this store.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all bins. The capacity of the store is kept.
+     */
+    public void clear() {
+        size = 0;
+        if (binContext != null) {
+            binContext.setPosition(-1);
+        }
+    }
+
+    /**
+     * Appends a new bin with zero observations, passes and feature values.
+     *
+     * @param binIndex The bin index.
+     *
+     * @return The position of the new bin.
+     */
+    public int add(long binIndex) {
+        if (size == indexes.length) {
+            grow();
+        }
+        final int position = size++;
+        indexes[position] = binIndex;
+        numObs[position] = 0;
+        numPasses[position] = 0;
+        for (float[] values : featureValues) {
+            values[position] = 0.0F;
+        }
+        return position;
+    }
+
+    /**
+     * Appends a copy of the given temporal bin.
+     *
+     * @param bin The temporal bin.
+     *
+     * @return The position of the new bin.
+     */
+    public int add(TemporalBin bin) {
+        checkNumFeatures(bin.featureValues.length);
+        final int position = add(bin.index);
+        numObs[position] = bin.numObs;
+        numPasses[position] = bin.numPasses;
+        for (int i = 0; i < numFeatures; i++) {
+            featureValues[i][position] = bin.featureValues[i];
+        }
+        return position;
+    }
+
+    /**
+     * Appends a copy of a bin of the given store.
+     *
+     * @param store    The store.
+     * @param position The position of the bin in the given store.
+     *
+     * @return The position of the new bin.
+     */
+    public int add(BinStore store, int position) {
+        checkNumFeatures(store.numFeatures);
+        final int newPosition = add(store.indexes[position]);
+        numObs[newPosition] = store.numObs[position];
+        numPasses[newPosition] = store.numPasses[position];
+        for (int i = 0; i < numFeatures; i++) {
+            featureValues[i][newPosition] = store.featureValues[i][position];
+        }
+        return newPosition;
+    }
+
+    public long getIndex(int position) {
+        return indexes[position];
+    }
+
+    public int getNumObs(int position) {
+        return numObs[position];
+    }
+
+    public void setNumObs(int position, int value) {
+        numObs[position] = value;
+    }
+
+    public int getNumPasses(int position) {
+        return numPasses[position];
+    }
+
+    public void setNumPasses(int position, int value) {
+        numPasses[position] = value;
+    }
+
+    public float getFeatureValue(int position, int featureIndex) {
+        return featureValues[featureIndex][position];
+    }
+
+    public void setFeatureValue(int position, int featureIndex, float value) {
+        featureValues[featureIndex][position] = value;
+    }
+
+    /**
+     * @param position The bin position.
+     *
+     * @return A new temporal bin holding a copy of the bin at the given position.
+     */
+    public TemporalBin getTemporalBin(int position) {
+        final TemporalBin bin = new TemporalBin(indexes[position], numFeatures);
+        bin.numObs = numObs[position];
+        bin.numPasses = numPasses[position];
+        for (int i = 0; i < numFeatures; i++) {
+            bin.featureValues[i] = featureValues[i][position];
+        }
+        return bin;
+    }
+
+    /**
+     * Returns an iterator which creates a new {@link TemporalBin} for each bin of this store.
+     * It is intended for clients which require bin objects, e.g. the {@link Reprojector}.
+     *
+     * @return An iterator over copies of the bins in this store.
+     */
+    @Override
+    public Iterator<TemporalBin> iterator() {
+        return new Iterator<TemporalBin>() {
+            int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            public TemporalBin next() {
+                if (position >= size) {
+                    throw new NoSuchElementException();
+                }
+                return getTemporalBin(position++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @return The flyweight feature vector of this store. It covers all features of the bin at position 0.
+     */
+    public FeatureVector getFeatureVector() {
+        if (featureVector == null) {
+            featureVector = new FeatureVector();
+        }
+        featureVector.setPosition(0);
+        featureVector.setOffsetAndSize(0, numFeatures);
+        return featureVector;
+    }
+
+    /**
+     * Returns the flyweight bin context of this store for the bin at the given position. The named values of
+     * the context are cleared, if the position differs from the one of the last call.
+     *
+     * @param position The bin position.
+     *
+     * @return The bin context.
+     */
+    public BinContext getBinContext(int position) {
+        if (binContext == null) {
+            binContext = new StoreBinContext();
+        }
+        binContext.setPosition(position);
+        return binContext;
+    }
+
+    private void grow() {
+        final int newCapacity = 2 * indexes.length;
+        indexes = Arrays.copyOf(indexes, newCapacity);
+        numObs = Arrays.copyOf(numObs, newCapacity);
+        numPasses = Arrays.copyOf(numPasses, newCapacity);
+        for (int i = 0; i < numFeatures; i++) {
+            featureValues[i] = Arrays.copyOf(featureValues[i], newCapacity);
+        }
+    }
+
+    private void checkNumFeatures(int otherNumFeatures) {
+        if (otherNumFeatures != numFeatures) {
+            throw new IllegalArgumentException(String.format("Expected %d features, but got %d",
+                                                             numFeatures, otherNumFeatures));
+        }
+    }
+
+    /**
+     * A writable view of the consecutive features {@code offset} to {@code offset + size - 1}
+     * of the bin at a given position.
+     */
+    public final class FeatureVector implements WritableVector {
+
+        private int position;
+        private int offset;
+        private int size;
+
+        private FeatureVector() {
+        }
+
+        public void setPosition(int position) {
+            this.position = position;
+        }
+
+        public void setOffsetAndSize(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public float get(int index) {
+            return featureValues[offset + index][position];
+        }
+
+        @Override
+        public void set(int index, float element) {
+            featureValues[offset + index][position] = element;
+        }
+
+        @Override
+        public String toString() {
+            final float[] elements = new float[size];
+            for (int i = 0; i < size; i++) {
+                elements[i] = get(i);
+            }
+            return Arrays.toString(elements);
+        }
+    }
+
+    private final class StoreBinContext implements BinContext {
+
+        private int position = -1;
+        private HashMap<String, Object> contextMap;
+
+        private void setPosition(int position) {
+            if (position != this.position) {
+                this.position = position;
+                if (contextMap != null) {
+                    contextMap.clear();
+                }
+            }
+        }
+
+        @Override
+        public long getIndex() {
+            return indexes[position];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(String name) {
+            return contextMap != null ? (T) contextMap.get(name) : null;
+        }
+
+        @Override
+        public void put(String name, Object value) {
+            if (contextMap == null) {
+                contextMap = new HashMap<String, Object>();
+            }
+            contextMap.put(name, value);
+        }
+    }
+}
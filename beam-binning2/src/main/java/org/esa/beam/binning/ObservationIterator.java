@@ -1,6 +1,7 @@
 package org.esa.beam.binning;
 
 import org.esa.beam.binning.support.ObservationImpl;
+import org.esa.beam.framework.datamodel.AbstractGeoCoding;
 import org.esa.beam.framework.datamodel.GeoCoding;
 import org.esa.beam.framework.datamodel.GeoPos;
 import org.esa.beam.framework.datamodel.PixelPos;
@@ -8,6 +9,7 @@ import org.esa.beam.framework.datamodel.Product;
 import org.esa.beam.framework.datamodel.ProductData;
 import org.esa.beam.util.ProductUtils;
 
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.image.Raster;
 import java.util.Iterator;
@@ -27,26 +29,34 @@ abstract class ObservationIterator implements Iterator<Observation> {
     private SamplePointer pointer;
     private final GeoCoding gc;
     private final Product product;
+    // the region whose pixel centres are geo-coded at once, null if super-sampling
+    private final Rectangle geoRegion;
+    private float[] lats;
+    private float[] lons;
 
     public static ObservationIterator create(Raster[] sourceTiles, Product product, Raster maskTile,
                                              float[] superSamplingSteps) {
 
         SamplePointer pointer;
+        Rectangle geoRegion;
         if (superSamplingSteps.length == 1) {
             pointer = SamplePointer.create(sourceTiles, sourceTiles[0].getBounds());
+            geoRegion = sourceTiles[0].getBounds();
         } else {
             Point2D.Float[] superSamplingPoints = SamplePointer.createSamplingPoints(superSamplingSteps);
             pointer = SamplePointer.create(sourceTiles, sourceTiles[0].getBounds(), superSamplingPoints);
+            geoRegion = null;
         }
         if (maskTile == null) {
-            return new NoMaskObservationIterator(product, pointer);
+            return new NoMaskObservationIterator(product, pointer, geoRegion);
         } else {
-            return new FullObservationIterator(product, pointer, maskTile);
+            return new FullObservationIterator(product, pointer, geoRegion, maskTile);
         }
     }
 
-    protected ObservationIterator(Product product, SamplePointer pointer) {
+    protected ObservationIterator(Product product, SamplePointer pointer, Rectangle geoRegion) {
         this.pointer = pointer;
+        this.geoRegion = product.getGeoCoding() instanceof AbstractGeoCoding ? geoRegion : null;
         if (product.getStartTime() != null || product.getEndTime() != null) {
             this.product = product;
         } else {
@@ -95,10 +105,25 @@ abstract class ObservationIterator implements Iterator<Observation> {
         SamplePointer pointer = getPointer();
         final float[] samples = pointer.createSamples();
 
-        Point2D.Float superSamplingPoint = pointer.getSuperSamplingPoint();
-        final PixelPos pixelPos = new PixelPos();
-        pixelPos.setLocation(x + superSamplingPoint.x, y + superSamplingPoint.y);
-        final GeoPos geoPos = getGeoPos(pixelPos);
+        final float lat;
+        final float lon;
+        if (geoRegion != null) {
+            if (lats == null) {
+                lats = new float[geoRegion.width * geoRegion.height];
+                lons = new float[geoRegion.width * geoRegion.height];
+                ((AbstractGeoCoding) gc).getGeoPos(geoRegion, lats, lons);
+            }
+            final int index = (y - geoRegion.y) * geoRegion.width + (x - geoRegion.x);
+            lat = lats[index];
+            lon = lons[index];
+        } else {
+            Point2D.Float superSamplingPoint = pointer.getSuperSamplingPoint();
+            final PixelPos pixelPos = new PixelPos();
+            pixelPos.setLocation(x + superSamplingPoint.x, y + superSamplingPoint.y);
+            final GeoPos geoPos = getGeoPos(pixelPos);
+            lat = geoPos.lat;
+            lon = geoPos.lon;
+        }
 
         double mjd = 0.0;
         if (product != null) {
@@ -106,7 +131,7 @@ abstract class ObservationIterator implements Iterator<Observation> {
             mjd = scanLineTime.getMJD();
         }
 
-        return new ObservationImpl(geoPos.lat, geoPos.lon, mjd, samples);
+        return new ObservationImpl(lat, lon, mjd, samples);
     }
 
     protected GeoPos getGeoPos(PixelPos pixelPos) {
@@ -120,8 +145,8 @@ abstract class ObservationIterator implements Iterator<Observation> {
         private final Raster maskTile;
 
 
-        FullObservationIterator(Product product, SamplePointer pointer, Raster maskTile) {
-            super(product, pointer);
+        FullObservationIterator(Product product, SamplePointer pointer, Rectangle geoRegion, Raster maskTile) {
+            super(product, pointer, geoRegion);
             this.maskTile = maskTile;
         }
 
@@ -147,8 +172,8 @@ abstract class ObservationIterator implements Iterator<Observation> {
     static class NoMaskObservationIterator extends ObservationIterator {
 
 
-        NoMaskObservationIterator(Product product, SamplePointer pointer) {
-            super(product, pointer);
+        NoMaskObservationIterator(Product product, SamplePointer pointer, Rectangle geoRegion) {
+            super(product, pointer, geoRegion);
         }
 
         @Override
@@ -16,11 +16,11 @@ package org.esa.beam.binning;
  * with this program; if not, see http://www.gnu.org/licenses/
  */
 
+import org.esa.beam.binning.support.LongHashMap;
+
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Produces spatial bins by processing a given "slice" of observations.
@@ -39,8 +39,10 @@ public class SpatialBinner {
     private final SpatialBinConsumer consumer;
 
     // State variables
-    private final Map<Long, SpatialBin> activeBinMap;
-    private final Map<Long, SpatialBin> finalizedBinMap;
+    // bins that received observations in the previous slice
+    private LongHashMap<SpatialBin> activeBinMap;
+    // bins that received observations in the current slice
+    private LongHashMap<SpatialBin> sliceBinMap;
     private final ArrayList<Exception> exceptions;
 
     /**
@@ -54,8 +56,8 @@ public class SpatialBinner {
         this.planetaryGrid = binningContext.getPlanetaryGrid();
         this.binManager = binningContext.getBinManager();
         this.consumer = consumer;
-        this.activeBinMap = new HashMap<Long, SpatialBin>();
-        this.finalizedBinMap = new HashMap<Long, SpatialBin>();
+        this.activeBinMap = new LongHashMap<SpatialBin>();
+        this.sliceBinMap = new LongHashMap<SpatialBin>();
         this.exceptions = new ArrayList<Exception>();
     }
 
@@ -83,28 +85,29 @@ public class SpatialBinner {
      */
     public long processObservationSlice(Iterable<Observation> observations) {
 
-        finalizedBinMap.putAll(activeBinMap);
-
         long observationCounter = 0;
         for (Observation observation : observations) {
             observationCounter++;
-            Long binIndex = planetaryGrid.getBinIndex(observation.getLatitude(), observation.getLongitude());
-            SpatialBin bin = activeBinMap.get(binIndex);
+            long binIndex = planetaryGrid.getBinIndex(observation.getLatitude(), observation.getLongitude());
+            SpatialBin bin = sliceBinMap.get(binIndex);
             if (bin == null) {
-                bin = binManager.createSpatialBin(binIndex);
-                activeBinMap.put(binIndex, bin);
+                bin = activeBinMap.remove(binIndex);
+                if (bin == null) {
+                    bin = binManager.createSpatialBin(binIndex);
+                }
+                sliceBinMap.put(binIndex, bin);
             }
             binManager.aggregateSpatialBin(observation, bin);
-            finalizedBinMap.remove(binIndex);
         }
 
-        if (!finalizedBinMap.isEmpty()) {
-            emitSliceBins(finalizedBinMap);
-            for (Long key : finalizedBinMap.keySet()) {
-                activeBinMap.remove(key);
-            }
-            finalizedBinMap.clear();
+        // Bins of the previous slice which did not receive observations from this slice are finalized
+        if (!activeBinMap.isEmpty()) {
+            emitSliceBins(activeBinMap);
+            activeBinMap.clear();
         }
+        final LongHashMap<SpatialBin> emptyBinMap = activeBinMap;
+        activeBinMap = sliceBinMap;
+        sliceBinMap = emptyBinMap;
 
         return observationCounter;
     }
@@ -130,11 +133,16 @@ public class SpatialBinner {
             emitSliceBins(activeBinMap);
             activeBinMap.clear();
         }
-        finalizedBinMap.clear();
     }
 
-    private void emitSliceBins(Map<Long, SpatialBin> binMap) {
-        List<SpatialBin> bins = new ArrayList<SpatialBin>(binMap.values());
+    private void emitSliceBins(LongHashMap<SpatialBin> binMap) {
+        // Emit bins in the order of their indexes in order to be independent of the hashing
+        long[] binIndexes = binMap.keys();
+        Arrays.sort(binIndexes);
+        List<SpatialBin> bins = new ArrayList<SpatialBin>(binIndexes.length);
+        for (long binIndex : binIndexes) {
+            bins.add(binMap.get(binIndex));
+        }
         for (SpatialBin bin : bins) {
             binManager.completeSpatialBin(bin);
         }
@@ -35,4 +35,20 @@ public class TemporalBinner {
     public TemporalBin processSpatialBins(long binIndex, Iterable<? extends SpatialBin> spatialBins) throws IOException {
         return binManager.createTemporalBin(binIndex, spatialBins);
     }
+
+    /**
+     * Processes the given spatial bins to a temporal bin, which is appended to the given store.
+     *
+     * @param binIndex    The bin index.
+     * @param spatialBins The spatial bins.
+     * @param store       The store for the temporal bins.
+     *
+     * @return The position of the temporal bin in the store.
+     *
+     * @throws IOException If an I/O error occurs.
+     * @see BinManager#createTemporalBinStore(int)
+     */
+    public int processSpatialBins(long binIndex, Iterable<? extends SpatialBin> spatialBins, BinStore store) throws IOException {
+        return binManager.addTemporalBin(store, binIndex, spatialBins);
+    }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning.aggregators;
+
+import com.bc.ceres.binding.PropertySet;
+import org.esa.beam.binning.AbstractAggregator;
+import org.esa.beam.binning.Aggregator;
+import org.esa.beam.binning.AggregatorConfig;
+import org.esa.beam.binning.AggregatorDescriptor;
+import org.esa.beam.binning.BinContext;
+import org.esa.beam.binning.Observation;
+import org.esa.beam.binning.VariableContext;
+import org.esa.beam.binning.Vector;
+import org.esa.beam.binning.WritableVector;
+import org.esa.beam.framework.gpf.annotations.Parameter;
+
+import java.util.Arrays;
+
+/**
+ * An aggregator that approximates the p-th percentile from a histogram with a fixed number of equally sized
+ * histogram bins between a given minimum and maximum value.
+ * <p/>
+ * As {@link AggregatorPercentile}, the percentile is computed from the spatial means of a bin. But instead of
+ * collecting all of the means, they are counted in the histogram, which is kept in the temporal features. Hence the
+ * state of the aggregator has a fixed size regardless of the number of observations, and two temporal states can be
+ * merged by adding their histogram counts. The accuracy of the percentile is given by the width of a histogram bin,
+ * {@code (maxValue - minValue) / numHistogramBins}. Means outside of the value range are counted in the first or last
+ * histogram bin.
+ */
+public class AggregatorPercentileHistogram extends AbstractAggregator {
+
+    static final int DEFAULT_NUM_HISTOGRAM_BINS = 100;
+
+    private final int varIndex;
+    private final int percentage;
+    private final float minValue;
+    private final float maxValue;
+    private final int numHistogramBins;
+
+    public AggregatorPercentileHistogram(VariableContext varCtx, String varName, Integer percentage,
+                                         Float minValue, Float maxValue, Integer numHistogramBins) {
+        this(getVarIndex(varCtx, varName), varName, getEffectivePercentage(percentage),
+             minValue, maxValue, getEffectiveNumHistogramBins(numHistogramBins));
+    }
+
+    private AggregatorPercentileHistogram(int varIndex, String varName, int percentage,
+                                          Float minValue, Float maxValue, int numHistogramBins) {
+        super(Descriptor.NAME,
+              createFeatureNames(varName, "sum"),
+              createHistogramFeatureNames(varName, numHistogramBins),
+              createFeatureNames(varName, "p" + percentage));
+
+        if (percentage < 0 || percentage > 100) {
+            throw new IllegalArgumentException("percentage < 0 || percentage > 100");
+        }
+        if (minValue == null) {
+            throw new NullPointerException("minValue");
+        }
+        if (maxValue == null) {
+            throw new NullPointerException("maxValue");
+        }
+        if (!(minValue < maxValue)) {
+            throw new IllegalArgumentException("!(minValue < maxValue)");
+        }
+        this.varIndex = varIndex;
+        this.percentage = percentage;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.numHistogramBins = numHistogramBins;
+    }
+
+    @Override
+    public void initSpatial(BinContext ctx, WritableVector vector) {
+        vector.set(0, 0.0f);
+    }
+
+    @Override
+    public void aggregateSpatial(BinContext ctx, Observation observationVector, WritableVector spatialVector) {
+        final float value = observationVector.get(varIndex);
+        spatialVector.set(0, spatialVector.get(0) + value);
+    }
+
+    @Override
+    public void completeSpatial(BinContext ctx, int numSpatialObs, WritableVector spatialVector) {
+        spatialVector.set(0, spatialVector.get(0) / numSpatialObs);
+    }
+
+    @Override
+    public void initTemporal(BinContext ctx, WritableVector vector) {
+        for (int i = 0; i < numHistogramBins; i++) {
+            vector.set(i, 0.0f);
+        }
+    }
+
+    @Override
+    public void aggregateTemporal(BinContext ctx, Vector spatialVector, int numSpatialObs, WritableVector temporalVector) {
+        final float mean = spatialVector.get(0);
+        if (!Float.isNaN(mean)) {
+            final int histogramBin = getHistogramBin(mean);
+            temporalVector.set(histogramBin, temporalVector.get(histogramBin) + 1.0f);
+        }
+    }
+
+    @Override
+    public void completeTemporal(BinContext ctx, int numTemporalObs, WritableVector temporalVector) {
+    }
+
+    @Override
+    public void computeOutput(Vector temporalVector, WritableVector outputVector) {
+        outputVector.set(0, computePercentile(temporalVector));
+    }
+
+    @Override
+    public String toString() {
+        return "AggregatorPercentileHistogram{" +
+               "varIndex=" + varIndex +
+               ", percentage=" + percentage +
+               ", minValue=" + minValue +
+               ", maxValue=" + maxValue +
+               ", numHistogramBins=" + numHistogramBins +
+               ", spatialFeatureNames=" + Arrays.toString(getSpatialFeatureNames()) +
+               ", temporalFeatureNames=" + Arrays.toString(getTemporalFeatureNames()) +
+               ", outputFeatureNames=" + Arrays.toString(getOutputFeatureNames()) +
+               '}';
+    }
+
+    int getHistogramBin(float value) {
+        final int histogramBin = (int) Math.floor((value - minValue) / (maxValue - minValue) * numHistogramBins);
+        if (histogramBin < 0) {
+            return 0;
+        }
+        if (histogramBin >= numHistogramBins) {
+            return numHistogramBins - 1;
+        }
+        return histogramBin;
+    }
+
+    /**
+     * Computes the percentile from the histogram counts by linear interpolation within the histogram bin
+     * which contains the p-th percent of all counts.
+     *
+     * @param histogram The histogram counts.
+     *
+     * @return The p-th percentile, or {@code NaN} if the histogram is empty.
+     */
+    float computePercentile(Vector histogram) {
+        double totalCount = 0.0;
+        for (int i = 0; i < numHistogramBins; i++) {
+            totalCount += histogram.get(i);
+        }
+        if (totalCount == 0.0) {
+            return Float.NaN;
+        }
+        final double rank = (percentage / 100.0) * totalCount;
+        final double binWidth = (maxValue - minValue) / (double) numHistogramBins;
+        double count = 0.0;
+        for (int i = 0; i < numHistogramBins; i++) {
+            final float binCount = histogram.get(i);
+            if (binCount > 0.0f && count + binCount >= rank) {
+                final double fraction = Math.max(0.0, rank - count) / binCount;
+                return (float) (minValue + (i + fraction) * binWidth);
+            }
+            count += binCount;
+        }
+        return maxValue;
+    }
+
+    public static class Config extends AggregatorConfig {
+
+        @Parameter
+        String varName;
+        @Parameter
+        Integer percentage;
+        @Parameter
+        Float minValue;
+        @Parameter
+        Float maxValue;
+        @Parameter(description = "The number of histogram bins between minValue and maxValue, defaults to 100. " +
+                                 "Higher numbers increase the accuracy of the percentile.")
+        Integer numHistogramBins;
+
+        public Config() {
+            super(Descriptor.NAME);
+        }
+
+        public void setVarName(String varName) {
+            this.varName = varName;
+        }
+
+        public void setPercentage(Integer percentage) {
+            this.percentage = percentage;
+        }
+
+        public void setMinValue(Float minValue) {
+            this.minValue = minValue;
+        }
+
+        public void setMaxValue(Float maxValue) {
+            this.maxValue = maxValue;
+        }
+
+        public void setNumHistogramBins(Integer numHistogramBins) {
+            this.numHistogramBins = numHistogramBins;
+        }
+
+        @Override
+        public String[] getVarNames() {
+            return new String[]{varName};
+        }
+    }
+
+    private static String[] createHistogramFeatureNames(String varName, int numHistogramBins) {
+        if (varName == null) {
+            throw new NullPointerException("varName");
+        }
+        if (numHistogramBins <= 0) {
+            throw new IllegalArgumentException("numHistogramBins <= 0");
+        }
+        final String[] names = new String[numHistogramBins];
+        for (int i = 0; i < numHistogramBins; i++) {
+            names[i] = "h" + i;
+        }
+        return createFeatureNames(varName, names);
+    }
+
+    private static int getVarIndex(VariableContext varCtx, String varName) {
+        if (varCtx == null) {
+            throw new NullPointerException("varCtx");
+        }
+
+        return varCtx.getVariableIndex(varName);
+    }
+
+    private static int getEffectivePercentage(Integer percentage) {
+        return (percentage != null ? percentage : 90);
+    }
+
+    private static int getEffectiveNumHistogramBins(Integer numHistogramBins) {
+        return (numHistogramBins != null ? numHistogramBins : DEFAULT_NUM_HISTOGRAM_BINS);
+    }
+
+    public static class Descriptor implements AggregatorDescriptor {
+
+        public static final String NAME = "PERCENTILE_HISTOGRAM";
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public AggregatorConfig createAggregatorConfig() {
+            return new Config();
+        }
+
+        @Override
+        public Aggregator createAggregator(VariableContext varCtx, AggregatorConfig aggregatorConfig) {
+            PropertySet propertySet = aggregatorConfig.asPropertySet();
+            return new AggregatorPercentileHistogram(varCtx,
+                                                     (String) propertySet.getValue("varName"),
+                                                     (Integer) propertySet.getValue("percentage"),
+                                                     (Float) propertySet.getValue("minValue"),
+                                                     (Float) propertySet.getValue("maxValue"),
+                                                     (Integer) propertySet.getValue("numHistogramBins"));
+        }
+    }
+}
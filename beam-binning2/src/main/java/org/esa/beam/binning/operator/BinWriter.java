@@ -2,6 +2,7 @@ package org.esa.beam.binning.operator;
 
 import com.vividsolutions.jts.geom.Geometry;
 import org.esa.beam.binning.Aggregator;
+import org.esa.beam.binning.BinStore;
 import org.esa.beam.binning.BinningContext;
 import org.esa.beam.binning.PlanetaryGrid;
 import org.esa.beam.binning.TemporalBin;
@@ -21,13 +22,17 @@ import java.io.IOException;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
 /**
  * Utility class that writes SeaDAS-Level-3-alike NetCDF files containing binned Level-3 data.
+ * <p/>
+ * The temporal bins can either be written at once using {@link #write(File, Map, List)}, or streamed
+ * part by part, sorted by bin index, using {@link #begin(File, Map, int)}, {@link #writeBins(Iterator)} or
+ * {@link #writeBins(BinStore)}, and {@link #end()}. Only the bins of the current grid row are held in memory.
  *
  * @author Norman Fomferra
  */
@@ -42,6 +47,20 @@ public class BinWriter {
     private SeadasGrid seadasGrid;
     private final PlanetaryGrid planetaryGrid;
 
+    private NetcdfFileWriteable netcdfFile;
+    private Variable beginOffsetVar;
+    private Variable beginVar;
+    private Variable extendVar;
+    private List<BinListVar> binListVars;
+    private int[] binRowBeginOffsets;
+    private long[] binRowBegins;
+    private int[] binRowExtends;
+    private BinStore rowBins;
+    private int rowIndex;
+    private int binListEnd;
+    private int bufferOrigin;
+    private int bufferLow;
+
     public BinWriter(BinningContext binningContext, Logger logger, Geometry region, ProductData.UTC startTime, ProductData.UTC stopTime) {
         this.logger = logger;
         this.binningContext = binningContext;
@@ -55,9 +74,26 @@ public class BinWriter {
     public void write(File filePath,
                       Map<String, String> metadataProperties,
                       List<TemporalBin> temporalBins) throws IOException, InvalidRangeException {
+        begin(filePath, metadataProperties, temporalBins.size());
+        writeBins(temporalBins.iterator());
+        end();
+    }
 
-        final NetcdfFileWriteable netcdfFile = NetcdfFileWriteable.createNew(filePath.getPath());
+    /**
+     * Creates the NetCDF file and writes the variables which do not depend on the temporal bins.
+     *
+     * @param filePath           The output file.
+     * @param metadataProperties The metadata properties written as global attributes.
+     * @param numBins            The total number of temporal bins which will be written.
+     *
+     * @throws IOException If an I/O error occurs.
+     * @throws InvalidRangeException If a NetCDF variable cannot be written.
+     */
+    public void begin(File filePath,
+                      Map<String, String> metadataProperties,
+                      int numBins) throws IOException, InvalidRangeException {
 
+        netcdfFile = NetcdfFileWriteable.createNew(filePath.getPath());
         netcdfFile.addGlobalAttribute("title", "Level-3 Binned Data");
         netcdfFile.addGlobalAttribute("super_sampling", binningContext.getSuperSampling());
         if (region != null) {
@@ -83,7 +119,7 @@ public class BinWriter {
         netcdfFile.addGlobalAttribute("SEAGrid_seam_lon", -180.0);
 
         final Dimension binIndexDim = netcdfFile.addDimension("bin_index", planetaryGrid.getNumRows());
-        final Dimension binListDim = netcdfFile.addDimension("bin_list", temporalBins.size());
+        final Dimension binListDim = netcdfFile.addDimension("bin_list", numBins);
 
         final Variable rowNumVar = netcdfFile.addVariable("bi_row_num", DataType.INT, new Dimension[]{binIndexDim});
         rowNumVar.addAttribute(new Attribute("comment", "zero-based index of row corresponding to each 'bin_index' record."));
@@ -101,17 +137,17 @@ public class BinWriter {
         startNumVar.addAttribute(new Attribute("missing_value", 0));
         startNumVar.addAttribute(new Attribute("_FillValue", 0));
 
-        final Variable beginOffsetVar = netcdfFile.addVariable("bi_begin_offset", DataType.INT, new Dimension[]{binIndexDim});
+        beginOffsetVar = netcdfFile.addVariable("bi_begin_offset", DataType.INT, new Dimension[]{binIndexDim});
         beginOffsetVar.addAttribute(new Attribute("comment", "0-based offset of the first data-containing bin in for each row."));
         beginOffsetVar.addAttribute(new Attribute("missing_value", -1));
         beginOffsetVar.addAttribute(new Attribute("_FillValue", -1));
 
-        final Variable beginVar = netcdfFile.addVariable("bi_begin", DataType.INT, new Dimension[]{binIndexDim});
+        beginVar = netcdfFile.addVariable("bi_begin", DataType.INT, new Dimension[]{binIndexDim});
         beginVar.addAttribute(new Attribute("comment", "1-based bin number of first data-containing bin for each row (see bi_start_num)."));
         beginVar.addAttribute(new Attribute("missing_value", 0));
         beginVar.addAttribute(new Attribute("_FillValue", 0));
 
-        final Variable extendVar = netcdfFile.addVariable("bi_extent", DataType.INT, new Dimension[]{binIndexDim});
+        extendVar = netcdfFile.addVariable("bi_extent", DataType.INT, new Dimension[]{binIndexDim});
         extendVar.addAttribute(new Attribute("comment", "number of bins actually stored (i.e. containing data for each row)."));
 
         final Variable maxVar = netcdfFile.addVariable("bi_max", DataType.INT, new Dimension[]{binIndexDim});
@@ -135,8 +171,86 @@ public class BinWriter {
 
         netcdfFile.create();
         writeBinIndexVariables(netcdfFile, rowNumVar, vsizeVar, hsizeVar, startNumVar, maxVar);
-        writeBinListVariables(netcdfFile, binNumVar, numObsVar, numScenesVar, featureVars, beginOffsetVar, beginVar, extendVar, temporalBins);
-        netcdfFile.close();
+
+        binListVars = createBinListVars(binNumVar, numObsVar, numScenesVar, featureVars);
+        final int numRows = planetaryGrid.getNumRows();
+        binRowBeginOffsets = new int[numRows];
+        binRowBegins = new long[numRows];
+        binRowExtends = new int[numRows];
+        Arrays.fill(binRowBeginOffsets, -1);
+        Arrays.fill(binRowBegins, -1);
+        Arrays.fill(binRowExtends, 0);
+        rowBins = binningContext.getBinManager().createTemporalBinStore(2 * numRows);
+        rowIndex = -1;
+        // The rows are stored in reverse order, so that bins streamed by ascending index are written from the end
+        // of the bin list towards its start. The buffer covers the bin list elements from bufferOrigin to
+        // bufferOrigin + BUFFER_SIZE, of which the elements from bufferOrigin + bufferLow have been set.
+        binListEnd = numBins;
+        bufferOrigin = numBins - BUFFER_SIZE;
+        bufferLow = BUFFER_SIZE;
+        logger.info("Writing bin list variables");
+    }
+
+    /**
+     * Writes the given temporal bins. The bins must be sorted by bin index, also across multiple calls.
+     *
+     * @param temporalBins The temporal bins.
+     *
+     * @throws IOException If an I/O error occurs.
+     * @throws InvalidRangeException If a NetCDF variable cannot be written.
+     */
+    public void writeBins(Iterator<? extends TemporalBin> temporalBins) throws IOException, InvalidRangeException {
+        if (netcdfFile == null) {
+            throw new IllegalStateException("begin() has not been called.");
+        }
+        while (temporalBins.hasNext()) {
+            final TemporalBin temporalBin = temporalBins.next();
+            startRow(temporalBin.getIndex());
+            rowBins.add(temporalBin);
+        }
+    }
+
+    /**
+     * Writes the temporal bins of the given store. The bins must be sorted by bin index, also across multiple calls.
+     *
+     * @param temporalBins The temporal bins.
+     *
+     * @throws IOException If an I/O error occurs.
+     * @throws InvalidRangeException If a NetCDF variable cannot be written.
+     */
+    public void writeBins(BinStore temporalBins) throws IOException, InvalidRangeException {
+        if (netcdfFile == null) {
+            throw new IllegalStateException("begin() has not been called.");
+        }
+        for (int position = 0; position < temporalBins.size(); position++) {
+            startRow(temporalBins.getIndex(position));
+            rowBins.add(temporalBins, position);
+        }
+    }
+
+    /**
+     * Writes the remaining bins and the row variables which depend on the temporal bins and closes the file.
+     *
+     * @throws IOException If an I/O error occurs.
+     * @throws InvalidRangeException If a NetCDF variable cannot be written.
+     */
+    public void end() throws IOException, InvalidRangeException {
+        if (netcdfFile == null) {
+            throw new IllegalStateException("begin() has not been called.");
+        }
+        try {
+            writeRowBins();
+            writeBinListBuffer();
+            if (binListEnd > 0) {
+                logger.warning(String.format("%d bins less than expected have been written", binListEnd));
+            }
+            writeBinRowVariables();
+        } finally {
+            netcdfFile.close();
+            netcdfFile = null;
+            binListVars = null;
+            rowBins = null;
+        }
     }
 
     private void writeBinIndexVariables(final NetcdfFileWriteable netcdfFile,
@@ -177,36 +291,31 @@ public class BinWriter {
         });
     }
 
-    private void writeBinListVariables(final NetcdfFileWriteable netcdfFile,
-                                       final Variable binNumVar,
-                                       final Variable numObsVar,
-                                       final Variable numScenesVar,
-                                       final List<Variable> featureVars,
-                                       final Variable beginOffsetVar,
-                                       final Variable beginVar,
-                                       final Variable extendVar,
-                                       final List<TemporalBin> temporalBins) throws IOException, InvalidRangeException {
+    private List<BinListVar> createBinListVars(final Variable binNumVar,
+                                               final Variable numObsVar,
+                                               final Variable numScenesVar,
+                                               final List<Variable> featureVars) {
 
         ArrayList<BinListVar> binListVars = new ArrayList<BinListVar>();
 
         binListVars.add(new BinListVar(binNumVar, new BinListElementSetter() {
             @Override
-            public void setArray(Array array, int binIndex, TemporalBin bin) {
-                array.setInt(binIndex, seadasGrid.convertBinIndex(bin.getIndex()));
+            public void setArray(Array array, int binIndex, BinStore bins, int position) {
+                array.setInt(binIndex, seadasGrid.convertBinIndex(bins.getIndex(position)));
             }
         }));
 
         binListVars.add(new BinListVar(numObsVar, new BinListElementSetter() {
             @Override
-            public void setArray(Array array, int binIndex, TemporalBin bin) {
-                array.setInt(binIndex, bin.getNumObs());
+            public void setArray(Array array, int binIndex, BinStore bins, int position) {
+                array.setInt(binIndex, bins.getNumObs(position));
             }
         }));
 
         binListVars.add(new BinListVar(numScenesVar, new BinListElementSetter() {
             @Override
-            public void setArray(Array array, int binIndex, TemporalBin bin) {
-                array.setInt(binIndex, bin.getNumPasses());
+            public void setArray(Array array, int binIndex, BinStore bins, int position) {
+                array.setInt(binIndex, bins.getNumPasses(position));
             }
         }));
 
@@ -214,20 +323,15 @@ public class BinWriter {
             final int k = featureIndex;
             binListVars.add(new BinListVar(featureVars.get(k), new BinListElementSetter() {
                 @Override
-                public void setArray(Array array, int binIndex, TemporalBin bin) {
-                    array.setFloat(binIndex, bin.getFeatureValues()[k]);
+                public void setArray(Array array, int binIndex, BinStore bins, int position) {
+                    array.setFloat(binIndex, bins.getFeatureValue(position, k));
                 }
             }));
         }
+        return binListVars;
+    }
 
-        final int[] binRowBeginOffsets = new int[planetaryGrid.getNumRows()];
-        final long[] binRowBegins = new long[planetaryGrid.getNumRows()];
-        final int[] binRowExtends = new int[planetaryGrid.getNumRows()];
-        Arrays.fill(binRowBeginOffsets, -1);
-        Arrays.fill(binRowBegins, -1);
-        Arrays.fill(binRowExtends, 0);
-        writeBinListVariable0(netcdfFile, temporalBins, binListVars, binRowBeginOffsets, binRowBegins, binRowExtends);
-
+    private void writeBinRowVariables() throws IOException, InvalidRangeException {
         writeBinIndexVariable(netcdfFile, beginOffsetVar, new BinIndexElementSetter() {
             @Override
             public void setArray(Array array, int rowIndex, SeadasGrid grid) {
@@ -253,7 +357,6 @@ public class BinWriter {
                 array.setInt(rowIndex, binRowExtends[seadasGrid.convertRowIndex(rowIndex)]);
             }
         });
-
     }
 
     private void writeBinIndexVariable(NetcdfFileWriteable netcdfFile,
@@ -268,98 +371,59 @@ public class BinWriter {
         netcdfFile.write(variable.getName(), array);
     }
 
-    private void writeBinListVariable0(NetcdfFileWriteable netcdfFile,
-                                       List<TemporalBin> temporalBins,
-                                       List<BinListVar> vars,
-                                       int[] binRowBeginOffsets,
-                                       long[] binRowBegins,
-                                       int[] binRowExtends) throws IOException, InvalidRangeException {
-        logger.info("Writing bin list variables");
-
-        final int[] origin = new int[1];
-        int bufferIndex = 0;
-        int lastRowIndex = -1;
-        int rowIndex = -1;
-        ArrayList<TemporalBin> rowBins = new ArrayList<TemporalBin>(2 * planetaryGrid.getNumRows());
-
-        // Reverse-iterate through the bins
-        for (int i = temporalBins.size() - 1; i >= 0; i--) {
-            final TemporalBin temporalBin = temporalBins.get(i);
-
-            final long id = temporalBin.getIndex();
-
-            rowIndex = planetaryGrid.getRowIndex(id);
-            // Row change? If so we can write the bins of the same row.
-            if (rowIndex == lastRowIndex) {
-                rowBins.add(temporalBin);
-            } else {
-                if (!rowBins.isEmpty()) {
-                    bufferIndex = writeRowBins(netcdfFile, rowBins, vars, origin, bufferIndex, rowIndex,
-                                               binRowBeginOffsets, binRowBegins, binRowExtends);
-                    rowBins.clear();
-                }
-                rowBins.add(temporalBin);
-                lastRowIndex = rowIndex;
-            }
-        }
-        if (!rowBins.isEmpty()) {
-            bufferIndex = writeRowBins(netcdfFile, rowBins, vars, origin, bufferIndex, rowIndex,
-                                       binRowBeginOffsets, binRowBegins, binRowExtends);
-        }
-        if (bufferIndex > 0) {
-            writeBinListVars(netcdfFile, vars, origin, bufferIndex);
+    private void startRow(long binIndex) throws IOException, InvalidRangeException {
+        final int binRowIndex = planetaryGrid.getRowIndex(binIndex);
+        if (binRowIndex != rowIndex) {
+            writeRowBins();
+            rowIndex = binRowIndex;
         }
     }
 
-    private int writeRowBins(NetcdfFileWriteable netcdfFile,
-                             ArrayList<TemporalBin> rowBins,
-                             List<BinListVar> vars,
-                             int[] origin,
-                             int bufferIndex,
-                             int rowIndex,
-                             int[] binRowBeginOffsets,
-                             long[] binRowBegins,
-                             int[] binRowExtends) throws IOException, InvalidRangeException {
-        int offset = origin[0] + bufferIndex;
-        Collections.reverse(rowBins);
-        for (TemporalBin rowBin : rowBins) {
-            if (bufferIndex == BUFFER_SIZE) {
-                writeBinListVars(netcdfFile, vars, origin);
-                bufferIndex = 0;
-                origin[0] += BUFFER_SIZE;
+    private void writeRowBins() throws IOException, InvalidRangeException {
+        if (rowBins.isEmpty()) {
+            return;
+        }
+        final int numRowBins = rowBins.size();
+        final int offset = binListEnd - numRowBins;
+        if (offset < 0) {
+            throw new IllegalStateException("More bins than expected have been written");
+        }
+        for (int i = numRowBins - 1; i >= 0; i--) {
+            final int binListIndex = offset + i;
+            if (binListIndex < bufferOrigin) {
+                writeBinListBuffer();
+                bufferOrigin = binListIndex - BUFFER_SIZE + 1;
             }
-            setBinListVarsArrayElement(vars, rowBin, bufferIndex);
-            bufferIndex++;
+            bufferLow = binListIndex - bufferOrigin;
+            setBinListVarsArrayElement(binListVars, rowBins, i, bufferLow);
         }
         binRowBeginOffsets[rowIndex] = offset;
-        binRowBegins[rowIndex] = rowBins.get(0).getIndex();
-        binRowExtends[rowIndex] = rowBins.size();
-        return bufferIndex;
+        binRowBegins[rowIndex] = rowBins.getIndex(0);
+        binRowExtends[rowIndex] = numRowBins;
+        binListEnd = offset;
+        rowBins.clear();
     }
 
-    private void setBinListVarsArrayElement(List<BinListVar> vars, TemporalBin temporalBin, int bufferIndex) {
+    private void setBinListVarsArrayElement(List<BinListVar> vars, BinStore temporalBins, int position,
+                                            int bufferIndex) {
         for (BinListVar var : vars) {
-            var.setter.setArray(var.buffer, bufferIndex, temporalBin);
+            var.setter.setArray(var.buffer, bufferIndex, temporalBins, position);
         }
     }
 
-    private void writeBinListVars(NetcdfFileWriteable netcdfFile, List<BinListVar> vars, int[] origin) throws IOException, InvalidRangeException {
-        for (BinListVar var : vars) {
-            netcdfFile.write(var.variable.getName(),
-                             origin,
-                             var.buffer);
+    private void writeBinListBuffer() throws IOException, InvalidRangeException {
+        if (bufferLow == BUFFER_SIZE) {
+            return;
         }
-    }
-
-    private void writeBinListVars(NetcdfFileWriteable netcdfFile, List<BinListVar> vars, int[] origin, int bufferIndex) throws IOException,
-                                                                                                                               InvalidRangeException {
-        final int[] origin0 = {0};
-        final int[] shape = {bufferIndex};
-        for (BinListVar var : vars) {
+        final int[] origin = {bufferOrigin + bufferLow};
+        final int[] sectionOrigin = {bufferLow};
+        final int[] shape = {BUFFER_SIZE - bufferLow};
+        for (BinListVar var : binListVars) {
             netcdfFile.write(var.variable.getName(),
                              origin,
-                             var.buffer.section(origin0, shape));
+                             var.buffer.section(sectionOrigin, shape));
         }
+        bufferLow = BUFFER_SIZE;
     }
 
     private interface BinIndexElementSetter {
@@ -369,7 +433,7 @@ public class BinWriter {
 
     private interface BinListElementSetter {
 
-        void setArray(Array array, int binIndex, TemporalBin bin);
+        void setArray(Array array, int binIndex, BinStore bins, int position);
     }
 
 
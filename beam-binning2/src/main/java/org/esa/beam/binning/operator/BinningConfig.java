@@ -111,6 +111,15 @@ public class BinningConfig {
     @Parameter(alias = "aggregators", domConverter = AggregatorConfigDomConverter.class)
     private AggregatorConfig[] aggregatorConfigs;
 
+    /**
+     * The number of threads used for the spatial and temporal binning. If greater than one, multiple source products
+     * are binned concurrently, and temporal bins are computed for
+     * multiple parts of the planetary grid concurrently. If zero or negative, the
+     * number of available processors is used. If not given, binning is performed sequentially.
+     */
+    @Parameter
+    private Integer numThreads;
+
     public String getPlanetaryGrid() {
         return planetaryGrid;
     }
@@ -167,6 +176,29 @@ public class BinningConfig {
         this.aggregatorConfigs = aggregatorConfigs;
     }
 
+    public Integer getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(Integer numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * @return The effective number of threads used for the binning, always greater than zero.
+     *
+     * @see #getNumThreads()
+     */
+    public int getEffectiveNumThreads() {
+        if (numThreads == null) {
+            return 1;
+        }
+        if (numThreads <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return numThreads;
+    }
+
     public static BinningConfig fromXml(String xml) throws BindingException {
         return new ParameterBlockConverter().convertXmlToObject(xml, new BinningConfig());
     }
@@ -22,12 +22,11 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.runtime.RuntimeConstants;
+import org.esa.beam.binning.BinStore;
 import org.esa.beam.binning.BinningContext;
-import org.esa.beam.binning.SpatialBin;
 import org.esa.beam.binning.SpatialBinner;
 import org.esa.beam.binning.TemporalBin;
 import org.esa.beam.binning.TemporalBinSource;
-import org.esa.beam.binning.TemporalBinner;
 import org.esa.beam.framework.dataio.ProductIO;
 import org.esa.beam.framework.datamodel.Band;
 import org.esa.beam.framework.datamodel.MetadataAttribute;
@@ -51,7 +50,6 @@ import org.esa.beam.util.converters.JtsGeometryConverter;
 import org.esa.beam.util.io.FileUtils;
 import org.esa.beam.util.io.WildcardMatcher;
 import org.geotools.geometry.jts.JTS;
-import ucar.ma2.InvalidRangeException;
 
 import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
@@ -77,7 +75,14 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /*
 
@@ -264,15 +269,9 @@ public class BinningOp extends Operator implements Output {
             // Step 1: Spatial binning - creates time-series of spatial bins for each bin ID ordered by ID. The tree map structure is <ID, time-series>
             SpatialBinCollection spatialBinMap = doSpatialBinning();
             if (!spatialBinMap.isEmpty()) {
-                // Step 2: Temporal binning - creates a list of temporal bins, sorted by bin ID
-                TemporalBinList temporalBins = doTemporalBinning(spatialBinMap);
-                // Step 3: Formatting
-                try {
-                    writeOutput(temporalBins, startDateUtc, endDateUtc);
-                } finally {
-                    temporalBins.close();
-
-                }
+                // Step 2+3: Temporal binning and formatting - temporal bins are computed part by part, sorted by
+                // bin ID, and each part is streamed to the writers as soon as it is available
+                writeOutput(spatialBinMap, startDateUtc, endDateUtc);
                 // TODO - Check efficiency of interface 'org.esa.beam.framework.gpf.experimental.Output'  (nf, 2012-03-02)
                 // actually, the following line of code would be sufficient, but then, the
                 // 'Output' interface implemented by this operator has no effect, because it already has a
@@ -509,21 +508,17 @@ public class BinningOp extends Operator implements Output {
 
     private SpatialBinCollection doSpatialBinning() throws IOException {
         SpatialBinCollector spatialBinCollector =  new GeneralSpatialBinCollector(binningContext.getPlanetaryGrid().getNumBins());
-        final SpatialBinner spatialBinner = new SpatialBinner(binningContext, spatialBinCollector);
-        if (sourceProducts != null) {
-            for (Product sourceProduct : sourceProducts) {
-                processSource(sourceProduct, spatialBinner);
-            }
-        }
-        if (sourceProductPaths != null) {
-            SortedSet<File> fileSet = new TreeSet<File>();
-            for (String filePattern : sourceProductPaths) {
-                WildcardMatcher.glob(filePattern, fileSet);
-            }
-            if (fileSet.isEmpty()) {
-                getLogger().warning("The given source file patterns did not match any files");
+        final int numThreads = binningConfig.getEffectiveNumThreads();
+        if (numThreads > 1) {
+            doSpatialBinningConcurrently(spatialBinCollector, numThreads);
+        } else {
+            final SpatialBinner spatialBinner = new SpatialBinner(binningContext, spatialBinCollector);
+            if (sourceProducts != null) {
+                for (Product sourceProduct : sourceProducts) {
+                    processSource(sourceProduct, spatialBinner);
+                }
             }
-            for (File file : fileSet) {
+            for (File file : getSourceProductFiles()) {
                 Product sourceProduct = ProductIO.readProduct(file);
                 if (sourceProduct != null) {
                     try {
@@ -541,6 +536,18 @@ public class BinningOp extends Operator implements Output {
         return spatialBinCollector.getSpatialBinCollection();
     }
 
+    private SortedSet<File> getSourceProductFiles() {
+        SortedSet<File> fileSet = new TreeSet<File>();
+        if (sourceProductPaths != null) {
+            for (String filePattern : sourceProductPaths) {
+                WildcardMatcher.glob(filePattern, fileSet);
+            }
+            if (fileSet.isEmpty()) {
+                getLogger().warning("The given source file patterns did not match any files");
+            }
+        }
+        return fileSet;
+    }
 
     private void processSource(Product sourceProduct, SpatialBinner spatialBinner) throws IOException {
         StopWatch stopWatch = new StopWatch();
@@ -556,39 +563,110 @@ public class BinningOp extends Operator implements Output {
         sourceProductCount++;
     }
 
-    private TemporalBinList doTemporalBinning(SpatialBinCollection spatialBinMap) throws IOException {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
+    /**
+     * Bins the source products concurrently. Products are prepared and read in the calling thread, while they
+     * are binned by a pool of worker threads, each product by its own {@link SpatialBinner}. A product is never
+     * split across threads, so that the result does not depend on the number of threads.
+     * The number of products in progress is limited to the number of threads.
+     */
+    private void doSpatialBinningConcurrently(SpatialBinCollector spatialBinCollector, int numThreads) throws IOException {
+        final SortedSet<File> sourceFiles = getSourceProductFiles();
+        final int numProducts = (sourceProducts != null ? sourceProducts.length : 0) + sourceFiles.size();
+        getLogger().info(String.format("Spatial binning of %d product(s) using %d threads", numProducts, numThreads));
 
-        long numberOfBins = spatialBinMap.size();
-        final TemporalBinner temporalBinner = new TemporalBinner(binningContext);
-        final TemporalBinList temporalBins = new TemporalBinList((int) spatialBinMap.size());
-        Iterable<List<SpatialBin>> spatialBinListCollection = spatialBinMap.getBinCollection();
-        for (List<SpatialBin> spatialBinList : spatialBinListCollection) {
-            SpatialBin spatialBin = spatialBinList.get(0);
-            long spatialBinIndex = spatialBin.getIndex();
-            final TemporalBin temporalBin = temporalBinner.processSpatialBins(spatialBinIndex, spatialBinList);
-            temporalBins.add(temporalBin);
+        final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        final List<ProductBinningJob> jobs = new ArrayList<ProductBinningJob>();
+        try {
+            if (sourceProducts != null) {
+                for (Product sourceProduct : sourceProducts) {
+                    submitSource(sourceProduct, false, spatialBinCollector, executorService, jobs);
+                    completeJobs(jobs, numThreads);
+                }
+            }
+            for (File file : sourceFiles) {
+                Product sourceProduct = ProductIO.readProduct(file);
+                if (sourceProduct != null) {
+                    submitSource(sourceProduct, true, spatialBinCollector, executorService, jobs);
+                    completeJobs(jobs, numThreads);
+                } else {
+                    String msgPattern = "Failed to read file '%s' (not a data product or reader missing)";
+                    getLogger().severe(String.format(msgPattern, file));
+                }
+            }
+            completeJobs(jobs, 1);
+        } finally {
+            // only reached with jobs left, if an error occurred
+            for (ProductBinningJob job : jobs) {
+                job.cancel();
+            }
+            executorService.shutdownNow();
+            awaitTermination(executorService);
+            for (ProductBinningJob job : jobs) {
+                job.disposeProduct();
+            }
         }
-        stopWatch.stop();
-        getLogger().info(String.format("Temporal binning of %d bins done, took %s", numberOfBins, stopWatch));
+    }
 
-        return temporalBins;
+    private void submitSource(Product sourceProduct, boolean dispose, SpatialBinCollector spatialBinCollector,
+                              ExecutorService executorService, List<ProductBinningJob> jobs) throws IOException {
+        final ProductBinningJob job = new ProductBinningJob(sourceProduct, dispose);
+        jobs.add(job);
+        updateDateRangeUtc(sourceProduct);
+        getLogger().info(String.format("Spatial binning of product '%s'...", sourceProduct.getName()));
+        final Callable<Long> task = SpatialProductBinner.createProductTask(sourceProduct, binningContext,
+                                                                           spatialBinCollector,
+                                                                           binningContext.getSuperSampling(),
+                                                                           addedBands);
+        job.future = executorService.submit(task);
     }
 
-    private void writeOutput(List<TemporalBin> temporalBins, ProductData.UTC startTime, ProductData.UTC stopTime) throws
-                                                                                                                  Exception {
+    private void awaitTermination(ExecutorService executorService) {
+        try {
+            while (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+                getLogger().warning("Waiting for spatial binning threads to terminate...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the oldest jobs to complete until less than {@code maxJobCount} jobs are in progress.
+     */
+    private void completeJobs(List<ProductBinningJob> jobs, int maxJobCount) throws IOException {
+        while (!jobs.isEmpty() && jobs.size() >= maxJobCount) {
+            final ProductBinningJob job = jobs.get(0);
+            final long numObs = job.awaitCompletion();
+            job.disposeProduct();
+            jobs.remove(0);
+            getLogger().info(String.format("Spatial binning of product '%s' done, %d observations seen, took %s",
+                                           job.product.getName(), numObs, job.stopWatch));
+            sourceProductCount++;
+        }
+    }
+
+    private void writeOutput(SpatialBinCollection spatialBinMap, ProductData.UTC startTime,
+                             ProductData.UTC stopTime) throws Exception {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
 
         initMetadataProperties();
 
+        final long numberOfBins = spatialBinMap.size();
+        final int numThreads = binningConfig.getEffectiveNumThreads();
+        getLogger().info(String.format("Temporal binning of %d bins using %d thread(s)", numberOfBins, numThreads));
+        final ParallelTemporalBinSource temporalBinSource = new ParallelTemporalBinSource(binningContext,
+                                                                                          spatialBinMap,
+                                                                                          numThreads);
+        BinWritingTemporalBinSource binWritingTemporalBinSource = null;
         if (outputBinnedData) {
             File binnedDataFile = FileUtils.exchangeExtension(new File(formatterConfig.getOutputFile()), "-bins.nc");
             try {
                 getLogger().info(String.format("Writing binned data to '%s'...", binnedDataFile));
-                writeNetCDFBinFile(binnedDataFile, temporalBins, startTime, stopTime);
-                getLogger().info(String.format("Writing binned data to '%s' done.", binnedDataFile));
+                final BinWriter binWriter = createBinWriter(startTime, stopTime);
+                binWriter.begin(binnedDataFile, metadataProperties, (int) numberOfBins);
+                binWritingTemporalBinSource = new BinWritingTemporalBinSource(temporalBinSource, binWriter,
+                                                                              binnedDataFile, getLogger());
             } catch (Exception e) {
                 getLogger().log(Level.SEVERE, String.format("Failed to write binned data to '%s': %s", binnedDataFile,
                                                             e.getMessage()), e);
@@ -597,13 +675,21 @@ public class BinningOp extends Operator implements Output {
 
         getLogger().info(String.format("Writing mapped product '%s'...", formatterConfig.getOutputFile()));
         final MetadataElement globalAttributes = createGlobalAttributesElement();
-        Formatter.format(binningContext,
-                         getTemporalBinSource(temporalBins),
-                         formatterConfig,
-                         region,
-                         startTime,
-                         stopTime,
-                         globalAttributes);
+        try {
+            Formatter.format(binningContext,
+                             binWritingTemporalBinSource != null ? binWritingTemporalBinSource : temporalBinSource,
+                             formatterConfig,
+                             region,
+                             startTime,
+                             stopTime,
+                             globalAttributes);
+        } finally {
+            // the source is closed by the formatter, unless an error occurred
+            temporalBinSource.close();
+            if (binWritingTemporalBinSource != null) {
+                binWritingTemporalBinSource.endWriting();
+            }
+        }
         stopWatch.stop();
 
         String msgPattern = "Writing mapped product '%s' done, took %s";
@@ -619,20 +705,10 @@ public class BinningOp extends Operator implements Output {
         return globalAttributes;
     }
 
-    private TemporalBinSource getTemporalBinSource(List<TemporalBin> temporalBins) throws IOException {
-        return new SimpleTemporalBinSource(temporalBins);
-    }
-
-    private void writeNetCDFBinFile(File file, List<TemporalBin> temporalBins, ProductData.UTC startTime,
-                                    ProductData.UTC stopTime) throws IOException {
-        final BinWriter writer = new BinWriter(binningContext, getLogger(), region,
-                                               startTime != null ? startTime : minDateUtc,
-                                               stopTime != null ? stopTime : maxDateUtc);
-        try {
-            writer.write(file, metadataProperties, temporalBins);
-        } catch (InvalidRangeException e) {
-            throw new IllegalArgumentException(e);
-        }
+    private BinWriter createBinWriter(ProductData.UTC startTime, ProductData.UTC stopTime) {
+        return new BinWriter(binningContext, getLogger(), region,
+                             startTime != null ? startTime : minDateUtc,
+                             stopTime != null ? stopTime : maxDateUtc);
     }
 
     private ProductData.UTC getStartDateUtc(String parameterName) throws OperatorException {
@@ -672,30 +748,73 @@ public class BinningOp extends Operator implements Output {
         }
     }
 
-    private static class SimpleTemporalBinSource implements TemporalBinSource {
+    /**
+     * Passes the parts of a temporal bin source to a {@link BinWriter}, before they are processed by the formatter.
+     * A failure of the bin writer is logged, but does not affect the formatting.
+     */
+    private static class BinWritingTemporalBinSource implements TemporalBinSource {
 
-        private final List<TemporalBin> temporalBins;
+        private final ParallelTemporalBinSource temporalBinSource;
+        private final File binnedDataFile;
+        private final Logger logger;
+        private BinWriter binWriter;
 
-        public SimpleTemporalBinSource(List<TemporalBin> temporalBins) {
-            this.temporalBins = temporalBins;
+        private BinWritingTemporalBinSource(ParallelTemporalBinSource temporalBinSource, BinWriter binWriter,
+                                            File binnedDataFile, Logger logger) {
+            this.temporalBinSource = temporalBinSource;
+            this.binWriter = binWriter;
+            this.binnedDataFile = binnedDataFile;
+            this.logger = logger;
         }
 
         @Override
         public int open() throws IOException {
-            return 1;
+            return temporalBinSource.open();
         }
 
         @Override
         public Iterator<? extends TemporalBin> getPart(int index) throws IOException {
-            return temporalBins.iterator();
+            if (binWriter != null) {
+                final BinStore temporalBins = temporalBinSource.getPartStore(index);
+                try {
+                    binWriter.writeBins(temporalBins);
+                } catch (Exception e) {
+                    handleError(e);
+                }
+            }
+            return temporalBinSource.getPart(index);
         }
 
         @Override
         public void partProcessed(int index, Iterator<? extends TemporalBin> part) throws IOException {
+            temporalBinSource.partProcessed(index, part);
         }
 
         @Override
         public void close() throws IOException {
+            temporalBinSource.close();
+        }
+
+        private void endWriting() {
+            if (binWriter != null) {
+                try {
+                    binWriter.end();
+                    logger.info(String.format("Writing binned data to '%s' done.", binnedDataFile));
+                } catch (Exception e) {
+                    handleError(e);
+                }
+            }
+        }
+
+        private void handleError(Exception e) {
+            logger.log(Level.SEVERE, String.format("Failed to write binned data to '%s': %s", binnedDataFile,
+                                                   e.getMessage()), e);
+            try {
+                binWriter.end();
+            } catch (Exception ignored) {
+                // the file is incomplete anyway
+            }
+            binWriter = null;
         }
     }
 
@@ -710,4 +829,49 @@ public class BinningOp extends Operator implements Output {
         }
     }
 
+    private static class ProductBinningJob {
+
+        private final Product product;
+        private final boolean dispose;
+        private final StopWatch stopWatch;
+        private Future<Long> future;
+
+        private ProductBinningJob(Product product, boolean dispose) {
+            this.product = product;
+            this.dispose = dispose;
+            this.stopWatch = new StopWatch();
+            this.stopWatch.start();
+        }
+
+        private long awaitCompletion() throws IOException {
+            try {
+                final long numObs = future.get();
+                stopWatch.stop();
+                return numObs;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperatorException(e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new OperatorException(cause);
+            }
+        }
+
+        private void cancel() {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        private void disposeProduct() {
+            if (dispose) {
+                product.dispose();
+            }
+        }
+    }
 }
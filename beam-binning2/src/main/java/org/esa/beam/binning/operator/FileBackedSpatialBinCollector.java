@@ -14,6 +14,7 @@
  * with this program; if not, see http://www.gnu.org/licenses/
  */
 
+
 package org.esa.beam.binning.operator;
 
 import com.bc.ceres.core.Assert;
@@ -22,181 +23,253 @@ import org.esa.beam.binning.BinningContext;
 import org.esa.beam.binning.SpatialBin;
 import org.esa.beam.util.io.FileUtils;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 /**
- * An implementation of {@link SpatialBinCollector} which stores the consumed
- * {@link SpatialBin spatial bins} into multiple files.
+ * An implementation of {@link SpatialBinCollector} which performs an external merge sort of the consumed
+ * {@link SpatialBin spatial bins} by their bin index.
+ * <p/>
+ * Consumed bins are buffered in memory. Whenever the buffer is full, its bins are sorted and appended
+ * to a new run file. When consuming is completed, the sorted runs are merged into a single file
+ * (k-way merge), from which the bins are finally read in bin index order. Every bin is therefore written
+ * and read a constant number of times, regardless of the order in which the bins are consumed.
+ * If all bins fit into the buffer, no files are written at all.
  *
  * @see MapBackedSpatialBinCollector
  * @see GeneralSpatialBinCollector
  */
 class FileBackedSpatialBinCollector implements SpatialBinCollector {
 
-    private static final int NUM_BINS_PER_FILE = 100000;
-    private static final int MAX_NUMBER_OF_CACHE_FILES = 100;
+    private static final int MAX_NUM_BINS_PER_RUN = 100000;
+    private static final int MAX_NUM_RUNS_PER_MERGE = 64;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
     private static final String FILE_NAME_PATTERN = "bins-%03d.tmp";
 
-    private final long maximumNumberOfBins;
-    private final SortedMap<Long, List<SpatialBin>> map;
-    private final TreeSet<Long> binIndexSet;
-    private final AtomicBoolean consumingCompleted;
+    private static final Comparator<SpatialBin> BIN_INDEX_COMPARATOR = new Comparator<SpatialBin>() {
+        @Override
+        public int compare(SpatialBin b1, SpatialBin b2) {
+            return b1.getIndex() < b2.getIndex() ? -1 : (b1.getIndex() == b2.getIndex() ? 0 : 1);
+        }
+    };
+
+    private final int maxNumBinsPerRun;
     private final File tempDir;
-    private long currentFileIndex;
+    private final List<SpatialBin> buffer;
+    private final List<File> runFiles;
+    private boolean consumingCompleted;
+    private int fileCounter;
+    private File mergedFile;
+    private long numBinIndexes;
 
     public FileBackedSpatialBinCollector(long maximumNumberOfBins) throws IOException {
+        this(maximumNumberOfBins, MAX_NUM_BINS_PER_RUN);
+    }
+
+    FileBackedSpatialBinCollector(long maximumNumberOfBins, int maxNumBinsPerRun) throws IOException {
         Assert.argument(maximumNumberOfBins > 0, "maximumNumberOfBins > 0");
-        this.maximumNumberOfBins = maximumNumberOfBins;
+        Assert.argument(maxNumBinsPerRun > 0, "maxNumBinsPerRun > 0");
+        this.maxNumBinsPerRun = maxNumBinsPerRun;
         tempDir = VirtualDir.createUniqueTempDir();
-        binIndexSet = new TreeSet<Long>();
-        map = new TreeMap<Long, List<SpatialBin>>();
-        consumingCompleted = new AtomicBoolean(false);
-        currentFileIndex = -1;
+        buffer = new ArrayList<SpatialBin>((int) Math.min(maximumNumberOfBins, maxNumBinsPerRun));
+        runFiles = new ArrayList<File>();
     }
 
     @Override
-    public void consumeSpatialBins(BinningContext ignored, List<SpatialBin> spatialBins) throws Exception {
-        if (consumingCompleted.get()) {
+    public synchronized void consumeSpatialBins(BinningContext ignored, List<SpatialBin> spatialBins) throws Exception {
+        if (consumingCompleted) {
             throw new IllegalStateException("Consuming of bins has already been completed.");
         }
-        synchronized (map) {
-            for (SpatialBin spatialBin : spatialBins) {
-                long spatialBinIndex = spatialBin.getIndex();
-                int nextFileIndex = calculateNextFileIndex(spatialBinIndex);
-                if (nextFileIndex != currentFileIndex) {
-                    // write map back to file, if it contains data
-                    writeMapToFile(currentFileIndex);
-                    readFromFile(nextFileIndex);
-                    currentFileIndex = nextFileIndex;
-                }
-                binIndexSet.add(spatialBinIndex);
-                List<SpatialBin> spatialBinList = map.get(spatialBinIndex);
-                if (spatialBinList == null) {
-                    spatialBinList = new ArrayList<SpatialBin>();
-                    map.put(spatialBinIndex, spatialBinList);
-                }
-                spatialBinList.add(spatialBin);
+        for (SpatialBin spatialBin : spatialBins) {
+            buffer.add(spatialBin);
+            if (buffer.size() >= maxNumBinsPerRun) {
+                writeRun();
             }
         }
     }
 
     @Override
-    public void consumingCompleted() throws IOException {
-        consumingCompleted.set(true);
-        synchronized (map) {
-            writeMapToFile(currentFileIndex);
+    public synchronized void consumingCompleted() throws IOException {
+        if (consumingCompleted) {
+            return;
+        }
+        consumingCompleted = true;
+        if (runFiles.isEmpty()) {
+            // everything fits into memory
+            sortBuffer();
+            numBinIndexes = countBinIndexes(buffer);
+            return;
         }
+        writeRun();
+        while (runFiles.size() > MAX_NUM_RUNS_PER_MERGE) {
+            // merge adjacent runs only, so that bins having the same index keep their order
+            final List<File> mergedRunFiles = new ArrayList<File>();
+            for (int i = 0; i < runFiles.size(); i += MAX_NUM_RUNS_PER_MERGE) {
+                final List<File> inputFiles = runFiles.subList(i, Math.min(i + MAX_NUM_RUNS_PER_MERGE, runFiles.size()));
+                if (inputFiles.size() == 1) {
+                    mergedRunFiles.add(inputFiles.get(0));
+                } else {
+                    final File outputFile = createFile();
+                    merge(inputFiles, outputFile);
+                    mergedRunFiles.add(outputFile);
+                }
+            }
+            runFiles.clear();
+            runFiles.addAll(mergedRunFiles);
+        }
+        if (runFiles.size() == 1) {
+            mergedFile = runFiles.get(0);
+            numBinIndexes = countBinIndexes(mergedFile);
+        } else {
+            mergedFile = createFile();
+            numBinIndexes = merge(runFiles, mergedFile);
+        }
+        runFiles.clear();
     }
 
     @Override
-    public SpatialBinCollection getSpatialBinCollection() throws IOException {
-        return new FileBackedBinCollection(binIndexSet);
+    public synchronized SpatialBinCollection getSpatialBinCollection() throws IOException {
+        if (!consumingCompleted) {
+            throw new IllegalStateException("Consuming of bins has not been completed yet.");
+        }
+        return new FileBackedBinCollection(mergedFile, buffer, numBinIndexes);
     }
 
+    @Override
     public void close() {
         FileUtils.deleteTree(tempDir);
     }
 
-    static void writeToStream(SortedMap<Long, List<SpatialBin>> map, DataOutputStream dos) throws IOException {
-        for (Map.Entry<Long, List<SpatialBin>> entry : map.entrySet()) {
-            dos.writeLong(entry.getKey());
-            List<SpatialBin> binList = entry.getValue();
-            dos.writeInt(binList.size());
-            for (SpatialBin spatialBin : binList) {
-                spatialBin.write(dos);
+    private void writeRun() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        sortBuffer();
+        final File runFile = createFile();
+        final SpatialBinRunWriter writer = new SpatialBinRunWriter(runFile);
+        try {
+            for (SpatialBin spatialBin : buffer) {
+                writer.write(spatialBin);
             }
+        } finally {
+            writer.close();
         }
+        runFiles.add(runFile);
+        buffer.clear();
     }
 
-    static void readFromStream(DataInputStream dis, SortedMap<Long, List<SpatialBin>> map) throws IOException {
-        while (dis.available() != 0) {
-            long binIndex = dis.readLong();
-            int numBins = dis.readInt();
-            List<SpatialBin> spatialBins = map.get(binIndex);
-            if (spatialBins == null) {
-                spatialBins = new ArrayList<SpatialBin>(numBins);
-            }
-            for (int i = numBins; i > 0; i--) {
-                spatialBins.add(SpatialBin.read(binIndex, dis));
-            }
-            map.put(binIndex, spatialBins);
-        }
+    private void sortBuffer() {
+        // Note: the sort is stable, bins having the same index keep the order in which they have been consumed
+        Collections.sort(buffer, BIN_INDEX_COMPARATOR);
     }
 
-    private void writeMapToFile(long fileIndex) throws IOException {
-        if (!map.isEmpty()) {
-            File file = getFile(fileIndex);
-            writeToFile(map, file);
-            map.clear();
-        }
+    private File createFile() {
+        return new File(tempDir, String.format(FILE_NAME_PATTERN, fileCounter++));
     }
 
-    private void writeToFile(SortedMap<Long, List<SpatialBin>> map, File file) throws IOException {
-        FileOutputStream fos = new FileOutputStream(file);
-        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos, 1024 * 1024));
+    /**
+     * Merges the given sorted run files into the given output file and deletes them.
+     *
+     * @return The number of distinct bin indexes.
+     */
+    static long merge(List<File> inputFiles, File outputFile) throws IOException {
+        final PriorityQueue<SpatialBinRunReader> queue = new PriorityQueue<SpatialBinRunReader>(
+                inputFiles.size(), new Comparator<SpatialBinRunReader>() {
+            @Override
+            public int compare(SpatialBinRunReader r1, SpatialBinRunReader r2) {
+                final int c = BIN_INDEX_COMPARATOR.compare(r1.peek(), r2.peek());
+                return c != 0 ? c : r1.getRunIndex() - r2.getRunIndex();
+            }
+        });
+        final List<SpatialBinRunReader> readers = new ArrayList<SpatialBinRunReader>(inputFiles.size());
+        final SpatialBinRunWriter writer = new SpatialBinRunWriter(outputFile);
+        long numBinIndexes = 0;
         try {
-            writeToStream(map, dos);
+            for (int i = 0; i < inputFiles.size(); i++) {
+                final SpatialBinRunReader reader = new SpatialBinRunReader(inputFiles.get(i), i, READ_BUFFER_SIZE);
+                readers.add(reader);
+                if (reader.peek() != null) {
+                    queue.add(reader);
+                }
+            }
+            long lastBinIndex = 0;
+            while (!queue.isEmpty()) {
+                final SpatialBinRunReader reader = queue.poll();
+                final SpatialBin spatialBin = reader.read();
+                if (numBinIndexes == 0 || spatialBin.getIndex() != lastBinIndex) {
+                    lastBinIndex = spatialBin.getIndex();
+                    numBinIndexes++;
+                }
+                writer.write(spatialBin);
+                if (reader.peek() != null) {
+                    queue.add(reader);
+                }
+            }
         } finally {
-            dos.close();
+            writer.close();
+            for (SpatialBinRunReader reader : readers) {
+                reader.close();
+            }
         }
-    }
-
-    private void readFromFile(long nextFileIndex) throws IOException {
-        File file = getFile(nextFileIndex);
-        if (file.exists()) {
-            readIntoMap(file, map);
-        } else {
-            map.clear();
+        for (File inputFile : inputFiles) {
+            deleteFile(inputFile);
         }
+        return numBinIndexes;
     }
 
-    private static void readIntoMap(File file, SortedMap<Long, List<SpatialBin>> map) throws IOException {
-        FileInputStream fis = new FileInputStream(file);
-        DataInputStream dis = new DataInputStream(new BufferedInputStream(fis, 1024 * 1024));
+    private static long countBinIndexes(File file) throws IOException {
+        final SpatialBinRunReader reader = new SpatialBinRunReader(file, 0, SpatialBinRunWriter.BUFFER_SIZE);
         try {
-            readFromStream(dis, map);
+            long numBinIndexes = 0;
+            long lastBinIndex = 0;
+            SpatialBin spatialBin;
+            while ((spatialBin = reader.read()) != null) {
+                if (numBinIndexes == 0 || spatialBin.getIndex() != lastBinIndex) {
+                    lastBinIndex = spatialBin.getIndex();
+                    numBinIndexes++;
+                }
+            }
+            return numBinIndexes;
         } finally {
-            dis.close();
+            reader.close();
         }
     }
 
-    private File getFile(long fileIndex) throws IOException {
-        return new File(tempDir, String.format(FILE_NAME_PATTERN, fileIndex));
-    }
-
-    private int calculateNextFileIndex(long binIndex) {
-        int numBinsPerFile = getNumBinsPerFile(maximumNumberOfBins);
-        return (int) (binIndex / numBinsPerFile);
+    private static long countBinIndexes(List<SpatialBin> sortedBins) {
+        long numBinIndexes = 0;
+        long lastBinIndex = 0;
+        for (SpatialBin spatialBin : sortedBins) {
+            if (numBinIndexes == 0 || spatialBin.getIndex() != lastBinIndex) {
+                lastBinIndex = spatialBin.getIndex();
+                numBinIndexes++;
+            }
+        }
+        return numBinIndexes;
     }
 
-    private static int getNumBinsPerFile(long maxBinCount) {
-        int numCacheFiles = (int) Math.ceil(maxBinCount / NUM_BINS_PER_FILE);
-        numCacheFiles = Math.min(numCacheFiles, MAX_NUMBER_OF_CACHE_FILES);
-        int binsPerFile = (int) Math.ceil(maxBinCount / (float) numCacheFiles);
-        return binsPerFile < NUM_BINS_PER_FILE ? NUM_BINS_PER_FILE : binsPerFile;
+    private static void deleteFile(File file) {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
     }
 
-    private class FileBackedBinCollection implements SpatialBinCollection {
+    private static class FileBackedBinCollection implements SpatialBinCollection {
 
-        private TreeSet<Long> binIndexSet;
+        private final File file;
+        private final List<SpatialBin> sortedBins;
+        private final long size;
 
-        public FileBackedBinCollection(TreeSet<Long> binIndexSet) {
-            this.binIndexSet = binIndexSet;
+        private FileBackedBinCollection(File file, List<SpatialBin> sortedBins, long size) {
+            this.file = file;
+            this.sortedBins = sortedBins;
+            this.size = size;
         }
 
         @Override
@@ -204,64 +277,105 @@ class FileBackedSpatialBinCollector implements SpatialBinCollector {
             return new Iterable<List<SpatialBin>>() {
                 @Override
                 public Iterator<List<SpatialBin>> iterator() {
-                    return new FileBackedBinIterator(binIndexSet.iterator());
+                    if (file != null) {
+                        try {
+                            return new BinGroupIterator(new RunFileIterator(file));
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e.getMessage(), e);
+                        }
+                    }
+                    return new BinGroupIterator(sortedBins.iterator());
                 }
             };
         }
 
         @Override
         public long size() {
-            return binIndexSet.size();
+            return size;
         }
 
         @Override
         public boolean isEmpty() {
-            return binIndexSet.isEmpty();
+            return size == 0;
         }
+    }
 
-        private class FileBackedBinIterator implements Iterator<List<SpatialBin>> {
+    /**
+     * Groups a sequence of spatial bins, sorted by bin index, into lists of bins having the same index.
+     */
+    private static class BinGroupIterator implements Iterator<List<SpatialBin>> {
 
-            private final Iterator<Long> binIterator;
-            private final SortedMap<Long, List<SpatialBin>> currentMap;
-            private int currentFileIndex = -1;
-            private long currentBinIndex;
+        private final Iterator<SpatialBin> binIterator;
+        private SpatialBin next;
 
-            private FileBackedBinIterator(Iterator<Long> iterator) {
-                binIterator = iterator;
-                currentMap = new TreeMap<Long, List<SpatialBin>>();
-            }
+        private BinGroupIterator(Iterator<SpatialBin> binIterator) {
+            this.binIterator = binIterator;
+            this.next = binIterator.hasNext() ? binIterator.next() : null;
+        }
 
-            @Override
-            public boolean hasNext() {
-                return binIterator.hasNext();
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public List<SpatialBin> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
             }
+            final List<SpatialBin> spatialBins = new ArrayList<SpatialBin>();
+            final long binIndex = next.getIndex();
+            do {
+                spatialBins.add(next);
+                next = binIterator.hasNext() ? binIterator.next() : null;
+            } while (next != null && next.getIndex() == binIndex);
+            return spatialBins;
+        }
 
-            @Override
-            public List<SpatialBin> next() {
-                currentBinIndex = binIterator.next();
-                try {
-                    int nextFileIndex = calculateNextFileIndex(currentBinIndex);
-                    if (nextFileIndex != currentFileIndex) {
-                        File nextFile = getFile(nextFileIndex);
-                        currentMap.clear();
-                        readIntoMap(nextFile, currentMap);
-                        File currentFile = getFile(currentFileIndex);
-                        if (!currentFile.delete()) {
-                            currentFile.deleteOnExit();
-                        }
-                    }
-                    currentFileIndex = nextFileIndex;
-                } catch (IOException e) {
-                    throw new IllegalStateException(e.getMessage(), e);
-                }
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 
-                return currentMap.get(currentBinIndex);
+    /**
+     * Iterates over the bins of a run file. The file is closed when the last bin has been read.
+     */
+    private static class RunFileIterator implements Iterator<SpatialBin> {
+
+        private final SpatialBinRunReader reader;
+
+        private RunFileIterator(File file) throws IOException {
+            this.reader = new SpatialBinRunReader(file, 0, SpatialBinRunWriter.BUFFER_SIZE);
+            if (reader.peek() == null) {
+                reader.close();
             }
+        }
 
-            @Override
-            public void remove() {
-                // nothing to do
+        @Override
+        public boolean hasNext() {
+            return reader.peek() != null;
+        }
+
+        @Override
+        public SpatialBin next() {
+            try {
+                final SpatialBin spatialBin = reader.read();
+                if (spatialBin == null) {
+                    throw new NoSuchElementException();
+                }
+                if (reader.peek() == null) {
+                    reader.close();
+                }
+                return spatialBin;
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
             }
         }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 }
@@ -44,7 +44,7 @@ public class GeneralSpatialBinCollector implements SpatialBinCollector {
     }
 
     @Override
-    public void consumeSpatialBins(BinningContext ctx, List<SpatialBin> spatialBins) throws Exception {
+    public synchronized void consumeSpatialBins(BinningContext ctx, List<SpatialBin> spatialBins) throws Exception {
         if (consumingCompleted) {
             throw new IllegalStateException("Consuming of bins has already been completed.");
         }
@@ -60,7 +60,7 @@ public class GeneralSpatialBinCollector implements SpatialBinCollector {
     }
 
     @Override
-    public void consumingCompleted() throws IOException {
+    public synchronized void consumingCompleted() throws IOException {
         consumingCompleted = true;
         moveBinsToFile(null);
         mapBinCollector.consumingCompleted();
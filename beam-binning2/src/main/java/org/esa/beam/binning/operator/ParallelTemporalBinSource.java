@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning.operator;
+
+import com.bc.ceres.core.Assert;
+import org.esa.beam.binning.BinStore;
+import org.esa.beam.binning.BinningContext;
+import org.esa.beam.binning.PlanetaryGrid;
+import org.esa.beam.binning.SpatialBin;
+import org.esa.beam.binning.TemporalBin;
+import org.esa.beam.binning.TemporalBinSource;
+import org.esa.beam.binning.TemporalBinner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A {@link TemporalBinSource} which computes the temporal bins from a {@link SpatialBinCollection}.
+ * <p/>
+ * The planetary grid is partitioned into parts of consecutive rows, so that each part covers a range
+ * of bin indexes. The spatial bins of a part are read from the collection when the part is submitted, the temporal
+ * bins of multiple parts are computed concurrently into {@link BinStore}s. Parts are submitted ahead of the part requested by
+ * {@link #getPart(int)}, so that at most {@code numThreads + 1} parts are held in memory at any time,
+ * regardless of the total number of bins.
+ * <p/>
+ * Parts must be requested in ascending order and a part must not be requested again after
+ * {@link #partProcessed(int, java.util.Iterator)} has been called for it.
+ */
+class ParallelTemporalBinSource implements TemporalBinSource {
+
+    /**
+     * The default maximum number of grid bins covered by a part.
+     */
+    static final int DEFAULT_MAX_NUM_GRID_BINS_PER_PART = 256 * 1024;
+
+    private final BinningContext binningContext;
+    private final SpatialBinCollection spatialBinCollection;
+    private final int numThreads;
+    private final int maxNumGridBinsPerPart;
+    private final Map<Integer, Future<BinStore>> parts;
+    private int[] partRows;
+    private Iterator<List<SpatialBin>> spatialBinIterator;
+    private List<SpatialBin> nextSpatialBins;
+    private ExecutorService executorService;
+    private int numSubmittedParts;
+
+    ParallelTemporalBinSource(BinningContext binningContext, SpatialBinCollection spatialBinCollection, int numThreads) {
+        this(binningContext, spatialBinCollection, numThreads, DEFAULT_MAX_NUM_GRID_BINS_PER_PART);
+    }
+
+    ParallelTemporalBinSource(BinningContext binningContext, SpatialBinCollection spatialBinCollection,
+                              int numThreads, int maxNumGridBinsPerPart) {
+        Assert.notNull(binningContext, "binningContext");
+        Assert.notNull(spatialBinCollection, "spatialBinCollection");
+        Assert.argument(numThreads > 0, "numThreads > 0");
+        Assert.argument(maxNumGridBinsPerPart > 0, "maxNumGridBinsPerPart > 0");
+        this.binningContext = binningContext;
+        this.spatialBinCollection = spatialBinCollection;
+        this.numThreads = numThreads;
+        this.maxNumGridBinsPerPart = maxNumGridBinsPerPart;
+        this.parts = new HashMap<Integer, Future<BinStore>>();
+    }
+
+    @Override
+    public int open() throws IOException {
+        partRows = computePartRows(binningContext.getPlanetaryGrid(), maxNumGridBinsPerPart);
+        spatialBinIterator = spatialBinCollection.getBinCollection().iterator();
+        nextSpatialBins = spatialBinIterator.hasNext() ? spatialBinIterator.next() : null;
+        if (numThreads > 1) {
+            executorService = Executors.newFixedThreadPool(numThreads);
+        }
+        numSubmittedParts = 0;
+        return partRows.length - 1;
+    }
+
+    @Override
+    public Iterator<? extends TemporalBin> getPart(int index) throws IOException {
+        return getPartStore(index).iterator();
+    }
+
+    /**
+     * Gets the temporal bins of a part without creating an object per bin.
+     *
+     * @param index The part index.
+     *
+     * @return The temporal bins of the part.
+     *
+     * @throws IOException If an I/O error occurred.
+     */
+    BinStore getPartStore(int index) throws IOException {
+        final int numParts = partRows.length - 1;
+        while (numSubmittedParts < numParts && numSubmittedParts <= index + numThreads) {
+            submitPart(numSubmittedParts);
+            numSubmittedParts++;
+        }
+        final Future<BinStore> part = parts.get(index);
+        if (part == null) {
+            throw new IllegalStateException(String.format("Part %d is not available.", index));
+        }
+        return getTemporalBins(part);
+    }
+
+    @Override
+    public void partProcessed(int index, Iterator<? extends TemporalBin> part) throws IOException {
+        parts.remove(index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+        parts.clear();
+        nextSpatialBins = null;
+        spatialBinIterator = null;
+    }
+
+    /**
+     * Partitions the rows of the given grid, so that each part covers at most {@code maxNumGridBinsPerPart} grid
+     * bins, but at least one row.
+     *
+     * @return The first row of each part, followed by the number of rows.
+     */
+    static int[] computePartRows(PlanetaryGrid planetaryGrid, int maxNumGridBinsPerPart) {
+        final int numRows = planetaryGrid.getNumRows();
+        final List<Integer> partRowList = new ArrayList<Integer>();
+        long numGridBins = 0;
+        for (int row = 0; row < numRows; row++) {
+            final int numCols = planetaryGrid.getNumCols(row);
+            if (row == 0 || numGridBins + numCols > maxNumGridBinsPerPart) {
+                partRowList.add(row);
+                numGridBins = 0;
+            }
+            numGridBins += numCols;
+        }
+        partRowList.add(numRows);
+        final int[] partRows = new int[partRowList.size()];
+        for (int i = 0; i < partRows.length; i++) {
+            partRows[i] = partRowList.get(i);
+        }
+        return partRows;
+    }
+
+    private void submitPart(int index) {
+        final PlanetaryGrid planetaryGrid = binningContext.getPlanetaryGrid();
+        final int endRow = partRows[index + 1];
+        final List<List<SpatialBin>> spatialBinLists = new ArrayList<List<SpatialBin>>();
+        while (nextSpatialBins != null && planetaryGrid.getRowIndex(nextSpatialBins.get(0).getIndex()) < endRow) {
+            spatialBinLists.add(nextSpatialBins);
+            nextSpatialBins = spatialBinIterator.hasNext() ? spatialBinIterator.next() : null;
+        }
+        final TemporalBinning temporalBinning = new TemporalBinning(binningContext, spatialBinLists);
+        final FutureTask<BinStore> task = new FutureTask<BinStore>(temporalBinning);
+        parts.put(index, task);
+        if (executorService != null) {
+            executorService.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    private static BinStore getTemporalBins(Future<BinStore> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for temporal binning", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static class TemporalBinning implements Callable<BinStore> {
+
+        private final BinningContext binningContext;
+        private List<List<SpatialBin>> spatialBinLists;
+
+        private TemporalBinning(BinningContext binningContext, List<List<SpatialBin>> spatialBinLists) {
+            this.binningContext = binningContext;
+            this.spatialBinLists = spatialBinLists;
+        }
+
+        @Override
+        public BinStore call() throws Exception {
+            final TemporalBinner temporalBinner = new TemporalBinner(binningContext);
+            final BinStore temporalBins = binningContext.getBinManager().createTemporalBinStore(spatialBinLists.size());
+            for (List<SpatialBin> spatialBinList : spatialBinLists) {
+                final long binIndex = spatialBinList.get(0).getIndex();
+                temporalBinner.processSpatialBins(binIndex, spatialBinList, temporalBins);
+            }
+            // the spatial bins are not needed anymore, while the part is held until it has been processed
+            spatialBinLists = null;
+            return temporalBins;
+        }
+    }
+}
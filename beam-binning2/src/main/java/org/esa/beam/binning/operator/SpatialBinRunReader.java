@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning.operator;
+
+import org.esa.beam.binning.SpatialBin;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequentially reads the {@link SpatialBin spatial bins} of a run file written by a {@link SpatialBinRunWriter}.
+ * The reader always holds the next bin to be read, so that multiple readers can be merged by their
+ * {@link #peek() next bin}.
+ *
+ * @see FileBackedSpatialBinCollector
+ */
+class SpatialBinRunReader {
+
+    private final FileChannel channel;
+    private final int runIndex;
+    private ByteBuffer buffer;
+    private boolean endOfFile;
+    private SpatialBin next;
+
+    /**
+     * @param file       The run file.
+     * @param runIndex   The index of the run, used to keep the order of bins with equal bin indexes when merging.
+     * @param bufferSize The size of the read buffer.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    SpatialBinRunReader(File file, int runIndex, int bufferSize) throws IOException {
+        this.channel = new FileInputStream(file).getChannel();
+        this.runIndex = runIndex;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip();
+        this.next = readBin();
+    }
+
+    int getRunIndex() {
+        return runIndex;
+    }
+
+    /**
+     * @return The next bin without consuming it, or {@code null} if all bins have been read.
+     */
+    SpatialBin peek() {
+        return next;
+    }
+
+    /**
+     * @return The next bin, or {@code null} if all bins have been read.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    SpatialBin read() throws IOException {
+        final SpatialBin bin = next;
+        if (bin != null) {
+            next = readBin();
+        }
+        return bin;
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private SpatialBin readBin() throws IOException {
+        if (!ensure(SpatialBinRunWriter.getRecordSize(0))) {
+            return null;
+        }
+        final long index = buffer.getLong();
+        final int numObs = buffer.getInt();
+        final int numFeatures = buffer.getInt();
+        if (!ensure(4 * numFeatures)) {
+            throw new EOFException("Unexpected end of spatial bin run file");
+        }
+        final SpatialBin bin = new SpatialBin(index, numFeatures);
+        bin.setNumObs(numObs);
+        buffer.asFloatBuffer().get(bin.getFeatureValues());
+        buffer.position(buffer.position() + 4 * numFeatures);
+        return bin;
+    }
+
+    /**
+     * Ensures that the given number of bytes can be read from the buffer.
+     *
+     * @return {@code false}, if the end of the file has been reached before any byte could be read.
+     */
+    private boolean ensure(int numBytes) throws IOException {
+        if (buffer.remaining() >= numBytes) {
+            return true;
+        }
+        if (buffer.capacity() < numBytes) {
+            final ByteBuffer newBuffer = ByteBuffer.allocate(numBytes);
+            newBuffer.put(buffer);
+            newBuffer.flip();
+            buffer = newBuffer;
+        }
+        buffer.compact();
+        while (!endOfFile && buffer.position() < numBytes) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+            }
+        }
+        buffer.flip();
+        if (buffer.remaining() >= numBytes) {
+            return true;
+        }
+        if (buffer.remaining() == 0) {
+            return false;
+        }
+        throw new EOFException("Unexpected end of spatial bin run file");
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning.operator;
+
+import org.esa.beam.binning.SpatialBin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequentially writes {@link SpatialBin spatial bins} to a run file, which can be read
+ * by a {@link SpatialBinRunReader}. Each record consists of the bin index (long),
+ * the number of observations (int), the number of features (int) and the feature values (float).
+ * <p/>
+ * The writer does not sort the bins, it is up to the caller to write them in bin index order.
+ *
+ * @see FileBackedSpatialBinCollector
+ */
+class SpatialBinRunWriter {
+
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+
+    SpatialBinRunWriter(File file) throws IOException {
+        this.channel = new FileOutputStream(file).getChannel();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    void write(SpatialBin bin) throws IOException {
+        final float[] featureValues = bin.getFeatureValues();
+        final int recordSize = getRecordSize(featureValues.length);
+        if (buffer.remaining() < recordSize) {
+            flush();
+            if (buffer.capacity() < recordSize) {
+                buffer = ByteBuffer.allocateDirect(recordSize);
+            }
+        }
+        buffer.putLong(bin.getIndex());
+        buffer.putInt(bin.getNumObs());
+        buffer.putInt(featureValues.length);
+        for (float value : featureValues) {
+            buffer.putFloat(value);
+        }
+    }
+
+    void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    static int getRecordSize(int numFeatures) {
+        return 8 + 4 + 4 + 4 * numFeatures;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -19,9 +19,11 @@ package org.esa.beam.binning.operator;
 import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.glevel.MultiLevelImage;
 import com.vividsolutions.jts.geom.Geometry;
+import org.esa.beam.binning.BinningContext;
 import org.esa.beam.binning.CompositingType;
 import org.esa.beam.binning.ObservationSlice;
 import org.esa.beam.binning.PlanetaryGrid;
+import org.esa.beam.binning.SpatialBinConsumer;
 import org.esa.beam.binning.SpatialBinner;
 import org.esa.beam.binning.VariableContext;
 import org.esa.beam.binning.support.PlateCarreeGrid;
@@ -43,6 +45,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Utility class which performs a spatial binning of single input products.
@@ -70,51 +73,67 @@ public class SpatialProductBinner {
                                       Integer superSampling,
                                       Map<Product, List<Band>> addedBands,
                                       ProgressMonitor progressMonitor) throws IOException {
-        if (product.getGeoCoding() == null) {
-            throw new IllegalArgumentException("product.getGeoCoding() == null");
-        }
-        final VariableContext variableContext = spatialBinner.getBinningContext().getVariableContext();
-        addVariablesToProduct(variableContext, product, addedBands);
-
-        PlanetaryGrid planetaryGrid = spatialBinner.getBinningContext().getPlanetaryGrid();
-        CompositingType compositingType = spatialBinner.getBinningContext().getCompositingType();
-        Geometry sourceProductGeometry = null;
-        final MultiLevelImage maskImage;
-        if (CompositingType.MOSAICKING.equals(compositingType)) {
-            addMaskToProduct(variableContext.getValidMaskExpression(), product, addedBands);
-            PlateCarreeGrid plateCarreeGrid = (PlateCarreeGrid) planetaryGrid;
-            sourceProductGeometry = plateCarreeGrid.computeProductGeometry(product);
-            product = plateCarreeGrid.reprojectToPlateCareeGrid(product);
-            maskImage = product.getBand("binning_mask").getGeophysicalImage();
-        } else {
-            maskImage = getMaskImage(product, variableContext.getValidMaskExpression());
-        }
-
-        final MultiLevelImage[] varImages = getVariableImages(product, variableContext);
-
-        final Rectangle[] sliceRectangles;
-        if (CompositingType.MOSAICKING.equals(compositingType)) {
-            PlateCarreeGrid plateCarreeGrid = (PlateCarreeGrid) planetaryGrid;
-            Dimension tileSize = product.getPreferredTileSize();
-            sliceRectangles = plateCarreeGrid.getDataSliceRectangles(sourceProductGeometry, tileSize);
-        } else {
-            final Dimension defaultSliceDimension = getDefaultSliceDimension(product);
-            sliceRectangles = computeDataSliceRectangles(maskImage, varImages, defaultSliceDimension);
-        }
-        final float[] superSamplingSteps = getSuperSamplingSteps(superSampling);
+        final ProductSlicing slicing = new ProductSlicing(product, spatialBinner.getBinningContext(),
+                                                          superSampling, addedBands);
+        final Rectangle[] sliceRectangles = slicing.sliceRectangles;
         long numObsTotal = 0;
         progressMonitor.beginTask("Spatially binning of " + product.getName(), sliceRectangles.length);
         for (int idx = 0; idx < sliceRectangles.length; idx++) {
             StopWatch stopWatch = new StopWatch();
             stopWatch.start();
-            numObsTotal += processSlice(spatialBinner, progressMonitor, superSamplingSteps, maskImage, varImages,
-                                        product, sliceRectangles[idx]);
+            numObsTotal += slicing.processSlice(spatialBinner, progressMonitor, sliceRectangles[idx]);
             stopWatch.stopAndTrace(String.format("Processed slice %d of %d", idx, sliceRectangles.length));
         }
         spatialBinner.complete();
         return numObsTotal;
     }
 
+    /**
+     * Prepares the concurrent spatial binning of a source product. The returned task bins all slices
+     * of the product using its own {@link SpatialBinner} and returns the number of observations processed.
+     * Tasks of different products may be executed concurrently.
+     * <p/>
+     * The slices of a single product are always binned by a single spatial binner, because a spatial bin
+     * which is covered by several binners would be emitted once per binner and hence be counted as several
+     * passes, like a bin covered by several products.
+     * <p/>
+     * All tasks pass their spatial bins to the given consumer, which therefore must be thread-safe.
+     * This method modifies the given product and must therefore not be called concurrently for the same product.
+     *
+     * @param product        The source product.
+     * @param binningContext The binning context.
+     * @param consumer       The thread-safe consumer of the spatial bins.
+     * @param superSampling  The super-sampling rate.
+     * @param addedBands     A container for the bands that are added during processing.
+     *
+     * @return The task, which may be executed concurrently with the tasks of other products.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Callable<Long> createProductTask(Product product,
+                                                   final BinningContext binningContext,
+                                                   final SpatialBinConsumer consumer,
+                                                   Integer superSampling,
+                                                   Map<Product, List<Band>> addedBands) throws IOException {
+        final ProductSlicing slicing = new ProductSlicing(product, binningContext, superSampling, addedBands);
+        return new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                final SpatialBinner spatialBinner = new SpatialBinner(binningContext, consumer);
+                long numObs = 0;
+                for (Rectangle sliceRectangle : slicing.sliceRectangles) {
+                    numObs += slicing.processSlice(spatialBinner, ProgressMonitor.NULL, sliceRectangle);
+                }
+                spatialBinner.complete();
+                final Exception[] exceptions = spatialBinner.getExceptions();
+                if (exceptions.length > 0) {
+                    throw exceptions[0];
+                }
+                return numObs;
+            }
+        };
+    }
+
     private static MultiLevelImage[] getVariableImages(Product product, VariableContext variableContext) {
         final MultiLevelImage[] varImages = new MultiLevelImage[variableContext.getVariableCount()];
         for (int i = 0; i < variableContext.getVariableCount(); i++) {
@@ -182,23 +201,6 @@ public class SpatialProductBinner {
         return new Rectangle(0, sliceIndex * defaultSlice.height, defaultSlice.width, currentSliceHeight);
     }
 
-    private static long processSlice(SpatialBinner spatialBinner, ProgressMonitor progressMonitor,
-                                     float[] superSamplingSteps, MultiLevelImage maskImage, MultiLevelImage[] varImages,
-                                     Product product, Rectangle sliceRect) {
-        final Raster maskTile = maskImage != null ? maskImage.getData(sliceRect) : null;
-        final Raster[] varTiles = new Raster[varImages.length];
-        for (int i = 0; i < varImages.length; i++) {
-            varTiles[i] = varImages[i].getData(sliceRect);
-        }
-
-        final ObservationSlice observationSlice = new ObservationSlice(varTiles, maskTile, product,
-                                                                       superSamplingSteps);
-        long numObservations = spatialBinner.processObservationSlice(observationSlice);
-        progressMonitor.worked(1);
-        return numObservations;
-    }
-
-
     private static Dimension getDefaultSliceDimension(Product product) {
         final int sliceWidth = product.getSceneRasterWidth();
         Dimension preferredTileSize = product.getPreferredTileSize();
@@ -266,4 +268,65 @@ public class SpatialProductBinner {
         }
         return node;
     }
+
+    /**
+     * The images and slice rectangles of a source product prepared for spatial binning.
+     */
+    private static class ProductSlicing {
+
+        private final Product product;
+        private final MultiLevelImage maskImage;
+        private final MultiLevelImage[] varImages;
+        private final Rectangle[] sliceRectangles;
+        private final float[] superSamplingSteps;
+
+        private ProductSlicing(Product product, BinningContext binningContext, Integer superSampling,
+                               Map<Product, List<Band>> addedBands) {
+            if (product.getGeoCoding() == null) {
+                throw new IllegalArgumentException("product.getGeoCoding() == null");
+            }
+            final VariableContext variableContext = binningContext.getVariableContext();
+            addVariablesToProduct(variableContext, product, addedBands);
+
+            PlanetaryGrid planetaryGrid = binningContext.getPlanetaryGrid();
+            CompositingType compositingType = binningContext.getCompositingType();
+            Geometry sourceProductGeometry = null;
+            if (CompositingType.MOSAICKING.equals(compositingType)) {
+                addMaskToProduct(variableContext.getValidMaskExpression(), product, addedBands);
+                PlateCarreeGrid plateCarreeGrid = (PlateCarreeGrid) planetaryGrid;
+                sourceProductGeometry = plateCarreeGrid.computeProductGeometry(product);
+                product = plateCarreeGrid.reprojectToPlateCareeGrid(product);
+                maskImage = product.getBand("binning_mask").getGeophysicalImage();
+            } else {
+                maskImage = getMaskImage(product, variableContext.getValidMaskExpression());
+            }
+
+            varImages = getVariableImages(product, variableContext);
+
+            if (CompositingType.MOSAICKING.equals(compositingType)) {
+                PlateCarreeGrid plateCarreeGrid = (PlateCarreeGrid) planetaryGrid;
+                Dimension tileSize = product.getPreferredTileSize();
+                sliceRectangles = plateCarreeGrid.getDataSliceRectangles(sourceProductGeometry, tileSize);
+            } else {
+                final Dimension defaultSliceDimension = getDefaultSliceDimension(product);
+                sliceRectangles = computeDataSliceRectangles(maskImage, varImages, defaultSliceDimension);
+            }
+            superSamplingSteps = getSuperSamplingSteps(superSampling);
+            this.product = product;
+        }
+
+        private long processSlice(SpatialBinner spatialBinner, ProgressMonitor progressMonitor, Rectangle sliceRect) {
+            final Raster maskTile = maskImage != null ? maskImage.getData(sliceRect) : null;
+            final Raster[] varTiles = new Raster[varImages.length];
+            for (int i = 0; i < varImages.length; i++) {
+                varTiles[i] = varImages[i].getData(sliceRect);
+            }
+
+            final ObservationSlice observationSlice = new ObservationSlice(varTiles, maskTile, product,
+                                                                           superSamplingSteps);
+            long numObservations = spatialBinner.processObservationSlice(observationSlice);
+            progressMonitor.worked(1);
+            return numObservations;
+        }
+    }
 }
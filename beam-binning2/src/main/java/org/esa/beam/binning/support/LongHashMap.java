@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2012 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map using primitive {@code long} keys, e.g. bin indexes. In contrast to a {@code HashMap<Long, V>}
+ * keys are not boxed and no entry objects are created. The map uses open addressing with linear probing.
+ * <p/>
+ * {@code null} values are not permitted. The map is not thread-safe.
+ *
+ * @param <V> The value type.
+ */
+public final class LongHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5F;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    public LongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The expected number of entries.
+     */
+    public LongHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = index(key);
+        Object value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == key) {
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Associates the given value with the given key.
+     *
+     * @param key   The key.
+     * @param value The value, must not be {@code null}.
+     *
+     * @return The previous value associated with the key, or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        int i = index(key);
+        Object oldValue;
+        while ((oldValue = values[i]) != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return (V) oldValue;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            rehash(2 * values.length);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the value associated with the given key.
+     *
+     * @param key The key.
+     *
+     * @return The removed value, or {@code null} if the map did not contain the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = index(key);
+        Object value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Removes all entries. The capacity of the map is kept.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * @return A new array containing all keys of this map, in no particular order.
+     */
+    public long[] keys() {
+        final long[] result = new long[size];
+        for (int i = 0, n = 0; n < size; i++) {
+            if (values[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return A new list containing all values of this map, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        final List<V> result = new ArrayList<V>(size);
+        for (Object value : values) {
+            if (value != null) {
+                result.add((V) value);
+            }
+        }
+        return result;
+    }
+
+    private int index(long key) {
+        // Fibonacci hashing spreads consecutive keys, such as bin indexes, over the table
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Removes the entry at slot {@code i} and moves subsequent entries of the same probe sequence
+     * back, so that lookups never require tombstones.
+     */
+    private void shiftBack(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            final int k = index(keys[j]);
+            // move entry j to i, if its home slot k is not cyclically within (i, j]
+            if (i <= j ? (i >= k || k > j) : (i >= k && k > j)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            final Object value = oldValues[i];
+            if (value != null) {
+                int j = index(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
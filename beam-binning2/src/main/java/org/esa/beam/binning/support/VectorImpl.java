@@ -13,7 +13,7 @@ import java.util.Arrays;
  * @author Norman Fomferra
  */
 public final class VectorImpl implements WritableVector {
-    private final float[] elements;
+    private float[] elements;
     private int offset;
     private int size;
 
@@ -49,6 +49,18 @@ public final class VectorImpl implements WritableVector {
         return Arrays.toString(Arrays.copyOfRange(elements, offset, offset + size));
     }
 
+    /**
+     * Lets this vector refer to another array of elements, so that the vector instance can be reused.
+     * The offset is reset to zero and the size is set to the length of the array.
+     *
+     * @param elements The underlying array of {@code float} elements.
+     */
+    public void setElements(float[] elements) {
+        this.elements = elements;
+        this.offset = 0;
+        this.size = elements.length;
+    }
+
     public void setOffsetAndSize(int offset, int size) {
         this.offset = offset;
         this.size = size;
@@ -5,6 +5,7 @@ import org.esa.beam.binning.aggregators.AggregatorAverageML;
 import org.esa.beam.binning.aggregators.AggregatorMinMax;
 import org.esa.beam.binning.aggregators.AggregatorOnMaxSet;
 import org.esa.beam.binning.aggregators.AggregatorPercentile;
+import org.esa.beam.binning.aggregators.AggregatorPercentileHistogram;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -46,6 +47,18 @@ public class AggregatorDescriptorRegistryTest {
         assertEquals(AggregatorPercentile.class, aggregator.getClass());
     }
 
+    @Test
+    public void testDefaultAggregatorIsRegistered_PercentileHistogram() {
+        AggregatorDescriptor descriptor = assertRegistered("PERCENTILE_HISTOGRAM");
+        AggregatorPercentileHistogram.Config config = (AggregatorPercentileHistogram.Config) descriptor.createAggregatorConfig();
+        config.setVarName("x");
+        config.setMinValue(0.0F);
+        config.setMaxValue(1.0F);
+        Aggregator aggregator = descriptor.createAggregator(ctx, config);
+        assertNotNull(aggregator);
+        assertEquals(AggregatorPercentileHistogram.class, aggregator.getClass());
+    }
+
     @Test
     public void testDefaultAggregatorIsRegistered_OnMaxSet() {
         AggregatorDescriptor descriptor = assertRegistered("ON_MAX_SET");
@@ -58,7 +71,7 @@ public class AggregatorDescriptorRegistryTest {
     public void testGetAllRegisteredAggregatorDescriptors() throws Exception {
         final AggregatorDescriptorRegistry registry = AggregatorDescriptorRegistry.getInstance();
         final AggregatorDescriptor[] aggregatorDescriptors = registry.getAggregatorDescriptors();
-        assertEquals(6, aggregatorDescriptors.length);
+        assertEquals(7, aggregatorDescriptors.length);
     }
 
     private AggregatorDescriptor assertRegistered(String name) {
@@ -4,8 +4,12 @@ import org.esa.beam.binning.aggregators.AggregatorAverage;
 import org.esa.beam.binning.aggregators.AggregatorAverageML;
 import org.esa.beam.binning.aggregators.AggregatorMinMax;
 import org.esa.beam.binning.aggregators.AggregatorOnMaxSet;
+import org.esa.beam.binning.support.ObservationImpl;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class BinManagerTest {
@@ -30,6 +34,46 @@ public class BinManagerTest {
         assertEquals(3 + 3 + 2 + 4, tbin.getFeatureValues().length);
     }
 
+    @Test
+    public void testTemporalBinStore() {
+        VariableContext variableContext = new MyVariableContext("a", "b", "c");
+        BinManager binManager = new BinManager(variableContext,
+                                               new AggregatorAverage(variableContext, "c", null),
+                                               new AggregatorAverageML(variableContext, "b", null),
+                                               new AggregatorMinMax(variableContext, "a"),
+                                               new AggregatorOnMaxSet(variableContext, "c", "a", "b"));
+        List<SpatialBin> spatialBins = new ArrayList<SpatialBin>();
+        for (int i = 0; i < 3; i++) {
+            SpatialBin spatialBin = binManager.createSpatialBin(42);
+            for (int j = 0; j <= i; j++) {
+                binManager.aggregateSpatialBin(new ObservationImpl(0, 0, 0, 0.1f * i, 0.2f * j, 0.3f + i + j), spatialBin);
+            }
+            binManager.completeSpatialBin(spatialBin);
+            spatialBins.add(spatialBin);
+        }
+
+        BinStore binStore = binManager.createTemporalBinStore(1);
+        assertEquals(0, binManager.addTemporalBin(binStore, 41, spatialBins.subList(0, 1)));
+        assertEquals(1, binManager.addTemporalBin(binStore, 42, spatialBins));
+        assertEquals(2, binStore.size());
+
+        TemporalBin expected = binManager.createTemporalBin(42, spatialBins);
+        TemporalBin actual = binStore.getTemporalBin(1);
+        assertEquals(42, actual.getIndex());
+        assertEquals(expected.getNumObs(), actual.getNumObs());
+        assertEquals(expected.getNumPasses(), actual.getNumPasses());
+        assertArrayEquals(expected.getFeatureValues(), actual.getFeatureValues(), 1.0e-6f);
+
+        WritableVector expectedOutput = binManager.createOutputVector();
+        WritableVector actualOutput = binManager.createOutputVector();
+        binManager.computeOutput(expected, expectedOutput);
+        binManager.computeOutput(binStore, 1, actualOutput);
+        assertEquals(expectedOutput.size(), actualOutput.size());
+        for (int i = 0; i < expectedOutput.size(); i++) {
+            assertEquals(expectedOutput.get(i), actualOutput.get(i), 1.0e-6f);
+        }
+    }
+
     @Test
     public void testNameUnifying() throws Exception {
         BinManager.NameUnifier nameUnifier = new BinManager.NameUnifier();
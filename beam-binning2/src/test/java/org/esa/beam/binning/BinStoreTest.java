@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class BinStoreTest {
+
+    @Test
+    public void testAddAndGrow() {
+        BinStore store = new BinStore(2, 1);
+        assertTrue(store.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            int position = store.add(1000L + i);
+            assertEquals(i, position);
+            store.setNumObs(position, i);
+            store.setNumPasses(position, 2 * i);
+            store.setFeatureValue(position, 0, 0.5f * i);
+            store.setFeatureValue(position, 1, -0.5f * i);
+        }
+        assertEquals(100, store.size());
+        assertEquals(1077L, store.getIndex(77));
+        assertEquals(77, store.getNumObs(77));
+        assertEquals(154, store.getNumPasses(77));
+        assertEquals(38.5f, store.getFeatureValue(77, 0), 1.0e-6f);
+        assertEquals(-38.5f, store.getFeatureValue(77, 1), 1.0e-6f);
+
+        store.clear();
+        assertTrue(store.isEmpty());
+        // cleared positions are reset when they are reused
+        assertEquals(0, store.add(7L));
+        assertEquals(0, store.getNumObs(0));
+        assertEquals(0.0f, store.getFeatureValue(0, 1), 0.0f);
+    }
+
+    @Test
+    public void testCopies() {
+        TemporalBin bin = new TemporalBin(42, 3);
+        bin.setNumObs(5);
+        bin.setNumPasses(2);
+        bin.getFeatureValues()[2] = 0.25f;
+
+        BinStore store1 = new BinStore(3);
+        store1.add(bin);
+        BinStore store2 = new BinStore(3);
+        store2.add(11L);
+        assertEquals(1, store2.add(store1, 0));
+
+        TemporalBin copy = store2.getTemporalBin(1);
+        assertEquals(42, copy.getIndex());
+        assertEquals(5, copy.getNumObs());
+        assertEquals(2, copy.getNumPasses());
+        assertArrayEquals(bin.getFeatureValues(), copy.getFeatureValues(), 0.0f);
+
+        Iterator<TemporalBin> iterator = store2.iterator();
+        assertEquals(11, iterator.next().getIndex());
+        assertEquals(42, iterator.next().getIndex());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatNumFeaturesMustMatch() {
+        new BinStore(2).add(new TemporalBin(42, 3));
+    }
+
+    @Test
+    public void testFeatureVector() {
+        BinStore store = new BinStore(4);
+        store.add(1L);
+        store.add(2L);
+        BinStore.FeatureVector vector = store.getFeatureVector();
+        vector.setPosition(1);
+        vector.setOffsetAndSize(1, 2);
+        assertEquals(2, vector.size());
+        vector.set(0, 3.0f);
+        vector.set(1, 4.0f);
+        assertEquals(3.0f, store.getFeatureValue(1, 1), 0.0f);
+        assertEquals(4.0f, store.getFeatureValue(1, 2), 0.0f);
+        assertEquals(0.0f, store.getFeatureValue(0, 1), 0.0f);
+        assertEquals("[3.0, 4.0]", vector.toString());
+    }
+
+    @Test
+    public void testBinContext() {
+        BinStore store = new BinStore(1);
+        store.add(1L);
+        store.add(2L);
+        BinContext context = store.getBinContext(0);
+        assertEquals(1L, context.getIndex());
+        context.put("x", "a");
+        assertEquals("a", store.getBinContext(0).<String>get("x"));
+        context = store.getBinContext(1);
+        assertEquals(2L, context.getIndex());
+        assertNull(context.get("x"));
+    }
+}
@@ -1,6 +1,8 @@
 package org.esa.beam.binning;
 
 import org.esa.beam.framework.datamodel.CrsGeoCoding;
+import org.esa.beam.framework.datamodel.GeoPos;
+import org.esa.beam.framework.datamodel.PixelPos;
 import org.esa.beam.framework.datamodel.Product;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.junit.Test;
@@ -142,6 +144,54 @@ public class ObservationIteratorTest {
         }
     }
 
+    @Test
+    public void testGeoPositionsOfTileAtOffset() throws Exception {
+        int width = 12;
+        int height = 10;
+        CrsGeoCoding gc = new CrsGeoCoding(DefaultGeographicCRS.WGS84, width, height, -180, 90, 10.0, 10.0);
+        Product product = new Product("name", "desc", width, height);
+        product.setGeoCoding(gc);
+        Raster sourceTile = Raster.createBandedRaster(DataBuffer.TYPE_INT, 5, 3, 1, new Point(4, 2));
+        ObservationIterator iterator = ObservationIterator.create(new Raster[]{sourceTile}, product,
+                                                                  null, new float[]{0.5f});
+
+        for (int y = 2; y < 5; y++) {
+            for (int x = 4; x < 9; x++) {
+                assertGeoPos(gc, x, y, iterator.next());
+            }
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testGeoPositionsOfTileAtOffsetWithMask() throws Exception {
+        int width = 12;
+        int height = 10;
+        CrsGeoCoding gc = new CrsGeoCoding(DefaultGeographicCRS.WGS84, width, height, -180, 90, 10.0, 10.0);
+        Product product = new Product("name", "desc", width, height);
+        product.setGeoCoding(gc);
+        Raster sourceTile = Raster.createBandedRaster(DataBuffer.TYPE_INT, 5, 3, 1, new Point(4, 2));
+        WritableRaster maskTile = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, 5, 3, 1, new Point(4, 2));
+        int[] maskData = new int[5 * 3];
+        for (int i = 0; i < maskData.length; i++) {
+            maskData[i] = i % 2;
+        }
+        maskTile.setPixels(4, 2, 5, 3, maskData);
+        ObservationIterator iterator = ObservationIterator.create(new Raster[]{sourceTile}, product,
+                                                                  maskTile, new float[]{0.5f});
+
+        for (int i = 1; i < maskData.length; i += 2) {
+            assertGeoPos(gc, 4 + i % 5, 2 + i / 5, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private static void assertGeoPos(CrsGeoCoding gc, int x, int y, Observation observation) {
+        GeoPos expected = gc.getGeoPos(new PixelPos(x + 0.5f, y + 0.5f), null);
+        assertEquals(expected.lat, observation.getLatitude(), 1.0e-4);
+        assertEquals(expected.lon, observation.getLongitude(), 1.0e-4);
+    }
+
     private Raster[] createSourceRasters(int width, int height) {
         WritableRaster sourceTile = Raster.createBandedRaster(DataBuffer.TYPE_INT, width, height, 1, new Point(0, 0));
         int[] sourceData = new int[width * height];
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2012 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning;
+
+import org.esa.beam.binning.aggregators.AggregatorAverage;
+import org.esa.beam.binning.support.BinningContextImpl;
+import org.esa.beam.binning.support.ObservationImpl;
+import org.esa.beam.binning.support.SEAGrid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A reproducible benchmark for {@link SpatialBinner#processObservationSlice(Iterable)}.
+ * <p/>
+ * Simulates a satellite swath crossing a SEAGrid from south to north. Each slice is a scan line
+ * of observations. The time of the {@code SpatialBinner} is compared with a reference implementation
+ * which keeps the active bins in {@code HashMap<Long, SpatialBin>}s, as {@code SpatialBinner} did before.
+ * <p/>
+ * Usage: {@code SpatialBinnerBenchmark [numRows [numSlices [sliceWidth [numRuns]]]]}, the defaults
+ * resemble a 4 km global grid and a MERIS FR swath.
+ */
+public class SpatialBinnerBenchmark {
+
+    public static void main(String[] args) {
+        final int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 4320;
+        final int numSlices = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        final int sliceWidth = args.length > 2 ? Integer.parseInt(args[2]) : 4480;
+        final int numRuns = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        final SEAGrid planetaryGrid = new SEAGrid(numRows);
+        final MyVariableContext variableContext = new MyVariableContext("x");
+        final BinManager binManager = new BinManager(variableContext, new AggregatorAverage(variableContext, "x", null));
+        final BinningContext binningContext = new BinningContextImpl(planetaryGrid, binManager, CompositingType.BINNING, 1);
+        final List<List<Observation>> slices = createSlices(numSlices, sliceWidth);
+
+        System.out.printf("SEAGrid rows: %d, slices: %d, observations per slice: %d%n", numRows, numSlices, sliceWidth);
+        for (int run = 0; run < numRuns; run++) {
+            final CountingConsumer consumer1 = new CountingConsumer();
+            final long t0 = System.nanoTime();
+            final SpatialBinner spatialBinner = new SpatialBinner(binningContext, consumer1);
+            for (List<Observation> slice : slices) {
+                spatialBinner.processObservationSlice(slice);
+            }
+            spatialBinner.complete();
+            final long t1 = System.nanoTime();
+
+            final CountingConsumer consumer2 = new CountingConsumer();
+            final HashMapSpatialBinner referenceBinner = new HashMapSpatialBinner(binningContext, consumer2);
+            for (List<Observation> slice : slices) {
+                referenceBinner.processObservationSlice(slice);
+            }
+            referenceBinner.complete();
+            final long t2 = System.nanoTime();
+
+            if (consumer1.numBins != consumer2.numBins || consumer1.numObs != consumer2.numObs) {
+                throw new IllegalStateException("Results differ");
+            }
+            System.out.printf("Run %d: SpatialBinner %.1f ms, HashMap reference %.1f ms (%d bins)%n",
+                              run + 1, (t1 - t0) * 1e-6, (t2 - t1) * 1e-6, consumer1.numBins);
+        }
+    }
+
+    private static List<List<Observation>> createSlices(int numSlices, int sliceWidth) {
+        final Random random = new Random(5489);
+        final List<List<Observation>> slices = new ArrayList<List<Observation>>(numSlices);
+        final double swathWidth = 20.0;
+        final double latStep = 0.01;
+        for (int j = 0; j < numSlices; j++) {
+            final double lat = -10.0 + j * latStep;
+            final double lon0 = 5.0 + 0.1 * lat;
+            final List<Observation> slice = new ArrayList<Observation>(sliceWidth);
+            for (int i = 0; i < sliceWidth; i++) {
+                final double lon = lon0 + swathWidth * i / sliceWidth;
+                slice.add(new ObservationImpl(lat, lon, 0.0, random.nextFloat()));
+            }
+            slices.add(slice);
+        }
+        return slices;
+    }
+
+    private static class CountingConsumer implements SpatialBinConsumer {
+
+        long numBins;
+        long numObs;
+
+        @Override
+        public void consumeSpatialBins(BinningContext binningContext, List<SpatialBin> spatialBins) {
+            numBins += spatialBins.size();
+            for (SpatialBin spatialBin : spatialBins) {
+                numObs += spatialBin.getNumObs();
+            }
+        }
+    }
+
+    /**
+     * The former implementation of {@link SpatialBinner}, kept as reference.
+     */
+    private static class HashMapSpatialBinner {
+
+        private final BinningContext binningContext;
+        private final SpatialBinConsumer consumer;
+        private final Map<Long, SpatialBin> activeBinMap = new HashMap<Long, SpatialBin>();
+        private final Map<Long, SpatialBin> finalizedBinMap = new HashMap<Long, SpatialBin>();
+
+        HashMapSpatialBinner(BinningContext binningContext, SpatialBinConsumer consumer) {
+            this.binningContext = binningContext;
+            this.consumer = consumer;
+        }
+
+        void processObservationSlice(Iterable<Observation> observations) {
+            final PlanetaryGrid planetaryGrid = binningContext.getPlanetaryGrid();
+            final BinManager binManager = binningContext.getBinManager();
+            finalizedBinMap.putAll(activeBinMap);
+            for (Observation observation : observations) {
+                Long binIndex = planetaryGrid.getBinIndex(observation.getLatitude(), observation.getLongitude());
+                SpatialBin bin = activeBinMap.get(binIndex);
+                if (bin == null) {
+                    bin = binManager.createSpatialBin(binIndex);
+                    activeBinMap.put(binIndex, bin);
+                }
+                binManager.aggregateSpatialBin(observation, bin);
+                finalizedBinMap.remove(binIndex);
+            }
+            if (!finalizedBinMap.isEmpty()) {
+                emitSliceBins(finalizedBinMap);
+                for (Long key : finalizedBinMap.keySet()) {
+                    activeBinMap.remove(key);
+                }
+                finalizedBinMap.clear();
+            }
+        }
+
+        void complete() {
+            if (!activeBinMap.isEmpty()) {
+                emitSliceBins(activeBinMap);
+                activeBinMap.clear();
+            }
+        }
+
+        private void emitSliceBins(Map<Long, SpatialBin> binMap) {
+            final List<SpatialBin> bins = new ArrayList<SpatialBin>(binMap.values());
+            for (SpatialBin bin : bins) {
+                binningContext.getBinManager().completeSpatialBin(bin);
+            }
+            consumer.consumeSpatialBins(binningContext, bins);
+        }
+    }
+}
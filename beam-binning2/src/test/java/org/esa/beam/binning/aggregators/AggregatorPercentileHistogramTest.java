@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning.aggregators;
+
+import org.esa.beam.binning.BinContext;
+import org.esa.beam.binning.MyVariableContext;
+import org.esa.beam.binning.support.VectorImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.lang.Float.*;
+import static org.esa.beam.binning.aggregators.AggregatorTestUtils.*;
+import static org.junit.Assert.*;
+
+public class AggregatorPercentileHistogramTest {
+
+    BinContext ctx;
+
+    @Before
+    public void setUp() throws Exception {
+        ctx = createCtx();
+    }
+
+    @Test
+    public void testMetadata() {
+        AggregatorPercentileHistogram agg = new AggregatorPercentileHistogram(new MyVariableContext("c"), "c", 70,
+                                                                              0.0F, 1.0F, 4);
+
+        assertEquals("PERCENTILE_HISTOGRAM", agg.getName());
+
+        assertEquals(1, agg.getSpatialFeatureNames().length);
+        assertEquals("c_sum", agg.getSpatialFeatureNames()[0]);
+
+        assertArrayEquals(new String[]{"c_h0", "c_h1", "c_h2", "c_h3"}, agg.getTemporalFeatureNames());
+
+        assertEquals(1, agg.getOutputFeatureNames().length);
+        assertEquals("c_p70", agg.getOutputFeatureNames()[0]);
+    }
+
+    @Test
+    public void testDefaults() {
+        AggregatorPercentileHistogram agg = new AggregatorPercentileHistogram(new MyVariableContext("c"), "c", null,
+                                                                              0.0F, 1.0F, null);
+
+        assertEquals(AggregatorPercentileHistogram.DEFAULT_NUM_HISTOGRAM_BINS, agg.getTemporalFeatureNames().length);
+        assertEquals("c_p90", agg.getOutputFeatureNames()[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValueRange() {
+        new AggregatorPercentileHistogram(new MyVariableContext("c"), "c", 90, 1.0F, 1.0F, 10);
+    }
+
+    @Test
+    public void testGetHistogramBin() {
+        AggregatorPercentileHistogram agg = new AggregatorPercentileHistogram(new MyVariableContext("c"), "c", 90,
+                                                                              -1.0F, 1.0F, 4);
+
+        assertEquals(0, agg.getHistogramBin(-1.0F));
+        assertEquals(1, agg.getHistogramBin(-0.4F));
+        assertEquals(2, agg.getHistogramBin(0.0F));
+        assertEquals(3, agg.getHistogramBin(0.9F));
+        // values out of range are counted in the first and last histogram bin
+        assertEquals(0, agg.getHistogramBin(-5.0F));
+        assertEquals(3, agg.getHistogramBin(1.0F));
+        assertEquals(3, agg.getHistogramBin(POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void testAggregatorPercentileHistogram() {
+        AggregatorPercentileHistogram agg = new AggregatorPercentileHistogram(new MyVariableContext("c"), "c", 70,
+                                                                              0.0F, 1.0F, 100);
+
+        VectorImpl svec = vec(NaN);
+        VectorImpl tvec = vec(new float[100]);
+        VectorImpl out = vec(NaN);
+
+        agg.initSpatial(ctx, svec);
+        assertEquals(0.0f, svec.get(0), 0.0f);
+
+        agg.aggregateSpatial(ctx, obsNT(1.5f), svec);
+        agg.aggregateSpatial(ctx, obsNT(2.5f), svec);
+        agg.aggregateSpatial(ctx, obsNT(0.5f), svec);
+        float sumX = 1.5f + 2.5f + 0.5f;
+        assertEquals(sumX, svec.get(0), 1e-5f);
+
+        int numObs = 3;
+        agg.completeSpatial(ctx, numObs, svec);
+        assertEquals(sumX / numObs, svec.get(0), 1e-5f);
+
+        agg.initTemporal(ctx, tvec);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0.0f, tvec.get(i), 0.0f);
+        }
+
+        agg.aggregateTemporal(ctx, vec(0.105f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(0.205f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(0.305f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(0.405f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(0.505f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(0.605f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(0.705f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(0.805f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(0.905f), 1, tvec);
+        agg.aggregateTemporal(ctx, vec(NaN), 1, tvec);
+        assertEquals(1.0f, tvec.get(10), 0.0f);
+        assertEquals(1.0f, tvec.get(90), 0.0f);
+
+        agg.completeTemporal(ctx, 10, tvec);
+
+        agg.computeOutput(tvec, out);
+        // 70 percent of the 9 counts fall below 0.71, within an accuracy of a histogram bin
+        assertEquals(0.71f, out.get(0), 0.01f);
+    }
+
+    @Test
+    public void testMergedHistograms() {
+        AggregatorPercentileHistogram agg = new AggregatorPercentileHistogram(new MyVariableContext("c"), "c", 50,
+                                                                              0.0F, 10.0F, 10);
+
+        VectorImpl tvec1 = vec(new float[10]);
+        VectorImpl tvec2 = vec(new float[10]);
+        VectorImpl merged = vec(new float[10]);
+        VectorImpl out = vec(NaN);
+        agg.initTemporal(ctx, tvec1);
+        agg.initTemporal(ctx, tvec2);
+        for (int i = 0; i < 5; i++) {
+            agg.aggregateTemporal(ctx, vec(i + 0.5F), 1, tvec1);
+            agg.aggregateTemporal(ctx, vec(i + 5.5F), 1, tvec2);
+        }
+        for (int i = 0; i < 10; i++) {
+            merged.set(i, tvec1.get(i) + tvec2.get(i));
+        }
+
+        agg.computeOutput(merged, out);
+        assertEquals(5.0f, out.get(0), 1e-5f);
+
+        agg.computeOutput(tvec1, out);
+        assertEquals(2.5f, out.get(0), 1e-5f);
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        AggregatorPercentileHistogram agg = new AggregatorPercentileHistogram(new MyVariableContext("c"), "c", 50,
+                                                                              0.0F, 10.0F, 10);
+
+        VectorImpl tvec = vec(new float[10]);
+        VectorImpl out = vec(0.0F);
+        agg.initTemporal(ctx, tvec);
+        agg.computeOutput(tvec, out);
+        assertTrue(Float.isNaN(out.get(0)));
+    }
+}
@@ -8,6 +8,7 @@ import org.esa.beam.binning.TemporalBin;
 import org.esa.beam.binning.aggregators.AggregatorMinMax;
 import org.esa.beam.binning.support.BinningContextImpl;
 import org.esa.beam.binning.support.SEAGrid;
+import org.esa.beam.binning.support.SeadasGrid;
 import org.esa.beam.binning.support.VariableContextImpl;
 import org.geotools.geometry.jts.JTS;
 import org.junit.After;
@@ -148,6 +149,55 @@ public class BinWriterTest {
 
     }
 
+    @Test
+    public void testWritingParts() throws Exception {
+        int numRows = 216;
+        SEAGrid seaGrid = new SEAGrid(numRows);
+        SeadasGrid seadasGrid = new SeadasGrid(seaGrid);
+        long firstBinIndex10 = seaGrid.getFirstBinIndex(10);
+        long firstBinIndex150 = seaGrid.getFirstBinIndex(150);
+        ArrayList<TemporalBin> part1 = new ArrayList<TemporalBin>();
+        part1.add(new TemporalBin(firstBinIndex10, 2));
+        part1.add(new TemporalBin(firstBinIndex10 + 1, 2));
+        part1.add(new TemporalBin(firstBinIndex10 + 4, 2));
+        part1.add(new TemporalBin(firstBinIndex150, 2));
+        ArrayList<TemporalBin> part2 = new ArrayList<TemporalBin>();
+        part2.add(new TemporalBin(firstBinIndex150 + 2, 2));
+
+        BinWriter binWriter = createBinWriter(numRows);
+        binWriter.begin(tempFile, new HashMap<String, String>(), part1.size() + part2.size());
+        binWriter.writeBins(part1.iterator());
+        binWriter.writeBins(part2.iterator());
+        binWriter.end();
+
+        NetcdfFile netcdfFile = NetcdfFile.open(tempFile.getPath());
+        try {
+            assertEquals(5, netcdfFile.findDimension("bin_list").getLength());
+
+            // rows are stored from south to north, bins within a row from west to east
+            Array bl_bin_num = netcdfFile.findVariable("bl_bin_num").read();
+            assertEquals(seadasGrid.convertBinIndex(firstBinIndex150), bl_bin_num.getInt(0));
+            assertEquals(seadasGrid.convertBinIndex(firstBinIndex150 + 2), bl_bin_num.getInt(1));
+            assertEquals(seadasGrid.convertBinIndex(firstBinIndex10), bl_bin_num.getInt(2));
+            assertEquals(seadasGrid.convertBinIndex(firstBinIndex10 + 1), bl_bin_num.getInt(3));
+            assertEquals(seadasGrid.convertBinIndex(firstBinIndex10 + 4), bl_bin_num.getInt(4));
+
+            Array bi_begin_offset = netcdfFile.findVariable("bi_begin_offset").read();
+            assertEquals(0, bi_begin_offset.getInt(seadasGrid.convertRowIndex(150)));
+            assertEquals(2, bi_begin_offset.getInt(seadasGrid.convertRowIndex(10)));
+            assertEquals(-1, bi_begin_offset.getInt(seadasGrid.convertRowIndex(11)));
+
+            Array bi_extent = netcdfFile.findVariable("bi_extent").read();
+            assertEquals(2, bi_extent.getInt(seadasGrid.convertRowIndex(150)));
+            assertEquals(3, bi_extent.getInt(seadasGrid.convertRowIndex(10)));
+
+            Array bi_begin = netcdfFile.findVariable("bi_begin").read();
+            assertEquals(seadasGrid.convertBinIndex(firstBinIndex10), bi_begin.getInt(seadasGrid.convertRowIndex(10)));
+        } finally {
+            netcdfFile.close();
+        }
+    }
+
     private BinWriter createBinWriter(int numRows) {
         SEAGrid seaGrid = new SEAGrid(numRows);
         VariableContextImpl variableContext = new VariableContextImpl();
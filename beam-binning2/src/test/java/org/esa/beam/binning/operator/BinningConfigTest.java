@@ -134,6 +134,7 @@ public class BinningConfigTest {
         assertEquals(config.getNumRows(), configCopy.getNumRows());
         assertEquals(config.getCompositingType(), configCopy.getCompositingType());
         assertEquals(config.getSuperSampling(), configCopy.getSuperSampling());
+        assertEquals(config.getNumThreads(), configCopy.getNumThreads());
         assertEquals(config.getMaskExpr(), configCopy.getMaskExpr());
         assertArrayEquals(config.getVariableConfigs(), configCopy.getVariableConfigs());
         assertArrayEquals(config.getAggregatorConfigs(), configCopy.getAggregatorConfigs());
@@ -144,6 +145,19 @@ public class BinningConfigTest {
         assertEquals(4320, config.getNumRows());
     }
 
+    @Test
+    public void testNumThreads() {
+        assertEquals(Integer.valueOf(4), config.getNumThreads());
+        assertEquals(4, config.getEffectiveNumThreads());
+
+        BinningConfig localConfig = new BinningConfig();
+        assertNull(localConfig.getNumThreads());
+        assertEquals(1, localConfig.getEffectiveNumThreads());
+
+        localConfig.setNumThreads(0);
+        assertEquals(Runtime.getRuntime().availableProcessors(), localConfig.getEffectiveNumThreads());
+    }
+
     private BinningConfig loadConfig(String configPath) throws IOException, BindingException {
         final InputStreamReader reader = new InputStreamReader(getClass().getResourceAsStream(configPath));
         try {
@@ -197,6 +197,96 @@ public class BinningOpTest {
         }
     }
 
+    /**
+     * Same as {@link #testGlobalBinning}, but the source products are binned concurrently.
+     *
+     * @throws Exception if something goes badly wrong
+     */
+    @Test
+    public void testGlobalBinningConcurrently() throws Exception {
+
+        BinningConfig binningConfig = createBinningConfig();
+        binningConfig.setNumThreads(3);
+        FormatterConfig formatterConfig = createFormatterConfig();
+
+        float obs1 = 0.2F;
+        float obs2 = 0.4F;
+        float obs3 = 0.6F;
+        float obs4 = 0.8F;
+        float obs5 = 1.0F;
+
+        final BinningOp binningOp = new BinningOp();
+
+        binningOp.setSourceProducts(createSourceProduct(obs1),
+                                    createSourceProduct(obs2),
+                                    createSourceProduct(obs3),
+                                    createSourceProduct(obs4),
+                                    createSourceProduct(obs5));
+
+        JtsGeometryConverter geometryConverter = new JtsGeometryConverter();
+        binningOp.setStartDate("2002-01-01");
+        binningOp.setEndDate("2002-01-10");
+        binningOp.setBinningConfig(binningConfig);
+        binningOp.setFormatterConfig(formatterConfig);
+        binningOp.setRegion(geometryConverter.parse("POLYGON ((-180 -90, -180 90, 180 90, 180 -90, -180 -90))"));
+
+        final Product targetProduct = binningOp.getTargetProduct();
+        assertNotNull(targetProduct);
+        try {
+            assertGlobalBinningProductIsOk(targetProduct, null, obs1, obs2, obs3, obs4, obs5);
+        } finally {
+            targetProduct.dispose();
+        }
+    }
+
+    /**
+     * Bins two products, each consisting of several slices, using one and several threads. Since a product
+     * is never split across threads, the results must not depend on the number of threads.
+     *
+     * @throws Exception if something goes badly wrong
+     */
+    @Test
+    public void testConcurrentBinningDoesNotDependOnNumThreads() throws Exception {
+        final String[] bandNames = {"num_obs", "num_passes", "chl_mean", "chl_sigma", "chl_p70"};
+        final float[][] expectedSamples = binSlicedSourceProducts(1, bandNames);
+        final float[][] actualSamples = binSlicedSourceProducts(4, bandNames);
+        for (int i = 0; i < bandNames.length; i++) {
+            assertArrayEquals(bandNames[i], expectedSamples[i], actualSamples[i], 1e-6F);
+        }
+        // each of the two products adds at most one pass to a bin
+        final float[] numPasses = actualSamples[1];
+        for (float numPass : numPasses) {
+            assertTrue(numPass <= 2.0F);
+        }
+    }
+
+    private float[][] binSlicedSourceProducts(int numThreads, String[] bandNames) throws Exception {
+        final BinningConfig binningConfig = createBinningConfig();
+        binningConfig.setNumThreads(numThreads);
+
+        final BinningOp binningOp = new BinningOp();
+        binningOp.setSourceProducts(createSlicedSourceProduct(0.0F), createSlicedSourceProduct(0.5F));
+        binningOp.setStartDate("2002-01-01");
+        binningOp.setEndDate("2002-01-10");
+        binningOp.setBinningConfig(binningConfig);
+        binningOp.setFormatterConfig(createFormatterConfig());
+        binningOp.setRegion(new JtsGeometryConverter().parse("POLYGON ((-180 -90, -180 90, 180 90, 180 -90, -180 -90))"));
+
+        final Product targetProduct = binningOp.getTargetProduct();
+        try {
+            final int w = targetProduct.getSceneRasterWidth();
+            final int h = targetProduct.getSceneRasterHeight();
+            final float[][] samples = new float[bandNames.length][];
+            for (int i = 0; i < bandNames.length; i++) {
+                samples[i] = targetProduct.getBand(bandNames[i]).getSourceImage().getData().getPixels(0, 0, w, h,
+                                                                                                       (float[]) null);
+            }
+            return samples;
+        } finally {
+            targetProduct.dispose();
+        }
+    }
+
     /**
      * The following configuration generates a 1-degree resolution local product (4 x 4 pixels) from 5 observations.
      * The local region is lon=-1..+3 and lat=-1..+3 degrees.
@@ -728,6 +818,27 @@ public class BinningOpTest {
         return p;
     }
 
+    /**
+     * Creates a 16 x 64 pixels product covering lon=0..4 and lat=0..4 degrees, which is binned in 8 slices.
+     */
+    static Product createSlicedSourceProduct(float value) {
+        final Product p = new Product("P" + sourceProductCounter++, "T", 16, 64);
+        p.setPreferredTileSize(16, 8);
+        final TiePointGrid latitude = new TiePointGrid("latitude", 2, 2, 0.5F, 0.5F, 15.0F, 63.0F, new float[]{
+                4.0F, 4.0F,
+                0.0F, 0.0F,
+        });
+        final TiePointGrid longitude = new TiePointGrid("longitude", 2, 2, 0.5F, 0.5F, 15.0F, 63.0F, new float[]{
+                0.0F, 4.0F,
+                0.0F, 4.0F,
+        });
+        p.addTiePointGrid(latitude);
+        p.addTiePointGrid(longitude);
+        p.setGeoCoding(new TiePointGeoCoding(latitude, longitude));
+        p.addBand("chl", value + " + 0.01 * X + 0.001 * Y");
+        return p;
+    }
+
     static File getTestFile(String fileName) {
         return new File(TESTDATA_DIR, fileName);
     }
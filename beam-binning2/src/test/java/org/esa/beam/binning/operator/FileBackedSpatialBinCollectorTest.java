@@ -21,13 +21,9 @@ import org.esa.beam.binning.SpatialBin;
 import org.junit.Test;
 import org.mockito.Mockito;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.TreeMap;
 
 import static org.junit.Assert.*;
 
@@ -36,56 +32,39 @@ public class FileBackedSpatialBinCollectorTest {
     private static final int NUM_FEATURES = 2;
 
     @Test
-    public void testReadFromStream() throws Exception {
-        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-        DataOutputStream dos = new DataOutputStream(byteStream);
-
-        dos.writeLong(23);
-        dos.writeInt(2);
-        SpatialBin bin1 = createSpatialBin(23);
-        bin1.write(dos);
-        SpatialBin bin2 = createSpatialBin(23);
-        bin2.write(dos);
-        dos.writeLong(1048);
-        dos.writeInt(1);
-        SpatialBin bin3 = createSpatialBin(1048);
-        bin3.write(dos);
-
-        dos.close();
-        ByteArrayInputStream bais = new ByteArrayInputStream(byteStream.toByteArray());
-        TreeMap<Long, List<SpatialBin>> map = new TreeMap<Long, List<SpatialBin>>();
-        FileBackedSpatialBinCollector.readFromStream(new DataInputStream(bais), map);
-        assertEquals(2, map.size());
-        assertTrue(map.containsKey(23L));
-        assertTrue(map.containsKey(1048L));
-        List<SpatialBin> spatialBins23 = map.get(23L);
-        assertEquals(2, spatialBins23.size());
-        assertEquals(bin2.getFeatureValues()[0], spatialBins23.get(1).getFeatureValues()[0], 1.0e-6);
-    }
-
-    @Test
-    public void testWriteToStream() throws Exception {
-        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-        DataOutputStream dos = new DataOutputStream(byteStream);
-
-        TreeMap<Long, List<SpatialBin>> map = new TreeMap<Long, List<SpatialBin>>();
-        ArrayList<SpatialBin> binList = new ArrayList<SpatialBin>();
-        binList.add(createSpatialBin(42));
-        binList.add(createSpatialBin(42));
-        binList.add(createSpatialBin(42));
-        binList.add(createSpatialBin(42));
-        map.put(42L, binList);
-
-        FileBackedSpatialBinCollector.writeToStream(map, dos);
-
-        ByteArrayInputStream bais = new ByteArrayInputStream(byteStream.toByteArray());
-        TreeMap<Long, List<SpatialBin>> newMap = new TreeMap<Long, List<SpatialBin>>();
-        FileBackedSpatialBinCollector.readFromStream(new DataInputStream(bais), newMap);
-
-        assertEquals(1, newMap.size());
-        List<SpatialBin> newBinList = newMap.get(42L);
-        assertEquals(4, newBinList.size());
-
+    public void testRunWriterAndReader() throws Exception {
+        File file = File.createTempFile("bins-", ".tmp");
+        try {
+            SpatialBin bin1 = createSpatialBin(23);
+            bin1.setNumObs(3);
+            SpatialBin bin2 = createSpatialBin(23);
+            SpatialBin bin3 = createSpatialBin(1048);
+            SpatialBinRunWriter writer = new SpatialBinRunWriter(file);
+            writer.write(bin1);
+            writer.write(bin2);
+            writer.write(bin3);
+            writer.close();
+            assertEquals(3 * SpatialBinRunWriter.getRecordSize(NUM_FEATURES), file.length());
+
+            // a buffer smaller than a record forces the reader to grow it
+            SpatialBinRunReader reader = new SpatialBinRunReader(file, 7, 10);
+            try {
+                assertEquals(7, reader.getRunIndex());
+                assertEquals(23, reader.peek().getIndex());
+                SpatialBin readBin1 = reader.read();
+                assertEquals(23, readBin1.getIndex());
+                assertEquals(3, readBin1.getNumObs());
+                assertArrayEquals(bin1.getFeatureValues(), readBin1.getFeatureValues(), 1.0e-6F);
+                assertArrayEquals(bin2.getFeatureValues(), reader.read().getFeatureValues(), 1.0e-6F);
+                assertEquals(1048, reader.read().getIndex());
+                assertNull(reader.peek());
+                assertNull(reader.read());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            file.delete();
+        }
     }
 
     @Test
@@ -118,6 +97,54 @@ public class FileBackedSpatialBinCollectorTest {
 
     }
 
+    @Test
+    public void testCollectingUnorderedBinsInManyRuns() throws Exception {
+        // 30 bins per run and 200 runs force intermediate merges
+        FileBackedSpatialBinCollector binCollector = new FileBackedSpatialBinCollector(1000, 30);
+        try {
+            BinningContext ctx = Mockito.mock(BinningContext.class);
+            for (int i = 0; i < 6; i++) {
+                ArrayList<SpatialBin> spatialBins = new ArrayList<SpatialBin>();
+                for (int j = 999; j >= 0; j--) {
+                    SpatialBin spatialBin = new SpatialBin((j * 7919L) % 1000, 1);
+                    spatialBin.setNumObs(i);
+                    spatialBins.add(spatialBin);
+                }
+                binCollector.consumeSpatialBins(ctx, spatialBins);
+            }
+            binCollector.consumingCompleted();
+
+            SpatialBinCollection spatialBinCollection = binCollector.getSpatialBinCollection();
+            assertEquals(1000, spatialBinCollection.size());
+            int counter = 0;
+            for (List<SpatialBin> collectedBins : spatialBinCollection.getBinCollection()) {
+                assertEquals(6, collectedBins.size());
+                for (int i = 0; i < collectedBins.size(); i++) {
+                    assertEquals(counter, collectedBins.get(i).getIndex());
+                    // bins of the same index keep the order in which they have been consumed
+                    assertEquals(i, collectedBins.get(i).getNumObs());
+                }
+                counter++;
+            }
+            assertEquals(1000, counter);
+        } finally {
+            binCollector.close();
+        }
+    }
+
+    @Test
+    public void testCollectingNoBins() throws Exception {
+        FileBackedSpatialBinCollector binCollector = new FileBackedSpatialBinCollector(1000);
+        try {
+            binCollector.consumingCompleted();
+            SpatialBinCollection spatialBinCollection = binCollector.getSpatialBinCollection();
+            assertTrue(spatialBinCollection.isEmpty());
+            assertFalse(spatialBinCollection.getBinCollection().iterator().hasNext());
+        } finally {
+            binCollector.close();
+        }
+    }
+
     private SpatialBin createSpatialBin(int binIndex) {
         SpatialBin bin = new SpatialBin(binIndex, NUM_FEATURES);
         for (int i = 0; i < NUM_FEATURES; i++) {
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning.operator;
+
+import org.esa.beam.binning.BinManager;
+import org.esa.beam.binning.BinningContext;
+import org.esa.beam.binning.CompositingType;
+import org.esa.beam.binning.MyVariableContext;
+import org.esa.beam.binning.SpatialBin;
+import org.esa.beam.binning.TemporalBin;
+import org.esa.beam.binning.aggregators.AggregatorAverage;
+import org.esa.beam.binning.support.BinningContextImpl;
+import org.esa.beam.binning.support.SEAGrid;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParallelTemporalBinSourceTest {
+
+    @Test
+    public void testComputePartRows() {
+        final SEAGrid seaGrid = new SEAGrid(6);
+        // number of columns per row: 3, 8, 12, 12, 8, 3
+        assertArrayEquals(new int[]{0, 2, 3, 4, 6}, ParallelTemporalBinSource.computePartRows(seaGrid, 12));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6}, ParallelTemporalBinSource.computePartRows(seaGrid, 1));
+        assertArrayEquals(new int[]{0, 6}, ParallelTemporalBinSource.computePartRows(seaGrid, 1000));
+    }
+
+    @Test
+    public void testSequentially() throws Exception {
+        testTemporalBinning(1);
+    }
+
+    @Test
+    public void testConcurrently() throws Exception {
+        testTemporalBinning(4);
+    }
+
+    private static void testTemporalBinning(int numThreads) throws Exception {
+        final SEAGrid seaGrid = new SEAGrid(180);
+        final MyVariableContext variableContext = new MyVariableContext("x");
+        final BinManager binManager = new BinManager(variableContext, new AggregatorAverage(variableContext, "x", null));
+        final BinningContext binningContext = new BinningContextImpl(seaGrid, binManager, CompositingType.BINNING, 1);
+
+        // every 7th bin of the grid, with two spatial bins each
+        final List<List<SpatialBin>> spatialBinLists = new ArrayList<List<SpatialBin>>();
+        for (long binIndex = 0; binIndex < seaGrid.getNumBins(); binIndex += 7) {
+            spatialBinLists.add(Arrays.asList(createSpatialBin(binIndex, 1.0F), createSpatialBin(binIndex, 3.0F)));
+        }
+
+        final ParallelTemporalBinSource temporalBinSource = new ParallelTemporalBinSource(binningContext,
+                                                                                          new ListBinCollection(spatialBinLists),
+                                                                                          numThreads, 1000);
+        final int numParts = temporalBinSource.open();
+        assertEquals(ParallelTemporalBinSource.computePartRows(seaGrid, 1000).length - 1, numParts);
+        assertTrue(numParts > numThreads);
+
+        long expectedBinIndex = 0;
+        for (int i = 0; i < numParts; i++) {
+            final Iterator<? extends TemporalBin> part = temporalBinSource.getPart(i);
+            int lastRowIndex = -1;
+            while (part.hasNext()) {
+                final TemporalBin temporalBin = part.next();
+                assertEquals(expectedBinIndex, temporalBin.getIndex());
+                assertEquals(2, temporalBin.getNumPasses());
+                // parts are aligned to rows
+                final int rowIndex = seaGrid.getRowIndex(temporalBin.getIndex());
+                assertTrue(rowIndex >= lastRowIndex);
+                lastRowIndex = rowIndex;
+                expectedBinIndex += 7;
+            }
+            temporalBinSource.partProcessed(i, part);
+        }
+        temporalBinSource.close();
+        assertEquals(spatialBinLists.size() * 7L, expectedBinIndex);
+    }
+
+    private static SpatialBin createSpatialBin(long binIndex, float value) {
+        final SpatialBin spatialBin = new SpatialBin(binIndex, 2);
+        spatialBin.setNumObs(1);
+        spatialBin.getFeatureValues()[0] = value;
+        spatialBin.getFeatureValues()[1] = value * value;
+        return spatialBin;
+    }
+
+    private static class ListBinCollection implements SpatialBinCollection {
+
+        private final List<List<SpatialBin>> spatialBinLists;
+
+        private ListBinCollection(List<List<SpatialBin>> spatialBinLists) {
+            this.spatialBinLists = spatialBinLists;
+        }
+
+        @Override
+        public Iterable<List<SpatialBin>> getBinCollection() {
+            return spatialBinLists;
+        }
+
+        @Override
+        public long size() {
+            return spatialBinLists.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return spatialBinLists.isEmpty();
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import static org.junit.Assert.*;
 
@@ -139,6 +140,20 @@ public class SpatialProductBinnerTest {
         assertEquals(numObservations, mySpatialBinConsumer.numObs);
     }
 
+    @Test
+    public void testCreateProductTask() throws Exception {
+
+        BinningContext ctx = createValidCtx();
+        Product product = createProduct();
+
+        MySpatialBinConsumer mySpatialBinConsumer = new MySpatialBinConsumer();
+        Callable<Long> task = SpatialProductBinner.createProductTask(product, ctx, mySpatialBinConsumer, 1,
+                                                                     new HashMap<Product, List<Band>>());
+        long numObservations = task.call();
+        assertEquals(32 * 256, numObservations);
+        assertEquals(numObservations, mySpatialBinConsumer.numObs);
+    }
+
     @Test
     public void testGetSuperSamplingSteps() {
         float[] superSamplingSteps = SpatialProductBinner.getSuperSamplingSteps(1);
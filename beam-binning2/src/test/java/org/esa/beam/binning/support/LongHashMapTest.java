@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2012 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.binning.support;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongHashMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        LongHashMap<String> map = new LongHashMap<String>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(3L, "a"));
+        assertNull(map.put(-7L, "b"));
+        assertNull(map.put(Long.MAX_VALUE, "c"));
+        assertEquals("a", map.put(3L, "A"));
+        assertEquals(3, map.size());
+
+        assertEquals("A", map.get(3L));
+        assertEquals("b", map.get(-7L));
+        assertEquals("c", map.get(Long.MAX_VALUE));
+        assertNull(map.get(4L));
+        assertTrue(map.containsKey(-7L));
+
+        assertEquals("b", map.remove(-7L));
+        assertNull(map.remove(-7L));
+        assertFalse(map.containsKey(-7L));
+        assertEquals(2, map.size());
+
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(new long[]{3L, Long.MAX_VALUE}, keys);
+        assertEquals(2, map.values().size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(3L));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testThatNullValuesAreRejected() {
+        new LongHashMap<String>().put(1L, null);
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        LongHashMap<Long> map = new LongHashMap<Long>(4);
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            // small key range to force collisions and removals of present keys
+            long key = random.nextInt(2000) * 4320L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(expected.size(), map.keys().length);
+    }
+}
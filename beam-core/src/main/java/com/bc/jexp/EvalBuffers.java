@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package com.bc.jexp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of primitive arrays used to store intermediate results during the vector evaluation of terms.
+ * Buffers obtained by one of the <code>get</code>X methods shall be returned to the pool using
+ * one of the <code>release</code> methods once they are no longer needed.
+ *
+ * <p>Instances of this class are not thread-safe. Each thread shall use its own
+ * <code>{@link VectorEvalEnv}</code> and thus its own buffers.
+ *
+ * @since BEAM 5.0
+ */
+public final class EvalBuffers {
+
+    private final List<boolean[]> freeB = new ArrayList<boolean[]>();
+    private final List<int[]> freeI = new ArrayList<int[]>();
+    private final List<double[]> freeD = new ArrayList<double[]>();
+
+    /**
+     * Gets a <code>boolean</code> buffer.
+     *
+     * @param length the minimum buffer length
+     * @return a buffer with at least the given length
+     */
+    public boolean[] getB(int length) {
+        for (int i = freeB.size() - 1; i >= 0; i--) {
+            if (freeB.get(i).length >= length) {
+                return freeB.remove(i);
+            }
+        }
+        return new boolean[length];
+    }
+
+    /**
+     * Gets an <code>int</code> buffer.
+     *
+     * @param length the minimum buffer length
+     * @return a buffer with at least the given length
+     */
+    public int[] getI(int length) {
+        for (int i = freeI.size() - 1; i >= 0; i--) {
+            if (freeI.get(i).length >= length) {
+                return freeI.remove(i);
+            }
+        }
+        return new int[length];
+    }
+
+    /**
+     * Gets a <code>double</code> buffer.
+     *
+     * @param length the minimum buffer length
+     * @return a buffer with at least the given length
+     */
+    public double[] getD(int length) {
+        for (int i = freeD.size() - 1; i >= 0; i--) {
+            if (freeD.get(i).length >= length) {
+                return freeD.remove(i);
+            }
+        }
+        return new double[length];
+    }
+
+    /**
+     * Returns a buffer to this pool.
+     *
+     * @param buffer the buffer
+     */
+    public void release(boolean[] buffer) {
+        freeB.add(buffer);
+    }
+
+    /**
+     * Returns a buffer to this pool.
+     *
+     * @param buffer the buffer
+     */
+    public void release(int[] buffer) {
+        freeI.add(buffer);
+    }
+
+    /**
+     * Returns a buffer to this pool.
+     *
+     * @param buffer the buffer
+     */
+    public void release(double[] buffer) {
+        freeD.add(buffer);
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.bc.jexp;
 
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -105,6 +106,81 @@ public abstract class Term {
         return toString();
     }
 
+    /**
+     * Evaluates this term to <code>boolean</code> values for a run of consecutive data elements
+     * starting at the current element index of the given environment.
+     * The default implementation evaluates the term element by element.
+     *
+     * @param env    the application dependant environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @throws EvalException if the evaluation fails
+     * @since BEAM 5.0
+     */
+    public void evalB(EvalEnv env, boolean[] values, int offset, int count) {
+        final VectorEvalEnv vectorEnv = toVectorEvalEnv(env);
+        final int elemIndex = vectorEnv.getElemIndex();
+        try {
+            for (int i = 0; i < count; i++) {
+                vectorEnv.setElemIndex(elemIndex + i);
+                values[offset + i] = evalB(env);
+            }
+        } finally {
+            vectorEnv.setElemIndex(elemIndex);
+        }
+    }
+
+    /**
+     * Evaluates this term to <code>int</code> values for a run of consecutive data elements
+     * starting at the current element index of the given environment.
+     * The default implementation evaluates the term element by element.
+     *
+     * @param env    the application dependant environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @throws EvalException if the evaluation fails
+     * @since BEAM 5.0
+     */
+    public void evalI(EvalEnv env, int[] values, int offset, int count) {
+        final VectorEvalEnv vectorEnv = toVectorEvalEnv(env);
+        final int elemIndex = vectorEnv.getElemIndex();
+        try {
+            for (int i = 0; i < count; i++) {
+                vectorEnv.setElemIndex(elemIndex + i);
+                values[offset + i] = evalI(env);
+            }
+        } finally {
+            vectorEnv.setElemIndex(elemIndex);
+        }
+    }
+
+    /**
+     * Evaluates this term to <code>double</code> values for a run of consecutive data elements
+     * starting at the current element index of the given environment.
+     * The default implementation evaluates the term element by element.
+     *
+     * @param env    the application dependant environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @throws EvalException if the evaluation fails
+     * @since BEAM 5.0
+     */
+    public void evalD(EvalEnv env, double[] values, int offset, int count) {
+        final VectorEvalEnv vectorEnv = toVectorEvalEnv(env);
+        final int elemIndex = vectorEnv.getElemIndex();
+        try {
+            for (int i = 0; i < count; i++) {
+                vectorEnv.setElemIndex(elemIndex + i);
+                values[offset + i] = evalD(env);
+            }
+        } finally {
+            vectorEnv.setElemIndex(elemIndex);
+        }
+    }
+
     /**
      * Returns an array of terms which are children of this term.
      *
@@ -251,6 +327,213 @@ public abstract class Term {
         return sb.toString();
     }
 
+    /**
+     * Casts the given environment to a <code>{@link VectorEvalEnv}</code>.
+     *
+     * @param env the environment
+     * @return the vector environment
+     * @throws EvalException if the environment does not support vector evaluation
+     */
+    protected static VectorEvalEnv toVectorEvalEnv(EvalEnv env) {
+        if (env instanceof VectorEvalEnv) {
+            return (VectorEvalEnv) env;
+        }
+        throw new EvalException("Vector evaluation not supported by environment.");
+    }
+
+    /**
+     * Gets the buffers of the given environment.
+     *
+     * @param env the environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @return the buffers
+     * @throws EvalException if the environment does not support vector evaluation
+     */
+    protected static EvalBuffers getBuffers(EvalEnv env) {
+        return toVectorEvalEnv(env).getBuffers();
+    }
+
+    /**
+     * Evaluates a term to values of the given type into a temporary buffer and converts them to
+     * <code>boolean</code> values.
+     *
+     * @param term   the term
+     * @param type   the type to evaluate the term to, either {@link #TYPE_I} or {@link #TYPE_D}
+     * @param env    the environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @since BEAM 5.0
+     */
+    protected static void evalConverted(Term term, int type, EvalEnv env, boolean[] values, int offset, int count) {
+        final EvalBuffers buffers = getBuffers(env);
+        if (type == TYPE_I) {
+            final int[] v = buffers.getI(count);
+            try {
+                term.evalI(env, v, 0, count);
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = v[i] != 0;
+                }
+            } finally {
+                buffers.release(v);
+            }
+        } else {
+            final double[] v = buffers.getD(count);
+            try {
+                term.evalD(env, v, 0, count);
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = v[i] != 0.0;
+                }
+            } finally {
+                buffers.release(v);
+            }
+        }
+    }
+
+    /**
+     * Evaluates a term to <code>boolean</code> values into a temporary buffer and converts them to
+     * <code>int</code> values.
+     *
+     * @param term   the term
+     * @param env    the environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @since BEAM 5.0
+     */
+    protected static void evalConverted(Term term, EvalEnv env, int[] values, int offset, int count) {
+        final EvalBuffers buffers = getBuffers(env);
+        final boolean[] b = buffers.getB(count);
+        try {
+            term.evalB(env, b, 0, count);
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = b[i] ? 1 : 0;
+            }
+        } finally {
+            buffers.release(b);
+        }
+    }
+
+    /**
+     * Evaluates a term to values of the given type into a temporary buffer and converts them to
+     * <code>double</code> values.
+     *
+     * @param term   the term
+     * @param type   the type to evaluate the term to, either {@link #TYPE_B} or {@link #TYPE_I}
+     * @param env    the environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @since BEAM 5.0
+     */
+    protected static void evalConverted(Term term, int type, EvalEnv env, double[] values, int offset, int count) {
+        final EvalBuffers buffers = getBuffers(env);
+        if (type == TYPE_B) {
+            final boolean[] b = buffers.getB(count);
+            try {
+                term.evalB(env, b, 0, count);
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = b[i] ? 1.0 : 0.0;
+                }
+            } finally {
+                buffers.release(b);
+            }
+        } else {
+            final int[] v = buffers.getI(count);
+            try {
+                term.evalI(env, v, 0, count);
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = v[i];
+                }
+            } finally {
+                buffers.release(v);
+            }
+        }
+    }
+
+    /**
+     * Evaluates a term only for the data elements whose mask value equals <code>selector</code>.
+     * Consecutive selected elements are evaluated as a single run.
+     */
+    private static void evalSelectedB(Term term, EvalEnv env, boolean[] mask, int maskOffset, boolean selector,
+                                      boolean[] values, int offset, int count) {
+        final VectorEvalEnv vectorEnv = toVectorEvalEnv(env);
+        final int elemIndex = vectorEnv.getElemIndex();
+        try {
+            int i = 0;
+            while (i < count) {
+                if (mask[maskOffset + i] != selector) {
+                    i++;
+                    continue;
+                }
+                int j = i + 1;
+                while (j < count && mask[maskOffset + j] == selector) {
+                    j++;
+                }
+                vectorEnv.setElemIndex(elemIndex + i);
+                term.evalB(env, values, offset + i, j - i);
+                i = j;
+            }
+        } finally {
+            vectorEnv.setElemIndex(elemIndex);
+        }
+    }
+
+    /**
+     * Evaluates a term only for the data elements whose mask value equals <code>selector</code>.
+     * Consecutive selected elements are evaluated as a single run.
+     */
+    private static void evalSelectedI(Term term, EvalEnv env, boolean[] mask, int maskOffset, boolean selector,
+                                      int[] values, int offset, int count) {
+        final VectorEvalEnv vectorEnv = toVectorEvalEnv(env);
+        final int elemIndex = vectorEnv.getElemIndex();
+        try {
+            int i = 0;
+            while (i < count) {
+                if (mask[maskOffset + i] != selector) {
+                    i++;
+                    continue;
+                }
+                int j = i + 1;
+                while (j < count && mask[maskOffset + j] == selector) {
+                    j++;
+                }
+                vectorEnv.setElemIndex(elemIndex + i);
+                term.evalI(env, values, offset + i, j - i);
+                i = j;
+            }
+        } finally {
+            vectorEnv.setElemIndex(elemIndex);
+        }
+    }
+
+    /**
+     * Evaluates a term only for the data elements whose mask value equals <code>selector</code>.
+     * Consecutive selected elements are evaluated as a single run.
+     */
+    private static void evalSelectedD(Term term, EvalEnv env, boolean[] mask, int maskOffset, boolean selector,
+                                      double[] values, int offset, int count) {
+        final VectorEvalEnv vectorEnv = toVectorEvalEnv(env);
+        final int elemIndex = vectorEnv.getElemIndex();
+        try {
+            int i = 0;
+            while (i < count) {
+                if (mask[maskOffset + i] != selector) {
+                    i++;
+                    continue;
+                }
+                int j = i + 1;
+                while (j < count && mask[maskOffset + j] == selector) {
+                    j++;
+                }
+                vectorEnv.setElemIndex(elemIndex + i);
+                term.evalD(env, values, offset + i, j - i);
+                i = j;
+            }
+        } finally {
+            vectorEnv.setElemIndex(elemIndex);
+        }
+    }
+
     /////////////////////////////////////////////////////////////////////////
 
     /**
@@ -288,6 +571,21 @@ public abstract class Term {
             return toD(value);
         }
 
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, value);
+        }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, toI(value));
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, toD(value));
+        }
+
         @Override
         public String toString() {
             return String.valueOf(value);
@@ -332,6 +630,21 @@ public abstract class Term {
             return value;
         }
 
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, toB(value));
+        }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, value);
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, value);
+        }
+
         @Override
         public String toString() {
             return String.valueOf(value);
@@ -376,6 +689,21 @@ public abstract class Term {
             return value;
         }
 
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, toB(value));
+        }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, toI(value));
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            Arrays.fill(values, offset, offset + count, value);
+        }
+
         @Override
         public String toString() {
             return String.valueOf(value);
@@ -474,6 +802,33 @@ public abstract class Term {
             return symbol.evalD(env);
         }
 
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            if (symbol instanceof VectorSymbol) {
+                ((VectorSymbol) symbol).evalB(env, values, offset, count);
+            } else {
+                super.evalB(env, values, offset, count);
+            }
+        }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            if (symbol instanceof VectorSymbol) {
+                ((VectorSymbol) symbol).evalI(env, values, offset, count);
+            } else {
+                super.evalI(env, values, offset, count);
+            }
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            if (symbol instanceof VectorSymbol) {
+                ((VectorSymbol) symbol).evalD(env, values, offset, count);
+            } else {
+                super.evalD(env, values, offset, count);
+            }
+        }
+
         @Override
         public String evalS(EvalEnv env) {
             return symbol.evalS(env);
@@ -617,6 +972,16 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return evalB(env) ? 1.0 : 0.0;
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalConverted(this, env, values, offset, count);
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalConverted(this, TYPE_B, env, values, offset, count);
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -640,6 +1005,16 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return evalI(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            evalConverted(this, TYPE_I, env, values, offset, count);
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalConverted(this, TYPE_I, env, values, offset, count);
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -657,6 +1032,11 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return toB(evalD(env));
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            evalConverted(this, TYPE_D, env, values, offset, count);
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -672,6 +1052,139 @@ public abstract class Term {
             this.arg2 = arg2;
         }
 
+        /**
+         * Evaluates the first operand into <code>values</code> and the second operand into a temporary buffer,
+         * then calls {@link #combine(int[], int, int[], int)}.
+         *
+         * @since BEAM 5.0
+         */
+        protected final void evalArgs(final EvalEnv env, final int[] values, final int offset, final int count) {
+            arg1.evalI(env, values, offset, count);
+            final EvalBuffers buffers = getBuffers(env);
+            final int[] v2 = buffers.getI(count);
+            try {
+                arg2.evalI(env, v2, 0, count);
+                combine(values, offset, v2, count);
+            } finally {
+                buffers.release(v2);
+            }
+        }
+
+        /**
+         * Evaluates the first operand into <code>values</code> and the second operand into a temporary buffer,
+         * then calls {@link #combine(double[], int, double[], int)}.
+         *
+         * @since BEAM 5.0
+         */
+        protected final void evalArgs(final EvalEnv env, final double[] values, final int offset, final int count) {
+            arg1.evalD(env, values, offset, count);
+            final EvalBuffers buffers = getBuffers(env);
+            final double[] v2 = buffers.getD(count);
+            try {
+                arg2.evalD(env, v2, 0, count);
+                combine(values, offset, v2, count);
+            } finally {
+                buffers.release(v2);
+            }
+        }
+
+        /**
+         * Evaluates both operands to values of the given type into temporary buffers,
+         * then calls the <code>compare</code> method for that type.
+         *
+         * @since BEAM 5.0
+         */
+        protected final void compareArgs(final int argType, final EvalEnv env,
+                                         final boolean[] values, final int offset, final int count) {
+            final EvalBuffers buffers = getBuffers(env);
+            if (argType == TYPE_B) {
+                final boolean[] v1 = buffers.getB(count);
+                final boolean[] v2 = buffers.getB(count);
+                try {
+                    arg1.evalB(env, v1, 0, count);
+                    arg2.evalB(env, v2, 0, count);
+                    compare(v1, v2, values, offset, count);
+                } finally {
+                    buffers.release(v2);
+                    buffers.release(v1);
+                }
+            } else if (argType == TYPE_I) {
+                final int[] v1 = buffers.getI(count);
+                final int[] v2 = buffers.getI(count);
+                try {
+                    arg1.evalI(env, v1, 0, count);
+                    arg2.evalI(env, v2, 0, count);
+                    compare(v1, v2, values, offset, count);
+                } finally {
+                    buffers.release(v2);
+                    buffers.release(v1);
+                }
+            } else {
+                final double[] v1 = buffers.getD(count);
+                final double[] v2 = buffers.getD(count);
+                try {
+                    arg1.evalD(env, v1, 0, count);
+                    arg2.evalD(env, v2, 0, count);
+                    compare(v1, v2, values, offset, count);
+                } finally {
+                    buffers.release(v2);
+                    buffers.release(v1);
+                }
+            }
+        }
+
+        /**
+         * Combines the values of the first operand, stored in <code>values</code>, with the <code>count</code>
+         * values of the second operand. Must be overridden by operations using {@link #evalArgs}.
+         *
+         * @since BEAM 5.0
+         */
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            throw new EvalException("not implemented");
+        }
+
+        /**
+         * Combines the values of the first operand, stored in <code>values</code>, with the <code>count</code>
+         * values of the second operand. Must be overridden by operations using {@link #evalArgs}.
+         *
+         * @since BEAM 5.0
+         */
+        protected void combine(final double[] values, final int offset, final double[] v2, final int count) {
+            throw new EvalException("not implemented");
+        }
+
+        /**
+         * Compares the <code>count</code> values of both operands. Must be overridden by operations
+         * using {@link #compareArgs} with {@link #TYPE_B}.
+         *
+         * @since BEAM 5.0
+         */
+        protected void compare(final boolean[] v1, final boolean[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            throw new EvalException("not implemented");
+        }
+
+        /**
+         * Compares the <code>count</code> values of both operands. Must be overridden by operations
+         * using {@link #compareArgs} with {@link #TYPE_I}.
+         *
+         * @since BEAM 5.0
+         */
+        protected void compare(final int[] v1, final int[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            throw new EvalException("not implemented");
+        }
+
+        /**
+         * Compares the <code>count</code> values of both operands. Must be overridden by operations
+         * using {@link #compareArgs} with {@link #TYPE_D}.
+         *
+         * @since BEAM 5.0
+         */
+        protected void compare(final double[] v1, final double[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            throw new EvalException("not implemented");
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -696,6 +1209,16 @@ public abstract class Term {
             //throw new EvalException("illegal operation");
             return evalB(env) ? 1.0 : 0.0;
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalConverted(this, env, values, offset, count);
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalConverted(this, TYPE_B, env, values, offset, count);
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -719,6 +1242,16 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return evalI(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            evalConverted(this, TYPE_I, env, values, offset, count);
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalConverted(this, TYPE_I, env, values, offset, count);
+        }
     }
 
     /**
@@ -737,6 +1270,11 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return type == TYPE_I ? toB(evalI(env)) : toB(evalD(env));
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            evalConverted(this, type == TYPE_I ? TYPE_I : TYPE_D, env, values, offset, count);
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -774,6 +1312,45 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return arg1.evalB(env) ? arg2.evalD(env) : arg3.evalD(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            final EvalBuffers buffers = getBuffers(env);
+            final boolean[] conditions = buffers.getB(count);
+            try {
+                arg1.evalB(env, conditions, 0, count);
+                evalSelectedB(arg2, env, conditions, 0, true, values, offset, count);
+                evalSelectedB(arg3, env, conditions, 0, false, values, offset, count);
+            } finally {
+                buffers.release(conditions);
+            }
+        }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            final EvalBuffers buffers = getBuffers(env);
+            final boolean[] conditions = buffers.getB(count);
+            try {
+                arg1.evalB(env, conditions, 0, count);
+                evalSelectedI(arg2, env, conditions, 0, true, values, offset, count);
+                evalSelectedI(arg3, env, conditions, 0, false, values, offset, count);
+            } finally {
+                buffers.release(conditions);
+            }
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            final EvalBuffers buffers = getBuffers(env);
+            final boolean[] conditions = buffers.getB(count);
+            try {
+                arg1.evalB(env, conditions, 0, count);
+                evalSelectedD(arg2, env, conditions, 0, true, values, offset, count);
+                evalSelectedD(arg3, env, conditions, 0, false, values, offset, count);
+            } finally {
+                buffers.release(conditions);
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -824,6 +1401,14 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return !arg.evalB(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            arg.evalB(env, values, offset, count);
+            for (int i = offset; i < offset + count; i++) {
+                values[i] = !values[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -844,6 +1429,12 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalB(env) && arg2.evalB(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            arg1.evalB(env, values, offset, count);
+            evalSelectedB(arg2, env, values, offset, true, values, offset, count);
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -864,6 +1455,12 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalB(env) || arg2.evalB(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            arg1.evalB(env, values, offset, count);
+            evalSelectedB(arg2, env, values, offset, false, values, offset, count);
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -884,6 +1481,14 @@ public abstract class Term {
         public int evalI(final EvalEnv env) {
             return ~arg.evalI(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            arg.evalI(env, values, offset, count);
+            for (int i = offset; i < offset + count; i++) {
+                values[i] = ~values[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -904,6 +1509,18 @@ public abstract class Term {
         public int evalI(final EvalEnv env) {
             return arg1.evalI(env) ^ arg2.evalI(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] ^= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -924,6 +1541,18 @@ public abstract class Term {
         public int evalI(final EvalEnv env) {
             return arg1.evalI(env) & arg2.evalI(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] &= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -944,6 +1573,18 @@ public abstract class Term {
         public int evalI(final EvalEnv env) {
             return arg1.evalI(env) | arg2.evalI(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] |= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -969,6 +1610,22 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return -arg.evalD(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            arg.evalI(env, values, offset, count);
+            for (int i = offset; i < offset + count; i++) {
+                values[i] = -values[i];
+            }
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            arg.evalD(env, values, offset, count);
+            for (int i = offset; i < offset + count; i++) {
+                values[i] = -values[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -996,6 +1653,30 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return arg1.evalD(env) + arg2.evalD(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] += v2[i];
+            }
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final double[] values, final int offset, final double[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] += v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1021,6 +1702,30 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return arg1.evalD(env) - arg2.evalD(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] -= v2[i];
+            }
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final double[] values, final int offset, final double[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] -= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1046,6 +1751,30 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return arg1.evalD(env) * arg2.evalD(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] *= v2[i];
+            }
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final double[] values, final int offset, final double[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] *= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1071,6 +1800,30 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return arg1.evalD(env) / arg2.evalD(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] /= v2[i];
+            }
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final double[] values, final int offset, final double[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] /= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1096,6 +1849,30 @@ public abstract class Term {
         public double evalD(final EvalEnv env) {
             return arg1.evalD(env) % arg2.evalD(env);
         }
+
+        @Override
+        public void evalI(final EvalEnv env, final int[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final int[] values, final int offset, final int[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] %= v2[i];
+            }
+        }
+
+        @Override
+        public void evalD(final EvalEnv env, final double[] values, final int offset, final int count) {
+            evalArgs(env, values, offset, count);
+        }
+
+        @Override
+        protected void combine(final double[] values, final int offset, final double[] v2, final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] %= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1116,6 +1893,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalB(env) == arg2.evalB(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_B, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final boolean[] v1, final boolean[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] == v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1136,6 +1926,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalI(env) == arg2.evalI(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_I, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final int[] v1, final int[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] == v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1156,6 +1959,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalD(env) == arg2.evalD(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_D, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final double[] v1, final double[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] == v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1176,6 +1992,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalB(env) != arg2.evalB(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_B, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final boolean[] v1, final boolean[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] != v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1196,6 +2025,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalI(env) != arg2.evalI(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_I, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final int[] v1, final int[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] != v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1216,6 +2058,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalD(env) != arg2.evalD(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_D, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final double[] v1, final double[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] != v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1236,6 +2091,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalI(env) < arg2.evalI(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_I, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final int[] v1, final int[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] < v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1256,6 +2124,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalD(env) < arg2.evalD(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_D, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final double[] v1, final double[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] < v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1276,6 +2157,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalI(env) <= arg2.evalI(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_I, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final int[] v1, final int[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] <= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1296,6 +2190,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalD(env) <= arg2.evalD(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_D, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final double[] v1, final double[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] <= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1316,6 +2223,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalI(env) > arg2.evalI(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_I, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final int[] v1, final int[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] > v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1336,6 +2256,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalD(env) > arg2.evalD(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_D, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final double[] v1, final double[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] > v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1356,6 +2289,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalI(env) >= arg2.evalI(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_I, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final int[] v1, final int[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] >= v2[i];
+            }
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////
@@ -1376,6 +2322,19 @@ public abstract class Term {
         public boolean evalB(final EvalEnv env) {
             return arg1.evalD(env) >= arg2.evalD(env);
         }
+
+        @Override
+        public void evalB(final EvalEnv env, final boolean[] values, final int offset, final int count) {
+            compareArgs(TYPE_D, env, values, offset, count);
+        }
+
+        @Override
+        protected void compare(final double[] v1, final double[] v2, final boolean[] values, final int offset,
+                               final int count) {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = v1[i] >= v2[i];
+            }
+        }
     }
 
 }
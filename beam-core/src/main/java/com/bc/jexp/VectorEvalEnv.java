@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package com.bc.jexp;
+
+/**
+ * An evaluation environment which supports the evaluation of terms for a run of consecutive data elements.
+ *
+ * <p>The vector variants of the <code>eval</code>X methods of the <code>{@link com.bc.jexp.Term}</code>
+ * class evaluate a term for the <code>count</code> data elements starting at the current
+ * element index of the environment. When they return, the current element index is the same as on entry.
+ *
+ * @since BEAM 5.0
+ */
+public interface VectorEvalEnv extends EvalEnv {
+
+    /**
+     * Gets the index of the current data element.
+     *
+     * @return the index of the current data element
+     */
+    int getElemIndex();
+
+    /**
+     * Sets the index of the current data element.
+     *
+     * @param elemIndex the index of the current data element
+     */
+    void setElemIndex(int elemIndex);
+
+    /**
+     * Gets the buffers used to store intermediate results during the evaluation of terms.
+     *
+     * @return the buffers, never <code>null</code>
+     */
+    EvalBuffers getBuffers();
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package com.bc.jexp;
+
+/**
+ * A symbol which can efficiently be evaluated for a run of consecutive data elements.
+ * References to such symbols use the vector variants of the <code>eval</code>X methods
+ * instead of evaluating the symbol element by element.
+ *
+ * @see VectorEvalEnv
+ * @since BEAM 5.0
+ */
+public interface VectorSymbol extends Symbol {
+
+    /**
+     * Evaluates this symbol to <code>boolean</code> values.
+     *
+     * @param env    the application dependant environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @throws EvalException if the evaluation fails
+     */
+    void evalB(EvalEnv env, boolean[] values, int offset, int count) throws EvalException;
+
+    /**
+     * Evaluates this symbol to <code>int</code> values.
+     *
+     * @param env    the application dependant environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @throws EvalException if the evaluation fails
+     */
+    void evalI(EvalEnv env, int[] values, int offset, int count) throws EvalException;
+
+    /**
+     * Evaluates this symbol to <code>double</code> values.
+     *
+     * @param env    the application dependant environment, must be a <code>{@link VectorEvalEnv}</code>.
+     * @param values receives the values
+     * @param offset the index of the first value in <code>values</code>
+     * @param count  the number of data elements to evaluate
+     * @throws EvalException if the evaluation fails
+     */
+    void evalD(EvalEnv env, double[] values, int offset, int count) throws EvalException;
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.dataio.dimap;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.beam.framework.datamodel.ProductData;
+
+import java.awt.Rectangle;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Reads raster data from the ENVI image file of a DIMAP band.
+ * <p/>
+ * The file is accessed by positional reads on a {@link FileChannel}, which neither change the position of the
+ * channel nor require any locking. Therefore, concurrent requests for different regions of the same band,
+ * e.g. issued by multiple JAI tile threads, are served in parallel.
+ * <p/>
+ * The pixels are located according to a {@link DimapTileLayout}. A region which covers entire tiles of a tiled
+ * file, or entire lines of an untiled one, is read with a single read operation per tile.
+ * <p/>
+ * Memory-mapping the file has deliberately not been used: mapped regions cannot be released explicitly and a
+ * single mapping is limited to 2 GB.
+ * <p/>
+ * A {@link FileChannel} is closed if a thread reading from it is interrupted. In this case the file is reopened,
+ * so that a cancelled tile computation does not make the band unreadable for all other threads.
+ *
+ * @since BEAM 5.0
+ */
+class DimapBandFileReader {
+
+    private final File file;
+    private final DimapTileLayout tileLayout;
+    private final int elemSize;
+    private volatile FileChannel channel;
+    private volatile boolean closed;
+
+    /**
+     * @param file       The ENVI image file of the band.
+     * @param tileLayout The organisation of the pixels within the file.
+     * @param dataType   The band's data type, one of the {@code ProductData.TYPE_<i>X</i>} constants.
+     *
+     * @throws IOException If the file cannot be opened.
+     */
+    DimapBandFileReader(File file, DimapTileLayout tileLayout, int dataType) throws IOException {
+        this.file = file;
+        this.channel = openChannel(file);
+        this.tileLayout = tileLayout;
+        this.elemSize = ProductData.getElemSize(dataType);
+    }
+
+    /**
+     * Reads a (sub-sampled) region of the band's raster into the given buffer.
+     * This method may be called concurrently from multiple threads.
+     *
+     * @param sourceMinX   The X-coordinate of the upper left pixel of the region.
+     * @param sourceMinY   The Y-coordinate of the upper left pixel of the region.
+     * @param sourceWidth  The width of the region.
+     * @param sourceHeight The height of the region.
+     * @param sourceStepX  The sub-sampling in X direction.
+     * @param sourceStepY  The sub-sampling in Y direction.
+     * @param destWidth    The number of pixels per line stored in the destination buffer.
+     * @param destBuffer   The destination buffer.
+     * @param pm           A progress monitor.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void readRasterData(int sourceMinX, int sourceMinY, int sourceWidth, int sourceHeight,
+                        int sourceStepX, int sourceStepY,
+                        int destWidth, ProductData destBuffer, ProgressMonitor pm) throws IOException {
+        final Object destElems = destBuffer.getElems();
+        if (sourceStepX == 1 && sourceStepY == 1) {
+            readTileRegions(new Rectangle(sourceMinX, sourceMinY, sourceWidth, sourceHeight), destWidth, destElems, pm);
+            return;
+        }
+
+        final int sourceMaxY = sourceMinY + sourceHeight - 1;
+        pm.beginTask("Reading raster data...", sourceHeight);
+        try {
+            final ByteBuffer bytes = allocate(sourceWidth);
+            int destPos = 0;
+            for (int sourceY = sourceMinY; sourceY <= sourceMaxY; sourceY += sourceStepY) {
+                if (pm.isCanceled()) {
+                    break;
+                }
+                // the line may be spread over multiple tiles
+                for (Rectangle segment : tileLayout.getTileRegions(new Rectangle(sourceMinX, sourceY, sourceWidth, 1))) {
+                    bytes.limit((segment.x - sourceMinX + segment.width) * elemSize);
+                    bytes.position((segment.x - sourceMinX) * elemSize);
+                    read(tileLayout.getElemPos(segment.x, sourceY), bytes);
+                }
+                copy(bytes, 0, sourceStepX, destWidth, destElems, destPos);
+                destPos += destWidth;
+                pm.worked(sourceStepY);
+            }
+        } finally {
+            pm.done();
+        }
+    }
+
+    synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    private static FileChannel openChannel(File file) throws IOException {
+        return new RandomAccessFile(file, "r").getChannel();
+    }
+
+    /**
+     * Replaces the given channel by a new one, unless this has already been done by another thread
+     * or this reader has been closed.
+     */
+    private synchronized void reopenChannel(FileChannel closedChannel) throws IOException {
+        if (!closed && channel == closedChannel) {
+            channel = openChannel(file);
+        }
+    }
+
+    private void readTileRegions(Rectangle region, int destWidth, Object destElems, ProgressMonitor pm) throws IOException {
+        final List<Rectangle> tileRegions = tileLayout.getTileRegions(region);
+        pm.beginTask("Reading raster data...", tileRegions.size());
+        try {
+            ByteBuffer bytes = null;
+            for (Rectangle tileRegion : tileRegions) {
+                if (pm.isCanceled()) {
+                    break;
+                }
+                final int destPos = (tileRegion.y - region.y) * destWidth + (tileRegion.x - region.x);
+                if (tileLayout.isContiguous(tileRegion)) {
+                    bytes = allocate(tileRegion.width * tileRegion.height, bytes);
+                    read(tileLayout.getElemPos(tileRegion.x, tileRegion.y), bytes);
+                    for (int i = 0; i < tileRegion.height; i++) {
+                        copy(bytes, i * tileRegion.width * elemSize, 1, tileRegion.width, destElems,
+                             destPos + i * destWidth);
+                    }
+                } else {
+                    bytes = allocate(tileRegion.width, bytes);
+                    for (int i = 0; i < tileRegion.height; i++) {
+                        bytes.clear();
+                        bytes.limit(tileRegion.width * elemSize);
+                        read(tileLayout.getElemPos(tileRegion.x, tileRegion.y + i), bytes);
+                        copy(bytes, 0, 1, tileRegion.width, destElems, destPos + i * destWidth);
+                    }
+                }
+                pm.worked(1);
+            }
+        } finally {
+            pm.done();
+        }
+    }
+
+    private ByteBuffer allocate(int numElems) {
+        final ByteBuffer buffer = ByteBuffer.allocate(numElems * elemSize);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer whose limit is set to the given number of elements, reusing the given buffer if possible.
+     */
+    private ByteBuffer allocate(int numElems, ByteBuffer buffer) {
+        final int numBytes = numElems * elemSize;
+        if (buffer == null || buffer.capacity() < numBytes) {
+            buffer = allocate(numElems);
+        }
+        buffer.clear();
+        buffer.limit(numBytes);
+        return buffer;
+    }
+
+    /**
+     * Fills the remaining bytes of the given buffer with the file content found at the given element position.
+     */
+    private void read(long elemPos, ByteBuffer buffer) throws IOException {
+        final long filePos = elemPos * elemSize - buffer.position();
+        while (buffer.hasRemaining()) {
+            final FileChannel currentChannel = channel;
+            final int n;
+            try {
+                n = currentChannel.read(buffer, filePos + buffer.position());
+            } catch (ClosedByInterruptException e) {
+                // this thread has been interrupted, keep the band readable for the others
+                reopenChannel(currentChannel);
+                throw e;
+            } catch (ClosedChannelException e) {
+                if (closed) {
+                    throw e;
+                }
+                // another thread reading from the channel has been interrupted, try again
+                reopenChannel(currentChannel);
+                continue;
+            }
+            if (n < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void copy(ByteBuffer bytes, int bytePos, int step, int numElems, Object destElems, int destPos) {
+        bytes.clear();
+        bytes.position(bytePos);
+        if (destElems instanceof byte[]) {
+            final byte[] elems = (byte[]) destElems;
+            if (step == 1) {
+                bytes.get(elems, destPos, numElems);
+            } else {
+                for (int i = 0; i < numElems; i++) {
+                    elems[destPos + i] = bytes.get(bytePos + i * step);
+                }
+            }
+        } else if (destElems instanceof short[]) {
+            final short[] elems = (short[]) destElems;
+            if (step == 1) {
+                bytes.asShortBuffer().get(elems, destPos, numElems);
+            } else {
+                for (int i = 0; i < numElems; i++) {
+                    elems[destPos + i] = bytes.getShort(bytePos + 2 * i * step);
+                }
+            }
+        } else if (destElems instanceof int[]) {
+            final int[] elems = (int[]) destElems;
+            if (step == 1) {
+                bytes.asIntBuffer().get(elems, destPos, numElems);
+            } else {
+                for (int i = 0; i < numElems; i++) {
+                    elems[destPos + i] = bytes.getInt(bytePos + 4 * i * step);
+                }
+            }
+        } else if (destElems instanceof float[]) {
+            final float[] elems = (float[]) destElems;
+            if (step == 1) {
+                bytes.asFloatBuffer().get(elems, destPos, numElems);
+            } else {
+                for (int i = 0; i < numElems; i++) {
+                    elems[destPos + i] = bytes.getFloat(bytePos + 4 * i * step);
+                }
+            }
+        } else if (destElems instanceof double[]) {
+            final double[] elems = (double[]) destElems;
+            if (step == 1) {
+                bytes.asDoubleBuffer().get(elems, destPos, numElems);
+            } else {
+                for (int i = 0; i < numElems; i++) {
+                    elems[destPos + i] = bytes.getDouble(bytePos + 8 * i * step);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported data buffer type: " + destElems.getClass());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.dataio.dimap;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.beam.framework.datamodel.ProductData;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Writes raster data into the image file of a DIMAP band organised according to a {@link DimapTileLayout}.
+ * <p/>
+ * The file is accessed by positional writes on a {@link FileChannel}, so that regions can be written in any order
+ * and concurrently from multiple threads. A region which covers an entire tile is written with a single write
+ * operation, without assembling the lines of the raster.
+ *
+ * @since BEAM 5.0
+ */
+class DimapBandFileWriter {
+
+    private final FileChannel channel;
+    private final DimapTileLayout tileLayout;
+    private final int elemSize;
+
+    /**
+     * @param file       The image file of the band. It must exist and have the final size.
+     * @param tileLayout The organisation of the pixels within the file.
+     * @param dataType   The band's data type, one of the {@code ProductData.TYPE_<i>X</i>} constants.
+     *
+     * @throws IOException If the file cannot be opened.
+     */
+    DimapBandFileWriter(File file, DimapTileLayout tileLayout, int dataType) throws IOException {
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        this.tileLayout = tileLayout;
+        this.elemSize = ProductData.getElemSize(dataType);
+    }
+
+    /**
+     * Writes a region of the band's raster. This method may be called concurrently from multiple threads.
+     *
+     * @param sourceMinX   The X-coordinate of the upper left pixel of the region.
+     * @param sourceMinY   The Y-coordinate of the upper left pixel of the region.
+     * @param sourceWidth  The width of the region.
+     * @param sourceHeight The height of the region.
+     * @param sourceBuffer The pixels of the region.
+     * @param pm           A progress monitor.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void writeRasterData(int sourceMinX, int sourceMinY, int sourceWidth, int sourceHeight,
+                         ProductData sourceBuffer, ProgressMonitor pm) throws IOException {
+        final Object sourceElems = sourceBuffer.getElems();
+        final List<Rectangle> tileRegions = tileLayout.getTileRegions(
+                new Rectangle(sourceMinX, sourceMinY, sourceWidth, sourceHeight));
+        pm.beginTask("Writing raster data...", tileRegions.size());
+        try {
+            ByteBuffer bytes = null;
+            for (Rectangle tileRegion : tileRegions) {
+                if (pm.isCanceled()) {
+                    break;
+                }
+                final int sourcePos = (tileRegion.y - sourceMinY) * sourceWidth + (tileRegion.x - sourceMinX);
+                if (tileLayout.isContiguous(tileRegion)) {
+                    bytes = allocate(tileRegion.width * tileRegion.height, bytes);
+                    for (int i = 0; i < tileRegion.height; i++) {
+                        put(sourceElems, sourcePos + i * sourceWidth, tileRegion.width, bytes);
+                    }
+                    bytes.flip();
+                    write(tileLayout.getElemPos(tileRegion.x, tileRegion.y), bytes);
+                } else {
+                    for (int i = 0; i < tileRegion.height; i++) {
+                        bytes = allocate(tileRegion.width, bytes);
+                        put(sourceElems, sourcePos + i * sourceWidth, tileRegion.width, bytes);
+                        bytes.flip();
+                        write(tileLayout.getElemPos(tileRegion.x, tileRegion.y + i), bytes);
+                    }
+                }
+                pm.worked(1);
+            }
+        } finally {
+            pm.done();
+        }
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer allocate(int numElems, ByteBuffer buffer) {
+        final int numBytes = numElems * elemSize;
+        if (buffer == null || buffer.capacity() < numBytes) {
+            buffer = ByteBuffer.allocate(numBytes);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private void write(long elemPos, ByteBuffer buffer) throws IOException {
+        final long filePos = elemPos * elemSize;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, filePos + buffer.position());
+        }
+    }
+
+    private static void put(Object sourceElems, int sourcePos, int numElems, ByteBuffer bytes) {
+        final int bytePos = bytes.position();
+        if (sourceElems instanceof byte[]) {
+            bytes.put((byte[]) sourceElems, sourcePos, numElems);
+        } else if (sourceElems instanceof short[]) {
+            bytes.asShortBuffer().put((short[]) sourceElems, sourcePos, numElems);
+            bytes.position(bytePos + 2 * numElems);
+        } else if (sourceElems instanceof int[]) {
+            bytes.asIntBuffer().put((int[]) sourceElems, sourcePos, numElems);
+            bytes.position(bytePos + 4 * numElems);
+        } else if (sourceElems instanceof float[]) {
+            bytes.asFloatBuffer().put((float[]) sourceElems, sourcePos, numElems);
+            bytes.position(bytePos + 4 * numElems);
+        } else if (sourceElems instanceof double[]) {
+            bytes.asDoubleBuffer().put((double[]) sourceElems, sourcePos, numElems);
+            bytes.position(bytePos + 8 * numElems);
+        } else {
+            throw new IllegalArgumentException("Unsupported data buffer type: " + sourceElems.getClass());
+        }
+    }
+}
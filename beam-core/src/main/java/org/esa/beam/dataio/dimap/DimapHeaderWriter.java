@@ -25,6 +25,7 @@ import org.jdom.Element;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
 
+import java.awt.Dimension;
 import java.awt.geom.AffineTransform;
 import java.io.File;
 import java.io.IOException;
@@ -43,6 +44,7 @@ public final class DimapHeaderWriter extends XmlWriter {
 
     private final Product product;
     private final String dataDirectory;
+    private Dimension dataFileTileSize;
 
     public DimapHeaderWriter(Product product, File file, String dataDirectory) throws IOException {
         super(file);
@@ -56,6 +58,18 @@ public final class DimapHeaderWriter extends XmlWriter {
         this.dataDirectory = dataDirectory;
     }
 
+    /**
+     * Sets the tile size of the band data files. If set, the data files are declared to be organised in tiles,
+     * see {@link DimapProductWriter#setTileSize(Dimension)}.
+     *
+     * @param dataFileTileSize The tile size, or {@code null} if the data files are not tiled.
+     *
+     * @since BEAM 5.0
+     */
+    public void setDataFileTileSize(Dimension dataFileTileSize) {
+        this.dataFileTileSize = dataFileTileSize;
+    }
+
     public void writeHeader() {
         int indent = 0;
         final String[][] attributes = new String[1][];
@@ -370,8 +384,15 @@ public final class DimapHeaderWriter extends XmlWriter {
             printLine(indent + 1, DimapProductConstants.TAG_DATA_FILE_FORMAT, DimapProductConstants.DATA_FILE_FORMAT);
             printLine(indent + 1, DimapProductConstants.TAG_DATA_FILE_FORMAT_DESC,
                       DimapProductConstants.DATA_FILE_FORMAT_DESCRIPTION);
-            printLine(indent + 1, DimapProductConstants.TAG_DATA_FILE_ORGANISATION,
-                      DimapProductConstants.DATA_FILE_ORGANISATION);
+            if (dataFileTileSize != null) {
+                printLine(indent + 1, DimapProductConstants.TAG_DATA_FILE_ORGANISATION,
+                          DimapProductConstants.DATA_FILE_ORGANISATION_TILED);
+                printLine(indent + 1, DimapProductConstants.TAG_DATA_FILE_TILE_WIDTH, dataFileTileSize.width);
+                printLine(indent + 1, DimapProductConstants.TAG_DATA_FILE_TILE_HEIGHT, dataFileTileSize.height);
+            } else {
+                printLine(indent + 1, DimapProductConstants.TAG_DATA_FILE_ORGANISATION,
+                          DimapProductConstants.DATA_FILE_ORGANISATION);
+            }
 
             final Band[] bands = product.getBands();
             for (int i = 0; i < bands.length; i++) {
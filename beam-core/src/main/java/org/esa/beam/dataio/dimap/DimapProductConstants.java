@@ -43,7 +43,7 @@ public final class DimapProductConstants {
      * <p/>
      * Important note: If you change this number, update the BEAM-DIMAP version history given at {@link DimapProductWriterPlugIn}.
      */
-    public static final String DIMAP_CURRENT_VERSION = "2.11.0";
+    public static final String DIMAP_CURRENT_VERSION = "2.12.0";
 
     // BEAM-Dimap default text
     public static final String DIMAP_METADATA_PROFILE = "BEAM-DATAMODEL-V1";
@@ -53,6 +53,7 @@ public final class DimapProductConstants {
     public static final String DATA_FILE_FORMAT = "ENVI";
     public static final String DATA_FILE_FORMAT_DESCRIPTION = "ENVI File Format";
     public static final String DATA_FILE_ORGANISATION = "BAND_SEPARATE";
+    public static final String DATA_FILE_ORGANISATION_TILED = "BAND_SEPARATE_TILED";
 
     // BEAM-Dimap document root tag
     public static final String TAG_ROOT = "Dimap_Document";
@@ -221,6 +222,8 @@ public final class DimapProductConstants {
     public static final String TAG_DATA_FILE_FORMAT = "DATA_FILE_FORMAT";
     public static final String TAG_DATA_FILE_FORMAT_DESC = "DATA_FILE_FORMAT_DESC";
     public static final String TAG_DATA_FILE_ORGANISATION = "DATA_FILE_ORGANISATION";
+    public static final String TAG_DATA_FILE_TILE_WIDTH = "DATA_FILE_TILE_WIDTH";
+    public static final String TAG_DATA_FILE_TILE_HEIGHT = "DATA_FILE_TILE_HEIGHT";
     public static final String TAG_DATA_FILE = "Data_File";
     public static final String TAG_DATA_FILE_PATH = "DATA_FILE_PATH";
     public static final String TAG_BAND_INDEX = "BAND_INDEX";
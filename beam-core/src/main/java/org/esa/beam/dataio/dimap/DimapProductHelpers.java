@@ -80,6 +80,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.io.File;
@@ -164,6 +165,40 @@ public class DimapProductHelpers {
         return dataFilesMap;
     }
 
+    /**
+     * Extracts the tile size of the band data files from the given dom.
+     *
+     * @param dom the JDOM in BEAM-DIMAP format
+     * @return the tile size, or <code>null</code> if the band data files are not organised in tiles.
+     * @throws IllegalArgumentException if the parameter dom is null or the tile size is invalid.
+     * @since BEAM 5.0
+     */
+    public static Dimension getDataFileTileSize(Document dom) throws IllegalArgumentException {
+        Guardian.assertNotNull("dom", dom);
+        if (!dom.hasRootElement()) {
+            return null;
+        }
+        final Element dataAccess = dom.getRootElement().getChild(DimapProductConstants.TAG_DATA_ACCESS);
+        if (dataAccess == null) {
+            return null;
+        }
+        final String organisation = dataAccess.getChildTextTrim(DimapProductConstants.TAG_DATA_FILE_ORGANISATION);
+        if (!DimapProductConstants.DATA_FILE_ORGANISATION_TILED.equals(organisation)) {
+            return null;
+        }
+        final String tileWidth = dataAccess.getChildTextTrim(DimapProductConstants.TAG_DATA_FILE_TILE_WIDTH);
+        final String tileHeight = dataAccess.getChildTextTrim(DimapProductConstants.TAG_DATA_FILE_TILE_HEIGHT);
+        try {
+            final Dimension tileSize = new Dimension(Integer.parseInt(tileWidth), Integer.parseInt(tileHeight));
+            if (tileSize.width <= 0 || tileSize.height <= 0) {
+                throw new IllegalArgumentException("Invalid data file tile size: " + tileWidth + " x " + tileHeight);
+            }
+            return tileSize;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid data file tile size: " + tileWidth + " x " + tileHeight, e);
+        }
+    }
+
     /**
      * Extract a <code>String</code> object from the given dom which points to the data for the tie point grid with the
      * given name.
@@ -46,9 +46,9 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import javax.imageio.stream.FileImageInputStream;
-import javax.imageio.stream.ImageInputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.Dimension;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -79,11 +79,12 @@ public class DimapProductReader extends AbstractProductReader {
 
     private File inputDir;
     private File inputFile;
-    private Map<Band, ImageInputStream> bandInputStreams;
+    private Map<Band, DimapBandFileReader> bandFileReaders;
 
     private int sourceRasterWidth;
     private int sourceRasterHeight;
     private Map<Band, File> bandDataFiles;
+    private Dimension dataFileTileSize;
     private Set<ReaderExtender> readerExtenders;
 
     /**
@@ -115,6 +116,15 @@ public class DimapProductReader extends AbstractProductReader {
         return sourceRasterHeight;
     }
 
+    /**
+     * @return The tile size of the band data files, or {@code null} if they are not organised in tiles.
+     *
+     * @since BEAM 5.0
+     */
+    public Dimension getDataFileTileSize() {
+        return dataFileTileSize;
+    }
+
     /**
      * Provides an implementation of the <code>readProductNodes</code> interface method. Clients implementing this
      * method can be sure that the input object and eventually the subset information has already been set.
@@ -160,6 +170,10 @@ public class DimapProductReader extends AbstractProductReader {
 
         bindBandsToFiles(dom);
         if (existingProduct == null) {
+            if (dataFileTileSize != null) {
+                // images aligned with the tiles of the data files are read with one read operation per tile
+                this.product.setPreferredTileSize(dataFileTileSize);
+            }
             readVectorData(ImageManager.DEFAULT_IMAGE_CRS, true);
 
             // read GCPs and pins from DOM (old-style)
@@ -198,6 +212,7 @@ public class DimapProductReader extends AbstractProductReader {
 
     private void bindBandsToFiles(Document dom) {
         bandDataFiles = DimapProductHelpers.getBandDataFiles(dom, product, getInputDir());
+        dataFileTileSize = DimapProductHelpers.getDataFileTileSize(dom);
         final Band[] bands = product.getBands();
         for (final Band band : bands) {
             if (band instanceof VirtualBand || band instanceof FilterBand) {
@@ -311,45 +326,13 @@ public class DimapProductReader extends AbstractProductReader {
                                           int destWidth, int destHeight,
                                           ProductData destBuffer,
                                           ProgressMonitor pm) throws IOException {
-        final int sourceMinX = sourceOffsetX;
-        final int sourceMinY = sourceOffsetY;
-        final int sourceMaxX = sourceOffsetX + sourceWidth - 1;
-        final int sourceMaxY = sourceOffsetY + sourceHeight - 1;
-
         final File dataFile = bandDataFiles.get(destBand);
-        final ImageInputStream inputStream = getOrCreateImageInputStream(destBand, dataFile);
-        if (inputStream == null) {
+        final DimapBandFileReader bandFileReader = getOrCreateBandFileReader(destBand, dataFile);
+        if (bandFileReader == null) {
             return;
         }
-
-        int destPos = 0;
-
-        pm.beginTask("Reading band '" + destBand.getName() + "'...", sourceMaxY - sourceMinY);
-        // For each scan in the data source
-        try {
-            synchronized (inputStream) {
-                for (int sourceY = sourceMinY; sourceY <= sourceMaxY; sourceY += sourceStepY) {
-                    if (pm.isCanceled()) {
-                        break;
-                    }
-                    final long sourcePosY = (long) sourceY * sourceRasterWidth;
-                    if (sourceStepX == 1) {
-                        long inputPos = sourcePosY + sourceMinX;
-                        destBuffer.readFrom(destPos, destWidth, inputStream, inputPos);
-                        destPos += destWidth;
-                    } else {
-                        for (int sourceX = sourceMinX; sourceX <= sourceMaxX; sourceX += sourceStepX) {
-                            long inputPos = sourcePosY + sourceX;
-                            destBuffer.readFrom(destPos, 1, inputStream, inputPos);
-                            destPos++;
-                        }
-                    }
-                }
-                pm.worked(1);
-            }
-        } finally {
-            pm.done();
-        }
+        bandFileReader.readRasterData(sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight,
+                                      sourceStepX, sourceStepY, destWidth, destBuffer, pm);
     }
 
     /**
@@ -365,14 +348,14 @@ public class DimapProductReader extends AbstractProductReader {
      */
     @Override
     public void close() throws IOException {
-        if (bandInputStreams == null) {
+        if (bandFileReaders == null) {
             return;
         }
-        for (ImageInputStream imageInputStream : bandInputStreams.values()) {
-            (imageInputStream).close();
+        for (DimapBandFileReader bandFileReader : bandFileReaders.values()) {
+            bandFileReader.close();
         }
-        bandInputStreams.clear();
-        bandInputStreams = null;
+        bandFileReaders.clear();
+        bandFileReaders = null;
         if (readerExtenders != null) {
             readerExtenders.clear();
             readerExtenders = null;
@@ -380,32 +363,36 @@ public class DimapProductReader extends AbstractProductReader {
         super.close();
     }
 
-    private ImageInputStream getOrCreateImageInputStream(Band band, File file) throws IOException {
-        ImageInputStream inputStream = getImageInputStream(band);
-        if (inputStream == null) {
+    private synchronized DimapBandFileReader getOrCreateBandFileReader(Band band, File file) {
+        DimapBandFileReader bandFileReader = null;
+        if (bandFileReaders != null) {
+            bandFileReader = bandFileReaders.get(band);
+        }
+        if (bandFileReader == null) {
             try {
-                inputStream = new FileImageInputStream(file);
+                bandFileReader = new DimapBandFileReader(file, createTileLayout(), band.getDataType());
             } catch (IOException e) {
                 BeamLogManager.getSystemLogger().log(Level.WARNING,
                                                      "DimapProductReader: Unable to read file '" + file + "' referenced by '" + band.getName() + "'.",
                                                      e);
             }
-            if (inputStream == null) {
+            if (bandFileReader == null) {
                 return null;
             }
-            if (bandInputStreams == null) {
-                bandInputStreams = new Hashtable<Band, ImageInputStream>();
+            if (bandFileReaders == null) {
+                bandFileReaders = new Hashtable<Band, DimapBandFileReader>();
             }
-            bandInputStreams.put(band, inputStream);
+            bandFileReaders.put(band, bandFileReader);
         }
-        return inputStream;
+        return bandFileReader;
     }
 
-    private ImageInputStream getImageInputStream(Band band) {
-        if (bandInputStreams != null) {
-            return bandInputStreams.get(band);
+    private DimapTileLayout createTileLayout() {
+        if (dataFileTileSize != null) {
+            return new DimapTileLayout(sourceRasterWidth, sourceRasterHeight,
+                                       dataFileTileSize.width, dataFileTileSize.height);
         }
-        return null;
+        return DimapTileLayout.createUntiled(sourceRasterWidth, sourceRasterHeight);
     }
 
     private void readVectorData(final CoordinateReferenceSystem modelCrs, final boolean onlyGCPs) throws IOException {
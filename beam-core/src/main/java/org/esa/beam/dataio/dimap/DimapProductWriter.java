@@ -31,6 +31,7 @@ import org.esa.beam.framework.datamodel.RasterDataNode;
 import org.esa.beam.framework.datamodel.TiePointGrid;
 import org.esa.beam.framework.datamodel.VectorDataNode;
 import org.esa.beam.framework.datamodel.VirtualBand;
+import org.esa.beam.jai.ImageManager;
 import org.esa.beam.util.Debug;
 import org.esa.beam.util.Guardian;
 import org.esa.beam.util.io.FileUtils;
@@ -38,6 +39,7 @@ import org.esa.beam.util.logging.BeamLogManager;
 
 import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
+import java.awt.Dimension;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -50,6 +52,12 @@ import java.util.Set;
  * The product writer for the BEAM-DIMAP format.
  * <p/>
  * The BEAM-DIMAP version history is provided in the API doc of the {@link DimapProductWriterPlugIn}.
+ * <p/>
+ * By default, the band data files are organised line by line. Optionally, they can be organised in tiles (see
+ * {@link #setTileSize(Dimension)}). Each tile is then stored as a contiguous block, so that tiles can be written
+ * in any order and concurrently without assembling entire lines of the raster first. The tiled organisation is
+ * declared in the DIMAP header. It is unknown to ENVI, therefore the ENVI headers of tiled band data files
+ * do not describe them correctly.
  *
  * @author Sabine Embacher
  * @version $Revision$ $Date$
@@ -58,9 +66,19 @@ import java.util.Set;
  */
 public class DimapProductWriter extends AbstractProductWriter {
 
+    /**
+     * The name of the system property which enables the tiled organisation of the band data files
+     * if no tile size has been set explicitly. The tile size is then the preferred tile size of the product.
+     *
+     * @since BEAM 5.0
+     */
+    public static final String TILED_LAYOUT_PROPERTY = "beam.dimap.writeTiledLayout";
+
     private File outputDir;
     private File outputFile;
     private Map<Band, ImageOutputStream> bandOutputStreams;
+    private Map<Band, DimapBandFileWriter> bandFileWriters;
+    private Dimension tileSize;
     private File dataOutputDir;
     private boolean incremental = true;
     private Set<WriterExtender> writerExtenders;
@@ -88,6 +106,26 @@ public class DimapProductWriter extends AbstractProductWriter {
         return bandOutputStreams;
     }
 
+    /**
+     * Sets the tile size of the band data files. Must be called before the product nodes are written.
+     *
+     * @param tileSize The tile size, or {@code null} if the band data files shall be organised line by line.
+     *
+     * @since BEAM 5.0
+     */
+    public void setTileSize(Dimension tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * @return The tile size of the band data files, or {@code null} if they are organised line by line.
+     *
+     * @since BEAM 5.0
+     */
+    public Dimension getTileSize() {
+        return tileSize;
+    }
+
     /**
      * Writes the in-memory representation of a data product. This method was called by <code>writeProductNodes(product,
      * output)</code> of the AbstractProductWriter.
@@ -109,6 +147,7 @@ public class DimapProductWriter extends AbstractProductWriter {
         initDirs(outputFile);
 
         ensureNamingConvention();
+        initTileSize();
         if (writerExtenders != null) {
             for (WriterExtender dimapWriterExtender : writerExtenders) {
                 File parentFile = outputFile.getParentFile();
@@ -155,6 +194,20 @@ public class DimapProductWriter extends AbstractProductWriter {
                                 outputFile) + DimapProductConstants.DIMAP_DATA_DIRECTORY_EXTENSION);
     }
 
+    private void initTileSize() {
+        if (tileSize != null) {
+            return;
+        }
+        final ProductReader productReader = getSourceProduct().getProductReader();
+        if (isIncrementalMode() && productReader instanceof DimapProductReader
+            && outputFile.equals(((DimapProductReader) productReader).getInputFile())) {
+            // band data files which are not rewritten must keep their organisation
+            tileSize = ((DimapProductReader) productReader).getDataFileTileSize();
+        } else if (Boolean.getBoolean(TILED_LAYOUT_PROPERTY)) {
+            tileSize = ImageManager.getPreferredTileSize(getSourceProduct());
+        }
+    }
+
     private void ensureNamingConvention() {
         if (outputFile != null) {
             getSourceProduct().setName(FileUtils.getFilenameWithoutExtension(outputFile));
@@ -177,6 +230,11 @@ public class DimapProductWriter extends AbstractProductWriter {
         final long sourceBandHeight = sourceBand.getSceneRasterHeight();
         checkSourceRegionInsideBandRegion(sourceWidth, sourceBandWidth, sourceHeight, sourceBandHeight, sourceOffsetX,
                                           sourceOffsetY);
+        if (tileSize != null) {
+            final DimapBandFileWriter bandFileWriter = getOrCreateBandFileWriter(sourceBand);
+            bandFileWriter.writeRasterData(sourceOffsetX, sourceOffsetY, sourceWidth, sourceHeight, sourceBuffer, pm);
+            return;
+        }
         final ImageOutputStream outputStream = getOrCreateImageOutputStream(sourceBand);
         long outputPos = (long) sourceOffsetY * sourceBandWidth + (long) sourceOffsetX;
         pm.beginTask("Writing band '" + sourceBand.getName() + "'...", sourceHeight);
@@ -247,6 +305,13 @@ public class DimapProductWriter extends AbstractProductWriter {
      */
     @Override
     public synchronized void close() throws IOException {
+        if (bandFileWriters != null) {
+            for (DimapBandFileWriter bandFileWriter : bandFileWriters.values()) {
+                bandFileWriter.close();
+            }
+            bandFileWriters.clear();
+            bandFileWriters = null;
+        }
         if (bandOutputStreams == null) {
             return;
         }
@@ -264,6 +329,7 @@ public class DimapProductWriter extends AbstractProductWriter {
     private void writeDimapDocument() throws IOException {
         final DimapHeaderWriter writer = new DimapHeaderWriter(getSourceProduct(), getOutputFile(),
                                                                dataOutputDir.getName());
+        writer.setDataFileTileSize(tileSize);
         writer.writeHeader();
         writer.close();
     }
@@ -308,6 +374,23 @@ public class DimapProductWriter extends AbstractProductWriter {
         return outputStream;
     }
 
+    private synchronized DimapBandFileWriter getOrCreateBandFileWriter(Band band) throws IOException {
+        DimapBandFileWriter bandFileWriter = null;
+        if (bandFileWriters != null) {
+            bandFileWriter = bandFileWriters.get(band);
+        }
+        if (bandFileWriter == null) {
+            final DimapTileLayout tileLayout = new DimapTileLayout(band.getRasterWidth(), band.getRasterHeight(),
+                                                                   tileSize.width, tileSize.height);
+            bandFileWriter = new DimapBandFileWriter(getValidImageFile(band), tileLayout, band.getDataType());
+            if (bandFileWriters == null) {
+                bandFileWriters = new HashMap<Band, DimapBandFileWriter>();
+            }
+            bandFileWriters.put(band, bandFileWriter);
+        }
+        return bandFileWriter;
+    }
+
     private synchronized ImageOutputStream getImageOutputStream(Band band) {
         if (bandOutputStreams != null) {
             return bandOutputStreams.get(band);
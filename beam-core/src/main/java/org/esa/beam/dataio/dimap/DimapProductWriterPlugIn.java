@@ -395,6 +395,22 @@ import java.util.Set;
  * <td> Since BEAM 4.10, the XML elements "ROI", "ROI_Definition", and "ROI_ONE_DIMENSIONS" are not used anymore.
  * </td>
  * </tr>
+ * <tr>
+ * <td valign="top">2.12.0</td>
+ * <td> Since BEAM 5.0, the band data files can optionally be organised in tiles. Each tile is stored as a
+ * contiguous block of lines of the tile's width, the tiles are stored in row-major order. The organisation
+ * and the tile size are given in the Data_Access element:
+ * <pre>
+ *    &lt;Data_Access&gt;
+ *        ...
+ *        &lt;DATA_FILE_ORGANISATION&gt;BAND_SEPARATE_TILED&lt;/DATA_FILE_ORGANISATION&gt;
+ *        &lt;DATA_FILE_TILE_WIDTH&gt;512&lt;/DATA_FILE_TILE_WIDTH&gt;
+ *        &lt;DATA_FILE_TILE_HEIGHT&gt;512&lt;/DATA_FILE_TILE_HEIGHT&gt;
+ *        ...
+ *    &lt;/Data_Access&gt;
+ * </pre>
+ * </td>
+ * </tr>
  * </table>
  *
  * @author Sabine Embacher
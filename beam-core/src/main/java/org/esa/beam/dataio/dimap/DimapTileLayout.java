@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.dataio.dimap;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes the organisation of the pixels of a band within its image file.
+ * <p/>
+ * The raster is divided into tiles of equal size, except for the tiles in the last column and row, which are cropped
+ * at the raster bounds. The tiles are stored one after the other in row-major order, each of them as a contiguous
+ * block of lines of the tile's actual width. Hence the file has the same size as an untiled one and the position of
+ * any pixel can be computed from the tile size alone. The untiled, line-interleaved organisation is the special case
+ * of a single tile covering the entire raster.
+ *
+ * @since BEAM 5.0
+ */
+class DimapTileLayout {
+
+    private final int rasterWidth;
+    private final int rasterHeight;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    DimapTileLayout(int rasterWidth, int rasterHeight, int tileWidth, int tileHeight) {
+        if (rasterWidth <= 0 || rasterHeight <= 0) {
+            throw new IllegalArgumentException("rasterWidth <= 0 || rasterHeight <= 0");
+        }
+        if (tileWidth <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException("tileWidth <= 0 || tileHeight <= 0");
+        }
+        this.rasterWidth = rasterWidth;
+        this.rasterHeight = rasterHeight;
+        this.tileWidth = Math.min(tileWidth, rasterWidth);
+        this.tileHeight = Math.min(tileHeight, rasterHeight);
+    }
+
+    static DimapTileLayout createUntiled(int rasterWidth, int rasterHeight) {
+        return new DimapTileLayout(rasterWidth, rasterHeight, rasterWidth, rasterHeight);
+    }
+
+    boolean isTiled() {
+        return tileWidth < rasterWidth || tileHeight < rasterHeight;
+    }
+
+    /**
+     * @param x The X-coordinate of the pixel.
+     * @param y The Y-coordinate of the pixel.
+     *
+     * @return The position of the pixel within the file, in elements.
+     */
+    long getElemPos(int x, int y) {
+        final int tileX = x / tileWidth;
+        final int tileY = y / tileHeight;
+        final int tileMinX = tileX * tileWidth;
+        final int tileMinY = tileY * tileHeight;
+        final int actualTileWidth = Math.min(tileWidth, rasterWidth - tileMinX);
+        final int actualTileHeight = Math.min(tileHeight, rasterHeight - tileMinY);
+        // all tiles of the preceding tile rows, all preceding tiles of this tile row, the preceding lines of this tile
+        return (long) tileMinY * rasterWidth
+               + (long) actualTileHeight * tileMinX
+               + (long) (y - tileMinY) * actualTileWidth
+               + (x - tileMinX);
+    }
+
+    /**
+     * Splits a region into its intersections with the tiles, in the order of the tiles within the file.
+     *
+     * @param region The region.
+     *
+     * @return The intersections of the region with the tiles.
+     */
+    List<Rectangle> getTileRegions(Rectangle region) {
+        final int minTileX = region.x / tileWidth;
+        final int maxTileX = (region.x + region.width - 1) / tileWidth;
+        final int minTileY = region.y / tileHeight;
+        final int maxTileY = (region.y + region.height - 1) / tileHeight;
+        final List<Rectangle> tileRegions = new ArrayList<Rectangle>((maxTileX - minTileX + 1) * (maxTileY - minTileY + 1));
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                tileRegions.add(region.intersection(getTileRect(tileX, tileY)));
+            }
+        }
+        return tileRegions;
+    }
+
+    /**
+     * @param tileRegion A region within a single tile.
+     *
+     * @return {@code true} if the pixels of the region are stored contiguously in the file.
+     */
+    boolean isContiguous(Rectangle tileRegion) {
+        if (tileRegion.height == 1) {
+            return true;
+        }
+        final Rectangle tileRect = getTileRect(tileRegion.x / tileWidth, tileRegion.y / tileHeight);
+        return tileRegion.x == tileRect.x && tileRegion.width == tileRect.width;
+    }
+
+    private Rectangle getTileRect(int tileX, int tileY) {
+        final int tileMinX = tileX * tileWidth;
+        final int tileMinY = tileY * tileHeight;
+        return new Rectangle(tileMinX, tileMinY,
+                             Math.min(tileWidth, rasterWidth - tileMinX),
+                             Math.min(tileHeight, rasterHeight - tileMinY));
+    }
+}
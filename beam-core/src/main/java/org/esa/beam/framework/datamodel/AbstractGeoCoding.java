@@ -26,6 +26,7 @@ import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
 
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 
 /**
@@ -109,7 +110,96 @@ public abstract class AbstractGeoCoding implements GeoCoding {
         return image2Map;
     }
 
-     protected static DefaultDerivedCRS createImageCRS(CoordinateReferenceSystem baseCRS,
+    /**
+     * Computes the geographical positions of the centres of all pixels of a rectangular region.
+     * Positions which cannot be computed are set to <code>NaN</code>.
+     * <p/>
+     * The default implementation calls {@link #getGeoPos(PixelPos, GeoPos)} for each pixel. Implementations
+     * should override it if the positions of a region can be computed more efficiently.
+     *
+     * @param region the region in pixel co-ordinates
+     * @param lats   the array receiving the latitudes in row-major order, must have at least
+     *               <code>region.width * region.height</code> elements
+     * @param lons   the array receiving the longitudes in row-major order, must have at least
+     *               <code>region.width * region.height</code> elements
+     * @since BEAM 5.0
+     */
+    public void getGeoPos(Rectangle region, float[] lats, float[] lons) {
+        final PixelPos pixelPos = new PixelPos();
+        final GeoPos geoPos = new GeoPos();
+        int i = 0;
+        for (int y = region.y; y < region.y + region.height; y++) {
+            for (int x = region.x; x < region.x + region.width; x++) {
+                pixelPos.setLocation(x + 0.5F, y + 0.5F);
+                getGeoPos(pixelPos, geoPos);
+                setGeoPos(geoPos, lats, lons, i++);
+            }
+        }
+    }
+
+    /**
+     * Computes the geographical positions of several pixel positions.
+     * Positions which cannot be computed are set to <code>NaN</code>.
+     * <p/>
+     * The default implementation calls {@link #getGeoPos(PixelPos, GeoPos)} for each position. Implementations
+     * should override it if many positions can be computed more efficiently.
+     *
+     * @param pixelX the X co-ordinates of the pixel positions
+     * @param pixelY the Y co-ordinates of the pixel positions, must have at least the length of <code>pixelX</code>
+     * @param lats   the array receiving the latitudes, must have at least the length of <code>pixelX</code>
+     * @param lons   the array receiving the longitudes, must have at least the length of <code>pixelX</code>
+     * @since BEAM 5.0
+     */
+    public void getGeoPos(float[] pixelX, float[] pixelY, float[] lats, float[] lons) {
+        final PixelPos pixelPos = new PixelPos();
+        final GeoPos geoPos = new GeoPos();
+        for (int i = 0; i < pixelX.length; i++) {
+            pixelPos.setLocation(pixelX[i], pixelY[i]);
+            getGeoPos(pixelPos, geoPos);
+            setGeoPos(geoPos, lats, lons, i);
+        }
+    }
+
+    /**
+     * Computes the pixel positions of several geographical positions.
+     * Positions which cannot be computed are set to <code>NaN</code>.
+     * <p/>
+     * The default implementation calls {@link #getPixelPos(GeoPos, PixelPos)} for each position. Implementations
+     * should override it if many positions can be computed more efficiently.
+     *
+     * @param lats   the latitudes
+     * @param lons   the longitudes, must have at least the length of <code>lats</code>
+     * @param pixelX the array receiving the X co-ordinates, must have at least the length of <code>lats</code>
+     * @param pixelY the array receiving the Y co-ordinates, must have at least the length of <code>lats</code>
+     * @since BEAM 5.0
+     */
+    public void getPixelPos(float[] lats, float[] lons, float[] pixelX, float[] pixelY) {
+        final GeoPos geoPos = new GeoPos();
+        final PixelPos pixelPos = new PixelPos();
+        for (int i = 0; i < lats.length; i++) {
+            geoPos.setLocation(lats[i], lons[i]);
+            final PixelPos result = getPixelPos(geoPos, pixelPos);
+            if (result != null && result.isValid()) {
+                pixelX[i] = result.x;
+                pixelY[i] = result.y;
+            } else {
+                pixelX[i] = Float.NaN;
+                pixelY[i] = Float.NaN;
+            }
+        }
+    }
+
+    private static void setGeoPos(GeoPos geoPos, float[] lats, float[] lons, int i) {
+        if (geoPos.isValid()) {
+            lats[i] = geoPos.lat;
+            lons[i] = geoPos.lon;
+        } else {
+            lats[i] = Float.NaN;
+            lons[i] = Float.NaN;
+        }
+    }
+
+    protected static DefaultDerivedCRS createImageCRS(CoordinateReferenceSystem baseCRS,
                                                       MathTransform baseToDerivedTransform) {
         return new DefaultDerivedCRS("Image CS based on " + baseCRS.getName(),
                                      baseCRS,
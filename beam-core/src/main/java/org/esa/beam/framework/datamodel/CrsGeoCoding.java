@@ -243,6 +243,100 @@ public class CrsGeoCoding extends AbstractGeoCoding {
         return pixelPos;
     }
 
+    /**
+     * Computes the geographical positions of the centres of all pixels of a rectangular region with a single
+     * transformation of all positions.
+     *
+     * @param region the region in pixel co-ordinates
+     * @param lats   the array receiving the latitudes in row-major order
+     * @param lons   the array receiving the longitudes in row-major order
+     * @since BEAM 5.0
+     */
+    @Override
+    public void getGeoPos(Rectangle region, float[] lats, float[] lons) {
+        final double[] points = new double[2 * region.width * region.height];
+        int k = 0;
+        for (int y = region.y; y < region.y + region.height; y++) {
+            for (int x = region.x; x < region.x + region.width; x++) {
+                points[k++] = x + 0.5;
+                points[k++] = y + 0.5;
+            }
+        }
+        if (transform(imageToGeo, points)) {
+            for (int i = 0; i < points.length / 2; i++) {
+                lons[i] = (float) points[2 * i];
+                lats[i] = (float) points[2 * i + 1];
+            }
+        } else {
+            super.getGeoPos(region, lats, lons);
+        }
+    }
+
+    /**
+     * Computes the geographical positions of several pixel positions with a single transformation of all
+     * positions.
+     *
+     * @param pixelX the X co-ordinates of the pixel positions
+     * @param pixelY the Y co-ordinates of the pixel positions
+     * @param lats   the array receiving the latitudes
+     * @param lons   the array receiving the longitudes
+     * @since BEAM 5.0
+     */
+    @Override
+    public void getGeoPos(float[] pixelX, float[] pixelY, float[] lats, float[] lons) {
+        final double[] points = interleave(pixelX, pixelY);
+        if (transform(imageToGeo, points)) {
+            for (int i = 0; i < pixelX.length; i++) {
+                lons[i] = (float) points[2 * i];
+                lats[i] = (float) points[2 * i + 1];
+            }
+        } else {
+            super.getGeoPos(pixelX, pixelY, lats, lons);
+        }
+    }
+
+    /**
+     * Computes the pixel positions of several geographical positions with a single transformation of all
+     * positions.
+     *
+     * @param lats   the latitudes
+     * @param lons   the longitudes
+     * @param pixelX the array receiving the X co-ordinates
+     * @param pixelY the array receiving the Y co-ordinates
+     * @since BEAM 5.0
+     */
+    @Override
+    public void getPixelPos(float[] lats, float[] lons, float[] pixelX, float[] pixelY) {
+        final double[] points = interleave(lons, lats);
+        if (transform(geoToImage, points)) {
+            for (int i = 0; i < lats.length; i++) {
+                pixelX[i] = (float) points[2 * i];
+                pixelY[i] = (float) points[2 * i + 1];
+            }
+        } else {
+            super.getPixelPos(lats, lons, pixelX, pixelY);
+        }
+    }
+
+    private static double[] interleave(float[] a, float[] b) {
+        final double[] points = new double[2 * a.length];
+        for (int i = 0; i < a.length; i++) {
+            points[2 * i] = a[i];
+            points[2 * i + 1] = b[i];
+        }
+        return points;
+    }
+
+    // if a single position cannot be transformed, the caller falls back to transforming each position separately
+    private static boolean transform(MathTransform transform, double[] points) {
+        try {
+            transform.transform(points, 0, points, 0, points.length / 2);
+            return true;
+        } catch (Exception ignored) {
+            return false;
+        }
+    }
+
     @Override
     public boolean isCrossingMeridianAt180() {
         return crossingMeridianAt180;
@@ -109,6 +109,32 @@ public class GeoCodingMathTransform extends AbstractMathTransform implements Mat
         return result;
     }
 
+    /**
+     * Pixel geo-codings are transformed point by point. The array look-up of {@link PixelGeoCoding} uses a spatial
+     * index whose results differ from {@link PixelGeoCoding#getPixelPos(GeoPos, PixelPos)}, and invalid positions
+     * of {@link PixelGeoCoding2} are replaced by the closest valid ones.
+     */
+    private static boolean canTransformArrays(GeoCoding geoCoding) {
+        return geoCoding instanceof AbstractGeoCoding
+               && !(geoCoding instanceof PixelGeoCoding)
+               && !(geoCoding instanceof PixelGeoCoding2);
+    }
+
+    // the source and destination points may overlap, so all points are read before any is written
+    private static void split(double[] pts, int off, float[] first, float[] second) {
+        for (int i = 0; i < first.length; i++) {
+            first[i] = (float) pts[off + DIMS * i];
+            second[i] = (float) pts[off + DIMS * i + 1];
+        }
+    }
+
+    private static void merge(float[] first, float[] second, double[] pts, int off) {
+        for (int i = 0; i < first.length; i++) {
+            pts[off + DIMS * i] = first[i];
+            pts[off + DIMS * i + 1] = second[i];
+        }
+    }
+
     private interface T {
 
         void transform(GeoCoding geoCoding, double[] srcPts, int srcOff,
@@ -124,6 +150,16 @@ public class GeoCodingMathTransform extends AbstractMathTransform implements Mat
                               double[] dstPts, int dstOff,
                               int numPts) throws TransformException {
             try {
+                if (canTransformArrays(geoCoding)) {
+                    final float[] pixelX = new float[numPts];
+                    final float[] pixelY = new float[numPts];
+                    final float[] lats = new float[numPts];
+                    final float[] lons = new float[numPts];
+                    split(srcPts, srcOff, pixelX, pixelY);
+                    ((AbstractGeoCoding) geoCoding).getGeoPos(pixelX, pixelY, lats, lons);
+                    merge(lons, lats, dstPts, dstOff);
+                    return;
+                }
                 GeoPos geoPos = new GeoPos();
                 PixelPos pixelPos = new PixelPos();
                 for (int i = 0; i < numPts; i++) {
@@ -161,6 +197,16 @@ public class GeoCodingMathTransform extends AbstractMathTransform implements Mat
                               double[] dstPts, int dstOff,
                               int numPts) throws TransformException {
             try {
+                if (canTransformArrays(geoCoding)) {
+                    final float[] lats = new float[numPts];
+                    final float[] lons = new float[numPts];
+                    final float[] pixelX = new float[numPts];
+                    final float[] pixelY = new float[numPts];
+                    split(srcPts, srcOff, lons, lats);
+                    ((AbstractGeoCoding) geoCoding).getPixelPos(lats, lons, pixelX, pixelY);
+                    merge(pixelX, pixelY, dstPts, dstOff);
+                    return;
+                }
                 GeoPos geoPos = new GeoPos();
                 PixelPos pixelPos = new PixelPos();
                 for (int i = 0; i < numPts; i++) {
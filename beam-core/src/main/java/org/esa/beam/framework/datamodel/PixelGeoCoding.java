@@ -127,9 +127,10 @@ public class PixelGeoCoding extends AbstractGeoCoding {
     private final boolean estimatorCreatedInternally;
     private PixelGrid latGrid;
     private PixelGrid lonGrid;
-    private boolean initialized;
+    private volatile boolean initialized;
     private LatLonImage latLonImage;
     private double deltaThreshold;
+    private volatile PixelPosIndex pixelPosIndex;
 
     /**
      * Constructs a new pixel-based geo-coding.
@@ -269,7 +270,7 @@ public class PixelGeoCoding extends AbstractGeoCoding {
 
         if (useTiling) {
             RenderedImage validMask = null;
-            if (validMaskExpr != null && validMaskExpr.trim().length() > 0 && pixelPosEstimator != null) {
+            if (validMaskExpr != null && validMaskExpr.trim().length() > 0) {
                 validMask = ImageManager.getInstance().getMaskImage(validMaskExpr, latBand.getProduct());
             }
             latLonImage = new LatLonImage(this.latBand.getGeophysicalImage(), this.lonBand.getGeophysicalImage(),
@@ -298,7 +299,8 @@ public class PixelGeoCoding extends AbstractGeoCoding {
      * {@link IndexValidator#validateIndex(int) validator.validateIndex(pixelIndex)} returns false.</p>
      * <p/>
      * <p>The default implementation uses the underlying {@link #getPixelPosEstimator() estimator} (if any)
-     * to find default values for the gaps.</p>
+     * to find default values for the gaps. Without an estimator, the gaps are set to <code>NaN</code>, so that
+     * the geographical positions of the invalid pixels are invalid, too.</p>
      *
      * @param validator the pixel validator, never null
      * @param latElems  the latitude data buffer in row-major order
@@ -329,6 +331,13 @@ public class PixelGeoCoding extends AbstractGeoCoding {
             } finally {
                 pm.done();
             }
+        } else {
+            for (int i = 0; i < latElems.length; i++) {
+                if (!validator.validateIndex(i)) {
+                    latElems[i] = Float.NaN;
+                    lonElems[i] = Float.NaN;
+                }
+            }
         }
     }
 
@@ -467,6 +476,108 @@ public class PixelGeoCoding extends AbstractGeoCoding {
         return pixelPos;
     }
 
+    /**
+     * Returns the pixel co-ordinates as x/y for several geographical positions given as lat/lon.
+     * <p/>
+     * Unlike {@link #getPixelPos(GeoPos, PixelPos)}, this method looks up the pixels in a spatial index of the
+     * latitudes and longitudes, which is created on the first call. The index finds the nearest pixel independently
+     * of the estimator, so it is well suited for many look-ups, e.g. all pixels of a target tile. A pixel is found
+     * if its distance to the geographical position is less than the threshold used by the estimator search or, if
+     * the product has no estimator, not larger than the distance of neighbouring pixels.
+     *
+     * @param geoPos   the geographical positions as lat/lon.
+     * @param pixelPos the array receiving the pixel co-ordinates, must have at least the length of
+     *                 <code>geoPos</code>. Elements which are <code>null</code> are replaced by new instances.
+     * @since BEAM 5.0
+     */
+    public void getPixelPos(final GeoPos[] geoPos, final PixelPos[] pixelPos) {
+        Guardian.assertNotNull("geoPos", geoPos);
+        Guardian.assertNotNull("pixelPos", pixelPos);
+        if (pixelPos.length < geoPos.length) {
+            throw new IllegalArgumentException("pixelPos.length < geoPos.length");
+        }
+        final PixelPosIndex index = getPixelPosIndex();
+        final PixelPosIndex.Match match = new PixelPosIndex.Match();
+        for (int i = 0; i < geoPos.length; i++) {
+            if (pixelPos[i] == null) {
+                pixelPos[i] = new PixelPos();
+            }
+            if (geoPos[i] != null && geoPos[i].isValid()) {
+                match.reset();
+                if (index.findPixel(geoPos[i].lat, geoPos[i].lon, match) && isNearEnough(match)) {
+                    pixelPos[i].setLocation(match.x + 0.5f, match.y + 0.5f);
+                } else {
+                    pixelPos[i].setInvalid();
+                }
+            } else {
+                pixelPos[i].setInvalid();
+            }
+        }
+    }
+
+    /**
+     * Computes the pixel positions of several geographical positions using the spatial index also used by
+     * {@link #getPixelPos(GeoPos[], PixelPos[])}.
+     *
+     * @param lats   the latitudes
+     * @param lons   the longitudes
+     * @param pixelX the array receiving the X co-ordinates
+     * @param pixelY the array receiving the Y co-ordinates
+     * @since BEAM 5.0
+     */
+    @Override
+    public void getPixelPos(float[] lats, float[] lons, float[] pixelX, float[] pixelY) {
+        final PixelPosIndex index = getPixelPosIndex();
+        final PixelPosIndex.Match match = new PixelPosIndex.Match();
+        for (int i = 0; i < lats.length; i++) {
+            match.reset();
+            if (index.findPixel(lats[i], lons[i], match) && isNearEnough(match)) {
+                pixelX[i] = match.x + 0.5f;
+                pixelY[i] = match.y + 0.5f;
+            } else {
+                pixelX[i] = Float.NaN;
+                pixelY[i] = Float.NaN;
+            }
+        }
+    }
+
+    /**
+     * Computes the geographical positions of the centres of all pixels of a rectangular region by reading the
+     * latitude and longitude data of the region at once.
+     *
+     * @param region the region in pixel co-ordinates
+     * @param lats   the array receiving the latitudes in row-major order
+     * @param lons   the array receiving the longitudes in row-major order
+     * @since BEAM 5.0
+     */
+    @Override
+    public void getGeoPos(Rectangle region, float[] lats, float[] lons) {
+        initialize();
+        if (region.x >= 0 && region.y >= 0
+            && region.x + region.width <= rasterWidth && region.y + region.height <= rasterHeight) {
+            readLatLonData(region.x, region.y, region.width, region.height, lats, lons);
+            // like getGeoPos(PixelPos, GeoPos), which returns invalid positions for pixels outside the valid
+            // mask and for out-of-range values
+            final int n = region.width * region.height;
+            for (int i = 0; i < n; i++) {
+                if (!(lats[i] >= -90.0f && lats[i] <= 90.0f) || Float.isNaN(lons[i]) || Float.isInfinite(lons[i])) {
+                    lats[i] = Float.NaN;
+                    lons[i] = Float.NaN;
+                }
+            }
+        } else {
+            super.getGeoPos(region, lats, lons);
+        }
+    }
+
+    private boolean isNearEnough(PixelPosIndex.Match match) {
+        final double delta = Math.sqrt(match.delta);
+        if (pixelPosEstimator != null) {
+            return delta < deltaThreshold;
+        }
+        return delta <= match.spacing;
+    }
+
     /**
      * Returns the pixel co-ordinates as x/y for a given geographical position given as lat/lon.
      *
@@ -621,14 +732,55 @@ public class PixelGeoCoding extends AbstractGeoCoding {
         }
     }
 
-    private synchronized void initialize() {
+    private void initialize() {
+        // double-checked, so that concurrent look-ups do not contend for the lock once the data is loaded
         if (!initialized) {
-            try {
-                initData(latBand, lonBand, validMaskExpression, ProgressMonitor.NULL);
-            } catch (IOException e) {
-                throw new IllegalStateException("Unable to initialse data for pixel geo-coding", e);
+            synchronized (this) {
+                if (!initialized) {
+                    try {
+                        initData(latBand, lonBand, validMaskExpression, ProgressMonitor.NULL);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Unable to initialse data for pixel geo-coding", e);
+                    }
+                    initialized = true;
+                }
+            }
+        }
+    }
+
+    private PixelPosIndex getPixelPosIndex() {
+        initialize();
+        PixelPosIndex index = pixelPosIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = pixelPosIndex;
+                if (index == null) {
+                    index = new PixelPosIndex(new PixelPosIndex.LatLonSource() {
+                        @Override
+                        public void readLatLon(int x, int y, int w, int h, float[] lats, float[] lons) {
+                            readLatLonData(x, y, w, h, lats, lons);
+                        }
+                    }, rasterWidth, rasterHeight);
+                    pixelPosIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private void readLatLonData(int x, int y, int w, int h, float[] lats, float[] lons) {
+        if (useTiling) {
+            final Raster data = latLonImage.getData(new Rectangle(latLonImage.getMinX() + x,
+                                                                  latLonImage.getMinY() + y, w, h));
+            data.getSamples(data.getMinX(), data.getMinY(), w, h, 0, lats);
+            data.getSamples(data.getMinX(), data.getMinY(), w, h, 1, lons);
+        } else {
+            final float[] latArray = (float[]) latGrid.getDataElems();
+            final float[] lonArray = (float[]) lonGrid.getDataElems();
+            for (int j = 0; j < h; j++) {
+                System.arraycopy(latArray, (y + j) * rasterWidth + x, lats, j * w, w);
+                System.arraycopy(lonArray, (y + j) * rasterWidth + x, lons, j * w, w);
             }
-            initialized = true;
         }
     }
 
@@ -747,6 +899,7 @@ public class PixelGeoCoding extends AbstractGeoCoding {
             latLonImage.dispose();
             latLonImage = null;
         }
+        pixelPosIndex = null;
         // Don't dispose the estimator, if it is not our's!
         if (estimatorCreatedInternally) {
             pixelPosEstimator.dispose();
@@ -1376,7 +1529,11 @@ public class PixelGeoCoding extends AbstractGeoCoding {
                         int x0 = x + destRect.x;
                         int y0 = y + destRect.y;
                         pixelPos.setLocation(x0, y0);
-                        estimator.getGeoPos(pixelPos, geoPos);
+                        if (estimator != null) {
+                            estimator.getGeoPos(pixelPos, geoPos);
+                        } else {
+                            geoPos.setInvalid();
+                        }
                         dLat[dLatPixelOffset] = geoPos.lat;
                         dLon[dLonPixelOffset] = geoPos.lon;
                     } else {
@@ -1458,7 +1615,11 @@ public class PixelGeoCoding extends AbstractGeoCoding {
                         int x0 = x + destRect.x;
                         int y0 = y + destRect.y;
                         pixelPos.setLocation(x0, y0);
-                        estimator.getGeoPos(pixelPos, geoPos);
+                        if (estimator != null) {
+                            estimator.getGeoPos(pixelPos, geoPos);
+                        } else {
+                            geoPos.setInvalid();
+                        }
                         dLat[dLatPixelOffset] = geoPos.lat;
                         dLon[dLonPixelOffset] = geoPos.lon;
                     } else {
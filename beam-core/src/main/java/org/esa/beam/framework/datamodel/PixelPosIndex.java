@@ -0,0 +1,452 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.datamodel;
+
+import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A spatial index of the latitudes and longitudes of the pixels of a scene, used to find the pixel nearest to a
+ * geographical position.
+ * <p/>
+ * The scene is divided into blocks of {@link #BLOCK_SIZE} x {@link #BLOCK_SIZE} pixels. A coarse grid of lat/lon
+ * cells refers to the blocks whose bounding boxes overlap the cells. Each block indexes its pixels in a fine grid of
+ * lat/lon cells over its bounding box. A lookup visits the blocks of the cell containing the position and, within
+ * each block, the cells around the position in rings of increasing distance until no closer pixel can be found.
+ * <p/>
+ * The fine grids hold the latitudes and longitudes of their block, they are softly referenced and rebuilt from the
+ * source on demand. Blocks crossing the 180 degree meridian keep their longitudes in the range [0, 540).
+ * <p/>
+ * Instances are safe for concurrent lookups.
+ *
+ * @since BEAM 5.0
+ */
+final class PixelPosIndex {
+
+    static final int BLOCK_SIZE = 64;
+
+    private static final float D2R = (float) (Math.PI / 180.0);
+    private static final int MAX_COARSE_CELLS_PER_BLOCK = 16;
+
+    /**
+     * Provides the latitudes and longitudes of a rectangle of the scene.
+     */
+    interface LatLonSource {
+
+        void readLatLon(int x, int y, int w, int h, float[] lats, float[] lons);
+    }
+
+    /**
+     * The pixel nearest to a position.
+     */
+    static final class Match {
+
+        int x;
+        int y;
+        /**
+         * The squared distance in degrees, longitudes scaled by the cosine of the latitude.
+         */
+        float delta;
+        /**
+         * The maximum distance of neighbouring pixels in the block of the pixel, in degrees.
+         */
+        float spacing;
+
+        void reset() {
+            delta = Float.MAX_VALUE;
+        }
+    }
+
+    private final LatLonSource source;
+    private final int width;
+    private final int height;
+    private final int numBlocksX;
+    private final AtomicReferenceArray<SoftReference<Block>> blocks;
+    // the expanded bounds of the blocks: latMin, latMax, lonMin, lonMax
+    private final float[] blockBounds;
+    private final boolean[] blockShifted;
+
+    private final float gridLatMin;
+    private final float gridLonMin;
+    private final float cellSize;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int[] cellStart;
+    private final int[] cellBlocks;
+
+    /**
+     * Creates the index. All blocks are read once in order to compute their bounding boxes.
+     *
+     * @param source the source of the latitudes and longitudes
+     * @param width  the width of the scene
+     * @param height the height of the scene
+     */
+    PixelPosIndex(LatLonSource source, int width, int height) {
+        this.source = source;
+        this.width = width;
+        this.height = height;
+        this.numBlocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final int numBlocksY = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final int numBlocks = numBlocksX * numBlocksY;
+        this.blocks = new AtomicReferenceArray<SoftReference<Block>>(numBlocks);
+        this.blockBounds = new float[4 * numBlocks];
+        this.blockShifted = new boolean[numBlocks];
+
+        float latMin = Float.POSITIVE_INFINITY;
+        float latMax = Float.NEGATIVE_INFINITY;
+        float lonMin = Float.POSITIVE_INFINITY;
+        float lonMax = Float.NEGATIVE_INFINITY;
+        double latExtentSum = 0.0;
+        int numValidBlocks = 0;
+        for (int i = 0; i < numBlocks; i++) {
+            final Block block = readBlock(i);
+            blocks.set(i, new SoftReference<Block>(block));
+            blockShifted[i] = block.shifted;
+            if (block.isEmpty()) {
+                blockBounds[4 * i] = Float.NaN;
+                continue;
+            }
+            final float latMargin = block.spacing;
+            final float cosLat = Math.max((float) Math.cos(Math.max(Math.abs(block.latMin),
+                                                                    Math.abs(block.latMax)) * D2R), 0.05F);
+            final float lonMargin = Math.min(block.spacing / cosLat, 180.0F);
+            blockBounds[4 * i] = block.latMin - latMargin;
+            blockBounds[4 * i + 1] = block.latMax + latMargin;
+            blockBounds[4 * i + 2] = block.lonMin - lonMargin;
+            blockBounds[4 * i + 3] = block.lonMax + lonMargin;
+            latMin = Math.min(latMin, blockBounds[4 * i]);
+            latMax = Math.max(latMax, blockBounds[4 * i + 1]);
+            lonMin = Math.min(lonMin, blockBounds[4 * i + 2]);
+            lonMax = Math.max(lonMax, blockBounds[4 * i + 3]);
+            latExtentSum += blockBounds[4 * i + 1] - blockBounds[4 * i];
+            numValidBlocks++;
+        }
+
+        if (numValidBlocks == 0) {
+            gridLatMin = 0.0F;
+            gridLonMin = 0.0F;
+            cellSize = 1.0F;
+            gridWidth = 0;
+            gridHeight = 0;
+            cellStart = new int[1];
+            cellBlocks = new int[0];
+            return;
+        }
+
+        // cells of about the size of a block, but not too many of them for sparse scenes
+        float size = Math.max((float) (latExtentSum / numValidBlocks), 1.0e-4F);
+        final double maxNumCells = (double) MAX_COARSE_CELLS_PER_BLOCK * numValidBlocks;
+        final double numCells = ((lonMax - lonMin) / size + 1) * ((latMax - latMin) / size + 1);
+        if (numCells > maxNumCells) {
+            size *= (float) Math.sqrt(numCells / maxNumCells);
+        }
+        gridLatMin = latMin;
+        gridLonMin = lonMin;
+        cellSize = size;
+        gridWidth = (int) ((lonMax - lonMin) / size) + 1;
+        gridHeight = (int) ((latMax - latMin) / size) + 1;
+
+        cellStart = new int[gridWidth * gridHeight + 1];
+        for (int i = 0; i < numBlocks; i++) {
+            if (!Float.isNaN(blockBounds[4 * i])) {
+                for (int cy = cellY(blockBounds[4 * i]); cy <= cellY(blockBounds[4 * i + 1]); cy++) {
+                    for (int cx = cellX(blockBounds[4 * i + 2]); cx <= cellX(blockBounds[4 * i + 3]); cx++) {
+                        cellStart[cy * gridWidth + cx + 1]++;
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < gridWidth * gridHeight; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellBlocks = new int[cellStart[gridWidth * gridHeight]];
+        final int[] fill = new int[gridWidth * gridHeight];
+        for (int i = 0; i < numBlocks; i++) {
+            if (!Float.isNaN(blockBounds[4 * i])) {
+                for (int cy = cellY(blockBounds[4 * i]); cy <= cellY(blockBounds[4 * i + 1]); cy++) {
+                    for (int cx = cellX(blockBounds[4 * i + 2]); cx <= cellX(blockBounds[4 * i + 3]); cx++) {
+                        final int c = cy * gridWidth + cx;
+                        cellBlocks[cellStart[c] + fill[c]++] = i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the pixel nearest to the given position among the pixels of the blocks whose bounding boxes, expanded
+     * by the pixel spacing, contain the position.
+     *
+     * @param lat   the latitude
+     * @param lon   the longitude in the range [-180, 180]
+     * @param match the pixel found, its {@code delta} must have been {@link Match#reset() reset}
+     * @return {@code true} if a pixel has been found
+     */
+    boolean findPixel(float lat, float lon, Match match) {
+        if (gridWidth == 0) {
+            return false;
+        }
+        final float r = (float) Math.cos(lat * D2R);
+        boolean found = false;
+        // shifted blocks are looked up with the shifted longitude
+        final int numVariants = lon < 0.0F ? 2 : 1;
+        for (int variant = 0; variant < numVariants; variant++) {
+            final float gridLon = variant == 0 ? lon : lon + 360.0F;
+            final int cx = (int) Math.floor((gridLon - gridLonMin) / cellSize);
+            final int cy = (int) Math.floor((lat - gridLatMin) / cellSize);
+            if (cx < 0 || cx >= gridWidth || cy < 0 || cy >= gridHeight) {
+                continue;
+            }
+            final int c = cy * gridWidth + cx;
+            for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                final int i = cellBlocks[k];
+                final float blockLon = blockShifted[i] && lon < 0.0F ? lon + 360.0F : lon;
+                //noinspection FloatingPointEquality
+                if (blockLon != gridLon) {
+                    continue;
+                }
+                if (lat >= blockBounds[4 * i] && lat <= blockBounds[4 * i + 1]
+                    && blockLon >= blockBounds[4 * i + 2] && blockLon <= blockBounds[4 * i + 3]) {
+                    if (getBlock(i).findNearest(lat, blockLon, r, match)) {
+                        found = true;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int cellX(float lon) {
+        return Math.min((int) ((lon - gridLonMin) / cellSize), gridWidth - 1);
+    }
+
+    private int cellY(float lat) {
+        return Math.min((int) ((lat - gridLatMin) / cellSize), gridHeight - 1);
+    }
+
+    private Block getBlock(int i) {
+        final Block block = blocks.get(i).get();
+        if (block != null) {
+            return block;
+        }
+        // reclaimed by the garbage collector, concurrent lookups may read the block twice
+        final Block newBlock = readBlock(i);
+        blocks.set(i, new SoftReference<Block>(newBlock));
+        return newBlock;
+    }
+
+    private Block readBlock(int i) {
+        final int x0 = (i % numBlocksX) * BLOCK_SIZE;
+        final int y0 = (i / numBlocksX) * BLOCK_SIZE;
+        final int w = Math.min(BLOCK_SIZE, width - x0);
+        final int h = Math.min(BLOCK_SIZE, height - y0);
+        final float[] lats = new float[w * h];
+        final float[] lons = new float[w * h];
+        source.readLatLon(x0, y0, w, h, lats, lons);
+        return new Block(x0, y0, w, h, lats, lons);
+    }
+
+    private static float lonDiff(float a1, float a2) {
+        float d = a1 - a2;
+        if (d < 0.0f) {
+            d = -d;
+        }
+        if (d > 180.0f) {
+            d = 360.0f - d;
+        }
+        return d;
+    }
+
+    private static boolean isValid(float lat, float lon) {
+        return lat >= -90.0F && lat <= 90.0F && lon >= -180.0F && lon <= 180.0F;
+    }
+
+    private static final class Block {
+
+        private final int x0;
+        private final int y0;
+        private final int w;
+        private final float[] lats;
+        private final float[] lons;
+        private final boolean shifted;
+        private float latMin = Float.POSITIVE_INFINITY;
+        private float latMax = Float.NEGATIVE_INFINITY;
+        private float lonMin = Float.POSITIVE_INFINITY;
+        private float lonMax = Float.NEGATIVE_INFINITY;
+        private float spacing;
+        private int gridWidth;
+        private int gridHeight;
+        private float cellLat;
+        private float cellLon;
+        private int[] cellStart;
+        private short[] cellPixels;
+
+        private Block(int x0, int y0, int w, int h, float[] lats, float[] lons) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.w = w;
+            this.lats = lats;
+            this.lons = lons;
+
+            final int n = w * h;
+            int numValid = 0;
+            for (int p = 0; p < n; p++) {
+                if (isValid(lats[p], lons[p])) {
+                    lonMin = Math.min(lonMin, lons[p]);
+                    lonMax = Math.max(lonMax, lons[p]);
+                    numValid++;
+                } else {
+                    lats[p] = Float.NaN;
+                }
+            }
+            shifted = numValid > 0 && lonMax - lonMin > 180.0F;
+            if (numValid == 0) {
+                return;
+            }
+
+            lonMin = Float.POSITIVE_INFINITY;
+            lonMax = Float.NEGATIVE_INFINITY;
+            for (int p = 0; p < n; p++) {
+                if (!Float.isNaN(lats[p])) {
+                    if (shifted && lons[p] < 0.0F) {
+                        lons[p] += 360.0F;
+                    }
+                    latMin = Math.min(latMin, lats[p]);
+                    latMax = Math.max(latMax, lats[p]);
+                    lonMin = Math.min(lonMin, lons[p]);
+                    lonMax = Math.max(lonMax, lons[p]);
+                }
+            }
+
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    final int p = y * w + x;
+                    if (!Float.isNaN(lats[p])) {
+                        final float r = (float) Math.cos(lats[p] * D2R);
+                        if (x + 1 < w && !Float.isNaN(lats[p + 1])) {
+                            spacing = Math.max(spacing, distance(lats[p], lons[p], lats[p + 1], lons[p + 1], r));
+                        }
+                        if (y + 1 < h && !Float.isNaN(lats[p + w])) {
+                            spacing = Math.max(spacing, distance(lats[p], lons[p], lats[p + w], lons[p + w], r));
+                        }
+                    }
+                }
+            }
+
+            // about two pixels per cell
+            final int gridSize = Math.max(1, (int) Math.ceil(Math.sqrt(numValid / 2.0)));
+            gridWidth = gridSize;
+            gridHeight = gridSize;
+            cellLat = Math.max((latMax - latMin) / gridHeight, 1.0e-6F);
+            cellLon = Math.max((lonMax - lonMin) / gridWidth, 1.0e-6F);
+            cellStart = new int[gridWidth * gridHeight + 1];
+            final int[] pixelCells = new int[n];
+            for (int p = 0; p < n; p++) {
+                if (!Float.isNaN(lats[p])) {
+                    pixelCells[p] = cellY(lats[p]) * gridWidth + cellX(lons[p]);
+                    cellStart[pixelCells[p] + 1]++;
+                }
+            }
+            for (int c = 0; c < gridWidth * gridHeight; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            cellPixels = new short[numValid];
+            final int[] fill = new int[gridWidth * gridHeight];
+            for (int p = 0; p < n; p++) {
+                if (!Float.isNaN(lats[p])) {
+                    final int c = pixelCells[p];
+                    cellPixels[cellStart[c] + fill[c]++] = (short) p;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return cellPixels == null;
+        }
+
+        private int cellX(float lon) {
+            return Math.max(0, Math.min((int) Math.floor((lon - lonMin) / cellLon), gridWidth - 1));
+        }
+
+        private int cellY(float lat) {
+            return Math.max(0, Math.min((int) Math.floor((lat - latMin) / cellLat), gridHeight - 1));
+        }
+
+        private boolean findNearest(float lat, float lon, float r, Match match) {
+            if (isEmpty()) {
+                return false;
+            }
+            final int cx = cellX(lon);
+            final int cy = cellY(lat);
+            final float minCellSize = Math.min(cellLat, cellLon * r);
+            final int maxRing = Math.max(gridWidth, gridHeight);
+            boolean found = false;
+            for (int ring = 0; ring < maxRing; ring++) {
+                if (ring > 1) {
+                    // the cells of this ring are at least (ring - 1) cells away from the position
+                    final float minDistance = (ring - 1) * minCellSize;
+                    if (minDistance * minDistance >= match.delta) {
+                        break;
+                    }
+                }
+                final int y1 = Math.max(cy - ring, 0);
+                final int y2 = Math.min(cy + ring, gridHeight - 1);
+                for (int y = y1; y <= y2; y++) {
+                    if (y == cy - ring || y == cy + ring) {
+                        final int x1 = Math.max(cx - ring, 0);
+                        final int x2 = Math.min(cx + ring, gridWidth - 1);
+                        for (int x = x1; x <= x2; x++) {
+                            found |= searchCell(y * gridWidth + x, lat, lon, r, match);
+                        }
+                    } else {
+                        if (cx - ring >= 0) {
+                            found |= searchCell(y * gridWidth + cx - ring, lat, lon, r, match);
+                        }
+                        if (cx + ring < gridWidth) {
+                            found |= searchCell(y * gridWidth + cx + ring, lat, lon, r, match);
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+        private boolean searchCell(int c, float lat, float lon, float r, Match match) {
+            boolean found = false;
+            for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                final int p = cellPixels[k];
+                final float dlat = lat - lats[p];
+                final float dlon = r * lonDiff(lon, lons[p]);
+                final float delta = dlat * dlat + dlon * dlon;
+                if (delta < match.delta) {
+                    match.delta = delta;
+                    match.x = x0 + p % w;
+                    match.y = y0 + p / w;
+                    match.spacing = spacing;
+                    found = true;
+                }
+            }
+            return found;
+        }
+
+        private static float distance(float lat1, float lon1, float lat2, float lon2, float r) {
+            final float dlat = lat1 - lat2;
+            final float dlon = r * lonDiff(lon1, lon2);
+            return (float) Math.sqrt(dlat * dlat + dlon * dlon);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.esa.beam.framework.datamodel;
 
+import com.bc.ceres.core.ProgressMonitor;
 import org.esa.beam.framework.dataio.ProductSubsetDef;
 import org.esa.beam.framework.dataop.maptransf.Datum;
 import org.esa.beam.util.Debug;
@@ -195,45 +196,101 @@ public class TiePointGeoCoding extends AbstractGeoCoding {
     @Override
     public PixelPos getPixelPos(GeoPos geoPos, PixelPos pixelPos) {
         if (approximations != null) {
-            float lat = normalizeLat(geoPos.lat);
-            float lon = normalizeLon(geoPos.lon);
             // ensure that pixel is out of image (= no source position)
             if (pixelPos == null) {
                 pixelPos = new PixelPos();
             }
+            computePixelPos(geoPos.lat, geoPos.lon, pixelPos);
+        }
+        return pixelPos;
+    }
 
-            if (isValidGeoPos(lat, lon)) {
-                Approximation approximation = getBestApproximation(approximations, lat, lon);
-                // retry with pixel in overlap range, re-normalise
-                // solves the problem with overlapping normalized and unnormalized orbit areas (AATSR)
-                if (lon >= overlapStart && lon <= overlapEnd) {
-                    final float squareDistance;
-                    if (approximation != null) {
-                        squareDistance = approximation.getSquareDistance(lat, lon);
-                    } else {
-                        squareDistance = Float.MAX_VALUE;
-                    }
-                    float tempLon = lon + 360;
-                    final Approximation renormalizedApproximation = findRenormalizedApproximation(lat, tempLon,
-                                                                                                  squareDistance);
-                    if (renormalizedApproximation != null) {
-                        approximation = renormalizedApproximation;
-                        lon = tempLon;
+    /**
+     * Computes the geographical positions of the centres of all pixels of a rectangular region by interpolating
+     * the tie-point grids row by row.
+     *
+     * @param region the region in pixel co-ordinates
+     * @param lats   the array receiving the latitudes in row-major order
+     * @param lons   the array receiving the longitudes in row-major order
+     * @since BEAM 5.0
+     */
+    @Override
+    public void getGeoPos(Rectangle region, float[] lats, float[] lons) {
+        latGrid.getPixels(region.x, region.y, region.width, region.height, lats, ProgressMonitor.NULL);
+        lonGrid.getPixels(region.x, region.y, region.width, region.height, lons, ProgressMonitor.NULL);
+        final int sceneWidth = latGrid.getSceneRasterWidth();
+        final int sceneHeight = latGrid.getSceneRasterHeight();
+        if (region.x < 0 || region.y < 0
+            || region.x + region.width > sceneWidth || region.y + region.height > sceneHeight) {
+            int i = 0;
+            for (int y = region.y; y < region.y + region.height; y++) {
+                for (int x = region.x; x < region.x + region.width; x++) {
+                    if (x < 0 || x >= sceneWidth || y < 0 || y >= sceneHeight) {
+                        lats[i] = Float.NaN;
+                        lons[i] = Float.NaN;
                     }
+                    i++;
                 }
+            }
+        }
+    }
+
+    /**
+     * Computes the pixel positions of several geographical positions without creating intermediate
+     * {@link GeoPos} and {@link PixelPos} instances.
+     *
+     * @param lats   the latitudes
+     * @param lons   the longitudes
+     * @param pixelX the array receiving the X co-ordinates
+     * @param pixelY the array receiving the Y co-ordinates
+     * @since BEAM 5.0
+     */
+    @Override
+    public void getPixelPos(float[] lats, float[] lons, float[] pixelX, float[] pixelY) {
+        final PixelPos pixelPos = new PixelPos();
+        for (int i = 0; i < lats.length; i++) {
+            if (approximations != null && computePixelPos(lats[i], lons[i], pixelPos)) {
+                pixelX[i] = pixelPos.x;
+                pixelY[i] = pixelPos.y;
+            } else {
+                pixelX[i] = Float.NaN;
+                pixelY[i] = Float.NaN;
+            }
+        }
+    }
+
+    private boolean computePixelPos(float lat, float lon, PixelPos pixelPos) {
+        lat = normalizeLat(lat);
+        lon = normalizeLon(lon);
+        if (isValidGeoPos(lat, lon)) {
+            Approximation approximation = getBestApproximation(approximations, lat, lon);
+            // retry with pixel in overlap range, re-normalise
+            // solves the problem with overlapping normalized and unnormalized orbit areas (AATSR)
+            if (lon >= overlapStart && lon <= overlapEnd) {
+                final float squareDistance;
                 if (approximation != null) {
-                    lat = (float) rescaleLatitude(lat);
-                    lon = (float) rescaleLongitude(lon, approximation.getCenterLon());
-                    pixelPos.x = (float) approximation.getFX().computeZ(lat, lon);
-                    pixelPos.y = (float) approximation.getFY().computeZ(lat, lon);
+                    squareDistance = approximation.getSquareDistance(lat, lon);
                 } else {
-                    pixelPos.setInvalid();
+                    squareDistance = Float.MAX_VALUE;
                 }
-            } else {
-                pixelPos.setInvalid();
+                float tempLon = lon + 360;
+                final Approximation renormalizedApproximation = findRenormalizedApproximation(lat, tempLon,
+                                                                                              squareDistance);
+                if (renormalizedApproximation != null) {
+                    approximation = renormalizedApproximation;
+                    lon = tempLon;
+                }
+            }
+            if (approximation != null) {
+                lat = (float) rescaleLatitude(lat);
+                lon = (float) rescaleLongitude(lon, approximation.getCenterLon());
+                pixelPos.x = (float) approximation.getFX().computeZ(lat, lon);
+                pixelPos.y = (float) approximation.getFY().computeZ(lat, lon);
+                return true;
             }
         }
-        return pixelPos;
+        pixelPos.setInvalid();
+        return false;
     }
 
     private boolean isValidGeoPos(final float lat, final float lon) {
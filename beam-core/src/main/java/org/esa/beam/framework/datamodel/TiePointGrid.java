@@ -496,35 +496,42 @@ public class TiePointGrid extends RasterDataNode {
             if (isDiscontNotInit()) {
                 initDiscont();
             }
-            int i = 0;
-            for (int yCoordinate = y; yCoordinate < y + h; yCoordinate++) {
-                for (int xCoordinate = x; xCoordinate < x + w; xCoordinate++) {
-                    pixels[i] = getPixelFloat(xCoordinate, yCoordinate);
-                    i++;
+            final float[] sinPixels = _sinGrid.getPixels(x, y, w, h, (float[]) null, pm);
+            final float[] cosPixels = _cosGrid.getPixels(x, y, w, h, (float[]) null, pm);
+            for (int i = 0; i < w * h; i++) {
+                final float v = (float) (MathUtils.RTOD * Math.atan2(sinPixels[i], cosPixels[i]));
+                if (_discontinuity == DISCONT_AT_360 && v < 0.0) {
+                    pixels[i] = 360.0F + v;  // = 180 + (180 - abs(v))
+                } else {
+                    pixels[i] = v;
                 }
             }
         } else {
             final float x0 = 0.5f - _offsetX;
             final float y0 = 0.5f - _offsetY;
-            final int x1 = x;
-            final int y1 = y;
-            final int x2 = x + w - 1;
-            final int y2 = y + h - 1;
             final int ni = getRasterWidth();
             final int nj = getRasterHeight();
-            int i, j;
-            float fi, fj;
-            float wi, wj;
+            final float[] tiePoints = getTiePoints();
+            // the tie-point columns and weights are the same for all rows
+            final int[] is = new int[w];
+            final float[] wis = new float[w];
+            for (int k = 0; k < w; k++) {
+                final float fi = (x + k + x0) / _subSamplingX;
+                is[k] = MathUtils.floorAndCrop(fi, 0, ni - 2);
+                wis[k] = fi - is[k];
+            }
             int pos = 0;
-            for (y = y1; y <= y2; y++) {
-                fj = (y + y0) / _subSamplingY;
-                j = MathUtils.floorAndCrop(fj, 0, nj - 2);
-                wj = fj - j;
-                for (x = x1; x <= x2; x++) {
-                    fi = (x + x0) / _subSamplingX;
-                    i = MathUtils.floorAndCrop(fi, 0, ni - 2);
-                    wi = fi - i;
-                    pixels[pos++] = interpolate(wi, wj, i, j);
+            for (int yy = y; yy < y + h; yy++) {
+                final float fj = (yy + y0) / _subSamplingY;
+                final int j = MathUtils.floorAndCrop(fj, 0, nj - 2);
+                final float wj = fj - j;
+                final int j0 = j * ni;
+                final int j1 = j0 + ni;
+                for (int k = 0; k < w; k++) {
+                    final int i = is[k];
+                    pixels[pos++] = MathUtils.interpolate2D(wis[k], wj,
+                                                            tiePoints[i + j0], tiePoints[i + 1 + j0],
+                                                            tiePoints[i + j1], tiePoints[i + 1 + j1]);
                 }
             }
         }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.dataop.barithm;
+
+import com.bc.jexp.Function;
+import com.bc.jexp.Term;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.util.logging.BeamLogManager;
+
+import java.lang.reflect.Constructor;
+import java.util.logging.Level;
+
+/**
+ * A {@link Term} which has been compiled into a JVM class by the {@link TermCompiler}.
+ * <p/>
+ * Instances evaluate a consecutive run of data elements in a tight loop which directly accesses
+ * the primitive arrays of the referenced {@link RasterDataSymbol}s. Sub-terms which cannot be compiled
+ * are evaluated by the interpreter, i.e. by calling the respective {@code eval} method of the term.
+ * <p/>
+ * This class is not intended to be extended by clients, subclasses are generated by the {@link TermCompiler}.
+ *
+ * @since BEAM 5.0
+ */
+public abstract class CompiledTerm {
+
+    /**
+     * The term this instance has been compiled from.
+     */
+    protected final Term term;
+    /**
+     * The raster data symbols whose data is directly accessed.
+     */
+    protected final RasterDataSymbol[] symbols;
+    /**
+     * The sub-terms which are evaluated by the interpreter.
+     */
+    protected final Term[] terms;
+    private final int[] dataTypes;
+
+    protected CompiledTerm(Term term, RasterDataSymbol[] symbols, Term[] terms, int[] dataTypes) {
+        this.term = term;
+        this.symbols = symbols;
+        this.terms = terms;
+        this.dataTypes = dataTypes;
+    }
+
+    /**
+     * @return The term this instance has been compiled from.
+     */
+    public final Term getTerm() {
+        return term;
+    }
+
+    /**
+     * Tests whether the data currently set on the referenced raster data symbols has the data types
+     * this term has been compiled for. If not, the term must be evaluated by the interpreter.
+     *
+     * @return {@code true}, if this compiled term can be evaluated.
+     */
+    public final boolean isApplicable() {
+        for (int i = 0; i < symbols.length; i++) {
+            final ProductData data = symbols[i].getData();
+            if (data == null || data.getType() != dataTypes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates an instance of the same compiled class for another term, without compiling it again. The term
+     * must have the same structure as the term this instance has been compiled from, e.g. it must have been
+     * parsed from the same expression, because the new instance accesses the raster data symbols and
+     * interpreted sub-terms found at the same positions within the given term.
+     * <p/>
+     * This allows clients to compile a term once when they are initialised, and to evaluate independent copies
+     * of the term concurrently, e.g. one for each tile.
+     *
+     * @param term The term, structurally equal to {@link #getTerm()}.
+     *
+     * @return The compiled term, or {@code null} if the given term does not match the compiled one.
+     */
+    public final CompiledTerm newInstance(Term term) {
+        final RasterDataSymbol[] newSymbols = new RasterDataSymbol[symbols.length];
+        final Term[] newTerms = new Term[terms.length];
+        if (!collect(this.term, term, newSymbols, newTerms)) {
+            return null;
+        }
+        try {
+            final Constructor<? extends CompiledTerm> constructor = getClass().getConstructor(
+                    Term.class, RasterDataSymbol[].class, Term[].class, int[].class);
+            return constructor.newInstance(term, newSymbols, newTerms, dataTypes);
+        } catch (Exception e) {
+            BeamLogManager.getSystemLogger().log(Level.WARNING, "Failed to instantiate compiled term: " + term, e);
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates the term to {@code boolean} values for the data elements in the range
+     * {@code elemIndex} to {@code elemIndex + count - 1}.
+     *
+     * @param env       The evaluation environment, also passed to interpreted sub-terms.
+     * @param elemIndex The index of the first data element.
+     * @param count     The number of data elements to evaluate.
+     * @param values    Receives the {@code count} evaluated values.
+     */
+    public abstract void evalB(RasterDataEvalEnv env, int elemIndex, int count, boolean[] values);
+
+    /**
+     * Evaluates the term to {@code double} values for the data elements in the range
+     * {@code elemIndex} to {@code elemIndex + count - 1}.
+     *
+     * @param env       The evaluation environment, also passed to interpreted sub-terms.
+     * @param elemIndex The index of the first data element.
+     * @param count     The number of data elements to evaluate.
+     * @param values    Receives the {@code count} evaluated values.
+     */
+    public abstract void evalD(RasterDataEvalEnv env, int elemIndex, int count, double[] values);
+
+    private boolean collect(Term compiled, Term other, RasterDataSymbol[] newSymbols, Term[] newTerms) {
+        if (compiled.getClass() != other.getClass()) {
+            return false;
+        }
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i] == compiled) {
+                // interpreted sub-terms are not traversed by the generated code
+                newTerms[i] = other;
+                return true;
+            }
+        }
+        if (compiled instanceof Term.Ref) {
+            final Object symbol = ((Term.Ref) compiled).getSymbol();
+            final Object otherSymbol = ((Term.Ref) other).getSymbol();
+            for (int i = 0; i < symbols.length; i++) {
+                if (symbols[i] == symbol) {
+                    if (otherSymbol.getClass() != symbol.getClass()
+                        || newSymbols[i] != null && newSymbols[i] != otherSymbol) {
+                        return false;
+                    }
+                    newSymbols[i] = (RasterDataSymbol) otherSymbol;
+                }
+            }
+            return true;
+        }
+        // constants and functions are part of the generated code
+        if (compiled instanceof Term.ConstB) {
+            return ((Term.ConstB) compiled).getValue() == ((Term.ConstB) other).getValue();
+        } else if (compiled instanceof Term.ConstI) {
+            return ((Term.ConstI) compiled).getValue() == ((Term.ConstI) other).getValue();
+        } else if (compiled instanceof Term.ConstD) {
+            return Double.compare(((Term.ConstD) compiled).getValue(), ((Term.ConstD) other).getValue()) == 0;
+        } else if (compiled instanceof Term.Call) {
+            final Function function = ((Term.Call) compiled).getFunction();
+            final Function otherFunction = ((Term.Call) other).getFunction();
+            if (function.getClass() != otherFunction.getClass()
+                || !function.getName().equals(otherFunction.getName())) {
+                return false;
+            }
+        }
+        final Term[] children = compiled.getChildren();
+        final Term[] otherChildren = other.getChildren();
+        if (children.length != otherChildren.length) {
+            return false;
+        }
+        for (int i = 0; i < children.length; i++) {
+            if (!collect(children[i], otherChildren[i], newSymbols, newTerms)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Helpers used by generated code
+
+    protected static double sqr(double x) {
+        return x * x;
+    }
+
+    protected static double ampl(double a, double b) {
+        return Math.sqrt(a * a + b * b);
+    }
+
+    protected static double phase(double a, double b) {
+        return Math.atan2(b, a);
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.dataop.barithm;
+
+import com.bc.jexp.ParseException;
+import com.bc.jexp.Term;
+import org.esa.beam.framework.datamodel.Product;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A band maths expression which is parsed once and then shared by concurrent evaluations,
+ * e.g. by all the tiles of an image.
+ * <p/>
+ * Since the {@link RasterDataSymbol}s of a parsed {@link Term} carry the data they are evaluated on,
+ * a term cannot be evaluated by multiple threads at the same time. Therefore the per-evaluation state
+ * is kept in {@link Evaluator}s. A thread {@link #acquireEvaluator() acquires} an evaluator, sets the data
+ * of its symbols, evaluates it and finally {@link #releaseEvaluator(Evaluator) releases} it again,
+ * so that the evaluator can be reused by subsequent evaluations. An expression will therefore only be
+ * parsed as often as it is evaluated concurrently.
+ * <p/>
+ * If the expression is {@link #compile(int[]) compiled} for the data types of its symbols, evaluators
+ * use the compiled term, otherwise the term is interpreted. Compilation is never triggered by an evaluation.
+ * <p/>
+ * Instances count the time spent on parsing the expression. If {@link #setStatisticsEnabled(boolean) enabled},
+ * they also count the time spent on evaluating it. Evaluation statistics are collected by each evaluator
+ * and added to the totals when the evaluator is released.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @since BEAM 5.0
+ */
+public final class ParsedExpression {
+
+    private final String expression;
+    private final Product[] products;
+    private final int defaultProductIndex;
+    private final Queue<Evaluator> evaluators;
+    private volatile int[] dataTypes;
+    private final AtomicLong parseCount;
+    private final AtomicLong parseTime;
+    private final AtomicLong evalCount;
+    private final AtomicLong evalTime;
+    private volatile boolean statisticsEnabled;
+
+    /**
+     * Creates a new parsed expression. The expression is parsed and validated immediately.
+     *
+     * @param expression          The band maths expression.
+     * @param products            The products which may be referenced by the expression.
+     * @param defaultProductIndex The index of the product used to resolve unprefixed symbol names.
+     *
+     * @throws ParseException If the expression could not be parsed.
+     */
+    public ParsedExpression(String expression, Product[] products, int defaultProductIndex) throws ParseException {
+        this.expression = expression;
+        this.products = products.clone();
+        this.defaultProductIndex = defaultProductIndex;
+        this.evaluators = new ConcurrentLinkedQueue<Evaluator>();
+        this.parseCount = new AtomicLong();
+        this.parseTime = new AtomicLong();
+        this.evalCount = new AtomicLong();
+        this.evalTime = new AtomicLong();
+        evaluators.offer(new Evaluator(parse()));
+    }
+
+    /**
+     * @return The band maths expression.
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return The raster data symbols referenced by the expression. The returned symbols must only
+     *         be used to inspect the referenced rasters, never to evaluate the expression.
+     */
+    public RasterDataSymbol[] getRefRasterDataSymbols() {
+        final Evaluator evaluator = acquireEvaluator();
+        try {
+            return evaluator.getSymbols();
+        } finally {
+            releaseEvaluator(evaluator);
+        }
+    }
+
+    /**
+     * Compiles the expression for the given data types of its raster data symbols, so that subsequent
+     * evaluations use the compiled term. Since compiling is expensive, this method should be called once
+     * when the client is initialised, not during the computation of tiles.
+     *
+     * @param dataTypes The data types of the data which will be set on the symbols, one for each symbol
+     *                  returned by {@link #getRefRasterDataSymbols()}.
+     *
+     * @return {@code true}, if the expression has been compiled, {@code false} if it will be interpreted.
+     *
+     * @see TermCompiler#compile(Term, RasterDataSymbol[], int[])
+     */
+    public boolean compile(int[] dataTypes) {
+        this.dataTypes = dataTypes.clone();
+        final Evaluator evaluator = acquireEvaluator();
+        try {
+            return evaluator.compile() != null;
+        } finally {
+            releaseEvaluator(evaluator);
+        }
+    }
+
+    /**
+     * Acquires an evaluator for the exclusive use by the calling thread. If no evaluator is
+     * available, the expression is parsed again.
+     *
+     * @return An evaluator, never {@code null}.
+     */
+    public Evaluator acquireEvaluator() {
+        final Evaluator evaluator = evaluators.poll();
+        if (evaluator != null) {
+            return evaluator;
+        }
+        try {
+            return new Evaluator(parse());
+        } catch (ParseException e) {
+            // expression has already been parsed successfully by the constructor
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Releases an evaluator previously obtained by {@link #acquireEvaluator()}, so that it
+     * can be reused. The evaluator must not be used by the caller anymore.
+     *
+     * @param evaluator The evaluator.
+     */
+    public void releaseEvaluator(Evaluator evaluator) {
+        evaluator.release();
+        evaluators.offer(evaluator);
+    }
+
+    /**
+     * @return {@code true}, if the number of evaluations and the time spent on them are counted.
+     */
+    public boolean isStatisticsEnabled() {
+        return statisticsEnabled;
+    }
+
+    /**
+     * Enables or disables counting the number of evaluations and the time spent on them.
+     * Disabled by default, since timing each evaluation call has a measurable cost.
+     *
+     * @param statisticsEnabled {@code true}, if evaluations shall be counted.
+     */
+    public void setStatisticsEnabled(boolean statisticsEnabled) {
+        this.statisticsEnabled = statisticsEnabled;
+    }
+
+    /**
+     * @return The number of times the expression has been parsed.
+     */
+    public long getParseCount() {
+        return parseCount.get();
+    }
+
+    /**
+     * @return The total time in nanoseconds spent on parsing the expression.
+     */
+    public long getParseTime() {
+        return parseTime.get();
+    }
+
+    /**
+     * @return The number of evaluation calls, each evaluating a run of data elements. Only counted if
+     *         statistics are enabled and only for released evaluators.
+     */
+    public long getEvalCount() {
+        return evalCount.get();
+    }
+
+    /**
+     * @return The total time in nanoseconds spent on evaluating the expression. Only counted if
+     *         statistics are enabled and only for released evaluators.
+     */
+    public long getEvalTime() {
+        return evalTime.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[expression=%s, parseCount=%d, parseTime=%.3f ms, evalCount=%d, evalTime=%.3f ms]",
+                             getClass().getSimpleName(), expression,
+                             getParseCount(), getParseTime() * 1.0e-6,
+                             getEvalCount(), getEvalTime() * 1.0e-6);
+    }
+
+    private Term parse() throws ParseException {
+        final long t0 = System.nanoTime();
+        final Term term = BandArithmetic.parseExpression(expression, products, defaultProductIndex);
+        parseTime.addAndGet(System.nanoTime() - t0);
+        parseCount.incrementAndGet();
+        return term;
+    }
+
+    /**
+     * Holds the state used to evaluate a {@link ParsedExpression}: a parsed term, its raster data symbols
+     * and, if available, the compiled term. An evaluator must only be used by a single thread at a time.
+     */
+    public final class Evaluator {
+
+        private final Term term;
+        private final RasterDataSymbol[] symbols;
+        private CompiledTerm compiledTerm;
+        private boolean compiled;
+        private long localEvalCount;
+        private long localEvalTime;
+
+        private Evaluator(Term term) {
+            this.term = term;
+            this.symbols = BandArithmetic.getRefRasterDataSymbols(term);
+        }
+
+        /**
+         * @return The parsed term.
+         */
+        public Term getTerm() {
+            return term;
+        }
+
+        /**
+         * @return The raster data symbols of the term. Their data must be set before evaluation.
+         */
+        public RasterDataSymbol[] getSymbols() {
+            return symbols.clone();
+        }
+
+        /**
+         * Evaluates the term to {@code boolean} values for the data elements in the range
+         * {@code elemIndex} to {@code elemIndex + count - 1}.
+         *
+         * @param env       The evaluation environment.
+         * @param elemIndex The index of the first data element.
+         * @param count     The number of data elements to evaluate.
+         * @param values    Receives the {@code count} evaluated values.
+         */
+        public void evalB(RasterDataEvalEnv env, int elemIndex, int count, boolean[] values) {
+            final boolean timed = statisticsEnabled;
+            final long t0 = timed ? System.nanoTime() : 0L;
+            final CompiledTerm compiledTerm = getCompiledTerm();
+            if (compiledTerm != null) {
+                compiledTerm.evalB(env, elemIndex, count, values);
+            } else {
+                env.setElemIndex(elemIndex);
+                term.evalB(env, values, 0, count);
+            }
+            if (timed) {
+                localEvalTime += System.nanoTime() - t0;
+                localEvalCount++;
+            }
+        }
+
+        /**
+         * Evaluates the term to {@code double} values for the data elements in the range
+         * {@code elemIndex} to {@code elemIndex + count - 1}.
+         *
+         * @param env       The evaluation environment.
+         * @param elemIndex The index of the first data element.
+         * @param count     The number of data elements to evaluate.
+         * @param values    Receives the {@code count} evaluated values.
+         */
+        public void evalD(RasterDataEvalEnv env, int elemIndex, int count, double[] values) {
+            final boolean timed = statisticsEnabled;
+            final long t0 = timed ? System.nanoTime() : 0L;
+            final CompiledTerm compiledTerm = getCompiledTerm();
+            if (compiledTerm != null) {
+                compiledTerm.evalD(env, elemIndex, count, values);
+            } else {
+                env.setElemIndex(elemIndex);
+                term.evalD(env, values, 0, count);
+            }
+            if (timed) {
+                localEvalTime += System.nanoTime() - t0;
+                localEvalCount++;
+            }
+        }
+
+        /**
+         * Adds the local statistics to the totals and clears the data of the symbols, so that
+         * a pooled evaluator does not keep the data of the last evaluation.
+         */
+        private void release() {
+            if (localEvalCount > 0) {
+                evalCount.addAndGet(localEvalCount);
+                evalTime.addAndGet(localEvalTime);
+                localEvalCount = 0;
+                localEvalTime = 0;
+            }
+            for (RasterDataSymbol symbol : symbols) {
+                symbol.setData(null);
+            }
+        }
+
+        private CompiledTerm getCompiledTerm() {
+            final CompiledTerm compiledTerm = compile();
+            return compiledTerm != null && compiledTerm.isApplicable() ? compiledTerm : null;
+        }
+
+        private CompiledTerm compile() {
+            if (!compiled) {
+                final int[] dataTypes = ParsedExpression.this.dataTypes;
+                if (dataTypes == null) {
+                    return null;
+                }
+                // the class has already been compiled by compile(int[]), so it is only instantiated here
+                compiledTerm = TermCompiler.compile(term, symbols, dataTypes);
+                compiled = true;
+            }
+            return compiledTerm;
+        }
+    }
+}
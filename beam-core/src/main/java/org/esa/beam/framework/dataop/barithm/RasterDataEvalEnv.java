@@ -15,7 +15,8 @@
  */
 package org.esa.beam.framework.dataop.barithm;
 
-import com.bc.jexp.EvalEnv;
+import com.bc.jexp.EvalBuffers;
+import com.bc.jexp.VectorEvalEnv;
 import org.esa.beam.jai.LevelImageSupport;
 import org.esa.beam.jai.ResolutionLevel;
 
@@ -29,7 +30,7 @@ import org.esa.beam.jai.ResolutionLevel;
  * interfaces, such as {@link RasterDataSymbol}, can then use the environment in order to perform
  * raster data specific evaluations.
  */
-public class RasterDataEvalEnv implements EvalEnv {
+public class RasterDataEvalEnv implements VectorEvalEnv {
 
     private final int offsetX;
     private final int offsetY;
@@ -37,6 +38,7 @@ public class RasterDataEvalEnv implements EvalEnv {
     private final int regionHeight;
     private int elemIndex;
     private LevelImageSupport levelImageSupport;
+    private EvalBuffers buffers;
 
     /**
      * Constructs a new environment for the given raster data region.
@@ -144,4 +146,18 @@ public class RasterDataEvalEnv implements EvalEnv {
     public void setElemIndex(int elemIndex) {
         this.elemIndex = elemIndex;
     }
+
+    /**
+     * Gets the buffers used to store intermediate results during the vector evaluation of terms.
+     *
+     * @return the buffers
+     * @since BEAM 5.0
+     */
+    @Override
+    public EvalBuffers getBuffers() {
+        if (buffers == null) {
+            buffers = new EvalBuffers();
+        }
+        return buffers;
+    }
 }
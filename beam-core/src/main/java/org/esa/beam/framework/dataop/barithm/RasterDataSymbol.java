@@ -17,8 +17,8 @@ package org.esa.beam.framework.dataop.barithm;
 
 import com.bc.jexp.EvalEnv;
 import com.bc.jexp.EvalException;
-import com.bc.jexp.Symbol;
 import com.bc.jexp.Term;
+import com.bc.jexp.VectorSymbol;
 import org.esa.beam.framework.datamodel.Mask;
 import org.esa.beam.framework.datamodel.ProductData;
 import org.esa.beam.framework.datamodel.RasterDataNode;
@@ -34,7 +34,7 @@ import org.esa.beam.framework.datamodel.RasterDataNode;
  * @author Norman Fomferra (norman.fomferra@brockmann-consult.de)
  * @version $Revision$ $Date$
  */
-public class RasterDataSymbol implements Symbol {
+public class RasterDataSymbol implements VectorSymbol {
 
     public static final Source RAW = Source.RAW;
     public static final Source GEOPHYSICAL = Source.GEOPHYSICAL;
@@ -104,8 +104,25 @@ public class RasterDataSymbol implements Symbol {
         return raster;
     }
 
+    /**
+     * @return The data currently used to evaluate this symbol, may be {@code null}.
+     *
+     * @since BEAM 5.0
+     */
+    public ProductData getData() {
+        return data;
+    }
+
+    /**
+     * Sets the data used to evaluate this symbol.
+     *
+     * @param data The data, either a {@link ProductData}, a {@code float[]} or an {@code int[]} array.
+     *             May be {@code null} in order to release the current data.
+     */
     public void setData(final Object data) {
-        if (ProductData.class.isAssignableFrom(data.getClass())) {
+        if (data == null) {
+            this.data = null;
+        } else if (ProductData.class.isAssignableFrom(data.getClass())) {
             this.data = (ProductData) data;
         } else if (data instanceof float[]) {
             this.data = ProductData.createInstance((float[]) data);
@@ -139,4 +156,157 @@ public class RasterDataSymbol implements Symbol {
         final double value = evalD(env);
         return Double.toString(value);
     }
+
+    @Override
+    public void evalB(EvalEnv env, boolean[] values, int offset, int count) throws EvalException {
+        final int elemIndex = ((RasterDataEvalEnv) env).getElemIndex();
+        final Object elems = data.getElems();
+        if (elems instanceof byte[]) {
+            final byte[] array = (byte[]) elems;
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = array[elemIndex + i] != 0;
+            }
+        } else if (elems instanceof short[]) {
+            final short[] array = (short[]) elems;
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = array[elemIndex + i] != 0;
+            }
+        } else if (elems instanceof int[]) {
+            final int[] array = (int[]) elems;
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = array[elemIndex + i] != 0;
+            }
+        } else if (elems instanceof float[]) {
+            final float[] array = (float[]) elems;
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = array[elemIndex + i] != 0.0F;
+            }
+        } else if (elems instanceof double[]) {
+            final double[] array = (double[]) elems;
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = array[elemIndex + i] != 0.0;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = Term.toB(data.getElemDoubleAt(elemIndex + i));
+            }
+        }
+    }
+
+    @Override
+    public void evalI(EvalEnv env, int[] values, int offset, int count) throws EvalException {
+        final int elemIndex = ((RasterDataEvalEnv) env).getElemIndex();
+        final Object elems = data.getElems();
+        switch (data.getType()) {
+            case ProductData.TYPE_INT8: {
+                final byte[] array = (byte[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_UINT8: {
+                final byte[] array = (byte[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i] & 0xff;
+                }
+                break;
+            }
+            case ProductData.TYPE_INT16: {
+                final short[] array = (short[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_UINT16: {
+                final short[] array = (short[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i] & 0xffff;
+                }
+                break;
+            }
+            case ProductData.TYPE_INT32:
+            case ProductData.TYPE_UINT32: {
+                System.arraycopy((int[]) elems, elemIndex, values, offset, count);
+                break;
+            }
+            case ProductData.TYPE_FLOAT32: {
+                final float[] array = (float[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = Math.round(array[elemIndex + i]);
+                }
+                break;
+            }
+            default:
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = data.getElemIntAt(elemIndex + i);
+                }
+        }
+    }
+
+    @Override
+    public void evalD(EvalEnv env, double[] values, int offset, int count) throws EvalException {
+        final int elemIndex = ((RasterDataEvalEnv) env).getElemIndex();
+        final Object elems = data.getElems();
+        switch (data.getType()) {
+            case ProductData.TYPE_INT8: {
+                final byte[] array = (byte[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_UINT8: {
+                final byte[] array = (byte[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i] & 0xff;
+                }
+                break;
+            }
+            case ProductData.TYPE_INT16: {
+                final short[] array = (short[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_UINT16: {
+                final short[] array = (short[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i] & 0xffff;
+                }
+                break;
+            }
+            case ProductData.TYPE_INT32: {
+                final int[] array = (int[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_UINT32: {
+                final int[] array = (int[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i] & 0xffffffffL;
+                }
+                break;
+            }
+            case ProductData.TYPE_FLOAT32: {
+                final float[] array = (float[]) elems;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = array[elemIndex + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_FLOAT64: {
+                System.arraycopy((double[]) elems, elemIndex, values, offset, count);
+                break;
+            }
+            default:
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = data.getElemDoubleAt(elemIndex + i);
+                }
+        }
+    }
 }
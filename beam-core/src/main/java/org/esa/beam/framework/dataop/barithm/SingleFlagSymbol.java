@@ -17,6 +17,7 @@ package org.esa.beam.framework.dataop.barithm;
 
 import org.esa.beam.framework.datamodel.RasterDataNode;
 
+import com.bc.jexp.EvalBuffers;
 import com.bc.jexp.EvalEnv;
 import com.bc.jexp.EvalException;
 import com.bc.jexp.Term;
@@ -72,4 +73,40 @@ public final  class SingleFlagSymbol extends RasterDataSymbol {
         final int elemIndex = ((RasterDataEvalEnv) env).getElemIndex();
         return (data.getElemIntAt(elemIndex) & flagMask) == flagMask ? 1.0 : 0.0;
     }
+
+    @Override
+    public final void evalB(EvalEnv env, boolean[] values, int offset, int count) throws EvalException {
+        final EvalBuffers buffers = ((RasterDataEvalEnv) env).getBuffers();
+        final int[] flags = buffers.getI(count);
+        try {
+            super.evalI(env, flags, 0, count);
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = (flags[i] & flagMask) == flagMask;
+            }
+        } finally {
+            buffers.release(flags);
+        }
+    }
+
+    @Override
+    public final void evalI(EvalEnv env, int[] values, int offset, int count) throws EvalException {
+        super.evalI(env, values, offset, count);
+        for (int i = offset; i < offset + count; i++) {
+            values[i] = (values[i] & flagMask) == flagMask ? 1 : 0;
+        }
+    }
+
+    @Override
+    public final void evalD(EvalEnv env, double[] values, int offset, int count) throws EvalException {
+        final EvalBuffers buffers = ((RasterDataEvalEnv) env).getBuffers();
+        final int[] flags = buffers.getI(count);
+        try {
+            super.evalI(env, flags, 0, count);
+            for (int i = 0; i < count; i++) {
+                values[offset + i] = (flags[i] & flagMask) == flagMask ? 1.0 : 0.0;
+            }
+        } finally {
+            buffers.release(flags);
+        }
+    }
 }
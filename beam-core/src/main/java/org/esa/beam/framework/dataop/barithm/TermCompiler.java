@@ -0,0 +1,768 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.dataop.barithm;
+
+import com.bc.jexp.Function;
+import com.bc.jexp.Symbol;
+import com.bc.jexp.Term;
+import com.bc.jexp.impl.DefaultNamespace;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.util.logging.BeamLogManager;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Compiles {@link Term}s into JVM classes in order to speed up the evaluation of band maths expressions.
+ * <p/>
+ * The compiler translates a term into Java source code, which evaluates the term for a run of data elements
+ * in a single loop over the primitive arrays of the referenced {@link RasterDataSymbol}s. The source code is
+ * compiled in memory using the {@code javax.tools} compiler API. Compiled classes are cached as long as they
+ * are used by compiled terms, so that a term is compiled only once for a given expression and source data types.
+ * Since compilation is expensive, clients should compile their terms when they are initialised, using
+ * {@link #compile(Term, RasterDataSymbol[], int[])}, rather than during the computation of tiles. Copies of a
+ * term which are evaluated concurrently can use {@link CompiledTerm#newInstance(Term)} to reuse the compiled class.
+ * <p/>
+ * Sub-terms which cannot be compiled, e.g. calls of functions not provided by the {@link DefaultNamespace}
+ * or references to symbols other than raster data symbols, are delegated to the interpreter.
+ * If no Java compiler is available at runtime (e.g. when running on a JRE) or compilation fails,
+ * {@link #compile(Term)} returns {@code null} and clients shall fall back to the interpreter.
+ * <p/>
+ * Compilation can be disabled by setting the system property {@code beam.bandArithmetic.compileTerms}
+ * to {@code false}.
+ *
+ * @since BEAM 5.0
+ */
+public class TermCompiler {
+
+    public static final String COMPILE_TERMS_PROPERTY = "beam.bandArithmetic.compileTerms";
+
+    private static final String PACKAGE_NAME = "org.esa.beam.framework.dataop.barithm.gen";
+    private static final String CLASS_NAME_PLACEHOLDER = "${className}";
+    private static final double EPS = 1e-6;
+
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final Object COMPILATION_FAILED = new Object();
+
+    // Maps generated sources to a FutureTask while the source is compiled, and to a weak reference of the
+    // compiled class afterwards, so that classes and their class loaders can be garbage collected once they
+    // are not used by any compiled term anymore. The number of entries is bounded, the least recently used
+    // entries are removed first.
+    private static final Map<String, Object> classCache = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    private TermCompiler() {
+    }
+
+    /**
+     * @return {@code true}, if terms shall be compiled.
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(COMPILE_TERMS_PROPERTY, "true"));
+    }
+
+    /**
+     * Compiles the given term for the data which is currently set on the raster data symbols referenced by the term.
+     *
+     * @param term The term.
+     *
+     * @return The compiled term, or {@code null} if compilation is disabled, not possible or not worthwhile.
+     */
+    public static CompiledTerm compile(Term term) {
+        return compile(term, null);
+    }
+
+    /**
+     * Compiles the given term for the given data types of its raster data symbols. In contrast to
+     * {@link #compile(Term)}, no data needs to be set on the symbols, so terms can be compiled before
+     * they are evaluated, e.g. when an image or operator is initialised.
+     *
+     * @param term      The term.
+     * @param symbols   The raster data symbols referenced by the term.
+     * @param dataTypes The data types of the data which will be set on the symbols, one for each symbol.
+     *
+     * @return The compiled term, or {@code null} if compilation is disabled, not possible or not worthwhile.
+     */
+    public static CompiledTerm compile(Term term, RasterDataSymbol[] symbols, int[] dataTypes) {
+        if (symbols.length != dataTypes.length) {
+            throw new IllegalArgumentException("symbols.length != dataTypes.length");
+        }
+        final Map<RasterDataSymbol, Integer> symbolDataTypes = new IdentityHashMap<RasterDataSymbol, Integer>();
+        for (int i = 0; i < symbols.length; i++) {
+            symbolDataTypes.put(symbols[i], dataTypes[i]);
+        }
+        return compile(term, symbolDataTypes);
+    }
+
+    private static CompiledTerm compile(Term term, Map<RasterDataSymbol, Integer> symbolDataTypes) {
+        if (!isEnabled()) {
+            return null;
+        }
+        final Generator generator = new Generator(symbolDataTypes);
+        final String source = generator.generateSource(term);
+        if (source == null) {
+            return null;
+        }
+        final Constructor<?> constructor = getConstructor(source);
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return (CompiledTerm) constructor.newInstance(term,
+                                                          generator.getSymbols(),
+                                                          generator.getTerms(),
+                                                          generator.getDataTypes());
+        } catch (Exception e) {
+            BeamLogManager.getSystemLogger().log(Level.WARNING, "Failed to instantiate compiled term: " + term, e);
+            return null;
+        }
+    }
+
+    /**
+     * Generates the Java source code for the given term. Intended for debugging only.
+     *
+     * @param term The term.
+     *
+     * @return The source code, or {@code null} if it is not worthwhile to compile the term.
+     */
+    static String generateSource(Term term) {
+        final String source = new Generator(null).generateSource(term);
+        return source != null ? source.replace(CLASS_NAME_PLACEHOLDER, "CompiledTerm") : null;
+    }
+
+    private static Constructor<?> getConstructor(final String source) {
+        FutureTask<Class<?>> task = null;
+        boolean compiling = false;
+        synchronized (classCache) {
+            final Object entry = classCache.get(source);
+            if (entry == COMPILATION_FAILED) {
+                return null;
+            } else if (entry instanceof WeakReference) {
+                final Class<?> type = (Class<?>) ((WeakReference<?>) entry).get();
+                if (type != null) {
+                    return getConstructor(type);
+                }
+            } else if (entry instanceof FutureTask) {
+                //noinspection unchecked
+                task = (FutureTask<Class<?>>) entry;
+            }
+            if (task == null) {
+                task = new FutureTask<Class<?>>(new Callable<Class<?>>() {
+                    @Override
+                    public Class<?> call() throws Exception {
+                        return compileClass(source);
+                    }
+                });
+                classCache.put(source, task);
+                compiling = true;
+            }
+        }
+        if (compiling) {
+            task.run();
+        }
+        Class<?> type;
+        try {
+            type = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            type = null;
+        }
+        if (compiling) {
+            synchronized (classCache) {
+                classCache.put(source, type != null ? new WeakReference<Class<?>>(type) : COMPILATION_FAILED);
+            }
+        }
+        return type != null ? getConstructor(type) : null;
+    }
+
+    private static Constructor<?> getConstructor(Class<?> type) {
+        try {
+            return type.getConstructor(Term.class, RasterDataSymbol[].class, Term[].class, int[].class);
+        } catch (NoSuchMethodException e) {
+            BeamLogManager.getSystemLogger().log(Level.WARNING, "Failed to load compiled term.", e);
+            return null;
+        }
+    }
+
+    private static Class<?> compileClass(String source) {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            BeamLogManager.getSystemLogger().fine("No Java compiler available, terms are interpreted.");
+            return null;
+        }
+        final String simpleName = "CompiledTerm" + classCounter.getAndIncrement();
+        final String className = PACKAGE_NAME + "." + simpleName;
+        final String classSource = source.replace(CLASS_NAME_PLACEHOLDER, simpleName);
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        final MemoryFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(diagnostics,
+                                                                                                    null, null));
+        final List<String> options = Arrays.asList("-classpath", getClassPath(), "-nowarn");
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                                                                   Arrays.asList(new SourceFile(className,
+                                                                                                classSource)));
+        if (!task.call()) {
+            final StringBuilder sb = new StringBuilder("Failed to compile term, term is interpreted:");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                sb.append('\n').append(diagnostic.getMessage(null));
+            }
+            BeamLogManager.getSystemLogger().warning(sb.toString());
+            return null;
+        }
+        try {
+            return new MemoryClassLoader(fileManager.classFiles).loadClass(className);
+        } catch (Exception e) {
+            BeamLogManager.getSystemLogger().log(Level.WARNING, "Failed to load compiled term.", e);
+            return null;
+        }
+    }
+
+    private static String getClassPath() {
+        final Set<String> paths = new LinkedHashSet<String>();
+        for (Class<?> type : new Class<?>[]{CompiledTerm.class, Term.class, ProductData.class}) {
+            final CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+            if (codeSource != null) {
+                final URL location = codeSource.getLocation();
+                if (location != null && "file".equals(location.getProtocol())) {
+                    try {
+                        paths.add(new File(location.toURI()).getPath());
+                    } catch (Exception e) {
+                        // ignore, class path is completed below
+                    }
+                }
+            }
+        }
+        paths.add(System.getProperty("java.class.path"));
+        final StringBuilder sb = new StringBuilder();
+        for (String path : paths) {
+            if (sb.length() > 0) {
+                sb.append(File.pathSeparatorChar);
+            }
+            sb.append(path);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Translates a term into Java source code.
+     */
+    private static class Generator {
+
+        private static final Set<String> MATH_FUNCTIONS_D = new LinkedHashSet<String>(Arrays.asList(
+                "sin/1", "cos/1", "tan/1", "asin/1", "acos/1", "atan/1", "atan2/2", "log/1", "log10/1", "exp/1",
+                "sqrt/1", "pow/2", "min/2", "max/2", "floor/1", "ceil/1", "rint/1", "abs/1"));
+        private static final Map<String, String> OTHER_FUNCTIONS_D = new HashMap<String, String>();
+
+        static {
+            OTHER_FUNCTIONS_D.put("exp10/1", "Math.pow(10.0, %s)");
+            OTHER_FUNCTIONS_D.put("sqr/1", "sqr(%s)");
+            OTHER_FUNCTIONS_D.put("round/1", "((double) Math.round(%s))");
+            OTHER_FUNCTIONS_D.put("sign/1", "ExtMath.sign(%s)");
+            OTHER_FUNCTIONS_D.put("deg/1", "Math.toDegrees(%s)");
+            OTHER_FUNCTIONS_D.put("rad/1", "Math.toRadians(%s)");
+            OTHER_FUNCTIONS_D.put("ampl/2", "ampl(%s, %s)");
+            OTHER_FUNCTIONS_D.put("phase/2", "phase(%s, %s)");
+        }
+
+        private final List<RasterDataSymbol> symbols = new ArrayList<RasterDataSymbol>();
+        private final List<Integer> dataTypes = new ArrayList<Integer>();
+        private final List<Term> terms = new ArrayList<Term>();
+        private final Map<RasterDataSymbol, Integer> symbolDataTypes;
+
+        /**
+         * @param symbolDataTypes The data types of the raster data symbols, or {@code null} if the data types
+         *                        of the data currently set on the symbols shall be used.
+         */
+        Generator(Map<RasterDataSymbol, Integer> symbolDataTypes) {
+            this.symbolDataTypes = symbolDataTypes;
+        }
+
+        RasterDataSymbol[] getSymbols() {
+            return symbols.toArray(new RasterDataSymbol[symbols.size()]);
+        }
+
+        Term[] getTerms() {
+            return terms.toArray(new Term[terms.size()]);
+        }
+
+        int[] getDataTypes() {
+            final int[] types = new int[dataTypes.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = dataTypes.get(i);
+            }
+            return types;
+        }
+
+        String generateSource(Term term) {
+            final String codeB = gen(term, Term.TYPE_B);
+            final String codeD = gen(term, Term.TYPE_D);
+            if (terms.size() == 1 && terms.get(0) == term) {
+                // nothing to gain, the whole term is interpreted
+                return null;
+            }
+
+            final StringBuilder sb = new StringBuilder();
+            sb.append("package ").append(PACKAGE_NAME).append(";\n");
+            sb.append("import com.bc.jexp.Term;\n");
+            sb.append("import com.bc.jexp.impl.ExtMath;\n");
+            sb.append("import org.esa.beam.framework.dataop.barithm.CompiledTerm;\n");
+            sb.append("import org.esa.beam.framework.dataop.barithm.RasterDataEvalEnv;\n");
+            sb.append("import org.esa.beam.framework.dataop.barithm.RasterDataSymbol;\n");
+            sb.append("public final class ").append(CLASS_NAME_PLACEHOLDER).append(" extends CompiledTerm {\n");
+            sb.append("  public ").append(CLASS_NAME_PLACEHOLDER);
+            sb.append("(Term term, RasterDataSymbol[] symbols, Term[] terms, int[] dataTypes) {\n");
+            sb.append("    super(term, symbols, terms, dataTypes);\n");
+            sb.append("  }\n");
+            appendEvalMethod(sb, "evalB", "boolean", codeB);
+            appendEvalMethod(sb, "evalD", "double", codeD);
+            sb.append("}\n");
+            return sb.toString();
+        }
+
+        private void appendEvalMethod(StringBuilder sb, String methodName, String valueType, String code) {
+            sb.append("  @Override\n");
+            sb.append("  public void ").append(methodName);
+            sb.append("(RasterDataEvalEnv env, int elemIndex, int count, ").append(valueType).append("[] values) {\n");
+            for (int k = 0; k < symbols.size(); k++) {
+                final String arrayType = getArrayType(dataTypes.get(k));
+                sb.append("    final ").append(arrayType).append(" a").append(k).append(" = (").append(arrayType);
+                sb.append(") symbols[").append(k).append("].getData().getElems();\n");
+            }
+            sb.append("    for (int j = 0, i = elemIndex; j < count; j++, i++) {\n");
+            if (!terms.isEmpty()) {
+                sb.append("      env.setElemIndex(i);\n");
+            }
+            sb.append("      values[j] = ").append(code).append(";\n");
+            sb.append("    }\n");
+            sb.append("  }\n");
+        }
+
+        private String gen(Term term, int type) {
+            if (term instanceof Term.ConstB) {
+                return convB(lit(((Term.ConstB) term).getValue()), type);
+            } else if (term instanceof Term.ConstI) {
+                return convI(lit(((Term.ConstI) term).getValue()), type);
+            } else if (term instanceof Term.ConstD) {
+                final double value = ((Term.ConstD) term).getValue();
+                if (type == Term.TYPE_B) {
+                    return lit(Term.toB(value));
+                } else if (type == Term.TYPE_I) {
+                    return lit(Term.toI(value));
+                }
+                return lit(value);
+            } else if (term instanceof Term.Ref) {
+                final Symbol symbol = ((Term.Ref) term).getSymbol();
+                if (symbol instanceof RasterDataSymbol) {
+                    final String code = genSymbol((RasterDataSymbol) symbol, type);
+                    if (code != null) {
+                        return code;
+                    }
+                }
+            } else if (term instanceof Term.Call) {
+                final String code = genCall((Term.Call) term, type);
+                if (code != null) {
+                    return code;
+                }
+            } else if (term instanceof Term.Cond) {
+                final Term[] args = ((Term.Cond) term).getArgs();
+                return "(" + gen(args[0], Term.TYPE_B) + " ? " + gen(args[1], type) + " : " + gen(args[2], type) + ")";
+            } else if (term instanceof Term.NotB) {
+                return convB("(!" + gen(((Term.NotB) term).getArgs()[0], Term.TYPE_B) + ")", type);
+            } else if (term instanceof Term.AndB) {
+                return convB(genBinary((Term.Op) term, "&&", Term.TYPE_B), type);
+            } else if (term instanceof Term.OrB) {
+                return convB(genBinary((Term.Op) term, "||", Term.TYPE_B), type);
+            } else if (term instanceof Term.NotI) {
+                return convI("(~" + gen(((Term.NotI) term).getArgs()[0], Term.TYPE_I) + ")", type);
+            } else if (term instanceof Term.XOrI) {
+                return convI(genBinary((Term.Op) term, "^", Term.TYPE_I), type);
+            } else if (term instanceof Term.AndI) {
+                return convI(genBinary((Term.Op) term, "&", Term.TYPE_I), type);
+            } else if (term instanceof Term.OrI) {
+                return convI(genBinary((Term.Op) term, "|", Term.TYPE_I), type);
+            } else if (term instanceof Term.Neg) {
+                final Term arg = ((Term.Neg) term).getArgs()[0];
+                if (type == Term.TYPE_I) {
+                    return "(-" + gen(arg, Term.TYPE_I) + ")";
+                }
+                return convD("(-" + gen(arg, Term.TYPE_D) + ")", type);
+            } else if (term instanceof Term.Add) {
+                return genArithmetic((Term.Op) term, "+", type);
+            } else if (term instanceof Term.Sub) {
+                return genArithmetic((Term.Op) term, "-", type);
+            } else if (term instanceof Term.Mul) {
+                return genArithmetic((Term.Op) term, "*", type);
+            } else if (term instanceof Term.Div) {
+                return genArithmetic((Term.Op) term, "/", type);
+            } else if (term instanceof Term.Mod) {
+                return genArithmetic((Term.Op) term, "%", type);
+            } else if (term instanceof Term.EqB) {
+                return convB(genBinary((Term.Op) term, "==", Term.TYPE_B), type);
+            } else if (term instanceof Term.EqI) {
+                return convB(genBinary((Term.Op) term, "==", Term.TYPE_I), type);
+            } else if (term instanceof Term.EqD) {
+                return convB(genBinary((Term.Op) term, "==", Term.TYPE_D), type);
+            } else if (term instanceof Term.NEqB) {
+                return convB(genBinary((Term.Op) term, "!=", Term.TYPE_B), type);
+            } else if (term instanceof Term.NEqI) {
+                return convB(genBinary((Term.Op) term, "!=", Term.TYPE_I), type);
+            } else if (term instanceof Term.NEqD) {
+                return convB(genBinary((Term.Op) term, "!=", Term.TYPE_D), type);
+            } else if (term instanceof Term.LtI) {
+                return convB(genBinary((Term.Op) term, "<", Term.TYPE_I), type);
+            } else if (term instanceof Term.LtD) {
+                return convB(genBinary((Term.Op) term, "<", Term.TYPE_D), type);
+            } else if (term instanceof Term.LeI) {
+                return convB(genBinary((Term.Op) term, "<=", Term.TYPE_I), type);
+            } else if (term instanceof Term.LeD) {
+                return convB(genBinary((Term.Op) term, "<=", Term.TYPE_D), type);
+            } else if (term instanceof Term.GtI) {
+                return convB(genBinary((Term.Op) term, ">", Term.TYPE_I), type);
+            } else if (term instanceof Term.GtD) {
+                return convB(genBinary((Term.Op) term, ">", Term.TYPE_D), type);
+            } else if (term instanceof Term.GeI) {
+                return convB(genBinary((Term.Op) term, ">=", Term.TYPE_I), type);
+            } else if (term instanceof Term.GeD) {
+                return convB(genBinary((Term.Op) term, ">=", Term.TYPE_D), type);
+            }
+            return genInterpreted(term, type);
+        }
+
+        private String genBinary(Term.Op term, String operator, int argType) {
+            final Term[] args = term.getArgs();
+            return "(" + gen(args[0], argType) + " " + operator + " " + gen(args[1], argType) + ")";
+        }
+
+        private String genArithmetic(Term.Op term, String operator, int type) {
+            if (type == Term.TYPE_I) {
+                return genBinary(term, operator, Term.TYPE_I);
+            } else if (type == Term.TYPE_D) {
+                return genBinary(term, operator, Term.TYPE_D);
+            } else if (term.getRetType() == Term.TYPE_I) {
+                return convI(genBinary(term, operator, Term.TYPE_I), type);
+            }
+            return convD(genBinary(term, operator, Term.TYPE_D), type);
+        }
+
+        private String genSymbol(RasterDataSymbol symbol, int type) {
+            final int dataType;
+            if (symbolDataTypes != null) {
+                final Integer symbolDataType = symbolDataTypes.get(symbol);
+                if (symbolDataType == null) {
+                    return null;
+                }
+                dataType = symbolDataType;
+            } else {
+                final ProductData data = symbol.getData();
+                if (data == null) {
+                    return null;
+                }
+                dataType = data.getType();
+            }
+            if (getArrayType(dataType) == null) {
+                return null;
+            }
+            final boolean flagSymbol = symbol.getClass() == SingleFlagSymbol.class;
+            if (!flagSymbol && symbol.getClass() != RasterDataSymbol.class) {
+                // unknown semantics, let the interpreter handle it
+                return null;
+            }
+            int index = symbols.indexOf(symbol);
+            if (index == -1) {
+                index = symbols.size();
+                symbols.add(symbol);
+                dataTypes.add(dataType);
+            }
+            final String element = "a" + index + "[i]";
+            final String elementI;
+            final String elementD;
+            switch (dataType) {
+                case ProductData.TYPE_UINT8:
+                    elementI = "(" + element + " & 0xff)";
+                    elementD = "((double) " + elementI + ")";
+                    break;
+                case ProductData.TYPE_UINT16:
+                    elementI = "(" + element + " & 0xffff)";
+                    elementD = "((double) " + elementI + ")";
+                    break;
+                case ProductData.TYPE_UINT32:
+                    elementI = element;
+                    elementD = "((double) (" + element + " & 0xffffffffL))";
+                    break;
+                case ProductData.TYPE_FLOAT32:
+                    elementI = "Math.round(" + element + ")";
+                    elementD = "((double) " + element + ")";
+                    break;
+                case ProductData.TYPE_FLOAT64:
+                    elementI = "((int) Math.round(" + element + "))";
+                    elementD = element;
+                    break;
+                default:
+                    elementI = element;
+                    elementD = "((double) " + element + ")";
+            }
+            if (flagSymbol) {
+                final String flagMask = lit(((SingleFlagSymbol) symbol).getFlagMask());
+                return convB("((" + elementI + " & " + flagMask + ") == " + flagMask + ")", type);
+            }
+            if (type == Term.TYPE_B) {
+                return "(" + elementD + " != 0.0)";
+            } else if (type == Term.TYPE_I) {
+                return elementI;
+            }
+            return elementD;
+        }
+
+        private String genCall(Term.Call call, int type) {
+            final Function function = call.getFunction();
+            if (function.getClass().getEnclosingClass() != DefaultNamespace.class) {
+                return null;
+            }
+            final Term[] args = call.getArgs();
+            final String key = function.getName() + "/" + args.length;
+            final int retType = function.getRetType();
+            if (retType == Term.TYPE_D) {
+                if (MATH_FUNCTIONS_D.contains(key)) {
+                    return convD("Math." + function.getName() + "(" + genArgs(args, Term.TYPE_D) + ")", type);
+                }
+                final String pattern = OTHER_FUNCTIONS_D.get(key);
+                if (pattern != null) {
+                    return convD(String.format(pattern, (Object[]) genArgList(args, Term.TYPE_D)), type);
+                }
+            } else if (retType == Term.TYPE_I) {
+                if (key.equals("min/2") || key.equals("max/2") || key.equals("abs/1")) {
+                    return convI("Math." + function.getName() + "(" + genArgs(args, Term.TYPE_I) + ")", type);
+                } else if (key.equals("sign/1")) {
+                    return convI("ExtMath.sign(" + genArgs(args, Term.TYPE_I) + ")", type);
+                }
+            } else if (retType == Term.TYPE_B) {
+                if (key.equals("feq/2") || key.equals("fneq/2")) {
+                    return convB("ExtMath." + function.getName() + "(" + genArgs(args, Term.TYPE_D) + ", "
+                                 + lit(EPS) + ")", type);
+                } else if (key.equals("feq/3") || key.equals("fneq/3")) {
+                    return convB("ExtMath." + function.getName() + "(" + genArgs(args, Term.TYPE_D) + ")", type);
+                } else if (key.equals("inf/1")) {
+                    return convB("Double.isInfinite(" + genArgs(args, Term.TYPE_D) + ")", type);
+                } else if (key.equals("nan/1")) {
+                    return convB("Double.isNaN(" + genArgs(args, Term.TYPE_D) + ")", type);
+                }
+            }
+            return null;
+        }
+
+        private String genArgs(Term[] args, int type) {
+            final StringBuilder sb = new StringBuilder();
+            for (String arg : genArgList(args, type)) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(arg);
+            }
+            return sb.toString();
+        }
+
+        private String[] genArgList(Term[] args, int type) {
+            final String[] codes = new String[args.length];
+            for (int i = 0; i < args.length; i++) {
+                codes[i] = gen(args[i], type);
+            }
+            return codes;
+        }
+
+        private String genInterpreted(Term term, int type) {
+            int index = terms.indexOf(term);
+            if (index == -1) {
+                index = terms.size();
+                terms.add(term);
+            }
+            final String termRef = "terms[" + index + "]";
+            if (type == Term.TYPE_B) {
+                return termRef + ".evalB(env)";
+            } else if (type == Term.TYPE_I) {
+                return termRef + ".evalI(env)";
+            }
+            return termRef + ".evalD(env)";
+        }
+
+        private static String convB(String code, int type) {
+            if (type == Term.TYPE_I) {
+                return "(" + code + " ? 1 : 0)";
+            } else if (type == Term.TYPE_D) {
+                return "(" + code + " ? 1.0 : 0.0)";
+            }
+            return code;
+        }
+
+        private static String convI(String code, int type) {
+            if (type == Term.TYPE_B) {
+                return "(" + code + " != 0)";
+            } else if (type == Term.TYPE_D) {
+                return "((double) " + code + ")";
+            }
+            return code;
+        }
+
+        private static String convD(String code, int type) {
+            if (type == Term.TYPE_B) {
+                return "(" + code + " != 0.0)";
+            } else if (type == Term.TYPE_I) {
+                return "((int) " + code + ")";
+            }
+            return code;
+        }
+
+        private static String lit(boolean value) {
+            return String.valueOf(value);
+        }
+
+        private static String lit(int value) {
+            return "(" + value + ")";
+        }
+
+        private static String lit(double value) {
+            if (Double.isNaN(value)) {
+                return "Double.NaN";
+            } else if (value == Double.POSITIVE_INFINITY) {
+                return "Double.POSITIVE_INFINITY";
+            } else if (value == Double.NEGATIVE_INFINITY) {
+                return "Double.NEGATIVE_INFINITY";
+            }
+            return "(" + value + ")";
+        }
+
+        private static String getArrayType(int dataType) {
+            switch (dataType) {
+                case ProductData.TYPE_INT8:
+                case ProductData.TYPE_UINT8:
+                    return "byte[]";
+                case ProductData.TYPE_INT16:
+                case ProductData.TYPE_UINT16:
+                    return "short[]";
+                case ProductData.TYPE_INT32:
+                case ProductData.TYPE_UINT32:
+                    return "int[]";
+                case ProductData.TYPE_FLOAT32:
+                    return "float[]";
+                case ProductData.TYPE_FLOAT64:
+                    return "double[]";
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, ClassFile> classFiles = new HashMap<String, ClassFile>();
+
+        MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            final ClassFile classFile = new ClassFile(className);
+            classFiles.put(className, classFile);
+            return classFile;
+        }
+    }
+
+    private static class MemoryClassLoader extends ClassLoader {
+
+        private final Map<String, ClassFile> classFiles;
+
+        MemoryClassLoader(Map<String, ClassFile> classFiles) {
+            super(CompiledTerm.class.getClassLoader());
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            final ClassFile classFile = classFiles.get(name);
+            if (classFile == null) {
+                return super.findClass(name);
+            }
+            final byte[] bytes = classFile.bytes.toByteArray();
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
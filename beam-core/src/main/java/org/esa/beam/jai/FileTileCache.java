@@ -16,6 +16,8 @@
 
 package org.esa.beam.jai;
 
+import org.esa.beam.util.logging.BeamLogManager;
+
 import javax.imageio.stream.FileImageInputStream;
 import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageInputStream;
@@ -26,12 +28,22 @@ import java.awt.*;
 import java.awt.image.*;
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
-import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A class implementing a caching mechanism for image tiles.
@@ -57,6 +69,17 @@ import java.lang.ref.WeakReference;
  * The tile capacity is not used as different images may have very different
  * tile sizes so that this metric is not a particularly meaningful control
  * of memory resource consumption in general.
+ * <p/>
+ * <p> This implementation keeps tiles in memory as long as the memory capacity
+ * permits. If it is exceeded, the least recently used tiles are spilled to raw files
+ * in the cache directory by a background thread and are read back into memory when
+ * they are requested again. A tile read back from its file keeps the file, so it can
+ * be dropped from memory again without being written. The disk usage can be limited
+ * by {@link #setDiskCapacity(long)}.
+ * <p/>
+ * <p> The cache does not serialise the access to tiles: the index is a concurrent map,
+ * the memory usage is counted in several stripes, and a tile is only locked while it is
+ * written to or read from its file.
  *
  * @see javax.media.jai.JAI
  * @see javax.media.jai.RenderedOp
@@ -64,20 +87,50 @@ import java.lang.ref.WeakReference;
  */
 public class FileTileCache implements TileCache {
 
+    private static final int NUM_MEMORY_STRIPES = 16;
+    private static final int MAX_PENDING_SPILLS = 64;
+
     private final File cacheDir;
-    private long memoryCapacity;
-    private long memoryInUse;
-    private float memoryThreshold;
-    private Comparator<Object> tileComparator;
-    private Map<TileId, CachedTileImpl> tileMap;
-    private Map<RenderedImage, String> idMap;
+    private final Map<TileId, CachedTileImpl> tileMap;
+    private final Map<RenderedImage, String> idMap;
+    private final AtomicLongArray memoryStripes;
+    private final AtomicLong diskInUse;
+    private final AtomicLong memoryPendingSpill;
+    private final AtomicLong accessClock;
+    private final AtomicLong fileCounter;
+    private final AtomicBoolean memoryControlActive;
+    private final ThreadPoolExecutor spillExecutor;
+    private volatile long memoryCapacity;
+    private volatile long diskCapacity;
+    private volatile float memoryThreshold;
+    private volatile Comparator<Object> tileComparator;
 
     public FileTileCache(File cacheDir) {
         this.cacheDir = cacheDir;
-        this.tileMap = new HashMap<TileId, CachedTileImpl>(1024);
+        this.tileMap = new ConcurrentHashMap<TileId, CachedTileImpl>(1024);
         this.idMap = new WeakHashMap<RenderedImage, String>(128);
+        this.memoryStripes = new AtomicLongArray(NUM_MEMORY_STRIPES);
+        this.diskInUse = new AtomicLong();
+        this.memoryPendingSpill = new AtomicLong();
+        this.accessClock = new AtomicLong();
+        this.fileCounter = new AtomicLong();
+        this.memoryControlActive = new AtomicBoolean();
+        // if the spill thread falls behind, the threads adding tiles spill them themselves
+        this.spillExecutor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                                                    new LinkedBlockingQueue<Runnable>(MAX_PENDING_SPILLS),
+                                                    new ThreadFactory() {
+                                                        @Override
+                                                        public Thread newThread(Runnable r) {
+                                                            Thread thread = new Thread(r, "FileTileCache-spill");
+                                                            thread.setDaemon(true);
+                                                            return thread;
+                                                        }
+                                                    },
+                                                    new ThreadPoolExecutor.CallerRunsPolicy());
+        this.spillExecutor.allowCoreThreadTimeOut(true);
 
         this.memoryCapacity = 100L * (1024 * 1024);
+        this.diskCapacity = Long.MAX_VALUE;
         this.memoryThreshold = 0.75f;
     }
 
@@ -104,29 +157,21 @@ public class FileTileCache implements TileCache {
      * @since JAI 1.1
      */
     public void add(RenderedImage owner, int tileX, int tileY, Raster tile, Object tileCacheMetric) {
-        TileId tileId = createTileId(owner, tileX, tileY);
-        synchronized (this) {
-            CachedTileImpl cachedTile = tileMap.get(tileId);
-            try {
-                if (cachedTile != null) {
-                    writeTile(cachedTile.file, tile);
-                    cachedTile.tileTimeStamp = System.currentTimeMillis();
-                } else {
-                    cachedTile = new CachedTileImpl(tileId, tile, tileCacheMetric);
-                    if (memoryInUse + cachedTile.tileSize > memoryThreshold) {
-                        memoryControl();
-                    }
-                    if (memoryInUse + cachedTile.tileSize <= memoryThreshold) {
-                        writeTile(cachedTile.file, tile);
-                        tileMap.put(tileId, cachedTile);
-                        memoryInUse += cachedTile.tileSize;
-                    }
-                }
-            } catch (IOException e) {
-                // todo - log warning
-                cachedTile.file.delete();
-            }
+        if (!isSupportedDataType(tile.getSampleModel().getDataType())) {
+            return;
+        }
+        TileId tileId = new TileId(owner, tileX, tileY);
+        CachedTileImpl cachedTile = new CachedTileImpl(tileId, isCompact(tile) ? tile : copyRaster(tile),
+                                                       tileCacheMetric);
+        if (cachedTile.tileSize > memoryCapacity) {
+            return;
         }
+        addMemoryInUse(tileId, cachedTile.tileSize);
+        CachedTileImpl oldTile = tileMap.put(tileId, cachedTile);
+        if (oldTile != null) {
+            oldTile.discard();
+        }
+        checkMemory();
     }
 
     /**
@@ -156,22 +201,17 @@ public class FileTileCache implements TileCache {
      * @param tileY The Y index of the tile in the owner's tile grid.
      */
     public Raster getTile(RenderedImage owner, int tileX, int tileY) {
-        TileId tileId = createTileId(owner, tileX, tileY);
-        Raster tile = null;
-        synchronized (this) {
-            CachedTileImpl cachedTile = tileMap.get(tileId);
-            if (cachedTile != null) {
-                try {
-                    DataBuffer dataBuffer = readTileData(cachedTile.file, cachedTile.sampleModel);
-                    if (cachedTile.writable) {
-                        tile = Raster.createWritableRaster(cachedTile.sampleModel, dataBuffer, cachedTile.location);
-                    } else {
-                        tile = Raster.createRaster(cachedTile.sampleModel, dataBuffer, cachedTile.location);
-                    }
-                    cachedTile.tileTimeStamp = System.currentTimeMillis();
-                } catch (IOException e) {
-                    // todo - log warning
-                }
+        CachedTileImpl cachedTile = tileMap.get(new TileId(owner, tileX, tileY));
+        if (cachedTile == null) {
+            return null;
+        }
+        // update the time stamp first, so that a promoted tile is not spilled again by checkMemory()
+        cachedTile.tileTimeStamp = accessClock.incrementAndGet();
+        Raster tile = cachedTile.getTile();
+        if (tile == null) {
+            tile = cachedTile.promote();
+            if (tile != null) {
+                checkMemory();
             }
         }
         return tile;
@@ -223,9 +263,13 @@ public class FileTileCache implements TileCache {
      *              to be removed.
      */
     public void removeTiles(RenderedImage owner) {
-        Point[] tileIndices = getTileIndices(owner);
-        for (Point tileIndex : tileIndices) {
-            remove(owner, tileIndex.x, tileIndex.y);
+        for (TileId tileId : tileMap.keySet()) {
+            if (tileId.owner.get() == owner) {
+                removeTile(tileId);
+            }
+        }
+        synchronized (idMap) {
+            idMap.remove(owner);
         }
     }
 
@@ -238,41 +282,80 @@ public class FileTileCache implements TileCache {
      * @param tileY The Y index of the tile in the owner's tile grid.
      */
     public void remove(RenderedImage owner, int tileX, int tileY) {
-        removeTile(createTileId(owner, tileX, tileY));
-    }
-
-    private synchronized TileId createTileId(RenderedImage owner, int tileX, int tileY) {
-        return new TileId(owner, tileX, tileY);
+        removeTile(new TileId(owner, tileX, tileY));
     }
 
     /**
      * Advises the cache that all of its tiles may be discarded.  It
      * is legal to implement this method as a no-op.
      */
-    public synchronized void flush() {
-        TileId[] tileIds;
-        tileIds = tileMap.keySet().toArray(new TileId[tileMap.size()]);
-        for (TileId tileId : tileIds) {
+    public void flush() {
+        for (TileId tileId : new ArrayList<TileId>(tileMap.keySet())) {
             removeTile(tileId);
         }
-        tileMap.clear();
-        idMap.clear();
+        synchronized (idMap) {
+            idMap.clear();
+        }
     }
 
     /**
      * Advises the cache that some of its tiles may be discarded.  It
      * is legal to implement this method as a no-op.
+     * <p/>
+     * <p> This implementation spills the least recently used tiles to disk
+     * until the memory usage falls below the memory threshold. The tiles are
+     * written asynchronously, they remain accessible until they are spilled.
      *
      * @since JAI 1.1
      */
-    public synchronized void memoryControl() {
-        CachedTileImpl[] tiles = tileMap.values().toArray(new CachedTileImpl[tileMap.size()]);
-        Arrays.sort(tiles, createTileComparator());
-        for (CachedTileImpl tile : tiles) {
-            if (memoryInUse <= memoryThreshold * memoryCapacity) {
-                break;
+    public void memoryControl() {
+        // a single thread selecting the tiles to spill is enough
+        if (!memoryControlActive.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<CachedTileImpl> residentTiles = new ArrayList<CachedTileImpl>(tileMap.size());
+            List<CachedTileImpl> spilledTiles = new ArrayList<CachedTileImpl>();
+            for (CachedTileImpl cachedTile : tileMap.values()) {
+                if (cachedTile.tileId.owner.get() == null) {
+                    // the image has been garbage collected without removing its tiles
+                    removeTile(cachedTile.tileId);
+                } else if (cachedTile.getTile() != null) {
+                    residentTiles.add(cachedTile);
+                } else {
+                    spilledTiles.add(cachedTile);
+                }
             }
-            removeTile(tile.tileId);
+            Comparator<CachedTileImpl> comparator = createTileComparator();
+
+            long memoryToRelease = getMemoryInUse() - memoryPendingSpill.get()
+                                   - (long) (memoryThreshold * memoryCapacity);
+            if (memoryToRelease > 0) {
+                Collections.sort(residentTiles, comparator);
+                for (CachedTileImpl cachedTile : residentTiles) {
+                    if (memoryToRelease <= 0) {
+                        break;
+                    }
+                    if (cachedTile.markSpillPending()) {
+                        memoryToRelease -= cachedTile.tileSize;
+                        spillExecutor.execute(new SpillTask(cachedTile));
+                    }
+                }
+            }
+
+            long diskToRelease = diskInUse.get() - diskCapacity;
+            if (diskToRelease > 0) {
+                Collections.sort(spilledTiles, comparator);
+                for (CachedTileImpl cachedTile : spilledTiles) {
+                    if (diskToRelease <= 0) {
+                        break;
+                    }
+                    diskToRelease -= cachedTile.tileSize;
+                    removeTile(cachedTile.tileId);
+                }
+            }
+        } finally {
+            memoryControlActive.set(false);
         }
     }
 
@@ -285,7 +368,7 @@ public class FileTileCache implements TileCache {
      * @param tileCapacity The new capacity, in tiles.
      * @deprecated as of JAI 1.1.
      */
-    public synchronized void setTileCapacity(int tileCapacity) {
+    public void setTileCapacity(int tileCapacity) {
     }
 
     /**
@@ -295,7 +378,7 @@ public class FileTileCache implements TileCache {
      *
      * @deprecated as of JAI 1.1.
      */
-    public synchronized int getTileCapacity() {
+    public int getTileCapacity() {
         return 0;
     }
 
@@ -308,7 +391,7 @@ public class FileTileCache implements TileCache {
      *
      * @param memoryCapacity The new capacity, in bytes.
      */
-    public synchronized void setMemoryCapacity(long memoryCapacity) {
+    public void setMemoryCapacity(long memoryCapacity) {
         long oldCapacity = this.memoryCapacity;
         this.memoryCapacity = memoryCapacity;
         if (this.memoryCapacity < oldCapacity) {
@@ -319,10 +402,57 @@ public class FileTileCache implements TileCache {
     /**
      * Returns the memory capacity in bytes.
      */
-    public synchronized long getMemoryCapacity() {
+    public long getMemoryCapacity() {
         return memoryCapacity;
     }
 
+    /**
+     * Sets the maximum number of bytes of the tiles spilled to disk.
+     * If it is exceeded, the least recently used spilled tiles are removed
+     * from the cache.
+     *
+     * @param diskCapacity The new capacity, in bytes.
+     * @since BEAM 5.0
+     */
+    public void setDiskCapacity(long diskCapacity) {
+        long oldCapacity = this.diskCapacity;
+        this.diskCapacity = diskCapacity;
+        if (this.diskCapacity < oldCapacity) {
+            memoryControl();
+        }
+    }
+
+    /**
+     * Returns the disk capacity in bytes. The default is unlimited.
+     *
+     * @since BEAM 5.0
+     */
+    public long getDiskCapacity() {
+        return diskCapacity;
+    }
+
+    /**
+     * Returns the number of bytes of the tiles held in memory.
+     *
+     * @since BEAM 5.0
+     */
+    public long getMemoryInUse() {
+        long memoryInUse = 0;
+        for (int i = 0; i < NUM_MEMORY_STRIPES; i++) {
+            memoryInUse += memoryStripes.get(i);
+        }
+        return memoryInUse;
+    }
+
+    /**
+     * Returns the number of bytes of the tiles spilled to disk.
+     *
+     * @since BEAM 5.0
+     */
+    public long getDiskInUse() {
+        return diskInUse.get();
+    }
+
     /**
      * Sets the <code>memoryThreshold</code> value to a floating
      * point number that ranges from 0.0 to 1.0.
@@ -337,7 +467,10 @@ public class FileTileCache implements TileCache {
      *                                  is less than 0.0 or greater than 1.0
      * @since JAI 1.1
      */
-    public synchronized void setMemoryThreshold(float memoryThreshold) {
+    public void setMemoryThreshold(float memoryThreshold) {
+        if (memoryThreshold < 0.0f || memoryThreshold > 1.0f) {
+            throw new IllegalArgumentException("memoryThreshold must be in the range 0.0 to 1.0");
+        }
         float oldThreshold = this.memoryThreshold;
         this.memoryThreshold = memoryThreshold;
         if (this.memoryThreshold < oldThreshold) {
@@ -351,8 +484,8 @@ public class FileTileCache implements TileCache {
      *
      * @since JAI 1.1
      */
-    public synchronized float getMemoryThreshold() {
-        return memoryCapacity;
+    public float getMemoryThreshold() {
+        return memoryThreshold;
     }
 
     /**
@@ -379,7 +512,7 @@ public class FileTileCache implements TileCache {
      *                   will be used.
      * @since JAI 1.1
      */
-    public synchronized void setTileComparator(Comparator comparator) {
+    public void setTileComparator(Comparator comparator) {
         this.tileComparator = comparator;
     }
 
@@ -391,25 +524,45 @@ public class FileTileCache implements TileCache {
      *         implementation-dependent ordering algorithm is being used.
      * @since JAI 1.1
      */
-    public synchronized Comparator getTileComparator() {
+    public Comparator getTileComparator() {
         return tileComparator;
     }
 
     /////////////////////////////////////////////////////////////////////////
     // Implementation Helpers
 
-    private synchronized void removeTile(TileId tileId) {
-        CachedTileImpl cachedTile = tileMap.get(tileId);
-        if (cachedTile != null) {
-            cachedTile.file.delete();
+    /**
+     * Waits until the tiles selected for spilling so far have been written.
+     */
+    void awaitSpills() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        spillExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    private void checkMemory() {
+        // tiles already selected for spilling are not selected again
+        if (getMemoryInUse() - memoryPendingSpill.get() > memoryCapacity) {
+            memoryControl();
         }
-        tileMap.remove(tileId);
-        RenderedImage image = tileId.owner.get();
-        if (image != null) {
-            idMap.remove(image);
+    }
+
+    private void removeTile(TileId tileId) {
+        CachedTileImpl cachedTile = tileMap.remove(tileId);
+        if (cachedTile != null) {
+            cachedTile.discard();
         }
     }
 
+    private void addMemoryInUse(TileId tileId, long delta) {
+        memoryStripes.addAndGet(tileId.hash & (NUM_MEMORY_STRIPES - 1), delta);
+    }
+
     static Point[] getTileIndices(RenderedImage owner) {
         int numXTiles = owner.getNumXTiles();
         int numYTiles = owner.getNumYTiles();
@@ -424,16 +577,14 @@ public class FileTileCache implements TileCache {
 
 
     final String getImageId(RenderedImage owner) {
-        String id = idMap.get(owner);
-        if (id == null) {
-            synchronized (this) {
-                if (id == null) {
-                    id = createImageId(owner, idMap.size());
-                    idMap.put(owner, id);
-                }
+        synchronized (idMap) {
+            String id = idMap.get(owner);
+            if (id == null) {
+                id = createImageId(owner, idMap.size());
+                idMap.put(owner, id);
             }
+            return id;
         }
-        return id;
     }
 
     static String createImageId(RenderedImage owner, int index) {
@@ -444,13 +595,51 @@ public class FileTileCache implements TileCache {
     }
 
     final Comparator<CachedTileImpl> createTileComparator() {
-        return tileComparator != null ? new TileCacheMetricComparator(tileComparator) : new DefaultTileComparator();
+        Comparator<Object> comparator = tileComparator;
+        return comparator != null ? new TileCacheMetricComparator(comparator) : new DefaultTileComparator();
+    }
+
+    private static boolean isSupportedDataType(int dataType) {
+        return dataType == DataBuffer.TYPE_BYTE
+               || dataType == DataBuffer.TYPE_USHORT
+               || dataType == DataBuffer.TYPE_SHORT
+               || dataType == DataBuffer.TYPE_INT
+               || dataType == DataBuffer.TYPE_FLOAT
+               || dataType == DataBuffer.TYPE_DOUBLE;
+    }
+
+    /**
+     * A raster is compact if its data buffer contains nothing but its own samples,
+     * so that it can be written and read back without knowing its layout.
+     */
+    static boolean isCompact(Raster tile) {
+        SampleModel sampleModel = tile.getSampleModel();
+        if (sampleModel.getWidth() != tile.getWidth() || sampleModel.getHeight() != tile.getHeight()) {
+            return false;
+        }
+        if (tile.getSampleModelTranslateX() != -tile.getMinX()
+            || tile.getSampleModelTranslateY() != -tile.getMinY()) {
+            return false;
+        }
+        for (int offset : tile.getDataBuffer().getOffsets()) {
+            if (offset != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    static DataBuffer readTileData(File file, SampleModel sampleModel) throws IOException {
+    private static Raster copyRaster(Raster tile) {
+        WritableRaster copy = tile.createCompatibleWritableRaster(tile.getMinX(), tile.getMinY(),
+                                                                  tile.getWidth(), tile.getHeight());
+        copy.setRect(tile);
+        return copy;
+    }
+
+    static DataBuffer readTileData(File file, int dataType, int size, int numBanks) throws IOException {
         ImageInputStream stream = new FileImageInputStream(file);
         try {
-            return readTile(stream, sampleModel);
+            return readTile(stream, dataType, size, numBanks);
         } finally {
             stream.close();
         }
@@ -465,57 +654,87 @@ public class FileTileCache implements TileCache {
         }
     }
 
-    static DataBuffer readTile(ImageInputStream stream, SampleModel sampleModel) throws IOException {
-        int numDataElements = sampleModel.getNumDataElements();
-        int dataType = sampleModel.getDataType();
+    static DataBuffer readTile(ImageInputStream stream, int dataType, int size, int numBanks) throws IOException {
         if (dataType == DataBuffer.TYPE_BYTE) {
-            byte[] data = new byte[numDataElements];
-            stream.readFully(data, 0, data.length);
-            return new DataBufferByte(data, data.length);
-        } else if (dataType == DataBuffer.TYPE_SHORT || dataType == DataBuffer.TYPE_USHORT) {
-            short[] data = new short[numDataElements];
-            stream.readFully(data, 0, data.length);
-            return new DataBufferShort(data, data.length);
+            DataBufferByte dataBuffer = new DataBufferByte(size, numBanks);
+            for (int bank = 0; bank < numBanks; bank++) {
+                stream.readFully(dataBuffer.getData(bank), 0, size);
+            }
+            return dataBuffer;
+        } else if (dataType == DataBuffer.TYPE_USHORT) {
+            DataBufferUShort dataBuffer = new DataBufferUShort(size, numBanks);
+            for (int bank = 0; bank < numBanks; bank++) {
+                stream.readFully(dataBuffer.getData(bank), 0, size);
+            }
+            return dataBuffer;
+        } else if (dataType == DataBuffer.TYPE_SHORT) {
+            DataBufferShort dataBuffer = new DataBufferShort(size, numBanks);
+            for (int bank = 0; bank < numBanks; bank++) {
+                stream.readFully(dataBuffer.getData(bank), 0, size);
+            }
+            return dataBuffer;
         } else if (dataType == DataBuffer.TYPE_INT) {
-            int[] data = new int[numDataElements];
-            stream.readFully(data, 0, data.length);
-            return new DataBufferInt(data, data.length);
+            DataBufferInt dataBuffer = new DataBufferInt(size, numBanks);
+            for (int bank = 0; bank < numBanks; bank++) {
+                stream.readFully(dataBuffer.getData(bank), 0, size);
+            }
+            return dataBuffer;
         } else if (dataType == DataBuffer.TYPE_FLOAT) {
-            float[] data = new float[numDataElements];
-            stream.readFully(data, 0, data.length);
-            return new DataBufferFloat(data, data.length);
+            DataBufferFloat dataBuffer = new DataBufferFloat(size, numBanks);
+            for (int bank = 0; bank < numBanks; bank++) {
+                stream.readFully(dataBuffer.getData(bank), 0, size);
+            }
+            return dataBuffer;
         } else if (dataType == DataBuffer.TYPE_DOUBLE) {
-            double[] data = new double[numDataElements];
-            stream.readFully(data, 0, data.length);
-            return new DataBufferDouble(data, data.length);
+            DataBufferDouble dataBuffer = new DataBufferDouble(size, numBanks);
+            for (int bank = 0; bank < numBanks; bank++) {
+                stream.readFully(dataBuffer.getData(bank), 0, size);
+            }
+            return dataBuffer;
         } else {
-            throw new IllegalStateException();
+            throw new IllegalStateException("Unsupported data type: " + dataType);
         }
     }
 
     static void writeTile(ImageOutputStream stream, Raster tile) throws IOException {
-        if (tile.getSampleModel().getNumDataElements() != tile.getDataBuffer().getSize()) {
-            // todo - log error
-            throw new IllegalStateException();
-        }
         DataBuffer dataBuffer = tile.getDataBuffer();
-        if (dataBuffer instanceof DataBufferByte) {
-            byte[] data = ((DataBufferByte) dataBuffer).getData();
-            stream.write(data, dataBuffer.getOffset(), dataBuffer.getSize());
-        } else if (dataBuffer instanceof DataBufferShort) {
-            short[] data = ((DataBufferShort) dataBuffer).getData();
-            stream.writeShorts(data, dataBuffer.getOffset(), dataBuffer.getSize());
-        } else if (dataBuffer instanceof DataBufferInt) {
-            int[] data = ((DataBufferInt) dataBuffer).getData();
-            stream.writeInts(data, dataBuffer.getOffset(), dataBuffer.getSize());
-        } else if (dataBuffer instanceof DataBufferFloat) {
-            float[] data = ((DataBufferFloat) dataBuffer).getData();
-            stream.writeFloats(data, dataBuffer.getOffset(), dataBuffer.getSize());
-        } else if (dataBuffer instanceof DataBufferDouble) {
-            double[] data = ((DataBufferDouble) dataBuffer).getData();
-            stream.writeDoubles(data, dataBuffer.getOffset(), dataBuffer.getSize());
-        } else {
-            throw new IllegalStateException();
+        int size = dataBuffer.getSize();
+        for (int bank = 0; bank < dataBuffer.getNumBanks(); bank++) {
+            if (dataBuffer instanceof DataBufferByte) {
+                stream.write(((DataBufferByte) dataBuffer).getData(bank), 0, size);
+            } else if (dataBuffer instanceof DataBufferUShort) {
+                stream.writeShorts(((DataBufferUShort) dataBuffer).getData(bank), 0, size);
+            } else if (dataBuffer instanceof DataBufferShort) {
+                stream.writeShorts(((DataBufferShort) dataBuffer).getData(bank), 0, size);
+            } else if (dataBuffer instanceof DataBufferInt) {
+                stream.writeInts(((DataBufferInt) dataBuffer).getData(bank), 0, size);
+            } else if (dataBuffer instanceof DataBufferFloat) {
+                stream.writeFloats(((DataBufferFloat) dataBuffer).getData(bank), 0, size);
+            } else if (dataBuffer instanceof DataBufferDouble) {
+                stream.writeDoubles(((DataBufferDouble) dataBuffer).getData(bank), 0, size);
+            } else {
+                // e.g. the data buffers of JAI, write element-wise
+                for (int i = 0; i < size; i++) {
+                    switch (dataBuffer.getDataType()) {
+                        case DataBuffer.TYPE_BYTE:
+                            stream.writeByte(dataBuffer.getElem(bank, i));
+                            break;
+                        case DataBuffer.TYPE_USHORT:
+                        case DataBuffer.TYPE_SHORT:
+                            stream.writeShort(dataBuffer.getElem(bank, i));
+                            break;
+                        case DataBuffer.TYPE_INT:
+                            stream.writeInt(dataBuffer.getElem(bank, i));
+                            break;
+                        case DataBuffer.TYPE_FLOAT:
+                            stream.writeFloat(dataBuffer.getElemFloat(bank, i));
+                            break;
+                        default:
+                            stream.writeDouble(dataBuffer.getElemDouble(bank, i));
+                            break;
+                    }
+                }
+            }
         }
     }
 
@@ -541,7 +760,9 @@ public class FileTileCache implements TileCache {
     final static class DefaultTileComparator implements Comparator<CachedTileImpl> {
 
         public int compare(CachedTileImpl o1, CachedTileImpl o2) {
-                return (int) (o1.tileTimeStamp - o2.tileTimeStamp);
+            long t1 = o1.tileTimeStamp;
+            long t2 = o2.tileTimeStamp;
+            return t1 < t2 ? -1 : (t1 > t2 ? 1 : 0);
         }
     }
 
@@ -579,26 +800,132 @@ public class FileTileCache implements TileCache {
         }
     }
 
+    private final class SpillTask implements Runnable {
+
+        private final CachedTileImpl cachedTile;
+
+        private SpillTask(CachedTileImpl cachedTile) {
+            this.cachedTile = cachedTile;
+        }
+
+        @Override
+        public void run() {
+            try {
+                cachedTile.spill();
+            } catch (IOException e) {
+                BeamLogManager.getSystemLogger().warning(
+                        String.format("Failed to spill tile to %s: %s", cachedTile.file, e.getMessage()));
+                removeTile(cachedTile.tileId);
+            }
+        }
+    }
+
+    /**
+     * A tile held in memory, on disk, or both. The state transitions are guarded by the tile itself.
+     */
     final class CachedTileImpl implements CachedTile {
 
         final TileId tileId;
         final File file;
         final Object tileCacheMetric;
         final SampleModel sampleModel;
+        final int dataType;
+        final int bankSize;
+        final int numBanks;
         final long tileSize;
         final Point location;
         final boolean writable;
-        long tileTimeStamp;
+        volatile long tileTimeStamp;
+        private volatile Raster tile;
+        private boolean onDisk;
+        private boolean spillPending;
+        private boolean discarded;
 
         CachedTileImpl(TileId tileId, Raster tile, Object tileCacheMetric) {
             this.tileId = tileId;
-            this.file = new File(cacheDir, getImageId(tileId.owner.get()) + "-" + tileId.tileX + "-" + tileId.tileY);
+            this.file = new File(cacheDir, getImageId(tileId.owner.get()) + "-" + tileId.tileX + "-" + tileId.tileY
+                                           + "-" + Long.toHexString(fileCounter.incrementAndGet()));
             this.tileCacheMetric = tileCacheMetric;
             this.sampleModel = tile.getSampleModel();
-            this.tileSize = sampleModel.getNumDataElements() * DataBuffer.getDataTypeSize(sampleModel.getTransferType());
+            DataBuffer dataBuffer = tile.getDataBuffer();
+            this.dataType = dataBuffer.getDataType();
+            this.bankSize = dataBuffer.getSize();
+            this.numBanks = dataBuffer.getNumBanks();
+            this.tileSize = (long) bankSize * numBanks * (DataBuffer.getDataTypeSize(dataType) / 8);
             this.location = tile.getBounds().getLocation();
             this.writable = tile instanceof WritableRaster;
-            this.tileTimeStamp = System.currentTimeMillis();
+            this.tileTimeStamp = accessClock.incrementAndGet();
+            this.tile = tile;
+        }
+
+        synchronized boolean markSpillPending() {
+            if (discarded || spillPending || tile == null) {
+                return false;
+            }
+            spillPending = true;
+            memoryPendingSpill.addAndGet(tileSize);
+            return true;
+        }
+
+        /**
+         * Writes the tile to its file, unless it is already there, and drops it from memory.
+         */
+        synchronized void spill() throws IOException {
+            if (spillPending) {
+                spillPending = false;
+                memoryPendingSpill.addAndGet(-tileSize);
+            }
+            if (discarded || tile == null) {
+                return;
+            }
+            if (!onDisk) {
+                writeTile(file, tile);
+                onDisk = true;
+                diskInUse.addAndGet(tileSize);
+            }
+            tile = null;
+            addMemoryInUse(tileId, -tileSize);
+        }
+
+        /**
+         * Reads a spilled tile back into memory.
+         *
+         * @return the tile, or {@code null} if it has been removed meanwhile
+         */
+        synchronized Raster promote() {
+            if (tile == null && onDisk && !discarded) {
+                try {
+                    DataBuffer dataBuffer = readTileData(file, dataType, bankSize, numBanks);
+                    if (writable) {
+                        tile = Raster.createWritableRaster(sampleModel, dataBuffer, location);
+                    } else {
+                        tile = Raster.createRaster(sampleModel, dataBuffer, location);
+                    }
+                    addMemoryInUse(tileId, tileSize);
+                } catch (IOException e) {
+                    BeamLogManager.getSystemLogger().warning(
+                            String.format("Failed to read spilled tile from %s: %s", file, e.getMessage()));
+                    return null;
+                }
+            }
+            return tile;
+        }
+
+        synchronized void discard() {
+            discarded = true;
+            if (spillPending) {
+                spillPending = false;
+                memoryPendingSpill.addAndGet(-tileSize);
+            }
+            if (tile != null) {
+                tile = null;
+                addMemoryInUse(tileId, -tileSize);
+            }
+            if (onDisk) {
+                onDisk = false;
+                diskInUse.addAndGet(-tileSize);
+                file.delete();
+            }
         }
 
         /**
@@ -610,10 +937,11 @@ public class FileTileCache implements TileCache {
         }
 
         /**
-         * Returns the cached tile.
+         * Returns the cached tile, or <code>null</code> if it
+         * has been spilled to disk.
          */
         public Raster getTile() {
-            return null;
+            return tile;
         }
 
         /**
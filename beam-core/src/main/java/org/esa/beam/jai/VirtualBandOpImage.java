@@ -19,14 +19,14 @@ package org.esa.beam.jai;
 import com.bc.ceres.core.Assert;
 import com.bc.ceres.jai.NoDataRaster;
 import com.bc.jexp.ParseException;
-import com.bc.jexp.Term;
 import org.esa.beam.framework.datamodel.Product;
 import org.esa.beam.framework.datamodel.ProductData;
 import org.esa.beam.framework.datamodel.RasterDataNode;
-import org.esa.beam.framework.dataop.barithm.BandArithmetic;
+import org.esa.beam.framework.dataop.barithm.ParsedExpression;
 import org.esa.beam.framework.dataop.barithm.RasterDataEvalEnv;
 import org.esa.beam.framework.dataop.barithm.RasterDataSymbol;
 import org.esa.beam.util.ImageUtils;
+import org.esa.beam.util.logging.BeamLogManager;
 
 import javax.media.jai.PlanarImage;
 import java.awt.Point;
@@ -38,6 +38,8 @@ import java.awt.image.WritableRaster;
 import java.text.MessageFormat;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 
 /**
@@ -55,8 +57,9 @@ public class VirtualBandOpImage extends SingleBandedOpImage {
     private final boolean mask;
     private final Product[] products;
     private final int defaultProductIndex;
-    private final Map<Point, Term> termMap = new ConcurrentHashMap<Point, Term>();
+    private final Map<Point, ParsedExpression.Evaluator> evaluatorMap = new ConcurrentHashMap<Point, ParsedExpression.Evaluator>();
 
+    private volatile ParsedExpression parsedExpression;
     private volatile NoDataRaster noDataRaster;
 
     public static VirtualBandOpImage createMask(RasterDataNode raster,
@@ -216,30 +219,43 @@ public class VirtualBandOpImage extends SingleBandedOpImage {
 
     @Override
     public synchronized void dispose() {
-        termMap.clear();
+        evaluatorMap.clear();
+        final Logger logger = BeamLogManager.getSystemLogger();
+        if (parsedExpression != null && logger.isLoggable(Level.FINE)) {
+            logger.fine(parsedExpression.toString());
+        }
     }
 
     @Override
     public Raster computeTile(int tileX, int tileY) {
-        final Term term = parseExpression();
-        if (addDataToReferredRasterDataSymbols(getTileRect(tileX, tileY), term)) {
-            termMap.put(new Point(tileX, tileY), term);
-            return super.computeTile(tileX, tileY);
-        } else {
-            if (noDataRaster == null) {
-                synchronized (this) {
-                    if (noDataRaster == null) {
-                        noDataRaster = createNoDataRaster(fillValue == null ? 0.0 : fillValue.doubleValue());
-                    }
+        final ParsedExpression parsedExpression = getParsedExpression();
+        final ParsedExpression.Evaluator evaluator = parsedExpression.acquireEvaluator();
+        try {
+            if (addDataToReferredRasterDataSymbols(getTileRect(tileX, tileY), evaluator.getSymbols())) {
+                final Point tileIndex = new Point(tileX, tileY);
+                evaluatorMap.put(tileIndex, evaluator);
+                try {
+                    return super.computeTile(tileX, tileY);
+                } finally {
+                    evaluatorMap.remove(tileIndex);
+                }
+            }
+        } finally {
+            parsedExpression.releaseEvaluator(evaluator);
+        }
+        if (noDataRaster == null) {
+            synchronized (this) {
+                if (noDataRaster == null) {
+                    noDataRaster = createNoDataRaster(fillValue == null ? 0.0 : fillValue.doubleValue());
                 }
             }
-            return noDataRaster.createTranslatedChild(tileXToX(tileX), tileYToY(tileY));
         }
+        return noDataRaster.createTranslatedChild(tileXToX(tileX), tileYToY(tileY));
     }
 
     @Override
     protected void computeRect(PlanarImage[] planarImages, WritableRaster writableRaster, Rectangle destRect) {
-        final Term term = termMap.remove(getTileIndices(destRect)[0]);
+        final ParsedExpression.Evaluator evaluator = evaluatorMap.get(getTileIndices(destRect)[0]);
         final ProductData productData = ProductData.createInstance(dataType,
                                                                    ImageUtils.getPrimitiveArray(
                                                                            writableRaster.getDataBuffer()));
@@ -255,67 +271,81 @@ public class VirtualBandOpImage extends SingleBandedOpImage {
                                                             getLevelImageSupport());
 
         if (mask) {
+            final boolean[] values = new boolean[colCount];
             for (int i = 0, k = w * y; i < pixelCount; i += colCount, k += w) {
+                evaluator.evalB(env, i, colCount, values);
                 for (int j = 0, l = x; j < colCount; j++, l++) {
-                    env.setElemIndex(i + j);
-                    productData.setElemUIntAt(k + l, term.evalB(env) ? TRUE : FALSE);
+                    productData.setElemUIntAt(k + l, values[j] ? TRUE : FALSE);
                 }
             }
         } else {
-            if (fillValue != null) {
-                final double fv = fillValue.doubleValue();
-                for (int i = 0, k = w * y; i < pixelCount; i += colCount, k += w) {
-                    for (int j = 0, l = x; j < colCount; j++, l++) {
-                        env.setElemIndex(i + j);
-                        final double v = term.evalD(env);
-                        if (!Double.isNaN(v) && !Double.isInfinite(v)) {
-                            productData.setElemDoubleAt(k + l, v);
-                        } else {
-                            productData.setElemDoubleAt(k + l, fv);
-                        }
+            final double[] values = new double[colCount];
+            final boolean replaceInvalids = fillValue != null;
+            final double fv = replaceInvalids ? fillValue.doubleValue() : 0.0;
+            for (int i = 0, k = w * y; i < pixelCount; i += colCount, k += w) {
+                evaluator.evalD(env, i, colCount, values);
+                for (int j = 0, l = x; j < colCount; j++, l++) {
+                    final double v = values[j];
+                    if (replaceInvalids && (Double.isNaN(v) || Double.isInfinite(v))) {
+                        productData.setElemDoubleAt(k + l, fv);
+                    } else {
+                        productData.setElemDoubleAt(k + l, v);
                     }
                 }
-            } else {
-                for (int i = 0, k = w * y; i < pixelCount; i += colCount, k += w) {
-                    for (int j = 0, l = x; j < colCount; j++, l++) {
-                        env.setElemIndex(i + j);
-                        productData.setElemDoubleAt(k + l, term.evalD(env));
-                    }
+            }
+        }
+    }
+
+    /**
+     * @return The expression of this image, parsed once and shared by all tiles.
+     */
+    ParsedExpression getParsedExpression() {
+        if (parsedExpression == null) {
+            synchronized (this) {
+                if (parsedExpression == null) {
+                    parsedExpression = parseExpression();
                 }
             }
         }
+        return parsedExpression;
     }
 
-    private Term parseExpression() {
-        final Term term;
+    private ParsedExpression parseExpression() {
+        final ParsedExpression parsedExpression;
         try {
-            term = BandArithmetic.parseExpression(expression, products, defaultProductIndex);
+            parsedExpression = new ParsedExpression(expression, products, defaultProductIndex);
         } catch (ParseException e) {
             throw new RuntimeException(MessageFormat.format(
                     "Could not parse expression: ''{0}''.", expression), e);
         }
         final ImageManager imageManager = ImageManager.getInstance();
-        for (final RasterDataSymbol symbol : BandArithmetic.getRefRasterDataSymbols(term)) {
+        final RasterDataSymbol[] symbols = parsedExpression.getRefRasterDataSymbols();
+        final int[] dataTypes = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            final RasterDataSymbol symbol = symbols[i];
             if (imageManager.getSourceImage(symbol.getRaster(), getLevel()) == this) {
                 throw new RuntimeException(MessageFormat.format(
                         "Invalid reference ''{0}''.", symbol.getName()));
             }
+            dataTypes[i] = getDataType(symbol);
         }
-        return term;
+        // compile once for all tiles, so that no tile computation needs to wait for the compiler
+        parsedExpression.compile(dataTypes);
+        // evaluation statistics are only logged on disposal at FINE level
+        parsedExpression.setStatisticsEnabled(BeamLogManager.getSystemLogger().isLoggable(Level.FINE));
+        return parsedExpression;
     }
 
-    private boolean addDataToReferredRasterDataSymbols(Rectangle destRect, Term term) {
-        for (final RasterDataSymbol symbol : BandArithmetic.getRefRasterDataSymbols(term)) {
+    private boolean addDataToReferredRasterDataSymbols(Rectangle destRect, RasterDataSymbol[] symbols) {
+        for (final RasterDataSymbol symbol : symbols) {
             final RenderedImage sourceImage;
-            final int dataType;
             final RasterDataNode rasterDataNode = symbol.getRaster();
             if (symbol.getSource() == RasterDataSymbol.GEOPHYSICAL) {
                 sourceImage = ImageManager.getInstance().getGeophysicalImage(rasterDataNode, getLevel());
-                dataType = rasterDataNode.getGeophysicalDataType();
             } else {
                 sourceImage = ImageManager.getInstance().getSourceImage(rasterDataNode, getLevel());
-                dataType = rasterDataNode.getDataType();
             }
+            final int dataType = getDataType(symbol);
             final Raster sourceRaster = sourceImage.getData(destRect);
             if (sourceRaster instanceof NoDataRaster) {
                 return false;
@@ -331,4 +361,13 @@ public class VirtualBandOpImage extends SingleBandedOpImage {
         return true;
     }
 
+    private static int getDataType(RasterDataSymbol symbol) {
+        final RasterDataNode rasterDataNode = symbol.getRaster();
+        if (symbol.getSource() == RasterDataSymbol.GEOPHYSICAL) {
+            return rasterDataNode.getGeophysicalDataType();
+        } else {
+            return rasterDataNode.getDataType();
+        }
+    }
+
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import com.bc.ceres.core.SubProgressMonitor;
 import com.bc.ceres.glayer.Layer;
 import com.bc.ceres.grender.support.BufferedImageRendering;
 import com.vividsolutions.jts.geom.Geometry;
+import org.esa.beam.framework.datamodel.AbstractGeoCoding;
 import org.esa.beam.framework.datamodel.Band;
 import org.esa.beam.framework.datamodel.BitmaskDef;
 import org.esa.beam.framework.datamodel.ColorPaletteDef;
@@ -34,6 +35,7 @@ import org.esa.beam.framework.datamodel.IndexCoding;
 import org.esa.beam.framework.datamodel.Mask;
 import org.esa.beam.framework.datamodel.MetadataAttribute;
 import org.esa.beam.framework.datamodel.MetadataElement;
+import org.esa.beam.framework.datamodel.PixelGeoCoding;
 import org.esa.beam.framework.datamodel.PixelPos;
 import org.esa.beam.framework.datamodel.Product;
 import org.esa.beam.framework.datamodel.ProductData;
@@ -2205,6 +2207,25 @@ public class ProductUtils {
         final int maxY = minY + destArea.height - 1;
 
         final PixelPos[] pixelCoords = new PixelPos[destArea.width * destArea.height];
+        // the array look-up of a PixelGeoCoding differs from its single look-up, so it isn't used here
+        if (sourceGeoCoding instanceof AbstractGeoCoding && !(sourceGeoCoding instanceof PixelGeoCoding)
+            && destGeoCoding instanceof AbstractGeoCoding) {
+            final int n = pixelCoords.length;
+            final float[] lats = new float[n];
+            final float[] lons = new float[n];
+            final float[] pixelX = new float[n];
+            final float[] pixelY = new float[n];
+            ((AbstractGeoCoding) destGeoCoding).getGeoPos(destArea, lats, lons);
+            ((AbstractGeoCoding) sourceGeoCoding).getPixelPos(lats, lons, pixelX, pixelY);
+            for (int i = 0; i < n; i++) {
+                if (pixelX[i] >= 0.0f && pixelX[i] < sourceWidth
+                        && pixelY[i] >= 0.0f && pixelY[i] < sourceHeight) {
+                    pixelCoords[i] = new PixelPos(pixelX[i], pixelY[i]);
+                }
+            }
+            return pixelCoords;
+        }
+
         final GeoPos geoPos = new GeoPos();
         final PixelPos pixelPos = new PixelPos();
 
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.dataio.dimap;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.stream.FileImageOutputStream;
+import java.awt.Rectangle;
+import java.io.File;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class DimapBandFileReaderTest {
+
+    private static final int W = 40;
+    private static final int H = 30;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("band", ".img");
+        // pixel values are y * W + x, written the same way as by the DimapProductWriter
+        final FileImageOutputStream outputStream = new FileImageOutputStream(file);
+        try {
+            for (int i = 0; i < W * H; i++) {
+                outputStream.writeShort(i);
+            }
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testReadFullLines() throws Exception {
+        final DimapBandFileReader reader = new DimapBandFileReader(file, DimapTileLayout.createUntiled(W, H), ProductData.TYPE_INT16);
+        try {
+            final ProductData data = ProductData.createInstance(ProductData.TYPE_INT16, W * 3);
+            reader.readRasterData(0, 5, W, 3, 1, 1, W, data, ProgressMonitor.NULL);
+            for (int i = 0; i < W * 3; i++) {
+                assertEquals(5 * W + i, data.getElemIntAt(i));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadRegion() throws Exception {
+        final DimapBandFileReader reader = new DimapBandFileReader(file, DimapTileLayout.createUntiled(W, H), ProductData.TYPE_INT16);
+        try {
+            final ProductData data = ProductData.createInstance(ProductData.TYPE_INT16, 4 * 2);
+            reader.readRasterData(10, 20, 4, 2, 1, 1, 4, data, ProgressMonitor.NULL);
+            assertEquals(20 * W + 10, data.getElemIntAt(0));
+            assertEquals(20 * W + 13, data.getElemIntAt(3));
+            assertEquals(21 * W + 10, data.getElemIntAt(4));
+            assertEquals(21 * W + 13, data.getElemIntAt(7));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadSubsampledRegion() throws Exception {
+        final DimapBandFileReader reader = new DimapBandFileReader(file, DimapTileLayout.createUntiled(W, H), ProductData.TYPE_INT16);
+        try {
+            // source region x = 1..7, y = 2..8, step 3 -> x = 1, 4, 7 and y = 2, 5, 8
+            final ProductData data = ProductData.createInstance(ProductData.TYPE_INT16, 3 * 3);
+            reader.readRasterData(1, 2, 7, 7, 3, 3, 3, data, ProgressMonitor.NULL);
+            final int[] expectedY = {2, 5, 8};
+            final int[] expectedX = {1, 4, 7};
+            for (int j = 0; j < 3; j++) {
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(expectedY[j] * W + expectedX[i], data.getElemIntAt(j * 3 + i));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        final DimapBandFileReader reader = new DimapBandFileReader(file, DimapTileLayout.createUntiled(W, H), ProductData.TYPE_INT16);
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<ProductData>> futures = new ArrayList<Future<ProductData>>();
+            for (int y = 0; y < H; y++) {
+                final int sourceY = y;
+                futures.add(executorService.submit(new Callable<ProductData>() {
+                    @Override
+                    public ProductData call() throws Exception {
+                        final ProductData data = ProductData.createInstance(ProductData.TYPE_INT16, W - 2);
+                        reader.readRasterData(2, sourceY, W - 2, 1, 1, 1, W - 2, data, ProgressMonitor.NULL);
+                        return data;
+                    }
+                }));
+            }
+            for (int y = 0; y < H; y++) {
+                final ProductData data = futures.get(y).get();
+                for (int i = 0; i < W - 2; i++) {
+                    assertEquals(y * W + 2 + i, data.getElemIntAt(i));
+                }
+            }
+        } finally {
+            executorService.shutdown();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadAfterInterruption() throws Exception {
+        final DimapBandFileReader reader = new DimapBandFileReader(file, DimapTileLayout.createUntiled(W, H), ProductData.TYPE_INT16);
+        try {
+            final ProductData data = ProductData.createInstance(ProductData.TYPE_INT16, W);
+            Thread.currentThread().interrupt();
+            try {
+                reader.readRasterData(0, 1, W, 1, 1, 1, W, data, ProgressMonitor.NULL);
+                fail("ClosedByInterruptException expected");
+            } catch (ClosedByInterruptException e) {
+                // expected
+            } finally {
+                Thread.interrupted();
+            }
+
+            reader.readRasterData(0, 2, W, 1, 1, 1, W, data, ProgressMonitor.NULL);
+            for (int i = 0; i < W; i++) {
+                assertEquals(2 * W + i, data.getElemIntAt(i));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadAfterClose() throws Exception {
+        final DimapBandFileReader reader = new DimapBandFileReader(file, DimapTileLayout.createUntiled(W, H), ProductData.TYPE_INT16);
+        reader.close();
+        try {
+            reader.readRasterData(0, 0, W, 1, 1, 1, W, ProductData.createInstance(ProductData.TYPE_INT16, W),
+                                  ProgressMonitor.NULL);
+            fail("ClosedChannelException expected");
+        } catch (ClosedChannelException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWriteAndReadTiled() throws Exception {
+        final DimapTileLayout tileLayout = new DimapTileLayout(W, H, 16, 8);
+        final DimapBandFileWriter writer = new DimapBandFileWriter(file, tileLayout, ProductData.TYPE_INT16);
+        try {
+            // write the tiles in reverse order
+            final List<Rectangle> tileRects = tileLayout.getTileRegions(new Rectangle(0, 0, W, H));
+            Collections.reverse(tileRects);
+            for (Rectangle tileRect : tileRects) {
+                final ProductData data = ProductData.createInstance(ProductData.TYPE_INT16,
+                                                                    tileRect.width * tileRect.height);
+                for (int y = 0; y < tileRect.height; y++) {
+                    for (int x = 0; x < tileRect.width; x++) {
+                        data.setElemIntAt(y * tileRect.width + x, (tileRect.y + y) * W + tileRect.x + x);
+                    }
+                }
+                writer.writeRasterData(tileRect.x, tileRect.y, tileRect.width, tileRect.height, data,
+                                       ProgressMonitor.NULL);
+            }
+        } finally {
+            writer.close();
+        }
+
+        final DimapBandFileReader reader = new DimapBandFileReader(file, tileLayout, ProductData.TYPE_INT16);
+        try {
+            // region spanning multiple tiles
+            final ProductData data = ProductData.createInstance(ProductData.TYPE_INT16, 20 * 10);
+            reader.readRasterData(10, 5, 20, 10, 1, 1, 20, data, ProgressMonitor.NULL);
+            for (int y = 0; y < 10; y++) {
+                for (int x = 0; x < 20; x++) {
+                    assertEquals((5 + y) * W + 10 + x, data.getElemIntAt(y * 20 + x));
+                }
+            }
+            // sub-sampled entire raster
+            final ProductData subsampledData = ProductData.createInstance(ProductData.TYPE_INT16, 14 * 10);
+            reader.readRasterData(0, 0, W, H, 3, 3, 14, subsampledData, ProgressMonitor.NULL);
+            for (int y = 0; y < 10; y++) {
+                for (int x = 0; x < 14; x++) {
+                    assertEquals(3 * y * W + 3 * x, subsampledData.getElemIntAt(y * 14 + x));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.esa.beam.util.BeamConstants;
 import org.esa.beam.util.io.FileUtils;
 
 import javax.imageio.stream.FileImageInputStream;
+import java.awt.Dimension;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -87,6 +88,49 @@ public class DimapProductWriterTest_WriteBandRasterData extends TestCase {
         }
     }
 
+    public void testWriteBandRasterData_Tiled() throws IOException {
+        int sceneWidth = 16;
+        int sceneHeight = 12;
+        Product product = new Product("name", BeamConstants.MERIS_FR_L1B_PRODUCT_TYPE_NAME,
+                                      sceneWidth, sceneHeight);
+        Band band = new Band("band", ProductData.TYPE_INT16, sceneWidth, sceneHeight);
+        product.addBand(band);
+
+        _productWriter.setTileSize(new Dimension(6, 5));
+        _productWriter.writeProductNodes(product, _outputFile);
+        // write the tiles bottom-up, as they might be delivered by concurrent tile computations
+        for (int tileY = 10; tileY >= 0; tileY -= 5) {
+            for (int tileX = 0; tileX < sceneWidth; tileX += 6) {
+                int tileWidth = Math.min(6, sceneWidth - tileX);
+                int tileHeight = Math.min(5, sceneHeight - tileY);
+                ProductData sourceBuffer = ProductData.createInstance(ProductData.TYPE_INT16, tileWidth * tileHeight);
+                for (int y = 0; y < tileHeight; y++) {
+                    for (int x = 0; x < tileWidth; x++) {
+                        sourceBuffer.setElemIntAt(y * tileWidth + x, (tileY + y) * sceneWidth + tileX + x);
+                    }
+                }
+                _productWriter.writeBandRasterData(band, tileX, tileY, tileWidth, tileHeight, sourceBuffer,
+                                                   ProgressMonitor.NULL);
+            }
+        }
+        _productWriter.close();
+
+        DimapProductReader productReader = new DimapProductReader(new DimapProductReaderPlugIn());
+        Product productOnDisk = productReader.readProductNodes(_outputFile, null);
+        try {
+            assertEquals(new Dimension(6, 5), productReader.getDataFileTileSize());
+            assertEquals(new Dimension(6, 5), productOnDisk.getPreferredTileSize());
+            ProductData data = ProductData.createInstance(ProductData.TYPE_INT16, sceneWidth * sceneHeight);
+            productReader.readBandRasterData(productOnDisk.getBand("band"), 0, 0, sceneWidth, sceneHeight, data,
+                                             ProgressMonitor.NULL);
+            for (int i = 0; i < sceneWidth * sceneHeight; i++) {
+                assertEquals(i, data.getElemIntAt(i));
+            }
+        } finally {
+            productOnDisk.dispose();
+        }
+    }
+
     public void testWriteBandRasterData_SourceBuffer_toSmall() {
         int sceneWidth = 16;
         int sceneHeight = 12;
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.dataio.dimap;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DimapTileLayoutTest {
+
+    @Test
+    public void testUntiled() throws Exception {
+        final DimapTileLayout layout = DimapTileLayout.createUntiled(10, 7);
+        assertFalse(layout.isTiled());
+        assertEquals(0, layout.getElemPos(0, 0));
+        assertEquals(3 * 10 + 4, layout.getElemPos(4, 3));
+        assertEquals(10 * 7 - 1, layout.getElemPos(9, 6));
+
+        final List<Rectangle> regions = layout.getTileRegions(new Rectangle(2, 1, 5, 3));
+        assertEquals(1, regions.size());
+        assertEquals(new Rectangle(2, 1, 5, 3), regions.get(0));
+        assertFalse(layout.isContiguous(regions.get(0)));
+        assertTrue(layout.isContiguous(new Rectangle(0, 1, 10, 3)));
+    }
+
+    @Test
+    public void testTiled() throws Exception {
+        // 3 x 2 tiles: widths 4, 4, 2 and heights 4, 3
+        final DimapTileLayout layout = new DimapTileLayout(10, 7, 4, 4);
+        assertTrue(layout.isTiled());
+        assertEquals(0, layout.getElemPos(0, 0));
+        assertEquals(4 * 4 - 1, layout.getElemPos(3, 3));
+        assertEquals(4 * 4, layout.getElemPos(4, 0));
+        assertEquals(2 * 4 * 4, layout.getElemPos(8, 0));
+        assertEquals(2 * 4 * 4 + 2 + 1, layout.getElemPos(9, 1));
+        assertEquals(10 * 4, layout.getElemPos(0, 4));
+        assertEquals(10 * 4 + 3 * 4 + 3 * 4 + 1, layout.getElemPos(9, 4));
+        assertEquals(10 * 7 - 1, layout.getElemPos(9, 6));
+    }
+
+    @Test
+    public void testAllPixelsAreMappedOnce() throws Exception {
+        final DimapTileLayout layout = new DimapTileLayout(10, 7, 4, 3);
+        final boolean[] mapped = new boolean[10 * 7];
+        for (int y = 0; y < 7; y++) {
+            for (int x = 0; x < 10; x++) {
+                final int pos = (int) layout.getElemPos(x, y);
+                assertFalse(mapped[pos]);
+                mapped[pos] = true;
+            }
+        }
+    }
+
+    @Test
+    public void testGetTileRegions() throws Exception {
+        final DimapTileLayout layout = new DimapTileLayout(10, 7, 4, 4);
+        final List<Rectangle> regions = layout.getTileRegions(new Rectangle(2, 3, 8, 2));
+        assertEquals(6, regions.size());
+        assertEquals(new Rectangle(2, 3, 2, 1), regions.get(0));
+        assertEquals(new Rectangle(4, 3, 4, 1), regions.get(1));
+        assertEquals(new Rectangle(8, 3, 2, 1), regions.get(2));
+        assertEquals(new Rectangle(2, 4, 2, 1), regions.get(3));
+        assertEquals(new Rectangle(4, 4, 4, 1), regions.get(4));
+        assertEquals(new Rectangle(8, 4, 2, 1), regions.get(5));
+
+        assertTrue(layout.isContiguous(new Rectangle(4, 0, 4, 4)));
+        assertTrue(layout.isContiguous(new Rectangle(8, 4, 2, 3)));
+        assertFalse(layout.isContiguous(new Rectangle(5, 0, 3, 4)));
+        assertTrue(layout.isContiguous(new Rectangle(5, 0, 3, 1)));
+    }
+}
@@ -223,6 +223,36 @@ public class CrsGeoCodingTest {
         assertEquals(srcPos, destPos);
     }
 
+    @Test
+    public void testBulkMethodsEqualSinglePositions() {
+        final Rectangle region = new Rectangle(2, 3, 4, 5);
+        final float[] lats = new float[region.width * region.height];
+        final float[] lons = new float[region.width * region.height];
+        srcGeoCoding.getGeoPos(region, lats, lons);
+
+        final float[] pixelX = new float[lats.length];
+        final float[] pixelY = new float[lats.length];
+        srcGeoCoding.getPixelPos(lats, lons, pixelX, pixelY);
+
+        final float[] lats2 = new float[lats.length];
+        final float[] lons2 = new float[lats.length];
+        srcGeoCoding.getGeoPos(pixelX, pixelY, lats2, lons2);
+
+        int i = 0;
+        for (int y = region.y; y < region.y + region.height; y++) {
+            for (int x = region.x; x < region.x + region.width; x++) {
+                final GeoPos geoPos = srcGeoCoding.getGeoPos(new PixelPos(x + 0.5f, y + 0.5f), null);
+                assertEquals(geoPos.lat, lats[i], 1.0e-6f);
+                assertEquals(geoPos.lon, lons[i], 1.0e-6f);
+                assertEquals(x + 0.5f, pixelX[i], 1.0e-4f);
+                assertEquals(y + 0.5f, pixelY[i], 1.0e-4f);
+                assertEquals(lats[i], lats2[i], 1.0e-6f);
+                assertEquals(lons[i], lons2[i], 1.0e-6f);
+                i++;
+            }
+        }
+    }
+
     private CrsGeoCoding createCrsGeoCoding(Rectangle imageBounds) throws Exception {
         AffineTransform i2m = new AffineTransform();
         final int northing = 60;
@@ -94,6 +94,51 @@ public class GeoCodingMathTransformTest extends TestCase {
         assertNotNull(transform);
     }
 
+    public void testTransformPointArrays() throws TransformException {
+        AffineTransform at = new AffineTransform();
+        at.translate(-40, +10);
+        at.scale(0.5, 0.25);
+        GeoCoding geoCoding = new AffineGeoCoding(at);
+
+        final MathTransform g2p = new GeoCodingMathTransform(geoCoding);
+        final double[] geoPts = {0, 0, -40, 10, -39.5, 10.25, -38, 11, -35, 12};
+        final double[] pixelPts = new double[geoPts.length];
+        g2p.transform(geoPts, 2, pixelPts, 0, 4);
+        assertEquals(0, pixelPts[0], 1e-5);
+        assertEquals(0, pixelPts[1], 1e-5);
+        assertEquals(1, pixelPts[2], 1e-5);
+        assertEquals(1, pixelPts[3], 1e-5);
+        assertEquals(4, pixelPts[4], 1e-5);
+        assertEquals(4, pixelPts[5], 1e-5);
+        assertEquals(10, pixelPts[6], 1e-5);
+        assertEquals(8, pixelPts[7], 1e-5);
+
+        final MathTransform p2g = g2p.inverse();
+        final double[] geoPts2 = new double[geoPts.length];
+        p2g.transform(pixelPts, 0, geoPts2, 2, 4);
+        for (int i = 2; i < geoPts.length; i++) {
+            assertEquals(geoPts[i], geoPts2[i], 1e-5);
+        }
+    }
+
+    public void testTransformOverlappingPointArrays() throws TransformException {
+        AffineTransform at = new AffineTransform();
+        at.translate(-40, +10);
+        GeoCoding geoCoding = new AffineGeoCoding(at);
+
+        // the destination points start one point behind the source points within the same array
+        final double[] pts = {1, 2, 3, 4, 5, 6, 0, 0};
+        new GeoCodingMathTransform(geoCoding).inverse().transform(pts, 0, pts, 2, 3);
+        assertEquals(1, pts[0], 1e-5);
+        assertEquals(2, pts[1], 1e-5);
+        assertEquals(-39, pts[2], 1e-5);
+        assertEquals(12, pts[3], 1e-5);
+        assertEquals(-37, pts[4], 1e-5);
+        assertEquals(14, pts[5], 1e-5);
+        assertEquals(-35, pts[6], 1e-5);
+        assertEquals(16, pts[7], 1e-5);
+    }
+
     private static class AffineGeoCoding extends AbstractGeoCoding {
 
         private final AffineTransform at;
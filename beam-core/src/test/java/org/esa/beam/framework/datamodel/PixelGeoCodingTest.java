@@ -20,6 +20,8 @@ import com.bc.ceres.core.ProgressMonitor;
 import junit.framework.TestCase;
 import org.esa.beam.framework.dataio.ProductSubsetDef;
 import org.esa.beam.framework.dataop.maptransf.Datum;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
 
 import javax.media.jai.RenderedOp;
 import javax.media.jai.operator.ConstantDescriptor;
@@ -141,6 +143,55 @@ public class PixelGeoCodingTest extends TestCase {
         assertEquals(new PixelPos(2.5f, 0.5f), pixelPos);
     }
 
+    public void testGetPixelPos_batch() throws IOException {
+        Product product = createProduct();
+        PixelGeoCoding pixelGeoCoding = new PixelGeoCoding(product.getBand("latBand"),
+                                                           product.getBand("lonBand"), null, 2, ProgressMonitor.NULL);
+        final GeoPos[] geoPos = new GeoPos[PW * PH + 1];
+        for (int y = 0; y < PH; y++) {
+            for (int x = 0; x < PW; x++) {
+                geoPos[y * PW + x] = pixelGeoCoding.getGeoPos(new PixelPos(x + 0.5f, y + 0.5f), null);
+            }
+        }
+        geoPos[PW * PH] = new GeoPos(LAT_1 + 10.0f, LON_1);
+        final PixelPos[] pixelPos = new PixelPos[geoPos.length];
+
+        pixelGeoCoding.getPixelPos(geoPos, pixelPos);
+
+        for (int i = 0; i < PW * PH; i++) {
+            assertEquals(pixelGeoCoding.getPixelPos(geoPos[i], null), pixelPos[i]);
+        }
+        assertFalse(pixelPos[PW * PH].isValid());
+    }
+
+    public void testGetPixelPos_mathTransform() throws IOException, TransformException {
+        Product product = createProduct();
+        PixelGeoCoding pixelGeoCoding = new PixelGeoCoding(product.getBand("latBand"),
+                                                           product.getBand("lonBand"), null, 2, ProgressMonitor.NULL);
+        final int numPoints = (PW - 1) * (PH - 1);
+        final double[] geoPts = new double[2 * numPoints];
+        int i = 0;
+        for (int y = 0; y < PH - 1; y++) {
+            for (int x = 0; x < PW - 1; x++) {
+                // positions between the pixel centres
+                final GeoPos geoPos = pixelGeoCoding.getGeoPos(new PixelPos(x + 0.8f, y + 0.7f), null);
+                geoPts[i++] = geoPos.lon;
+                geoPts[i++] = geoPos.lat;
+            }
+        }
+        final double[] pixelPts = new double[geoPts.length];
+
+        final MathTransform transform = new GeoCodingMathTransform(pixelGeoCoding);
+        transform.transform(geoPts, 0, pixelPts, 0, numPoints);
+
+        for (int k = 0; k < numPoints; k++) {
+            final GeoPos geoPos = new GeoPos((float) geoPts[2 * k + 1], (float) geoPts[2 * k]);
+            final PixelPos expected = pixelGeoCoding.getPixelPos(geoPos, null);
+            assertEquals(expected.x, pixelPts[2 * k], 0.0);
+            assertEquals(expected.y, pixelPts[2 * k + 1], 0.0);
+        }
+    }
+
     public void testGetGeoPos() throws IOException {
         doTestGetGeoPos();
     }
@@ -184,6 +235,51 @@ public class PixelGeoCodingTest extends TestCase {
         assertEquals(gp, pixelGeoCoding.getGeoPos(new PixelPos(PW - 0.5f, PH - 0.5f), null).toString());
     }
 
+    public void testGetGeoPos_regionWithInvalidPixel() throws IOException {
+        doTestGetGeoPos_regionWithInvalidPixel();
+    }
+
+    public void testGetGeoPos_regionWithInvalidPixel_useNoTiling() throws IOException {
+        try {
+            System.setProperty("beam.pixelGeoCoding.useTiling", "false");
+            doTestGetGeoPos_regionWithInvalidPixel();
+        } finally {
+            System.clearProperty("beam.pixelGeoCoding.useTiling");
+        }
+    }
+
+    private void doTestGetGeoPos_regionWithInvalidPixel() throws IOException {
+        Product product = createProduct();
+        // without an estimator, the pixels outside of the valid mask have no geographical position
+        product.setGeoCoding(null);
+        final int invalidX = 3;
+        final int invalidY = 2;
+        product.getBand("flagomat").getRasterData().setElemIntAt(invalidY * PW + invalidX, 1);
+        PixelGeoCoding pixelGeoCoding = new PixelGeoCoding(product.getBand("latBand"), product.getBand("lonBand"),
+                                                           "flagomat == 0", 5, ProgressMonitor.NULL);
+        final Rectangle region = new Rectangle(2, 1, 4, 3);
+        final float[] lats = new float[region.width * region.height];
+        final float[] lons = new float[region.width * region.height];
+
+        pixelGeoCoding.getGeoPos(region, lats, lons);
+
+        int i = 0;
+        for (int y = region.y; y < region.y + region.height; y++) {
+            for (int x = region.x; x < region.x + region.width; x++, i++) {
+                final GeoPos geoPos = pixelGeoCoding.getGeoPos(new PixelPos(x + 0.5f, y + 0.5f), null);
+                if (x == invalidX && y == invalidY) {
+                    assertFalse(geoPos.isValid());
+                    assertTrue(Float.isNaN(lats[i]));
+                    assertTrue(Float.isNaN(lons[i]));
+                } else {
+                    assertTrue(geoPos.isValid());
+                    assertEquals(geoPos.lat, lats[i], 0.0f);
+                    assertEquals(geoPos.lon, lons[i], 0.0f);
+                }
+            }
+        }
+    }
+
     public void testGetGeoPos_withFractionAccuracy() throws IOException {
         Product product = createProduct();
         TiePointGeoCoding tiePointGeoCoding = (TiePointGeoCoding) product.getGeoCoding();
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.datamodel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PixelPosIndexTest {
+
+    private static final int W = 150;
+    private static final int H = 130;
+
+    @Test
+    public void testFindPixelOfPixelCenters() {
+        final PixelPosIndex index = new PixelPosIndex(new SkewedSource(50.0F, 10.0F), W, H);
+        final PixelPosIndex.Match match = new PixelPosIndex.Match();
+        for (int y = 0; y < H; y += 7) {
+            for (int x = 0; x < W; x += 5) {
+                match.reset();
+                assertTrue(index.findPixel(SkewedSource.lat(50.0F, x, y), SkewedSource.lon(10.0F, x, y), match));
+                assertEquals(x, match.x);
+                assertEquals(y, match.y);
+                assertEquals(0.0F, match.delta, 1.0e-8F);
+                assertTrue(match.spacing > 0.0F);
+            }
+        }
+    }
+
+    @Test
+    public void testFindPixelBetweenPixels() {
+        final PixelPosIndex index = new PixelPosIndex(new SkewedSource(-30.0F, 100.0F), W, H);
+        final PixelPosIndex.Match match = new PixelPosIndex.Match();
+        match.reset();
+        // a little closer to (64, 63) than to (63, 63), across the block border
+        final float lat = 0.45F * SkewedSource.lat(-30.0F, 63, 63) + 0.55F * SkewedSource.lat(-30.0F, 64, 63);
+        final float lon = 0.45F * SkewedSource.lon(100.0F, 63, 63) + 0.55F * SkewedSource.lon(100.0F, 64, 63);
+        assertTrue(index.findPixel(lat, lon, match));
+        assertEquals(64, match.x);
+        assertEquals(63, match.y);
+    }
+
+    @Test
+    public void testFindPixelOutside() {
+        final PixelPosIndex index = new PixelPosIndex(new SkewedSource(50.0F, 10.0F), W, H);
+        final PixelPosIndex.Match match = new PixelPosIndex.Match();
+        match.reset();
+        assertFalse(index.findPixel(20.0F, 10.0F, match));
+        match.reset();
+        assertFalse(index.findPixel(50.0F, -170.0F, match));
+    }
+
+    @Test
+    public void testFindPixelAcrossAntimeridian() {
+        final PixelPosIndex index = new PixelPosIndex(new SkewedSource(60.0F, 179.5F), W, H);
+        final PixelPosIndex.Match match = new PixelPosIndex.Match();
+        for (int x = 0; x < W; x += 3) {
+            float lon = SkewedSource.lon(179.5F, x, 10);
+            final float lat = SkewedSource.lat(60.0F, x, 10);
+            match.reset();
+            assertTrue(index.findPixel(lat, lon, match));
+            assertEquals(x, match.x);
+            assertEquals(10, match.y);
+        }
+    }
+
+    @Test
+    public void testInvalidPixelsAreIgnored() {
+        final PixelPosIndex index = new PixelPosIndex(new SkewedSource(50.0F, 10.0F) {
+            @Override
+            public void readLatLon(int x, int y, int w, int h, float[] lats, float[] lons) {
+                super.readLatLon(x, y, w, h, lats, lons);
+                for (int i = 0; i < lats.length; i++) {
+                    if ((x + i % w) < 64) {
+                        lats[i] = Float.NaN;
+                    }
+                }
+            }
+        }, W, H);
+        final PixelPosIndex.Match match = new PixelPosIndex.Match();
+        match.reset();
+        assertTrue(index.findPixel(SkewedSource.lat(50.0F, 63, 10), SkewedSource.lon(10.0F, 63, 10), match));
+        assertEquals(64, match.x);
+        assertEquals(10, match.y);
+        match.reset();
+        assertFalse(index.findPixel(SkewedSource.lat(50.0F, 10, 10), SkewedSource.lon(10.0F, 10, 10), match));
+    }
+
+    private static class SkewedSource implements PixelPosIndex.LatLonSource {
+
+        private final float lat0;
+        private final float lon0;
+
+        private SkewedSource(float lat0, float lon0) {
+            this.lat0 = lat0;
+            this.lon0 = lon0;
+        }
+
+        @Override
+        public void readLatLon(int x, int y, int w, int h, float[] lats, float[] lons) {
+            for (int j = 0; j < h; j++) {
+                for (int i = 0; i < w; i++) {
+                    lats[j * w + i] = lat(lat0, x + i, y + j);
+                    lons[j * w + i] = lon(lon0, x + i, y + j);
+                }
+            }
+        }
+
+        static float lat(float lat0, int x, int y) {
+            return lat0 - 0.01F * y + 0.002F * x;
+        }
+
+        static float lon(float lon0, int x, int y) {
+            final float lon = lon0 + 0.015F * x + 0.003F * y;
+            return lon > 180.0F ? lon - 360.0F : lon;
+        }
+    }
+}
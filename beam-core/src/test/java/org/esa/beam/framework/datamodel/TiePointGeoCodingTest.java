@@ -22,6 +22,7 @@ import org.esa.beam.framework.dataio.ProductSubsetDef;
 import org.esa.beam.framework.dataop.maptransf.Datum;
 import org.esa.beam.util.Debug;
 
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.io.IOException;
 
@@ -163,6 +164,48 @@ public class TiePointGeoCodingTest extends TestCase {
         assertEquals(1.5, destPixelPos.getY(), 1.0e-1);
     }
 
+    public void testGetGeoPosOfRegion() {
+        final TiePointGeoCoding geoCoding = (TiePointGeoCoding) createProduct().getGeoCoding();
+        final Rectangle region = new Rectangle(PW - 4, 2, 6, 3);
+        final float[] lats = new float[region.width * region.height];
+        final float[] lons = new float[region.width * region.height];
+
+        geoCoding.getGeoPos(region, lats, lons);
+
+        int i = 0;
+        for (int y = region.y; y < region.y + region.height; y++) {
+            for (int x = region.x; x < region.x + region.width; x++) {
+                if (x < PW) {
+                    final GeoPos geoPos = geoCoding.getGeoPos(new PixelPos(x + 0.5f, y + 0.5f), null);
+                    assertEquals(geoPos.lat, lats[i], 1.0e-5f);
+                    assertEquals(geoPos.lon, lons[i], 1.0e-5f);
+                } else {
+                    assertTrue(Float.isNaN(lats[i]));
+                    assertTrue(Float.isNaN(lons[i]));
+                }
+                i++;
+            }
+        }
+    }
+
+    public void testGetPixelPosOfArrays() {
+        final TiePointGeoCoding geoCoding = (TiePointGeoCoding) createProduct().getGeoCoding();
+        final float[] lats = {LAT_1, 51.5f, LAT_2, Float.NaN};
+        final float[] lons = {LON_1, 12.5f, LON_2, LON_1};
+        final float[] pixelX = new float[lats.length];
+        final float[] pixelY = new float[lats.length];
+
+        geoCoding.getPixelPos(lats, lons, pixelX, pixelY);
+
+        for (int i = 0; i < 3; i++) {
+            final PixelPos pixelPos = geoCoding.getPixelPos(new GeoPos(lats[i], lons[i]), null);
+            assertEquals(pixelPos.x, pixelX[i], 1.0e-6f);
+            assertEquals(pixelPos.y, pixelY[i], 1.0e-6f);
+        }
+        assertTrue(Float.isNaN(pixelX[3]));
+        assertTrue(Float.isNaN(pixelY[3]));
+    }
+
     private Product createProduct() {
         Product product = new Product("test", "test", PW, PH);
 
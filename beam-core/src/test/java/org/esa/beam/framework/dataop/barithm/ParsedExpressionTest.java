@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.dataop.barithm;
+
+import com.bc.jexp.ParseException;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.*;
+
+public class ParsedExpressionTest {
+
+    private Product[] products;
+
+    @Before
+    public void setUp() throws Exception {
+        final Product product = new Product("p", "t", 3, 2);
+        product.addBand("a", ProductData.TYPE_FLOAT32);
+        product.addBand("b", ProductData.TYPE_INT16);
+        products = new Product[]{product};
+    }
+
+    @Test
+    public void testThatExpressionIsParsedOnce() throws Exception {
+        final ParsedExpression parsedExpression = new ParsedExpression("a + b", products, 0);
+        assertEquals(1, parsedExpression.getParseCount());
+
+        for (int i = 0; i < 10; i++) {
+            final ParsedExpression.Evaluator evaluator = parsedExpression.acquireEvaluator();
+            parsedExpression.releaseEvaluator(evaluator);
+        }
+        assertEquals(1, parsedExpression.getParseCount());
+        assertEquals(2, parsedExpression.getRefRasterDataSymbols().length);
+        assertEquals(1, parsedExpression.getParseCount());
+    }
+
+    @Test
+    public void testThatConcurrentEvaluatorsAreNotShared() throws Exception {
+        final ParsedExpression parsedExpression = new ParsedExpression("a + b", products, 0);
+
+        final ParsedExpression.Evaluator evaluator1 = parsedExpression.acquireEvaluator();
+        final ParsedExpression.Evaluator evaluator2 = parsedExpression.acquireEvaluator();
+        assertNotSame(evaluator1, evaluator2);
+        assertNotSame(evaluator1.getTerm(), evaluator2.getTerm());
+        assertEquals(2, parsedExpression.getParseCount());
+
+        parsedExpression.releaseEvaluator(evaluator1);
+        parsedExpression.releaseEvaluator(evaluator2);
+        parsedExpression.acquireEvaluator();
+        parsedExpression.acquireEvaluator();
+        assertEquals(2, parsedExpression.getParseCount());
+    }
+
+    @Test
+    public void testEvaluation() throws Exception {
+        final ParsedExpression parsedExpression = new ParsedExpression("a + b", products, 0);
+        parsedExpression.setStatisticsEnabled(true);
+        final ParsedExpression.Evaluator evaluator = parsedExpression.acquireEvaluator();
+        setData(evaluator, new float[]{0.5f, 1.5f, 2.5f, 3.5f, 4.5f, 5.5f}, new short[]{1, 2, 3, 4, 5, 6});
+
+        final RasterDataEvalEnv env = new RasterDataEvalEnv(0, 0, 3, 2);
+        final double[] values = new double[3];
+        evaluator.evalD(env, 3, 3, values);
+        assertEquals(7.5, values[0], 1e-10);
+        assertEquals(9.5, values[1], 1e-10);
+        assertEquals(11.5, values[2], 1e-10);
+
+        final boolean[] valuesB = new boolean[3];
+        evaluator.evalB(env, 0, 3, valuesB);
+        assertTrue(valuesB[0]);
+
+        assertEquals(0, parsedExpression.getEvalCount());
+        parsedExpression.releaseEvaluator(evaluator);
+        assertEquals(2, parsedExpression.getEvalCount());
+        assertTrue(parsedExpression.getEvalTime() > 0);
+        assertTrue(parsedExpression.getParseTime() > 0);
+    }
+
+    @Test
+    public void testThatReleasedEvaluatorsDoNotKeepData() throws Exception {
+        final ParsedExpression parsedExpression = new ParsedExpression("a + b", products, 0);
+        assertFalse(parsedExpression.isStatisticsEnabled());
+        final ParsedExpression.Evaluator evaluator = parsedExpression.acquireEvaluator();
+        setData(evaluator, new float[]{0.5f, 1.5f, 2.5f, 3.5f, 4.5f, 5.5f}, new short[]{1, 2, 3, 4, 5, 6});
+        evaluator.evalD(new RasterDataEvalEnv(0, 0, 3, 2), 0, 3, new double[3]);
+        parsedExpression.releaseEvaluator(evaluator);
+
+        for (RasterDataSymbol symbol : evaluator.getSymbols()) {
+            assertNull(symbol.getData());
+        }
+        assertEquals(0, parsedExpression.getEvalCount());
+        assertEquals(0, parsedExpression.getEvalTime());
+    }
+
+    @Test
+    public void testCompiledEvaluation() throws Exception {
+        final ParsedExpression parsedExpression = new ParsedExpression("a + b", products, 0);
+        final RasterDataSymbol[] symbols = parsedExpression.getRefRasterDataSymbols();
+        final int[] dataTypes = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            dataTypes[i] = symbols[i].getRaster().getDataType();
+        }
+        assertEquals(TermCompiler.isEnabled() && ToolProvider.getSystemJavaCompiler() != null,
+                     parsedExpression.compile(dataTypes));
+
+        final ParsedExpression.Evaluator evaluator = parsedExpression.acquireEvaluator();
+        setData(evaluator, new float[]{0.5f, 1.5f, 2.5f, 3.5f, 4.5f, 5.5f}, new short[]{1, 2, 3, 4, 5, 6});
+        final double[] values = new double[3];
+        evaluator.evalD(new RasterDataEvalEnv(0, 0, 3, 2), 3, 3, values);
+        assertEquals(7.5, values[0], 1e-10);
+        assertEquals(9.5, values[1], 1e-10);
+        assertEquals(11.5, values[2], 1e-10);
+        assertEquals(1, parsedExpression.getParseCount());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testInvalidExpression() throws Exception {
+        new ParsedExpression("a + c", products, 0);
+    }
+
+    private static void setData(ParsedExpression.Evaluator evaluator, float[] a, short[] b) {
+        for (RasterDataSymbol symbol : evaluator.getSymbols()) {
+            if (symbol.getName().equals("a")) {
+                symbol.setData(ProductData.createInstance(a));
+            } else {
+                symbol.setData(ProductData.createInstance(ProductData.TYPE_INT16, b));
+            }
+        }
+    }
+}
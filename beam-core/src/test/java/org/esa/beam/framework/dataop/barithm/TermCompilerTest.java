@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.dataop.barithm;
+
+import com.bc.jexp.EvalEnv;
+import com.bc.jexp.ParseException;
+import com.bc.jexp.Term;
+import com.bc.jexp.impl.AbstractFunction;
+import com.bc.jexp.impl.AbstractSymbol;
+import com.bc.jexp.impl.DefaultNamespace;
+import com.bc.jexp.impl.ParserImpl;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class TermCompilerTest {
+
+    private static final int W = 4;
+    private static final int H = 3;
+
+    private DefaultNamespace namespace;
+
+    @Before
+    public void setUp() throws Exception {
+        namespace = new DefaultNamespace();
+        registerSymbol("a", ProductData.TYPE_FLOAT32, new float[]{
+                -2.5f, -1.0f, 0.0f, 0.5f,
+                1.0f, 2.5f, Float.NaN, 3.7f,
+                10.0f, -0.1f, 100.0f, 7.0f
+        });
+        registerSymbol("b", ProductData.TYPE_INT16, new short[]{
+                -3, -2, -1, 0,
+                1, 2, 3, 4,
+                5, 6, 7, 8
+        });
+        registerSymbol("c", ProductData.TYPE_UINT8, new byte[]{
+                0, 1, 2, 3,
+                (byte) 128, (byte) 200, (byte) 255, 4,
+                5, 6, 7, 8
+        });
+        final Band flags = new Band("flags", ProductData.TYPE_UINT8, W, H);
+        final RasterDataSymbol land = new SingleFlagSymbol("flags.LAND", flags, 0x01);
+        final RasterDataSymbol cloud = new SingleFlagSymbol("flags.CLOUD", flags, 0x06);
+        final ProductData flagData = ProductData.createInstance(ProductData.TYPE_UINT8, new byte[]{
+                0, 1, 2, 3,
+                4, 5, 6, 7,
+                8, 9, 10, 11
+        });
+        land.setData(flagData);
+        cloud.setData(flagData);
+        namespace.registerSymbol(land);
+        namespace.registerSymbol(cloud);
+    }
+
+    @Test
+    public void testCompiledTermsEvaluateLikeInterpretedTerms() throws Exception {
+        assumeCompilerAvailable();
+        final String[] expressions = {
+                "a",
+                "b",
+                "c",
+                "a + b * c",
+                "b / 2 + b % 3",
+                "a / b",
+                "-a + 2.5",
+                "a > 0.5 && b < 4 || c == 255",
+                "!(a >= 1.0) ? b : c",
+                "flags.LAND && !flags.CLOUD",
+                "flags.LAND ? a : NaN",
+                "(b & 2) | (c ^ 1)",
+                "~b",
+                "sin(a) + cos(b) * tan(c) + atan2(a, b)",
+                "sqrt(abs(a)) + pow(a, 2) + exp10(b) + log(c + 1)",
+                "min(b, c) + max(a, b) + abs(b) + sign(b) + sign(a)",
+                "sqr(a) + round(a) + floor(a) + ceil(a) + rint(a) + deg(a) + rad(b)",
+                "ampl(a, b) + phase(a, b)",
+                "feq(a, 2.5) || fneq(b, 2, 0.1) || nan(a) || inf(a / b)",
+                "distance(a, b, c, a) + 1",
+                "X + Y * 10",
+        };
+        for (String expression : expressions) {
+            assertCompiledEqualsInterpreted(expression);
+        }
+    }
+
+    @Test
+    public void testThatUnknownFunctionsAreInterpreted() throws Exception {
+        assumeCompilerAvailable();
+        namespace.registerFunction(new AbstractFunction.D("twice", 1) {
+            @Override
+            public double evalD(EvalEnv env, Term[] args) {
+                return 2.0 * args[0].evalD(env);
+            }
+        });
+        assertCompiledEqualsInterpreted("twice(a) + b");
+        assertTrue(TermCompiler.generateSource(parse("twice(a) + b")).contains("terms[0].evalD(env)"));
+    }
+
+    @Test
+    public void testThatFullyInterpretedTermsAreNotCompiled() throws Exception {
+        namespace.registerSymbol(new AbstractSymbol.D("Z") {
+            @Override
+            public double evalD(EvalEnv env) {
+                return 42.0;
+            }
+        });
+        assertNull(TermCompiler.compile(parse("Z")));
+    }
+
+    @Test
+    public void testThatCompiledTermIsNotApplicableForOtherDataTypes() throws Exception {
+        assumeCompilerAvailable();
+        final Term term = parse("a + 1");
+        final CompiledTerm compiledTerm = TermCompiler.compile(term);
+        assertNotNull(compiledTerm);
+        assertTrue(compiledTerm.isApplicable());
+        final RasterDataSymbol symbol = BandArithmetic.getRefRasterDataSymbols(term)[0];
+        symbol.setData(new int[W * H]);
+        assertFalse(compiledTerm.isApplicable());
+    }
+
+    @Test
+    public void testCompileForDataTypesBeforeDataIsSet() throws Exception {
+        assumeCompilerAvailable();
+        namespace.registerSymbol(new RasterDataSymbol("d", new Band("d", ProductData.TYPE_INT32, W, H),
+                                                      RasterDataSymbol.RAW));
+        final Term term = parse("2 * d + b");
+        final RasterDataSymbol[] symbols = BandArithmetic.getRefRasterDataSymbols(term);
+        final int[] dataTypes = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            dataTypes[i] = symbols[i].getRaster().getDataType();
+        }
+        final CompiledTerm compiledTerm = TermCompiler.compile(term, symbols, dataTypes);
+        assertNotNull(compiledTerm);
+        assertFalse(compiledTerm.isApplicable());
+
+        ((RasterDataSymbol) namespace.resolveSymbol("d")).setData(new int[]{
+                1, 2, 3, 4,
+                5, 6, 7, 8,
+                9, 10, 11, 12
+        });
+        assertTrue(compiledTerm.isApplicable());
+        assertCompiledEqualsInterpreted("2 * d + b");
+    }
+
+    @Test
+    public void testNewInstanceEvaluatesOtherTermWithoutCompiling() throws Exception {
+        assumeCompilerAvailable();
+        final String expression = "flags.LAND ? a + b * X : c";
+        final CompiledTerm compiledTerm = TermCompiler.compile(parse(expression));
+        assertNotNull(compiledTerm);
+
+        // a copy of the term whose symbols refer to other data, like the term of another tile
+        setUp();
+        final RasterDataSymbol a = (RasterDataSymbol) namespace.resolveSymbol("a");
+        a.setData(new float[]{
+                1.0f, 2.0f, 3.0f, 4.0f,
+                5.0f, 6.0f, 7.0f, 8.0f,
+                9.0f, 10.0f, 11.0f, 12.0f
+        });
+        final Term term = parse(expression);
+        final CompiledTerm instance = compiledTerm.newInstance(term);
+        assertNotNull(instance);
+        assertSame(compiledTerm.getClass(), instance.getClass());
+        assertSame(term, instance.getTerm());
+        assertTrue(instance.isApplicable());
+
+        final RasterDataEvalEnv env = new RasterDataEvalEnv(0, 0, W, H);
+        final double[] values = new double[W];
+        for (int y = 0; y < H; y++) {
+            instance.evalD(env, y * W, W, values);
+            for (int x = 0; x < W; x++) {
+                env.setElemIndex(y * W + x);
+                assertEquals("(" + x + "," + y + ")", term.evalD(env), values[x], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testNewInstanceRequiresSameTerm() throws Exception {
+        assumeCompilerAvailable();
+        final CompiledTerm compiledTerm = TermCompiler.compile(parse("a + 1"));
+        assertNotNull(compiledTerm);
+        assertNotNull(compiledTerm.newInstance(parse("a + 1")));
+        assertNull(compiledTerm.newInstance(parse("a + 2")));
+        assertNull(compiledTerm.newInstance(parse("a - 1")));
+        // other symbols are accepted, but only applicable if their data types match
+        assertFalse(compiledTerm.newInstance(parse("b + 1")).isApplicable());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompileForDataTypesRequiresOneTypePerSymbol() throws Exception {
+        final Term term = parse("a + b");
+        TermCompiler.compile(term, BandArithmetic.getRefRasterDataSymbols(term), new int[]{ProductData.TYPE_FLOAT32});
+    }
+
+    private void assertCompiledEqualsInterpreted(String expression) throws ParseException {
+        final Term term = parse(expression);
+        final CompiledTerm compiledTerm = TermCompiler.compile(term);
+        assertNotNull(expression, compiledTerm);
+        assertTrue(expression, compiledTerm.isApplicable());
+
+        final RasterDataEvalEnv env = new RasterDataEvalEnv(0, 0, W, H);
+        final double[] valuesD = new double[W];
+        final boolean[] valuesB = new boolean[W];
+        for (int y = 0; y < H; y++) {
+            compiledTerm.evalD(env, y * W, W, valuesD);
+            compiledTerm.evalB(env, y * W, W, valuesB);
+            for (int x = 0; x < W; x++) {
+                env.setElemIndex(y * W + x);
+                final String message = expression + " at (" + x + "," + y + ")";
+                assertEquals(message, term.evalD(env), valuesD[x], 0.0);
+                assertEquals(message, term.evalB(env), valuesB[x]);
+            }
+        }
+    }
+
+    private void registerSymbol(String name, int dataType, Object elems) {
+        final Band band = new Band(name, dataType, W, H);
+        final RasterDataSymbol symbol = new RasterDataSymbol(name, band, RasterDataSymbol.RAW);
+        symbol.setData(ProductData.createInstance(dataType, elems));
+        namespace.registerSymbol(symbol);
+    }
+
+    private Term parse(String expression) throws ParseException {
+        final DefaultNamespace termNamespace = new DefaultNamespace(namespace);
+        termNamespace.registerSymbol(new AbstractSymbol.D(BandArithmetic.PIXEL_X_NAME) {
+            @Override
+            public double evalD(EvalEnv env) {
+                return ((RasterDataEvalEnv) env).getPixelX() + 0.5;
+            }
+        });
+        termNamespace.registerSymbol(new AbstractSymbol.D(BandArithmetic.PIXEL_Y_NAME) {
+            @Override
+            public double evalD(EvalEnv env) {
+                return ((RasterDataEvalEnv) env).getPixelY() + 0.5;
+            }
+        });
+        return new ParserImpl(termNamespace, false).parse(expression);
+    }
+
+    private static void assumeCompilerAvailable() {
+        assumeTrue(ToolProvider.getSystemJavaCompiler() != null);
+    }
+}
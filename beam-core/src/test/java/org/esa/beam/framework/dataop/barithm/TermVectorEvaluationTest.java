@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2011 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.dataop.barithm;
+
+import com.bc.jexp.EvalEnv;
+import com.bc.jexp.ParseException;
+import com.bc.jexp.Term;
+import com.bc.jexp.impl.AbstractSymbol;
+import com.bc.jexp.impl.DefaultNamespace;
+import com.bc.jexp.impl.ParserImpl;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TermVectorEvaluationTest {
+
+    private static final int W = 4;
+    private static final int H = 3;
+
+    private DefaultNamespace namespace;
+
+    @Before
+    public void setUp() throws Exception {
+        namespace = new DefaultNamespace();
+        registerSymbol("a", ProductData.TYPE_FLOAT32, new float[]{
+                -2.5f, -1.0f, 0.0f, 0.5f,
+                1.0f, 2.5f, Float.NaN, 3.7f,
+                10.0f, -0.1f, 100.0f, 7.0f
+        });
+        registerSymbol("b", ProductData.TYPE_INT16, new short[]{
+                -3, -2, -1, 0,
+                1, 2, 3, 4,
+                5, 6, 7, 8
+        });
+        registerSymbol("c", ProductData.TYPE_UINT8, new byte[]{
+                0, 1, 2, 3,
+                (byte) 128, (byte) 200, (byte) 255, 4,
+                5, 6, 7, 8
+        });
+        final Band flags = new Band("flags", ProductData.TYPE_UINT8, W, H);
+        final RasterDataSymbol land = new SingleFlagSymbol("flags.LAND", flags, 0x01);
+        final RasterDataSymbol cloud = new SingleFlagSymbol("flags.CLOUD", flags, 0x06);
+        final ProductData flagData = ProductData.createInstance(ProductData.TYPE_UINT8, new byte[]{
+                0, 1, 2, 3,
+                4, 5, 6, 7,
+                8, 9, 10, 11
+        });
+        land.setData(flagData);
+        cloud.setData(flagData);
+        namespace.registerSymbol(land);
+        namespace.registerSymbol(cloud);
+    }
+
+    @Test
+    public void testVectorEvaluationEqualsElementwiseEvaluation() throws Exception {
+        final String[] expressions = {
+                "a",
+                "b",
+                "c",
+                "a + b * c",
+                "b / 2 + b % 3",
+                "a / (b + 10)",
+                "-a + 2.5",
+                "-b",
+                "a > 0.5 && b < 4 || c == 255",
+                "!(a >= 1.0) ? b : c",
+                "flags.LAND && !flags.CLOUD",
+                "flags.LAND ? a : NaN",
+                "flags.LAND == flags.CLOUD",
+                "(b & 2) | (c ^ 1)",
+                "~b",
+                "b != 0 ? 12 / b : -1",
+                "b == 0 || 12 % b == 0",
+                "sin(a) + min(b, c) + max(a, b)",
+                "X + Y * 10",
+                "true ? 1 : 2.5",
+        };
+        for (String expression : expressions) {
+            assertVectorEqualsElementwise(expression);
+        }
+    }
+
+    @Test
+    public void testVectorEvaluationWithOffset() throws Exception {
+        final Term term = parse("b * 2");
+        final RasterDataEvalEnv env = new RasterDataEvalEnv(0, 0, W, H);
+        final int[] values = new int[W + 2];
+        env.setElemIndex(W);
+        term.evalI(env, values, 2, W);
+        assertArrayEquals(new int[]{0, 0, 2, 4, 6, 8}, values);
+        assertEquals(W, env.getElemIndex());
+    }
+
+    @Test
+    public void testSelectiveVectorEvaluationWithOffset() throws Exception {
+        final String[] expressions = {
+                "a > 0.5 && b < 4 || c == 255",
+                "!(a >= 1.0) ? b : c",
+                "flags.LAND ? a : NaN",
+                "b != 0 ? 12 / b : -1",
+                "b == 0 || 12 % b == 0",
+        };
+        final int offset = 3;
+        for (String expression : expressions) {
+            final Term term = parse(expression);
+            final RasterDataEvalEnv env = new RasterDataEvalEnv(0, 0, W, H);
+            final boolean[] valuesB = new boolean[offset + W];
+            final int[] valuesI = new int[offset + W];
+            final double[] valuesD = new double[offset + W];
+            for (int y = 0; y < H; y++) {
+                env.setElemIndex(y * W);
+                term.evalB(env, valuesB, offset, W);
+                term.evalI(env, valuesI, offset, W);
+                term.evalD(env, valuesD, offset, W);
+                for (int x = 0; x < W; x++) {
+                    env.setElemIndex(y * W + x);
+                    final String message = expression + " at (" + x + "," + y + ")";
+                    assertEquals(message, term.evalB(env), valuesB[offset + x]);
+                    assertEquals(message, term.evalI(env), valuesI[offset + x]);
+                    assertEquals(message, term.evalD(env), valuesD[offset + x], 0.0);
+                }
+            }
+        }
+    }
+
+    private void assertVectorEqualsElementwise(String expression) throws ParseException {
+        final Term term = parse(expression);
+        final RasterDataEvalEnv env = new RasterDataEvalEnv(0, 0, W, H);
+        final boolean[] valuesB = new boolean[W];
+        final int[] valuesI = new int[W];
+        final double[] valuesD = new double[W];
+        for (int y = 0; y < H; y++) {
+            env.setElemIndex(y * W);
+            term.evalB(env, valuesB, 0, W);
+            term.evalI(env, valuesI, 0, W);
+            term.evalD(env, valuesD, 0, W);
+            assertEquals(y * W, env.getElemIndex());
+            for (int x = 0; x < W; x++) {
+                env.setElemIndex(y * W + x);
+                final String message = expression + " at (" + x + "," + y + ")";
+                assertEquals(message, term.evalB(env), valuesB[x]);
+                assertEquals(message, term.evalI(env), valuesI[x]);
+                assertEquals(message, term.evalD(env), valuesD[x], 0.0);
+            }
+        }
+    }
+
+    private void registerSymbol(String name, int dataType, Object elems) {
+        final Band band = new Band(name, dataType, W, H);
+        final RasterDataSymbol symbol = new RasterDataSymbol(name, band, RasterDataSymbol.RAW);
+        symbol.setData(ProductData.createInstance(dataType, elems));
+        namespace.registerSymbol(symbol);
+    }
+
+    private Term parse(String expression) throws ParseException {
+        final DefaultNamespace termNamespace = new DefaultNamespace(namespace);
+        termNamespace.registerSymbol(new AbstractSymbol.D(BandArithmetic.PIXEL_X_NAME) {
+            @Override
+            public double evalD(EvalEnv env) {
+                return ((RasterDataEvalEnv) env).getPixelX() + 0.5;
+            }
+        });
+        termNamespace.registerSymbol(new AbstractSymbol.D(BandArithmetic.PIXEL_Y_NAME) {
+            @Override
+            public double evalD(EvalEnv env) {
+                return ((RasterDataEvalEnv) env).getPixelY() + 0.5;
+            }
+        });
+        return new ParserImpl(termNamespace, false).parse(expression);
+    }
+}
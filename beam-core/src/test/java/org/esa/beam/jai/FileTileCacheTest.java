@@ -24,10 +24,19 @@ import java.awt.*;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FileTileCacheTest extends TestCase {
 
+    private static final int TILE_SIZE = 16;
+    // an unsigned short tile of 16 x 16 pixels
+    private static final long TILE_BYTES = TILE_SIZE * TILE_SIZE * 2;
+
     public void testGetImageId() {
         FileTileCache cache = new FileTileCache(new File("."));
         TiledImage image1 = createImage();
@@ -72,6 +81,149 @@ public class FileTileCacheTest extends TestCase {
         }
     }
 
+    public void testSpillAndPromote() throws Exception {
+        File cacheDir = createCacheDir();
+        try {
+            FileTileCache cache = new FileTileCache(cacheDir);
+            cache.setMemoryCapacity(4 * TILE_BYTES);
+            cache.setMemoryThreshold(0.5f);
+            TiledImage image = createImage();
+
+            for (int i = 0; i < 5; i++) {
+                cache.add(image, i, 0, createTile(i));
+            }
+            cache.awaitSpills();
+            assertEquals(2 * TILE_BYTES, cache.getMemoryInUse());
+            assertEquals(3 * TILE_BYTES, cache.getDiskInUse());
+            assertEquals(3, cacheDir.list().length);
+
+            for (int i = 0; i < 5; i++) {
+                Raster tile = cache.getTile(image, i, 0);
+                assertNotNull(tile);
+                assertEquals(i * TILE_SIZE, tile.getMinX());
+                assertEquals(i + 1, tile.getSample(i * TILE_SIZE + 1, 0, 0));
+                assertEquals(i + TILE_SIZE * TILE_SIZE - 1,
+                             tile.getSample(i * TILE_SIZE + TILE_SIZE - 1, TILE_SIZE - 1, 0));
+            }
+
+            cache.removeTiles(image);
+            cache.awaitSpills();
+            assertEquals(0, cache.getMemoryInUse());
+            assertEquals(0, cache.getDiskInUse());
+            assertEquals(0, cacheDir.list().length);
+
+            // a promoted tile is the most recently used one, it must not be spilled again right away
+            for (int i = 0; i < 5; i++) {
+                cache.add(image, i, 0, createTile(i));
+            }
+            cache.awaitSpills();
+            cache.add(image, 5, 0, createTile(5));
+            cache.add(image, 6, 0, createTile(6));
+            assertEquals(4 * TILE_BYTES, cache.getMemoryInUse());
+            Raster promoted = cache.getTile(image, 0, 0);
+            cache.awaitSpills();
+            assertSame(promoted, cache.getTile(image, 0, 0));
+            cache.add(image, 7, 0, createTile(7));
+            cache.awaitSpills();
+            assertSame(promoted, cache.getTile(image, 0, 0));
+            cache.removeTiles(image);
+        } finally {
+            deleteCacheDir(cacheDir);
+        }
+    }
+
+    public void testDiskCapacity() throws Exception {
+        File cacheDir = createCacheDir();
+        try {
+            FileTileCache cache = new FileTileCache(cacheDir);
+            cache.setMemoryCapacity(2 * TILE_BYTES);
+            cache.setMemoryThreshold(1.0f);
+            cache.setDiskCapacity(2 * TILE_BYTES);
+            TiledImage image = createImage();
+
+            for (int i = 0; i < 6; i++) {
+                cache.add(image, i, 0, createTile(i));
+                cache.awaitSpills();
+            }
+            cache.memoryControl();
+            assertTrue(cache.getDiskInUse() <= 2 * TILE_BYTES);
+            assertNull(cache.getTile(image, 0, 0));
+            assertNotNull(cache.getTile(image, 5, 0));
+        } finally {
+            deleteCacheDir(cacheDir);
+        }
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        File cacheDir = createCacheDir();
+        try {
+            final FileTileCache cache = new FileTileCache(cacheDir);
+            cache.setMemoryCapacity(8 * TILE_BYTES);
+            final TiledImage image = createImage();
+            final AtomicInteger errorCount = new AtomicInteger();
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final int tileY = t;
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 8; i++) {
+                            cache.add(image, i, tileY, createTile(i));
+                        }
+                        for (int n = 0; n < 10; n++) {
+                            for (int i = 0; i < 8; i++) {
+                                Raster tile = cache.getTile(image, i, tileY);
+                                if (tile == null || tile.getSample(i * TILE_SIZE + 1, 0, 0) != i + 1) {
+                                    errorCount.incrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(0, errorCount.get());
+            cache.flush();
+            cache.awaitSpills();
+            assertEquals(0, cache.getMemoryInUse());
+            assertEquals(0, cache.getDiskInUse());
+        } finally {
+            deleteCacheDir(cacheDir);
+        }
+    }
+
+    private static WritableRaster createTile(int tileX) {
+        SampleModel sm = new PixelInterleavedSampleModel(DataBuffer.TYPE_USHORT, TILE_SIZE, TILE_SIZE, 1, TILE_SIZE,
+                                                         new int[]{0});
+        WritableRaster tile = Raster.createWritableRaster(sm, new Point(tileX * TILE_SIZE, 0));
+        for (int y = 0; y < TILE_SIZE; y++) {
+            for (int x = 0; x < TILE_SIZE; x++) {
+                tile.setSample(tileX * TILE_SIZE + x, y, 0, tileX + y * TILE_SIZE + x);
+            }
+        }
+        return tile;
+    }
+
+    private static File createCacheDir() throws IOException {
+        File cacheDir = File.createTempFile("FileTileCacheTest", "");
+        assertTrue(cacheDir.delete());
+        assertTrue(cacheDir.mkdir());
+        return cacheDir;
+    }
+
+    private static void deleteCacheDir(File cacheDir) {
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
     private static TiledImage createImage() {
         PixelInterleavedSampleModel sm = new PixelInterleavedSampleModel(DataBuffer.TYPE_USHORT, 120, 80, 1, 120, new int[]{0});
         ColorModel cm = PlanarImage.createColorModel(sm);
@@ -16,6 +16,7 @@
 
 package org.esa.beam.util;
 
+import com.bc.ceres.core.ProgressMonitor;
 import org.esa.beam.framework.datamodel.Band;
 import org.esa.beam.framework.datamodel.FlagCoding;
 import org.esa.beam.framework.datamodel.GeoCoding;
@@ -24,6 +25,7 @@ import org.esa.beam.framework.datamodel.IndexCoding;
 import org.esa.beam.framework.datamodel.Mask;
 import org.esa.beam.framework.datamodel.MetadataAttribute;
 import org.esa.beam.framework.datamodel.MetadataElement;
+import org.esa.beam.framework.datamodel.PixelGeoCoding;
 import org.esa.beam.framework.datamodel.PixelGeoCoding2;
 import org.esa.beam.framework.datamodel.PixelPos;
 import org.esa.beam.framework.datamodel.Product;
@@ -40,6 +42,7 @@ import org.opengis.referencing.operation.MathTransform;
 import javax.media.jai.operator.ConstantDescriptor;
 import java.awt.Color;
 import java.awt.Rectangle;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -388,6 +391,83 @@ public class ProductUtilsTest {
         assertNull(pixelCoords[5]);
     }
 
+    @Test
+    public void testComputeSourcePixelCoordinates_tiePointGeoCodings() {
+        final Product source = createGridProduct(10, 10, 50.0f, 10.0f);
+        final Product dest = createGridProduct(8, 8, 49.25f, 11.25f);
+        final Rectangle destArea = new Rectangle(1, 2, 6, 5);
+
+        final PixelPos[] pixelCoords = ProductUtils.computeSourcePixelCoordinates(source.getGeoCoding(), 10, 10,
+                                                                                  dest.getGeoCoding(), destArea);
+
+        assertSourcePixelCoordinates(source.getGeoCoding(), 10, 10, dest.getGeoCoding(), destArea, pixelCoords);
+    }
+
+    @Test
+    public void testComputeSourcePixelCoordinates_pixelGeoCoding() throws IOException {
+        final Product source = createGridProduct(10, 10, 50.0f, 10.0f);
+        final PixelGeoCoding sourceGeoCoding = new PixelGeoCoding(source.getBand("latBand"),
+                                                                  source.getBand("lonBand"),
+                                                                  null, 2, ProgressMonitor.NULL);
+        final Product dest = createGridProduct(8, 8, 49.2f, 11.1f);
+        final Rectangle destArea = new Rectangle(0, 0, 8, 8);
+
+        final PixelPos[] pixelCoords = ProductUtils.computeSourcePixelCoordinates(sourceGeoCoding, 10, 10,
+                                                                                  dest.getGeoCoding(), destArea);
+
+        assertSourcePixelCoordinates(sourceGeoCoding, 10, 10, dest.getGeoCoding(), destArea, pixelCoords);
+    }
+
+    private static void assertSourcePixelCoordinates(GeoCoding sourceGeoCoding, int sourceWidth, int sourceHeight,
+                                                     GeoCoding destGeoCoding, Rectangle destArea,
+                                                     PixelPos[] pixelCoords) {
+        assertEquals(destArea.width * destArea.height, pixelCoords.length);
+        int i = 0;
+        for (int y = destArea.y; y < destArea.y + destArea.height; y++) {
+            for (int x = destArea.x; x < destArea.x + destArea.width; x++) {
+                final GeoPos geoPos = destGeoCoding.getGeoPos(new PixelPos(x + 0.5f, y + 0.5f), null);
+                final PixelPos expected = sourceGeoCoding.getPixelPos(geoPos, null);
+                if (expected.x >= 0.0f && expected.x < sourceWidth && expected.y >= 0.0f && expected.y < sourceHeight) {
+                    testCoord(pixelCoords, i, expected.x, expected.y);
+                } else {
+                    assertNull(pixelCoords[i]);
+                }
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Creates a product whose latitudes decrease and whose longitudes increase by 0.5 degrees per pixel.
+     * The product has a tie-point geo-coding and the bands "latBand" and "lonBand".
+     */
+    private static Product createGridProduct(int width, int height, float lat0, float lon0) {
+        final Product product = new Product("grid", "grid", width, height);
+        final float lat1 = lat0 - 0.5f * (height - 1);
+        final float lon1 = lon0 + 0.5f * (width - 1);
+        final TiePointGrid latGrid = new TiePointGrid("lat", 2, 2, 0.5f, 0.5f, width - 1, height - 1,
+                                                      new float[]{lat0, lat0, lat1, lat1});
+        final TiePointGrid lonGrid = new TiePointGrid("lon", 2, 2, 0.5f, 0.5f, width - 1, height - 1,
+                                                      new float[]{lon0, lon1, lon0, lon1});
+        product.addTiePointGrid(latGrid);
+        product.addTiePointGrid(lonGrid);
+        product.setGeoCoding(new TiePointGeoCoding(latGrid, lonGrid));
+
+        final float[] latData = new float[width * height];
+        final float[] lonData = new float[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                latData[y * width + x] = lat0 - 0.5f * y;
+                lonData[y * width + x] = lon0 + 0.5f * x;
+            }
+        }
+        final Band latBand = product.addBand("latBand", ProductData.TYPE_FLOAT32);
+        latBand.setDataElems(latData);
+        final Band lonBand = product.addBand("lonBand", ProductData.TYPE_FLOAT32);
+        lonBand.setDataElems(lonData);
+        return product;
+    }
+
     @Test
     public void testComputeMinMaxY() {
         // call with null
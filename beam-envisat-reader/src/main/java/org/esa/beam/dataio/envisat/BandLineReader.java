@@ -116,7 +116,7 @@ public class BandLineReader {
     private RecordReader _pixelDataReader;
     private Record _pixelDataRecord;
     private Field _pixelDataField;
-    private BandLineDecoder _bandLineDecoder;
+    private volatile BandLineDecoder _bandLineDecoder;
     private int _maxRecordIndex;
     private long fieldOffset;
     private int dataFieldSampleSize;
@@ -185,7 +185,15 @@ public class BandLineReader {
     /**
      * Retrieves a decoder instance for the current band line. Creates a new instance if not done so far.
      */
-    public synchronized BandLineDecoder ensureBandLineDecoder() {
+    public BandLineDecoder ensureBandLineDecoder() {
+        final BandLineDecoder bandLineDecoder = _bandLineDecoder;
+        if (bandLineDecoder != null) {
+            return bandLineDecoder;
+        }
+        return initBandLineDecoder();
+    }
+
+    private synchronized BandLineDecoder initBandLineDecoder() {
         if (_bandLineDecoder == null) {
             _bandLineDecoder = createBandLineDecoder(getPixelDataField(), getBandInfo());
             if (_bandLineDecoder == null) {
@@ -248,6 +256,8 @@ public class BandLineReader {
      * raster data buffer <code>destRaster</code> beginning at offset <code>destRasterPos</code>.
      * <p/>
      * <p> The maximum number of samples read is therefore given by the formula <code>1+(sourceMaxX-sourceMinX)/sourceStepX</code>.
+     * <p/>
+     * <p> The method may be called concurrently, also for different lines of the same band.
      *
      * @param sourceMinX    the minimum X offset in source raster co-ordinates
      * @param sourceMaxX    the maximum X offset in source raster co-ordinates
@@ -257,12 +267,30 @@ public class BandLineReader {
      * @param destRasterPos the current line offset within the destination raster
      * @throws java.io.IOException if an I/O error occurs
      */
-    public synchronized void readRasterLine(final int sourceMinX,
-                                            final int sourceMaxX,
-                                            final int sourceStepX,
-                                            final int sourceY,
-                                            final ProductData destRaster,
-                                            final int destRasterPos) throws IOException {
+    public void readRasterLine(final int sourceMinX,
+                               final int sourceMaxX,
+                               final int sourceStepX,
+                               final int sourceY,
+                               final ProductData destRaster,
+                               final int destRasterPos) throws IOException {
+        readRasterLine(sourceMinX, sourceMaxX, sourceStepX, sourceY, destRaster, destRasterPos, null);
+    }
+
+    /**
+     * Reads a geophysical band from a measurement dataset (MDS), decoding the pixels from a block of records if given.
+     *
+     * @param block the records of the band's dataset including the line <code>sourceY</code>, may be
+     *              <code>null</code>
+     * @see #readRasterLine(int, int, int, int, ProductData, int)
+     * @since BEAM 5.0
+     */
+    void readRasterLine(final int sourceMinX,
+                        final int sourceMaxX,
+                        final int sourceStepX,
+                        final int sourceY,
+                        final ProductData destRaster,
+                        final int destRasterPos,
+                        final RecordBlock block) throws IOException {
         final ProductFile productFile = getProductFile();
         final int mappedMdsrIndex = productFile.getMappedMDSRIndex(sourceY);
         if (mappedMdsrIndex >= 0 && mappedMdsrIndex <= _maxRecordIndex) {
@@ -284,12 +312,19 @@ public class BandLineReader {
                 sMaxX = _bandInfo.getWidth() - 1 - sourceMinX;
             }
 
-            readDataFieldSegment(sourceY, sMinX, sMaxX);
+            final ProductData segment = ProductData.createInstance(getPixelDataField().getDataType(),
+                                                                   (sMaxX - sMinX + 1) * dataFieldSampleSize);
+            if (block != null) {
+                block.readFieldSegment(sourceY, fieldOffset, dataFieldSampleSize, sMinX, sMaxX, segment);
+            } else {
+                getPixelDataReader().readFieldSegment(sourceY, fieldOffset, dataFieldSampleSize, sMinX, sMaxX, segment);
+            }
 
+            // the segment starts with the sample of sMinX
             ensureBandLineDecoder().computeLine(
-                    getPixelDataField().getElems(),
-                    sMinX,
-                    sMaxX,
+                    segment.getElems(),
+                    0,
+                    sMaxX - sMinX,
                     sourceStepX,
                     destRaster.getElems(),
                     destPos,
@@ -316,10 +351,6 @@ public class BandLineReader {
     }
 
 
-    private void readDataFieldSegment(int sourceY, int minX, int maxX) throws IOException {
-        getPixelDataReader().readFieldSegment(sourceY, fieldOffset, dataFieldSampleSize, minX, maxX, getPixelDataField());
-    }
-
     private long getDataFieldOffset() {
         long offset = 0;
         Record pixelDataRecord = getPixelDataRecord();
@@ -43,8 +43,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -63,6 +65,13 @@ public class EnvisatProductReader extends AbstractProductReader {
      */
     private static final String SYSPROP_ENVISAT_USE_PIXEL_GEO_CODING = "beam.envisat.usePixelGeoCoding";
 
+    /**
+     * The capacity in MB of the cache of records read for datasets which provide several bands, 0 disables it.
+     *
+     * @since BEAM 5.0
+     */
+    private static final String SYSPROP_ENVISAT_RECORD_CACHE_SIZE = "beam.envisat.recordCacheSize";
+
     /**
      * Represents the product's file.
      */
@@ -79,6 +88,14 @@ public class EnvisatProductReader extends AbstractProductReader {
 
     private Map<Band, BandLineReader> bandlineReaderMap;
 
+    /**
+     * The record readers of datasets which provide the pixels of more than one band.
+     */
+    private Set<RecordReader> sharedRecordReaders;
+
+    // set to null by close(), which may run concurrently with the reading of band data
+    private volatile RecordBlockCache recordBlockCache;
+
     /**
      * Constructs a new ENVISAT product reader.
      *
@@ -157,6 +174,11 @@ public class EnvisatProductReader extends AbstractProductReader {
      */
     @Override
     public void close() throws IOException {
+        final RecordBlockCache cache = recordBlockCache;
+        if (cache != null) {
+            recordBlockCache = null;
+            cache.clear();
+        }
         if (productFile != null) {
             productFile.close();
             productFile = null;
@@ -177,6 +199,7 @@ public class EnvisatProductReader extends AbstractProductReader {
         final int sourceMinY = sourceOffsetY;
         final int sourceMaxX = Math.min(destBand.getRasterWidth() - 1, sourceMinX + sourceWidth - 1);
         final int sourceMaxY = sourceMinY + sourceHeight - 1;
+        final RecordBlock block = getRecordBlock(bandLineReader, sourceMinY, sourceMaxY, sourceStepY);
 
 
         pm.beginTask("Reading band '" + destBand.getName() + "'...", (sourceMaxY - sourceMinY) + 1);
@@ -191,7 +214,7 @@ public class EnvisatProductReader extends AbstractProductReader {
 
                 bandLineReader.readRasterLine(sourceMinX, sourceMaxX, sourceStepX,
                                               sourceY,
-                                              destBuffer, destArrayPos);
+                                              destBuffer, destArrayPos, block);
 
                 destArrayPos += destWidth;
                 pm.worked(sourceStepY);
@@ -203,6 +226,24 @@ public class EnvisatProductReader extends AbstractProductReader {
 
     }
 
+    /**
+     * Gets the records of the lines to be read if the band's dataset provides also other bands, whose pixels are
+     * likely to be requested for the same lines.
+     */
+    private RecordBlock getRecordBlock(BandLineReader bandLineReader, int sourceMinY, int sourceMaxY,
+                                       int sourceStepY) throws IOException {
+        // read the field once, close() may reset it meanwhile
+        final RecordBlockCache cache = recordBlockCache;
+        if (cache == null || sourceStepY != 1 || bandLineReader instanceof BandLineReader.Virtual) {
+            return null;
+        }
+        final RecordReader recordReader = bandLineReader.getPixelDataReader();
+        if (!sharedRecordReaders.contains(recordReader)) {
+            return null;
+        }
+        return cache.getBlock(recordReader, sourceMinY, sourceMaxY);
+    }
+
     private Product createProduct() throws IOException {
         Debug.assertNotNull(getProductFile());
         Debug.assertTrue(getSceneRasterWidth() > 0);
@@ -310,6 +351,19 @@ public class EnvisatProductReader extends AbstractProductReader {
 
         }
         setSpectralBandInfo(product);
+
+        final Set<RecordReader> recordReaders = new HashSet<RecordReader>();
+        sharedRecordReaders = new HashSet<RecordReader>();
+        for (BandLineReader bandLineReader : bandlineReaderMap.values()) {
+            if (!(bandLineReader instanceof BandLineReader.Virtual)
+                && !recordReaders.add(bandLineReader.getPixelDataReader())) {
+                sharedRecordReaders.add(bandLineReader.getPixelDataReader());
+            }
+        }
+        final int recordCacheSize = Integer.getInteger(SYSPROP_ENVISAT_RECORD_CACHE_SIZE, 32);
+        if (!sharedRecordReaders.isEmpty() && recordCacheSize > 0) {
+            recordBlockCache = new RecordBlockCache(recordCacheSize * 1024L * 1024L);
+        }
     }
 
     private void addDefaultMasksToProduct(Product product) {
@@ -16,9 +16,6 @@
 
 package org.esa.beam.dataio.envisat;
 
-import org.esa.beam.util.Debug;
-
-import javax.imageio.stream.ImageInputStream;
 import java.io.IOException;
 
 
@@ -64,70 +61,8 @@ class LineInterleavedRecordReader extends RecordReader {
 //        System.out.println("headerSize = " + headerSize);
     }
 
-    /**
-     * Reads the record with the given zero-based index from from the product file.
-     * <p/>
-     * <p> In order to reduce memory allocation, the method accepts an optional record argument. If this record is not
-     * null, it will be used to read in the data. If it is null, a new record will be created.
-     *
-     * @param index  the record index, must be <code>&gt;=0</code> and <code>&lt;getDSD().getDatasetOffset()</code>
-     * @param record record to be recycled, can be <code>null</code>
-     * @throws java.io.IOException if an I/O error occurs
-     * @throws java.lang.IndexOutOfBoundsException if the index is out of bounds
-     */
-    @Override
-    public Record readRecord(int index, Record record) throws IOException {
-
-        if (record == null) {
-            record = createCompatibleRecord();
-        }
-        Debug.assertTrue(record.getInfo() == getRecordInfo());
-
-        final ProductFile productFile = getProductFile();
-        if (getDSD().getDatasetType() == 'M') {
-            index = productFile.getMappedMDSRIndex(index);
-        }
-        long pos = headerSize + index * recordLength + recordOffset;
-        final ImageInputStream istream = productFile.getDataInputStream();
-        synchronized (istream) {
-            istream.seek(pos);
-            record.readFrom(istream);
-        }
-        return record;
-    }
-
-    /**
-     * Reads a segment of a single field from the record with the given zero-based index from from the product file.
-     * <p/>
-     * <p> In order to reduce memory allocation, the method accepts an mandantory record argument.
-     * It will be used to read in the data.
-     *
-     * @param sourceY the record index, must be <code>&gt;=0</code> and <code>&lt;getDSD().getDatasetOffset()</code>
-     * @param fieldOffset the offset in byte this field has in its containing record
-     * @param dataFieldSampleSize the sample rate of the data field element
-     * @param minX the first element of the field to read
-     * @param maxX the last element of the field to be read
-     * @param field the field into which the data is read
-     *
-     * @throws java.io.IOException if an I/O error occurs
-     * @throws java.lang.IndexOutOfBoundsException if the index is out of bounds
-     */
     @Override
-    public void readFieldSegment(int sourceY, long fieldOffset, int dataFieldSampleSize, int minX, int maxX, Field field) throws IOException {
-        if (getDSD().getDatasetType() == 'M') {
-            sourceY = getProductFile().getMappedMDSRIndex(sourceY);
-        }
-        long pos = headerSize +
-                    sourceY * recordLength +
-                    recordOffset +
-                    fieldOffset +
-                    minX * dataFieldSampleSize * field.getData().getElemSize();
-//        System.out.println("sourceY = " + sourceY+"; pos = " + pos);
-        final ImageInputStream istream = getProductFile().getDataInputStream();
-        synchronized (istream) {
-            istream.seek(pos);
-            field.getData().readFrom(minX * dataFieldSampleSize, (maxX-minX+1) * dataFieldSampleSize, istream);
-        }
+    protected long getRecordPos(int index) {
+        return headerSize + index * recordLength + recordOffset;
     }
-    
 }
@@ -30,8 +30,12 @@ import org.esa.beam.util.logging.BeamLogManager;
 import javax.imageio.stream.FileImageInputStream;
 import javax.imageio.stream.ImageInputStream;
 import java.awt.Color;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
@@ -67,6 +71,12 @@ public abstract class ProductFile {
      */
     private final ImageInputStream dataInputStream;
 
+    /**
+     * A channel used for positional reads of the product file, <code>null</code> if the data is not read from an
+     * uncompressed file
+     */
+    private final FileChannel dataChannel;
+
     /**
      * The logger
      */
@@ -181,9 +191,18 @@ public abstract class ProductFile {
 
         this.file = file;
         this.dataInputStream = dataInputStream;
+        this.dataChannel = createDataChannel(file, dataInputStream);
         this.lineInterleaved = lineInterleaved;
         this.logger = BeamLogManager.getSystemLogger();
-        init();
+        boolean initialized = false;
+        try {
+            init();
+            initialized = true;
+        } finally {
+            if (!initialized && dataChannel != null) {
+                dataChannel.close();
+            }
+        }
     }
     /*
      * Opens an ENVISAT product file with the given file path and returns an
@@ -460,6 +479,81 @@ public abstract class ProductFile {
         return dataInputStream;
     }
 
+    /**
+     * Reads data elements from the product file at the given position.
+     * <p/>
+     * <p> If the product file is an uncompressed file, the data is read by positional reads which don't affect the
+     * data input stream, so that this method can be called concurrently for different parts of the file.
+     * Otherwise the reads are serialised on the data input stream.
+     *
+     * @param pos      the position in bytes within the product file
+     * @param data     the buffer receiving the data elements
+     * @param numElems the number of elements to read
+     * @throws java.io.IOException if an I/O error occurs
+     * @since BEAM 5.0
+     */
+    public void readData(long pos, ProductData data, int numElems) throws IOException {
+        if (dataChannel == null) {
+            synchronized (dataInputStream) {
+                dataInputStream.seek(pos);
+                data.readFrom(0, numElems, dataInputStream);
+            }
+            return;
+        }
+        final byte[] bytes = new byte[numElems * data.getElemSize()];
+        readBytes(pos, bytes, 0, bytes.length);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.order(dataInputStream.getByteOrder());
+        copyElems(buffer, data, numElems);
+    }
+
+    /**
+     * Reads bytes from the product file at the given position. Like {@link #readData(long, ProductData, int)}, this
+     * method can be called concurrently if the product file is an uncompressed file.
+     *
+     * @param pos    the position in bytes within the product file
+     * @param bytes  the buffer receiving the bytes
+     * @param offset the offset within the buffer
+     * @param length the number of bytes to read
+     * @throws java.io.IOException if an I/O error occurs
+     * @since BEAM 5.0
+     */
+    public void readBytes(long pos, byte[] bytes, int offset, int length) throws IOException {
+        if (dataChannel == null) {
+            synchronized (dataInputStream) {
+                dataInputStream.seek(pos);
+                dataInputStream.readFully(bytes, offset, length);
+            }
+            return;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining()) {
+            if (dataChannel.read(buffer, pos + (buffer.position() - offset)) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Copies data elements from the current position of a byte buffer, using the buffer's byte order.
+     */
+    static void copyElems(ByteBuffer buffer, ProductData data, int numElems) {
+        final Object elems = data.getElems();
+        if (elems instanceof byte[]) {
+            buffer.get((byte[]) elems, 0, numElems);
+        } else if (elems instanceof short[]) {
+            buffer.asShortBuffer().get((short[]) elems, 0, numElems);
+        } else if (elems instanceof int[]) {
+            buffer.asIntBuffer().get((int[]) elems, 0, numElems);
+        } else if (elems instanceof float[]) {
+            buffer.asFloatBuffer().get((float[]) elems, 0, numElems);
+        } else if (elems instanceof double[]) {
+            buffer.asDoubleBuffer().get((double[]) elems, 0, numElems);
+        } else {
+            throw new IllegalArgumentException("unsupported data type: " + data.getTypeString()); /*I18N*/
+        }
+    }
+
     /**
      * @return the sensing-start time as a <code>Date</code> object.
      */
@@ -754,6 +848,9 @@ public abstract class ProductFile {
      * @throws java.io.IOException if an I/O error occurs
      */
     public void close() throws IOException {
+        if (dataChannel != null) {
+            dataChannel.close();
+        }
         synchronized (dataInputStream) {
             dataInputStream.close();
         }
@@ -977,6 +1074,20 @@ public abstract class ProductFile {
     }
 
 
+    /**
+     * Opens a channel for positional reads of the product file, if the data input stream reads the file directly.
+     *
+     * @return the channel, or <code>null</code> if data has to be read through the data input stream
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private static FileChannel createDataChannel(File file, ImageInputStream dataInputStream) throws IOException {
+        // compressed products are read through a cache stream, they cannot be read from the file directly
+        if (file != null && dataInputStream instanceof FileImageInputStream && file.isFile()) {
+            return new RandomAccessFile(file, "r").getChannel();
+        }
+        return null;
+    }
+
     /**
      * Initializes a product file object from the seekable data input stream.
      * <p/>
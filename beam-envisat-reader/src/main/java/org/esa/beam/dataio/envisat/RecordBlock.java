@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.dataio.envisat;
+
+import org.esa.beam.framework.datamodel.ProductData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The raw records of a range of lines of a dataset. The pixels of all bands stored in the dataset can be decoded
+ * from the block, so that the records are read only once for all of them.
+ *
+ * @see RecordReader#readRecordBlock(int, int)
+ * @since BEAM 5.0
+ */
+class RecordBlock {
+
+    private final RecordReader recordReader;
+    private final int minY;
+    private final int maxY;
+    private final byte[] bytes;
+    private final ByteOrder byteOrder;
+
+    RecordBlock(RecordReader recordReader, int minY, int maxY, byte[] bytes, ByteOrder byteOrder) {
+        this.recordReader = recordReader;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.bytes = bytes;
+        this.byteOrder = byteOrder;
+    }
+
+    RecordReader getRecordReader() {
+        return recordReader;
+    }
+
+    int getMinY() {
+        return minY;
+    }
+
+    int getMaxY() {
+        return maxY;
+    }
+
+    int getSizeInBytes() {
+        return bytes.length;
+    }
+
+    /**
+     * Decodes a segment of a single field, like
+     * {@link RecordReader#readFieldSegment(int, long, int, int, int, ProductData)} does.
+     *
+     * @param sourceY             the line index, must be within the lines of this block
+     * @param fieldOffset         the offset in byte this field has in its containing record
+     * @param dataFieldSampleSize the sample rate of the data field element
+     * @param minX                the first element of the field to read
+     * @param maxX                the last element of the field to be read
+     * @param segment             the buffer into which the data is read, must have the data type of the field
+     */
+    void readFieldSegment(int sourceY, long fieldOffset, int dataFieldSampleSize, int minX, int maxX,
+                          ProductData segment) {
+        final int numElems = (maxX - minX + 1) * dataFieldSampleSize;
+        final int offset = (int) ((long) (sourceY - minY) * recordReader.getDSD().getRecordSize()
+                                  + fieldOffset
+                                  + (long) minX * dataFieldSampleSize * segment.getElemSize());
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, numElems * segment.getElemSize());
+        buffer.order(byteOrder);
+        ProductFile.copyElems(buffer, segment, numElems);
+    }
+}
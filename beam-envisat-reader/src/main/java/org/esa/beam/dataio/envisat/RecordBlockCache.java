@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.dataio.envisat;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches blocks of records of datasets providing the pixels of several bands.
+ * <p/>
+ * Tiles of the bands stored in the same dataset are usually requested for the same lines, e.g. by operators
+ * computing tile stacks or by the writer. The first request reads the records of the lines, the requests for the
+ * other bands decode their pixels from the cached block. The least recently used blocks are dropped when the cache
+ * exceeds its capacity.
+ *
+ * @since BEAM 5.0
+ */
+class RecordBlockCache {
+
+    private final long maxSizeInBytes;
+    private final Map<BlockKey, RecordBlock> blocks;
+    private long sizeInBytes;
+
+    RecordBlockCache(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.blocks = new LinkedHashMap<BlockKey, RecordBlock>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the block of records of the given lines, reads it if it is not cached. Blocks are only shared by
+     * requests for exactly the same lines.
+     *
+     * @param recordReader the reader of the dataset
+     * @param minY         the first line
+     * @param maxY         the last line
+     * @return the block, or <code>null</code> if the block would exceed the capacity of the cache. In this case
+     *         the lines should be read directly.
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    RecordBlock getBlock(RecordReader recordReader, int minY, int maxY) throws IOException {
+        // check before reading, a block which cannot be cached would only be read in addition to the lines
+        if ((long) (maxY - minY + 1) * recordReader.getDSD().getRecordSize() > maxSizeInBytes) {
+            return null;
+        }
+        final BlockKey key = new BlockKey(recordReader, minY, maxY);
+        synchronized (this) {
+            final RecordBlock block = blocks.get(key);
+            if (block != null) {
+                return block;
+            }
+        }
+        // don't block the cache while reading, concurrent requests for the same block read it twice
+        final RecordBlock block = recordReader.readRecordBlock(minY, maxY);
+        synchronized (this) {
+            final RecordBlock oldBlock = blocks.put(key, block);
+            if (oldBlock != null) {
+                sizeInBytes -= oldBlock.getSizeInBytes();
+            }
+            sizeInBytes += block.getSizeInBytes();
+            final Iterator<RecordBlock> iterator = blocks.values().iterator();
+            while (sizeInBytes > maxSizeInBytes) {
+                sizeInBytes -= iterator.next().getSizeInBytes();
+                iterator.remove();
+            }
+        }
+        return block;
+    }
+
+    synchronized int getBlockCount() {
+        return blocks.size();
+    }
+
+    synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    synchronized void clear() {
+        blocks.clear();
+        sizeInBytes = 0;
+    }
+
+    private static final class BlockKey {
+
+        private final RecordReader recordReader;
+        private final int minY;
+        private final int maxY;
+
+        private BlockKey(RecordReader recordReader, int minY, int maxY) {
+            this.recordReader = recordReader;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BlockKey)) {
+                return false;
+            }
+            final BlockKey other = (BlockKey) o;
+            return recordReader == other.recordReader && minY == other.minY && maxY == other.maxY;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(recordReader) + minY) + maxY;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.esa.beam.dataio.envisat;
 
+import org.esa.beam.framework.datamodel.ProductData;
 import org.esa.beam.util.Debug;
 
 import javax.imageio.stream.ImageInputStream;
@@ -164,7 +165,7 @@ public class RecordReader {
         if (_dsd.getDatasetType() == 'M') {
             index = _productFile.getMappedMDSRIndex(index);
         }
-        final long pos = _dsd.getDatasetOffset() + (index * _dsd.getRecordSize());
+        final long pos = getRecordPos(index);
         final ImageInputStream istream = _productFile.getDataInputStream();
         synchronized (istream) {
             istream.seek(pos);
@@ -204,8 +205,7 @@ public class RecordReader {
         if (_dsd.getDatasetType() == 'M') {
             sourceY = _productFile.getMappedMDSRIndex(sourceY);
         }
-        final long pos = _dsd.getDatasetOffset() + 
-        					sourceY * _dsd.getRecordSize() + 
+        final long pos = getRecordPos(sourceY) +
         					fieldOffset + 
         					minX * dataFieldSampleSize * field.getData().getElemSize();
         final ImageInputStream istream = _productFile.getDataInputStream();
@@ -216,5 +216,87 @@ public class RecordReader {
         
     }
 
+    /**
+     * Reads a segment of a single field from the record with the given zero-based index from from the product file.
+     * <p/>
+     * <p> Other than {@link #readFieldSegment(int, long, int, int, int, Field)}, this method reads into a buffer
+     * which only holds the segment, starting with the element <code>minX * dataFieldSampleSize</code> of the field.
+     * It doesn't modify any shared state, and product files which are uncompressed files are read without locking,
+     * so that the method can be called concurrently.
+     *
+     * @param sourceY the record index, must be <code>&gt;=0</code> and <code>&lt;getDSD().getDatasetOffset()</code>
+     * @param fieldOffset the offset in byte this field has in its containing record
+     * @param dataFieldSampleSize the sample rate of the data field element
+     * @param minX the first element of the field to read
+     * @param maxX the last element of the field to be read
+     * @param segment the buffer into which the data is read, must have the data type of the field
+     *
+     * @throws java.io.IOException if an I/O error occurs
+     * @throws java.lang.IndexOutOfBoundsException
+     *                             if the index is out of bounds
+     * @since BEAM 5.0
+     */
+    public void readFieldSegment(int sourceY, long fieldOffset, int dataFieldSampleSize, int minX, int maxX,
+                                 ProductData segment) throws IOException {
+        if (_dsd.getDatasetType() == 'M') {
+            sourceY = _productFile.getMappedMDSRIndex(sourceY);
+        }
+        final long pos = getRecordPos(sourceY) +
+                         fieldOffset +
+                         (long) minX * dataFieldSampleSize * segment.getElemSize();
+        _productFile.readData(pos, segment, (maxX - minX + 1) * dataFieldSampleSize);
+    }
+
+    /**
+     * Reads the records of the lines <code>minY</code> to <code>maxY</code> inclusively as raw bytes. Records which
+     * are stored one after the other are read at once. The records of missing lines are left empty.
+     *
+     * @param minY the first line
+     * @param maxY the last line
+     * @return the block of records
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    RecordBlock readRecordBlock(int minY, int maxY) throws IOException {
+        final int recordSize = _dsd.getRecordSize();
+        final int maxRecordIndex = _dsd.getNumRecords() - 1;
+        final byte[] bytes = new byte[(maxY - minY + 1) * recordSize];
+        int y = minY;
+        while (y <= maxY) {
+            final int index = getMappedRecordIndex(y);
+            if (index < 0 || index > maxRecordIndex) {
+                y++;
+                continue;
+            }
+            final long pos = getRecordPos(index);
+            int numRecords = 1;
+            while (y + numRecords <= maxY) {
+                final int nextIndex = getMappedRecordIndex(y + numRecords);
+                if (nextIndex < 0 || nextIndex > maxRecordIndex
+                    || getRecordPos(nextIndex) != pos + (long) numRecords * recordSize) {
+                    break;
+                }
+                numRecords++;
+            }
+            _productFile.readBytes(pos, bytes, (y - minY) * recordSize, numRecords * recordSize);
+            y += numRecords;
+        }
+        return new RecordBlock(this, minY, maxY, bytes, _productFile.getDataInputStream().getByteOrder());
+    }
+
+    private int getMappedRecordIndex(int y) {
+        return _dsd.getDatasetType() == 'M' ? _productFile.getMappedMDSRIndex(y) : y;
+    }
+
+    /**
+     * Gets the position of a record within the product file.
+     *
+     * @param index the (mapped) record index
+     * @return the position in bytes
+     * @since BEAM 5.0
+     */
+    protected long getRecordPos(int index) {
+        return _dsd.getDatasetOffset() + (long) index * _dsd.getRecordSize();
+    }
+
 }
 
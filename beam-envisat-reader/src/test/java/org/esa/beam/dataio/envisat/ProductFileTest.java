@@ -19,10 +19,23 @@ package org.esa.beam.dataio.envisat;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import org.esa.beam.framework.datamodel.ProductData;
 import org.esa.beam.util.Debug;
 
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class ProductFileTest extends TestCase {
 
+    private final static String doris_vor_orbit =
+            "org/esa/beam/resources/testdata/DOR_VOR_AXVF-P20080331_075200_20080301_215527_20080303_002327";
+
     public ProductFileTest(String testName) {
         super(testName);
     }
@@ -42,6 +55,68 @@ public class ProductFileTest extends TestCase {
     public void testProductFile() {
         Debug.traceMethodNotImplemented(this.getClass(), "testProductFile");
     }
+
+    public void testConcurrentReads() throws Exception {
+        final File file = EnvisatAuxReader.getFile(doris_vor_orbit);
+        if (!file.isFile()) {
+            return;
+        }
+        final ProductFile productFile = ProductFile.open(file);
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final RecordReader recordReader = productFile.getRecordReader(productFile.getValidDSDs('M')[0].getDatasetName());
+            final DSD dsd = recordReader.getDSD();
+            final int recordSize = dsd.getRecordSize();
+            final int numRecords = recordReader.getNumRecords();
+            assertTrue(numRecords > 1);
+
+            // expected values are read sequentially through the data input stream
+            final ImageInputStream inputStream = productFile.getDataInputStream();
+            final short[][] expectedShorts = new short[numRecords][recordSize / 2];
+            final byte[][] expectedBytes = new byte[numRecords][recordSize];
+            for (int i = 0; i < numRecords; i++) {
+                inputStream.seek(dsd.getDatasetOffset() + (long) i * recordSize);
+                inputStream.readFully(expectedShorts[i], 0, expectedShorts[i].length);
+                inputStream.seek(dsd.getDatasetOffset() + (long) i * recordSize);
+                inputStream.readFully(expectedBytes[i]);
+            }
+
+            // each record is read several times, in varying order
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int n = 0; n < 8; n++) {
+                for (int i = 0; i < numRecords; i++) {
+                    final int index = n % 2 == 0 ? i : numRecords - 1 - i;
+                    futures.add(executorService.submit(new Callable<Object>() {
+                        @Override
+                        public Object call() throws Exception {
+                            final ProductData shorts = ProductData.createInstance(ProductData.TYPE_INT16, recordSize / 2);
+                            productFile.readData(dsd.getDatasetOffset() + (long) index * recordSize,
+                                                 shorts, recordSize / 2);
+                            for (int k = 0; k < recordSize / 2; k++) {
+                                assertEquals(expectedShorts[index][k], shorts.getElemIntAt(k));
+                            }
+
+                            final int minX = index % 7;
+                            final int maxX = recordSize - 1 - index % 5;
+                            final ProductData segment = ProductData.createInstance(ProductData.TYPE_INT8,
+                                                                                   maxX - minX + 1);
+                            recordReader.readFieldSegment(index, 0, 1, minX, maxX, segment);
+                            for (int k = minX; k <= maxX; k++) {
+                                assertEquals(expectedBytes[index][k], segment.getElemIntAt(k - minX));
+                            }
+                            return null;
+                        }
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+            productFile.close();
+        }
+    }
     /*
     public void testClose() {
         Debug.traceMethodNotImplemented(this.getClass(), "testClose");
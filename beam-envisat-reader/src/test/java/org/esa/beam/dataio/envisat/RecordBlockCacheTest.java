@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.dataio.envisat;
+
+import org.esa.beam.framework.datamodel.ProductData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class RecordBlockCacheTest {
+
+    private final static String doris_vor_orbit =
+            "org/esa/beam/resources/testdata/DOR_VOR_AXVF-P20080331_075200_20080301_215527_20080303_002327";
+
+    private ProductFile productFile;
+    private RecordReader recordReader;
+    private int recordSize;
+
+    @Before
+    public void setUp() throws Exception {
+        final File file = EnvisatAuxReader.getFile(doris_vor_orbit);
+        productFile = ProductFile.open(file);
+        recordReader = productFile.getRecordReader(productFile.getValidDSDs('M')[0].getDatasetName());
+        recordSize = recordReader.getDSD().getRecordSize();
+        assertTrue(recordReader.getNumRecords() >= 8);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        productFile.close();
+    }
+
+    @Test
+    public void testReadRecordBlock() throws Exception {
+        final RecordBlock block = recordReader.readRecordBlock(2, 5);
+        assertSame(recordReader, block.getRecordReader());
+        assertEquals(2, block.getMinY());
+        assertEquals(5, block.getMaxY());
+        assertEquals(4 * recordSize, block.getSizeInBytes());
+
+        for (int y = 2; y <= 5; y++) {
+            assertSegmentEquals(block, y, 0, recordSize - 1);
+            assertSegmentEquals(block, y, 3, recordSize / 2);
+        }
+    }
+
+    @Test
+    public void testReadRecordBlockBeyondLastRecord() throws Exception {
+        final int lastY = recordReader.getNumRecords() - 1;
+        final RecordBlock block = recordReader.readRecordBlock(lastY, lastY + 1);
+        assertEquals(2 * recordSize, block.getSizeInBytes());
+
+        assertSegmentEquals(block, lastY, 0, recordSize - 1);
+        // the missing record is left empty
+        final ProductData segment = ProductData.createInstance(ProductData.TYPE_INT8, recordSize);
+        block.readFieldSegment(lastY + 1, 0, 1, 0, recordSize - 1, segment);
+        for (int i = 0; i < recordSize; i++) {
+            assertEquals(0, segment.getElemIntAt(i));
+        }
+    }
+
+    @Test
+    public void testCachedBlocksAreShared() throws Exception {
+        final RecordBlockCache cache = new RecordBlockCache(10 * recordSize);
+        final RecordBlock block = cache.getBlock(recordReader, 0, 1);
+        assertNotNull(block);
+        assertSame(block, cache.getBlock(recordReader, 0, 1));
+        // blocks are only shared for exactly the same lines
+        assertNotSame(block, cache.getBlock(recordReader, 0, 2));
+        assertEquals(2, cache.getBlockCount());
+        assertEquals(5 * recordSize, cache.getSizeInBytes());
+
+        cache.clear();
+        assertEquals(0, cache.getBlockCount());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedBlocksAreDropped() throws Exception {
+        final RecordBlockCache cache = new RecordBlockCache(4 * recordSize);
+        final RecordBlock block01 = cache.getBlock(recordReader, 0, 1);
+        final RecordBlock block23 = cache.getBlock(recordReader, 2, 3);
+        // use block 0-1, so that block 2-3 is dropped next
+        assertSame(block01, cache.getBlock(recordReader, 0, 1));
+        cache.getBlock(recordReader, 4, 5);
+
+        assertEquals(2, cache.getBlockCount());
+        assertEquals(4 * recordSize, cache.getSizeInBytes());
+        assertSame(block01, cache.getBlock(recordReader, 0, 1));
+        assertNotSame(block23, cache.getBlock(recordReader, 2, 3));
+    }
+
+    @Test
+    public void testBlocksExceedingTheCapacityAreNotRead() throws Exception {
+        final RecordBlockCache cache = new RecordBlockCache(3 * recordSize);
+        assertNull(cache.getBlock(recordReader, 0, 3));
+        assertEquals(0, cache.getBlockCount());
+        assertNotNull(cache.getBlock(recordReader, 0, 2));
+    }
+
+    private void assertSegmentEquals(RecordBlock block, int y, int minX, int maxX) throws Exception {
+        final ProductData expected = ProductData.createInstance(ProductData.TYPE_INT8, maxX - minX + 1);
+        recordReader.readFieldSegment(y, 0, 1, minX, maxX, expected);
+        final ProductData actual = ProductData.createInstance(ProductData.TYPE_INT8, maxX - minX + 1);
+        block.readFieldSegment(y, 0, 1, minX, maxX, actual);
+        for (int i = 0; i < maxX - minX + 1; i++) {
+            assertEquals(expected.getElemIntAt(i), actual.getElemIntAt(i));
+        }
+    }
+}
@@ -50,7 +50,23 @@ public class GPF {
 
     public static final String DISABLE_TILE_CACHE_PROPERTY = "beam.gpf.disableTileCache";
     public static final String USE_FILE_TILE_CACHE_PROPERTY = "beam.gpf.useFileTileCache";
+    /**
+     * If set to {@code true}, the GPF operators share a tile cache which stores the tiles outside of the Java heap
+     * and prefers to keep the tiles which are expensive to compute.
+     * Its capacity is the memory capacity of the JAI tile cache.
+     *
+     * @see org.esa.beam.framework.gpf.internal.OffHeapTileCache
+     * @since BEAM 5.0
+     */
+    public static final String USE_OFF_HEAP_TILE_CACHE_PROPERTY = "beam.gpf.useOffHeapTileCache";
     public static final String TILE_COMPUTATION_OBSERVER_PROPERTY = "beam.gpf.tileComputationObserver";
+    /**
+     * The name of an {@link org.esa.beam.framework.gpf.internal.OperatorExecutor.ExecutionOrder}. If set, it
+     * overrides the order in which operator executors compute the tiles of their target products.
+     *
+     * @since BEAM 5.0
+     */
+    public static final String EXECUTION_ORDER_PROPERTY = "beam.gpf.executionOrder";
 
     public static final String SOURCE_PRODUCT_FIELD_NAME = "sourceProduct";
     public static final String TARGET_PRODUCT_FIELD_NAME = "targetProduct";
@@ -21,6 +21,7 @@ import com.bc.ceres.binding.dom.XppDomElement;
 import org.esa.beam.framework.datamodel.Product;
 import org.esa.beam.framework.gpf.Operator;
 import org.esa.beam.framework.gpf.internal.OperatorConfiguration;
+import org.esa.beam.framework.gpf.pointop.PointOperatorFusion;
 import org.esa.beam.util.logging.BeamLogManager;
 
 import javax.media.jai.JAI;
@@ -47,6 +48,14 @@ import java.util.logging.Logger;
  */
 public class GraphContext {
 
+    /**
+     * The name of the system property which disables the fusion of chained point operators, if set to
+     * {@code false}.
+     *
+     * @since BEAM 5.0
+     */
+    public static final String FUSE_POINT_OPERATORS_PROPERTY = "beam.gpf.graph.fusePointOperators";
+
     private Graph graph;
     private Logger logger;
     private Map<Node, NodeContext> nodeContextMap;
@@ -89,6 +98,9 @@ public class GraphContext {
         initNodeContextDeque = new ArrayDeque<NodeContext>(graph.getNodeCount());
         initNodeDependencies();
         initOutput(graphOp);
+        if (Boolean.parseBoolean(System.getProperty(FUSE_POINT_OPERATORS_PROPERTY, "true"))) {
+            fusePointOperators();
+        }
     }
 
     private static boolean isSourceNodeIdInHeader(String sourceNodeId, List<HeaderSource> headerSources) {
@@ -196,6 +208,50 @@ public class GraphContext {
         getInitNodeContextDeque().addFirst(nodeContext);
     }
 
+    /**
+     * Fuses chains of point operators. A node is fused with its consumer, if both are computed by
+     * {@link org.esa.beam.framework.gpf.pointop.PointOperator}s, the node is not an output node and the consumer
+     * is the only node using the node as source. The consumer must be a pixel operator or a sample operator with a
+     * single target band. The target samples of the node are then computed pixel by pixel
+     * while the consumer computes its tiles, so that they don't need to be passed through the tile cache.
+     */
+    private void fusePointOperators() {
+        final Map<Node, Set<Node>> consumerMap = new HashMap<Node, Set<Node>>(graph.getNodeCount() * 2);
+        for (Node node : graph.getNodes()) {
+            for (NodeSource source : node.getSources()) {
+                final Node sourceNode = source.getSourceNode();
+                if (sourceNode != null) {
+                    Set<Node> consumers = consumerMap.get(sourceNode);
+                    if (consumers == null) {
+                        consumers = new HashSet<Node>();
+                        consumerMap.put(sourceNode, consumers);
+                    }
+                    consumers.add(node);
+                }
+            }
+        }
+        for (NodeContext nodeContext : getInitNodeContextDeque()) {
+            final Set<Node> fusedNodes = new HashSet<Node>();
+            for (NodeSource source : nodeContext.getNode().getSources()) {
+                final Node sourceNode = source.getSourceNode();
+                if (sourceNode == null || fusedNodes.contains(sourceNode)) {
+                    continue;
+                }
+                final NodeContext sourceNodeContext = getNodeContext(sourceNode);
+                final Operator sourceOperator = sourceNodeContext.getOperator();
+                final Operator operator = nodeContext.getOperator();
+                if (!sourceNodeContext.isOutput()
+                    && consumerMap.get(sourceNode).size() == 1
+                    && PointOperatorFusion.canFuse(sourceOperator, operator)) {
+                    PointOperatorFusion.fuse(sourceOperator, operator);
+                    fusedNodes.add(sourceNode);
+                    logger.fine(MessageFormat.format("Fused node ''{0}'' into node ''{1}''",
+                                                     sourceNode.getId(), nodeContext.getNode().getId()));
+                }
+            }
+        }
+    }
+
     /**
      * Disposes this {@code GraphContext}.
      */
@@ -0,0 +1,833 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.gpf.internal;
+
+import org.esa.beam.framework.gpf.monitor.TileCacheStatistics;
+
+import javax.media.jai.TileCache;
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+/**
+ * A tile cache which keeps the tile data outside of the Java heap, in direct byte buffers.
+ * <p/>
+ * Cached tiles neither enlarge the heap nor slow down the garbage collector. A tile is copied into a direct buffer
+ * when it is added and copied back into a new raster when it is requested. The buffers of removed tiles are reused
+ * for new tiles of the same size.
+ * <p/>
+ * Which tiles are removed if the cache is full depends on what it costs to compute them again. The cache learns the
+ * mean computation time of the tiles of each GPF {@link OperatorImage} (see {@link #tileComputed}), and removes the
+ * tiles of cheap images, e.g. of products read from files, before the tiles of expensive ones, e.g. of
+ * reprojected products. Tiles which have not been requested for a long time are removed anyway, regardless of their
+ * cost (Greedy-Dual-Size policy). In addition, the costs can be weighted by priorities and the memory occupied by
+ * an image can be limited by a quota, either per image or per operator.
+ * <p/>
+ * The hits, misses and evictions are recorded per image, see {@link #getStatistics()}.
+ * <p/>
+ * The cache references the images only weakly. The tiles of images which have been garbage collected without
+ * being disposed are removed the next time the cache is full or {@link #memoryControl()} is called.
+ * <p/>
+ * Note that the tile comparator is ignored by this implementation.
+ *
+ * @see org.esa.beam.framework.gpf.GPF#USE_OFF_HEAP_TILE_CACHE_PROPERTY
+ * @since BEAM 5.0
+ */
+public class OffHeapTileCache implements TileCache {
+
+    private static final float DEFAULT_MEMORY_THRESHOLD = 0.75F;
+    /**
+     * The cost of a byte of a tile of an image whose computation time is unknown, in nanoseconds.
+     */
+    private static final double DEFAULT_COST = 1.0;
+    /**
+     * The weight of a new computation time in the mean computation time of the tiles of an image.
+     */
+    private static final double COST_SMOOTHING = 0.125;
+
+    private final Map<TileKey, Entry> entries;
+    private final ReferenceQueue<RenderedImage> collectedOwners;
+    private final TreeSet<Entry> evictionQueue;
+    private final Map<RenderedImage, ImageRecord> imageRecords;
+    private final Map<String, Float> operatorPriorities;
+    private final Map<String, Long> operatorQuotas;
+    private final Map<Integer, List<ByteBuffer>> freeBuffers;
+    private long memoryCapacity;
+    private float memoryThreshold;
+    private Comparator tileComparator;
+    private long memoryUsage;
+    private long freeMemory;
+    private double inflation;
+    private long sequence;
+
+    /**
+     * @param memoryCapacity The capacity of the cache in bytes.
+     */
+    public OffHeapTileCache(long memoryCapacity) {
+        if (memoryCapacity < 0) {
+            throw new IllegalArgumentException("memoryCapacity < 0");
+        }
+        this.memoryCapacity = memoryCapacity;
+        this.memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+        this.entries = new HashMap<TileKey, Entry>();
+        this.collectedOwners = new ReferenceQueue<RenderedImage>();
+        this.evictionQueue = new TreeSet<Entry>();
+        this.imageRecords = new WeakHashMap<RenderedImage, ImageRecord>();
+        this.operatorPriorities = new HashMap<String, Float>();
+        this.operatorQuotas = new HashMap<String, Long>();
+        this.freeBuffers = new HashMap<Integer, List<ByteBuffer>>();
+    }
+
+    @Override
+    public void add(RenderedImage owner, int tileX, int tileY, Raster tile) {
+        add(owner, tileX, tileY, tile, null);
+    }
+
+    @Override
+    public void add(RenderedImage owner, int tileX, int tileY, Raster tile, Object tileCacheMetric) {
+        if (owner == null || tile == null || !isSupportedDataType(tile.getSampleModel().getDataType())) {
+            return;
+        }
+        final Raster data = isCompact(tile) ? tile : copyRaster(tile);
+        final DataBuffer dataBuffer = data.getDataBuffer();
+        final long size = (long) dataBuffer.getSize() * dataBuffer.getNumBanks() *
+                          (DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8);
+        if (size > Integer.MAX_VALUE) {
+            return;
+        }
+        ByteBuffer buffer;
+        synchronized (this) {
+            if (size > memoryCapacity || size > getImageRecord(owner).getQuota()) {
+                return;
+            }
+            buffer = allocateBuffer((int) size);
+            if (buffer == null) {
+                return;
+            }
+        }
+        // copy the data without blocking the cache
+        writeData(dataBuffer, buffer);
+        synchronized (this) {
+            final ImageRecord record = getImageRecord(owner);
+            final TileKey key = new TileKey(owner, tileX, tileY, collectedOwners);
+            final Entry entry = new Entry(key, record, data.getSampleModel(),
+                                          new Point(data.getMinX(), data.getMinY()),
+                                          dataBuffer.getDataType(), dataBuffer.getSize(), dataBuffer.getNumBanks(),
+                                          buffer);
+            // the old entry is removed first, so that the map key is always the key of the entry
+            final Entry oldEntry = entries.remove(key);
+            if (oldEntry != null) {
+                evictionQueue.remove(oldEntry);
+                releaseEntry(oldEntry);
+            }
+            entries.put(key, entry);
+            record.tileCount++;
+            record.sizeInBytes += entry.size;
+            memoryUsage += entry.size;
+            touch(entry);
+            if (record.sizeInBytes > record.getQuota()) {
+                evictImageTiles(record, record.getQuota());
+            }
+            if (memoryUsage + freeMemory > memoryCapacity) {
+                dropFreeBuffers();
+                purgeCollectedOwners();
+                if (memoryUsage > memoryCapacity) {
+                    memoryControl();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void addTiles(RenderedImage owner, Point[] tileIndices, Raster[] tiles, Object tileCacheMetric) {
+        for (int i = 0; i < tileIndices.length; i++) {
+            add(owner, tileIndices[i].x, tileIndices[i].y, tiles[i], tileCacheMetric);
+        }
+    }
+
+    @Override
+    public Raster getTile(RenderedImage owner, int tileX, int tileY) {
+        final Entry entry;
+        synchronized (this) {
+            entry = entries.get(new TileKey(owner, tileX, tileY, null));
+            if (entry == null) {
+                getImageRecord(owner).missCount++;
+                return null;
+            }
+            entry.record.hitCount++;
+            evictionQueue.remove(entry);
+            touch(entry);
+            entry.pinCount++;
+        }
+        return readTile(entry);
+    }
+
+    @Override
+    public Raster[] getTiles(RenderedImage owner) {
+        final List<Entry> ownerEntries = new ArrayList<Entry>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.key.getOwner() == owner) {
+                    entry.pinCount++;
+                    ownerEntries.add(entry);
+                }
+            }
+        }
+        if (ownerEntries.isEmpty()) {
+            return null;
+        }
+        final Raster[] tiles = new Raster[ownerEntries.size()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = readTile(ownerEntries.get(i));
+        }
+        return tiles;
+    }
+
+    @Override
+    public Raster[] getTiles(RenderedImage owner, Point[] tileIndices) {
+        final Raster[] tiles = new Raster[tileIndices.length];
+        for (int i = 0; i < tileIndices.length; i++) {
+            tiles[i] = getTile(owner, tileIndices[i].x, tileIndices[i].y);
+        }
+        return tiles;
+    }
+
+    @Override
+    public synchronized void remove(RenderedImage owner, int tileX, int tileY) {
+        final Entry entry = entries.get(new TileKey(owner, tileX, tileY, null));
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+    @Override
+    public synchronized void removeTiles(RenderedImage owner) {
+        for (Entry entry : new ArrayList<Entry>(entries.values())) {
+            if (entry.key.getOwner() == owner) {
+                removeEntry(entry);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        for (Entry entry : new ArrayList<Entry>(entries.values())) {
+            removeEntry(entry);
+        }
+        dropFreeBuffers();
+        inflation = 0.0;
+    }
+
+    /**
+     * Removes the tiles with the lowest cost until the memory usage is reduced to the fraction of the capacity
+     * given by the memory threshold.
+     */
+    @Override
+    public synchronized void memoryControl() {
+        purgeCollectedOwners();
+        final long targetMemoryUsage = (long) (memoryCapacity * memoryThreshold);
+        if (memoryUsage + freeMemory > targetMemoryUsage) {
+            dropFreeBuffers();
+        }
+        while (memoryUsage > targetMemoryUsage && !evictionQueue.isEmpty()) {
+            final Entry entry = evictionQueue.first();
+            inflation = Math.max(inflation, entry.value);
+            entry.record.evictionCount++;
+            removeEntry(entry);
+        }
+    }
+
+    /**
+     * @deprecated as of JAI 1.1.
+     */
+    @Override
+    @Deprecated
+    public void setTileCapacity(int tileCapacity) {
+    }
+
+    /**
+     * @deprecated as of JAI 1.1.
+     */
+    @Override
+    @Deprecated
+    public int getTileCapacity() {
+        return 0;
+    }
+
+    @Override
+    public synchronized void setMemoryCapacity(long memoryCapacity) {
+        if (memoryCapacity < 0) {
+            throw new IllegalArgumentException("memoryCapacity < 0");
+        }
+        final long oldMemoryCapacity = this.memoryCapacity;
+        this.memoryCapacity = memoryCapacity;
+        if (memoryCapacity < oldMemoryCapacity) {
+            memoryControl();
+        }
+    }
+
+    @Override
+    public synchronized long getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    @Override
+    public synchronized void setMemoryThreshold(float memoryThreshold) {
+        if (memoryThreshold < 0.0F || memoryThreshold > 1.0F) {
+            throw new IllegalArgumentException("memoryThreshold must be in the range 0.0 to 1.0");
+        }
+        this.memoryThreshold = memoryThreshold;
+        memoryControl();
+    }
+
+    @Override
+    public synchronized float getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    @Override
+    public synchronized void setTileComparator(Comparator comparator) {
+        this.tileComparator = comparator;
+    }
+
+    @Override
+    public synchronized Comparator getTileComparator() {
+        return tileComparator;
+    }
+
+    /**
+     * @return The memory occupied by the cached tiles in bytes.
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * @return The number of cached tiles.
+     */
+    public synchronized int getTileCount() {
+        return entries.size();
+    }
+
+    /**
+     * Records the time it has taken to compute a tile of the given image. The mean of these times is the cost of
+     * the tiles of the image.
+     *
+     * @param image The image.
+     * @param nanos The computation time of a tile in nanoseconds.
+     */
+    public synchronized void tileComputed(RenderedImage image, long nanos) {
+        getImageRecord(image).addComputationTime(nanos);
+    }
+
+    /**
+     * Sets the priority of the tiles of an image. The cost of the tiles is multiplied with the priority, so the tiles
+     * of images with priority 2 are kept twice as long as they would be with the default priority of 1.
+     *
+     * @param image    The image.
+     * @param priority The priority, a positive number.
+     */
+    public synchronized void setPriority(RenderedImage image, float priority) {
+        checkPriority(priority);
+        getImageRecord(image).priority = priority;
+    }
+
+    /**
+     * Sets the priority of the tiles of all images computed by the given operator.
+     *
+     * @param operatorAlias The alias of the operator.
+     * @param priority      The priority, a positive number.
+     *
+     * @see #setPriority(java.awt.image.RenderedImage, float)
+     */
+    public synchronized void setOperatorPriority(String operatorAlias, float priority) {
+        checkPriority(priority);
+        operatorPriorities.put(operatorAlias, priority);
+        for (ImageRecord record : imageRecords.values()) {
+            if (operatorAlias.equals(record.operatorAlias)) {
+                record.priority = priority;
+            }
+        }
+    }
+
+    /**
+     * Limits the memory occupied by the tiles of an image. If the limit is exceeded, the tiles of the image with
+     * the lowest cost are removed, even if the cache is not full.
+     *
+     * @param image The image.
+     * @param quota The maximum memory in bytes, or a negative value for no limit.
+     */
+    public synchronized void setQuota(RenderedImage image, long quota) {
+        final ImageRecord record = getImageRecord(image);
+        record.quota = quota;
+        evictImageTiles(record, record.getQuota());
+    }
+
+    /**
+     * Limits the memory occupied by the tiles of each image computed by the given operator.
+     *
+     * @param operatorAlias The alias of the operator.
+     * @param quota         The maximum memory in bytes per image, or a negative value for no limit.
+     *
+     * @see #setQuota(java.awt.image.RenderedImage, long)
+     */
+    public synchronized void setOperatorQuota(String operatorAlias, long quota) {
+        operatorQuotas.put(operatorAlias, quota);
+        for (ImageRecord record : imageRecords.values()) {
+            if (operatorAlias.equals(record.operatorAlias)) {
+                record.quota = quota;
+                evictImageTiles(record, record.getQuota());
+            }
+        }
+    }
+
+    /**
+     * @return The usage of the cache by the images which have tiles in the cache or have been requested from it.
+     */
+    public synchronized TileCacheStatistics[] getStatistics() {
+        final List<TileCacheStatistics> statistics = new ArrayList<TileCacheStatistics>(imageRecords.size());
+        for (Map.Entry<RenderedImage, ImageRecord> mapEntry : imageRecords.entrySet()) {
+            final ImageRecord record = mapEntry.getValue();
+            statistics.add(new TileCacheStatistics(mapEntry.getKey(), record.tileCount, record.sizeInBytes,
+                                                   record.hitCount, record.missCount, record.evictionCount));
+        }
+        return statistics.toArray(new TileCacheStatistics[statistics.size()]);
+    }
+
+    private ImageRecord getImageRecord(RenderedImage image) {
+        ImageRecord record = imageRecords.get(image);
+        if (record == null) {
+            String operatorAlias = null;
+            if (image instanceof OperatorImage) {
+                operatorAlias = ((OperatorImage) image).getOperatorContext().getOperatorSpi().getOperatorAlias();
+            }
+            record = new ImageRecord(operatorAlias);
+            if (operatorAlias != null) {
+                final Float priority = operatorPriorities.get(operatorAlias);
+                if (priority != null) {
+                    record.priority = priority;
+                }
+                final Long quota = operatorQuotas.get(operatorAlias);
+                if (quota != null) {
+                    record.quota = quota;
+                }
+            }
+            imageRecords.put(image, record);
+        }
+        return record;
+    }
+
+    private void touch(Entry entry) {
+        entry.value = inflation + entry.record.getCost(entry.size);
+        entry.sequence = sequence++;
+        evictionQueue.add(entry);
+    }
+
+    private void evictImageTiles(ImageRecord record, long quota) {
+        if (record.sizeInBytes <= quota) {
+            return;
+        }
+        final List<Entry> victims = new ArrayList<Entry>();
+        long sizeInBytes = record.sizeInBytes;
+        for (Entry entry : evictionQueue) {
+            if (sizeInBytes <= quota) {
+                break;
+            }
+            if (entry.record == record) {
+                victims.add(entry);
+                sizeInBytes -= entry.size;
+            }
+        }
+        for (Entry entry : victims) {
+            record.evictionCount++;
+            removeEntry(entry);
+        }
+    }
+
+    /**
+     * Removes the tiles of the images which have been garbage collected.
+     */
+    private void purgeCollectedOwners() {
+        OwnerReference reference;
+        while ((reference = (OwnerReference) collectedOwners.poll()) != null) {
+            final Entry entry = entries.get(reference.key);
+            // the key of a collected owner is only equal to itself
+            if (entry != null && entry.key == reference.key) {
+                removeEntry(entry);
+            }
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        entries.remove(entry.key);
+        evictionQueue.remove(entry);
+        releaseEntry(entry);
+    }
+
+    private void releaseEntry(Entry entry) {
+        entry.removed = true;
+        entry.record.tileCount--;
+        entry.record.sizeInBytes -= entry.size;
+        memoryUsage -= entry.size;
+        if (entry.pinCount == 0) {
+            recycleBuffer(entry.buffer);
+        }
+    }
+
+    private Raster readTile(Entry entry) {
+        try {
+            return entry.createRaster();
+        } finally {
+            synchronized (this) {
+                entry.pinCount--;
+                if (entry.removed && entry.pinCount == 0) {
+                    recycleBuffer(entry.buffer);
+                }
+            }
+        }
+    }
+
+    private ByteBuffer allocateBuffer(int size) {
+        final List<ByteBuffer> buffers = freeBuffers.get(size);
+        if (buffers != null && !buffers.isEmpty()) {
+            freeMemory -= size;
+            return buffers.remove(buffers.size() - 1);
+        }
+        try {
+            return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        } catch (OutOfMemoryError e) {
+            // the direct memory of the JVM is exhausted, the free buffers may be reclaimed by the next GC
+            dropFreeBuffers();
+            return null;
+        }
+    }
+
+    private void recycleBuffer(ByteBuffer buffer) {
+        final int size = buffer.capacity();
+        if (memoryUsage + freeMemory + size <= memoryCapacity) {
+            List<ByteBuffer> buffers = freeBuffers.get(size);
+            if (buffers == null) {
+                buffers = new LinkedList<ByteBuffer>();
+                freeBuffers.put(size, buffers);
+            }
+            buffers.add(buffer);
+            freeMemory += size;
+        }
+    }
+
+    private void dropFreeBuffers() {
+        freeBuffers.clear();
+        freeMemory = 0;
+    }
+
+    private static void checkPriority(float priority) {
+        if (!(priority > 0.0F)) {
+            throw new IllegalArgumentException("priority must be positive");
+        }
+    }
+
+    private static boolean isSupportedDataType(int dataType) {
+        return dataType == DataBuffer.TYPE_BYTE
+               || dataType == DataBuffer.TYPE_USHORT
+               || dataType == DataBuffer.TYPE_SHORT
+               || dataType == DataBuffer.TYPE_INT
+               || dataType == DataBuffer.TYPE_FLOAT
+               || dataType == DataBuffer.TYPE_DOUBLE;
+    }
+
+    /**
+     * A raster is compact if its data buffer contains nothing but its own samples.
+     */
+    private static boolean isCompact(Raster raster) {
+        final SampleModel sampleModel = raster.getSampleModel();
+        if (sampleModel.getWidth() != raster.getWidth() || sampleModel.getHeight() != raster.getHeight()) {
+            return false;
+        }
+        if (raster.getSampleModelTranslateX() != -raster.getMinX()
+            || raster.getSampleModelTranslateY() != -raster.getMinY()) {
+            return false;
+        }
+        for (int offset : raster.getDataBuffer().getOffsets()) {
+            if (offset != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Raster copyRaster(Raster raster) {
+        final WritableRaster copy = raster.createCompatibleWritableRaster(raster.getMinX(), raster.getMinY(),
+                                                                          raster.getWidth(), raster.getHeight());
+        copy.setRect(raster);
+        return copy;
+    }
+
+    static void writeData(DataBuffer dataBuffer, ByteBuffer buffer) {
+        final ByteBuffer bytes = buffer.duplicate().order(ByteOrder.nativeOrder());
+        final int dataType = dataBuffer.getDataType();
+        final int bankSize = dataBuffer.getSize();
+        final int elemSize = DataBuffer.getDataTypeSize(dataType) / 8;
+        for (int bank = 0; bank < dataBuffer.getNumBanks(); bank++) {
+            bytes.position(bank * bankSize * elemSize);
+            if (dataBuffer instanceof DataBufferByte) {
+                bytes.put(((DataBufferByte) dataBuffer).getData(bank), 0, bankSize);
+            } else if (dataBuffer instanceof DataBufferUShort) {
+                bytes.asShortBuffer().put(((DataBufferUShort) dataBuffer).getData(bank), 0, bankSize);
+            } else if (dataBuffer instanceof DataBufferShort) {
+                bytes.asShortBuffer().put(((DataBufferShort) dataBuffer).getData(bank), 0, bankSize);
+            } else if (dataBuffer instanceof DataBufferInt) {
+                bytes.asIntBuffer().put(((DataBufferInt) dataBuffer).getData(bank), 0, bankSize);
+            } else if (dataBuffer instanceof DataBufferFloat) {
+                bytes.asFloatBuffer().put(((DataBufferFloat) dataBuffer).getData(bank), 0, bankSize);
+            } else if (dataBuffer instanceof DataBufferDouble) {
+                bytes.asDoubleBuffer().put(((DataBufferDouble) dataBuffer).getData(bank), 0, bankSize);
+            } else {
+                // e.g. the data buffers of JAI, copy element-wise
+                for (int i = 0; i < bankSize; i++) {
+                    switch (dataType) {
+                        case DataBuffer.TYPE_BYTE:
+                            bytes.put((byte) dataBuffer.getElem(bank, i));
+                            break;
+                        case DataBuffer.TYPE_USHORT:
+                        case DataBuffer.TYPE_SHORT:
+                            bytes.putShort((short) dataBuffer.getElem(bank, i));
+                            break;
+                        case DataBuffer.TYPE_INT:
+                            bytes.putInt(dataBuffer.getElem(bank, i));
+                            break;
+                        case DataBuffer.TYPE_FLOAT:
+                            bytes.putFloat(dataBuffer.getElemFloat(bank, i));
+                            break;
+                        default:
+                            bytes.putDouble(dataBuffer.getElemDouble(bank, i));
+                            break;
+                    }
+                }
+            }
+        }
+    }
+
+    static DataBuffer readData(ByteBuffer buffer, int dataType, int bankSize, int numBanks) {
+        final ByteBuffer bytes = buffer.duplicate().order(ByteOrder.nativeOrder());
+        final int elemSize = DataBuffer.getDataTypeSize(dataType) / 8;
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE: {
+                final DataBufferByte dataBuffer = new DataBufferByte(bankSize, numBanks);
+                for (int bank = 0; bank < numBanks; bank++) {
+                    bytes.position(bank * bankSize * elemSize);
+                    bytes.get(dataBuffer.getData(bank), 0, bankSize);
+                }
+                return dataBuffer;
+            }
+            case DataBuffer.TYPE_USHORT: {
+                final DataBufferUShort dataBuffer = new DataBufferUShort(bankSize, numBanks);
+                for (int bank = 0; bank < numBanks; bank++) {
+                    bytes.position(bank * bankSize * elemSize);
+                    bytes.asShortBuffer().get(dataBuffer.getData(bank), 0, bankSize);
+                }
+                return dataBuffer;
+            }
+            case DataBuffer.TYPE_SHORT: {
+                final DataBufferShort dataBuffer = new DataBufferShort(bankSize, numBanks);
+                for (int bank = 0; bank < numBanks; bank++) {
+                    bytes.position(bank * bankSize * elemSize);
+                    bytes.asShortBuffer().get(dataBuffer.getData(bank), 0, bankSize);
+                }
+                return dataBuffer;
+            }
+            case DataBuffer.TYPE_INT: {
+                final DataBufferInt dataBuffer = new DataBufferInt(bankSize, numBanks);
+                for (int bank = 0; bank < numBanks; bank++) {
+                    bytes.position(bank * bankSize * elemSize);
+                    bytes.asIntBuffer().get(dataBuffer.getData(bank), 0, bankSize);
+                }
+                return dataBuffer;
+            }
+            case DataBuffer.TYPE_FLOAT: {
+                final DataBufferFloat dataBuffer = new DataBufferFloat(bankSize, numBanks);
+                for (int bank = 0; bank < numBanks; bank++) {
+                    bytes.position(bank * bankSize * elemSize);
+                    bytes.asFloatBuffer().get(dataBuffer.getData(bank), 0, bankSize);
+                }
+                return dataBuffer;
+            }
+            case DataBuffer.TYPE_DOUBLE: {
+                final DataBufferDouble dataBuffer = new DataBufferDouble(bankSize, numBanks);
+                for (int bank = 0; bank < numBanks; bank++) {
+                    bytes.position(bank * bankSize * elemSize);
+                    bytes.asDoubleBuffer().get(dataBuffer.getData(bank), 0, bankSize);
+                }
+                return dataBuffer;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported data type: " + dataType);
+        }
+    }
+
+    private static final class ImageRecord {
+
+        private final String operatorAlias;
+        private float priority = 1.0F;
+        private long quota = -1L;
+        private double meanComputationTime = -1.0;
+        private int tileCount;
+        private long sizeInBytes;
+        private long hitCount;
+        private long missCount;
+        private long evictionCount;
+
+        private ImageRecord(String operatorAlias) {
+            this.operatorAlias = operatorAlias;
+        }
+
+        private long getQuota() {
+            return quota >= 0 ? quota : Long.MAX_VALUE;
+        }
+
+        private void addComputationTime(long nanos) {
+            if (meanComputationTime < 0.0) {
+                meanComputationTime = nanos;
+            } else {
+                meanComputationTime += COST_SMOOTHING * (nanos - meanComputationTime);
+            }
+        }
+
+        private double getCost(long size) {
+            final double costPerByte = meanComputationTime >= 0.0 ? meanComputationTime / size : DEFAULT_COST;
+            return priority * costPerByte;
+        }
+    }
+
+    private static final class TileKey {
+
+        private final WeakReference<RenderedImage> owner;
+        private final int tileX;
+        private final int tileY;
+        private final int hash;
+
+        /**
+         * @param queue The queue the owner reference is registered with, {@code null} for keys which are only
+         *              used for look-ups.
+         */
+        private TileKey(RenderedImage owner, int tileX, int tileY, ReferenceQueue<RenderedImage> queue) {
+            if (queue != null) {
+                this.owner = new OwnerReference(owner, queue, this);
+            } else {
+                this.owner = new WeakReference<RenderedImage>(owner);
+            }
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.hash = 31 * (31 * System.identityHashCode(owner) + tileX) + tileY;
+        }
+
+        private RenderedImage getOwner() {
+            return owner.get();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            final TileKey other = (TileKey) o;
+            final RenderedImage image = owner.get();
+            return hash == other.hash && tileX == other.tileX && tileY == other.tileY
+                   && image != null && image == other.owner.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class OwnerReference extends WeakReference<RenderedImage> {
+
+        private final TileKey key;
+
+        private OwnerReference(RenderedImage owner, ReferenceQueue<RenderedImage> queue, TileKey key) {
+            super(owner, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final TileKey key;
+        private final ImageRecord record;
+        private final SampleModel sampleModel;
+        private final Point location;
+        private final int dataType;
+        private final int bankSize;
+        private final int numBanks;
+        private final ByteBuffer buffer;
+        private final long size;
+        private double value;
+        private long sequence;
+        private int pinCount;
+        private boolean removed;
+
+        private Entry(TileKey key, ImageRecord record, SampleModel sampleModel, Point location,
+                      int dataType, int bankSize, int numBanks, ByteBuffer buffer) {
+            this.key = key;
+            this.record = record;
+            this.sampleModel = sampleModel;
+            this.location = location;
+            this.dataType = dataType;
+            this.bankSize = bankSize;
+            this.numBanks = numBanks;
+            this.buffer = buffer;
+            this.size = buffer.capacity();
+        }
+
+        private Raster createRaster() {
+            return Raster.createWritableRaster(sampleModel, readData(buffer, dataType, bankSize, numBanks), location);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (value != other.value) {
+                return value < other.value ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence > other.sequence ? 1 : 0);
+        }
+    }
+}
@@ -128,7 +128,8 @@ public class OperatorContext {
     }
 
     /**
-     * Makes sure that the given JAI OpImage has a valid tile cache (see System property {@link GPF#USE_FILE_TILE_CACHE_PROPERTY}),
+     * Makes sure that the given JAI OpImage has a valid tile cache (see System properties {@link GPF#USE_FILE_TILE_CACHE_PROPERTY}
+     * and {@link GPF#USE_OFF_HEAP_TILE_CACHE_PROPERTY}),
      * or makes sure that it has none (see System property {@link GPF#DISABLE_TILE_CACHE_PROPERTY}).
      *
      * @param image Any JAI OpImage.
@@ -147,10 +148,14 @@ public class OperatorContext {
         if (tileCache == null) {
             boolean useFileTileCache = Boolean.parseBoolean(
                     System.getProperty(GPF.USE_FILE_TILE_CACHE_PROPERTY, "false"));
+            boolean useOffHeapTileCache = Boolean.parseBoolean(
+                    System.getProperty(GPF.USE_OFF_HEAP_TILE_CACHE_PROPERTY, "false"));
             if (useFileTileCache) {
                 tileCache = new SwappingTileCache(JAI.getDefaultInstance().getTileCache().getMemoryCapacity(),
                                                   new DefaultSwapSpace(SwappingTileCache.DEFAULT_SWAP_DIR,
                                                                        BeamLogManager.getSystemLogger()));
+            } else if (useOffHeapTileCache) {
+                tileCache = new OffHeapTileCache(JAI.getDefaultInstance().getTileCache().getMemoryCapacity());
             } else {
                 tileCache = JAI.getDefaultInstance().getTileCache();
             }
@@ -162,6 +167,10 @@ public class OperatorContext {
         return tileCache;
     }
 
+    private static synchronized TileCache getCurrentTileCache() {
+        return tileCache;
+    }
+
     public String getId() {
         if (id == null) {
             id = getOperatorSpi().getOperatorAlias() + '$' + Long.toHexString(System.currentTimeMillis()).toUpperCase();
@@ -1070,12 +1079,20 @@ public class OperatorContext {
 
     public void stopTileComputationObservation() {
         if (tileComputationObserver != null) {
+            TileCache cache = getCurrentTileCache();
+            if (cache instanceof OffHeapTileCache) {
+                tileComputationObserver.tileCacheStatistics(((OffHeapTileCache) cache).getStatistics());
+            }
             tileComputationObserver.stop();
             tileComputationObserver = null;
         }
     }
 
     public void fireTileComputed(OperatorImage operatorImage, Rectangle destRect, long startNanos) {
+        TileCache cache = operatorImage.getTileCache();
+        if (cache instanceof OffHeapTileCache) {
+            ((OffHeapTileCache) cache).tileComputed(operatorImage, System.nanoTime() - startNanos);
+        }
         if (tileComputationObserver != null) {
             long endNanos = System.nanoTime();
             int tileX = operatorImage.XToTileX(destRect.x);
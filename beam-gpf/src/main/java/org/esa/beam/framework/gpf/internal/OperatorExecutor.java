@@ -18,6 +18,7 @@ package org.esa.beam.framework.gpf.internal;
 import com.bc.ceres.core.ProgressMonitor;
 import org.esa.beam.framework.datamodel.Band;
 import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.gpf.GPF;
 import org.esa.beam.framework.gpf.Operator;
 import org.esa.beam.framework.gpf.OperatorException;
 import org.esa.beam.util.logging.BeamLogManager;
@@ -49,6 +50,21 @@ import java.util.concurrent.Semaphore;
 public class OperatorExecutor {
 
     public static OperatorExecutor create(Operator op) {
+        return create(op, JAI.getDefaultInstance().getTileScheduler().getParallelism());
+    }
+
+    /**
+     * Creates an executor for the given operator which computes at most {@code parallelism} tiles at a time,
+     * independently of the parallelism of the JAI tile scheduler.
+     *
+     * @param op          The operator.
+     * @param parallelism The number of tiles computed in parallel.
+     *
+     * @return The executor.
+     *
+     * @since BEAM 5.0
+     */
+    public static OperatorExecutor create(Operator op, int parallelism) {
         OperatorContext operatorContext = getOperatorContext(op);
         Product targetProduct = op.getTargetProduct();
         Dimension tileSize = targetProduct.getPreferredTileSize();
@@ -60,7 +76,7 @@ public class OperatorExecutor {
         int tileCountY = MathUtils.ceilInt(boundary.height / (double) tileSize.height);
         Band[] targetBands = targetProduct.getBands();
         PlanarImage[] images = createImages(targetBands, operatorContext);
-        return new OperatorExecutor(images, tileCountX, tileCountY);
+        return new OperatorExecutor(images, tileCountX, tileCountY, parallelism);
     }
 
     public enum ExecutionOrder {
@@ -77,6 +93,14 @@ public class OperatorExecutor {
          * for debugging purpose
          */
         PULL_ROW_BAND_COLUMN,
+        /**
+         * Tiles are pulled by a pool of {@code parallelism} worker threads which steal tiles from each other
+         * once they run out of work, bypassing the JAI tile scheduler. Tiles whose source tiles are already
+         * cached are computed first.
+         *
+         * @since BEAM 5.0
+         */
+        PULL_WORK_STEALING,
     }
 
     private final int tileCountX;
@@ -122,6 +146,8 @@ public class OperatorExecutor {
                 scheduleBandRowColumn(semaphore, listeners, pm);
             } else if (effectiveExecutionOrder == ExecutionOrder.PULL_ROW_BAND_COLUMN) {
                 executeRowBandColumn(pm);
+            } else if (effectiveExecutionOrder == ExecutionOrder.PULL_WORK_STEALING) {
+                new WorkStealingTileExecutor(images, tileCountX, tileCountY, parallelism).execute(pm);
             } else {
                 throw new IllegalArgumentException("executionOrder");
             }
@@ -138,7 +164,7 @@ public class OperatorExecutor {
 
     private ExecutionOrder getEffectiveExecutionOrder(ExecutionOrder executionOrder) {
         ExecutionOrder effectiveExecutionOrder = executionOrder;
-        String executionOrderProperty = System.getProperty("beam.gpf.executionOrder");
+        String executionOrderProperty = System.getProperty(GPF.EXECUTION_ORDER_PROPERTY);
         if (executionOrderProperty != null) {
             effectiveExecutionOrder = ExecutionOrder.valueOf(executionOrderProperty);
         }
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.framework.gpf.internal;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.gpf.OperatorException;
+
+import javax.media.jai.OpImage;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.TileCache;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes all tiles of a set of images of equal tiling using a fixed number of worker threads which pull the
+ * tiles directly from the images, without going through the JAI {@link javax.media.jai.TileScheduler}.
+ * <p/>
+ * A task comprises one tile position for all images, so that tiles of different bands, which usually depend on
+ * the same source tiles, are computed by the same worker one after the other. Each worker initially owns a
+ * deque of consecutive tile positions in row-major order. A worker takes its tasks from the head of its own deque.
+ * Among the next few tasks it prefers those whose source tiles are already in the tile cache of the source images.
+ * Once its own deque is empty, the worker steals tasks from the tail of the deques of the other workers, so that
+ * all workers are kept busy regardless of how expensive single tiles are.
+ * <p/>
+ * The source tiles of a task are determined from the bands of the source products of the operators of
+ * {@link OperatorImage}s, as far as these have the same raster size as the target image. In a graph, the source
+ * images are the target images of the upstream operators.
+ *
+ * @since BEAM 5.0
+ */
+class WorkStealingTileExecutor {
+
+    /**
+     * The number of tasks at the head of a worker's deque which are examined for cached source tiles.
+     */
+    private static final int LOOKAHEAD = 8;
+
+    private final PlanarImage[] images;
+    private final int tileCountX;
+    private final int tileCountY;
+    private final int parallelism;
+    private final RenderedImage[] sourceImages;
+    private final List<LinkedBlockingDeque<Point>> deques;
+    private final AtomicInteger numComputedTiles;
+    private volatile boolean cancelled;
+    private volatile OperatorException error;
+
+    WorkStealingTileExecutor(PlanarImage[] images, int tileCountX, int tileCountY, int parallelism) {
+        this.images = images;
+        this.tileCountX = tileCountX;
+        this.tileCountY = tileCountY;
+        this.parallelism = Math.max(1, parallelism);
+        this.sourceImages = getSourceImages(images);
+        this.deques = new ArrayList<LinkedBlockingDeque<Point>>(this.parallelism);
+        this.numComputedTiles = new AtomicInteger();
+    }
+
+    /**
+     * Computes all tiles and blocks until all workers have terminated.
+     * The given progress monitor is expected to have begun its task with one unit of work per tile and image.
+     *
+     * @param pm A progress monitor used to report the computed tiles and to check for cancellation.
+     *
+     * @throws OperatorException If the computation of a tile failed or the computation has been cancelled.
+     */
+    void execute(ProgressMonitor pm) throws OperatorException {
+        final int numTasks = tileCountX * tileCountY;
+        for (int i = 0; i < parallelism; i++) {
+            final LinkedBlockingDeque<Point> deque = new LinkedBlockingDeque<Point>();
+            final int firstTask = (int) ((long) numTasks * i / parallelism);
+            final int lastTask = (int) ((long) numTasks * (i + 1) / parallelism);
+            for (int task = firstTask; task < lastTask; task++) {
+                deque.add(new Point(task % tileCountX, task / tileCountX));
+            }
+            deques.add(deque);
+        }
+
+        final CountDownLatch terminated = new CountDownLatch(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            final Thread thread = new Thread(new Worker(i, terminated), "GPF-WorkStealingTileExecutor-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int numReportedTiles = 0;
+        try {
+            boolean done = false;
+            while (!done) {
+                done = terminated.await(100, TimeUnit.MILLISECONDS);
+                final int n = numComputedTiles.get();
+                pm.worked(n - numReportedTiles);
+                numReportedTiles = n;
+                if (pm.isCanceled()) {
+                    cancel();
+                    throw new OperatorException("Operation canceled.");
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            throw new OperatorException(e);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void cancel() {
+        cancelled = true;
+        for (LinkedBlockingDeque<Point> deque : deques) {
+            deque.clear();
+        }
+    }
+
+    private Point takeTask(int workerIndex) {
+        final LinkedBlockingDeque<Point> ownDeque = deques.get(workerIndex);
+        Point task = takePreferredTask(ownDeque);
+        if (task == null) {
+            task = ownDeque.pollFirst();
+        }
+        for (int i = 1; task == null && i < parallelism; i++) {
+            task = deques.get((workerIndex + i) % parallelism).pollLast();
+        }
+        return task;
+    }
+
+    private Point takePreferredTask(LinkedBlockingDeque<Point> deque) {
+        if (sourceImages.length == 0) {
+            return null;
+        }
+        final Iterator<Point> iterator = deque.iterator();
+        for (int i = 0; i < LOOKAHEAD && iterator.hasNext(); i++) {
+            final Point task = iterator.next();
+            // the task may have been stolen in the meantime
+            if (areSourceTilesCached(task) && deque.removeFirstOccurrence(task)) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean areSourceTilesCached(Point task) {
+        final Rectangle tileRect = images[0].getTileRect(task.x, task.y);
+        for (RenderedImage sourceImage : sourceImages) {
+            final OpImage opImage = (OpImage) sourceImage;
+            final TileCache tileCache = opImage.getTileCache();
+            if (tileCache == null) {
+                return false;
+            }
+            final Point[] tileIndices = opImage.getTileIndices(tileRect);
+            if (tileIndices == null) {
+                continue;
+            }
+            for (Point tileIndex : tileIndices) {
+                if (tileCache.getTile(opImage, tileIndex.x, tileIndex.y) == null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void computeTask(Point task) {
+        for (PlanarImage image : images) {
+            if (cancelled || error != null) {
+                return;
+            }
+            /////////////////////////////////////////////////////////////////////
+            //
+            // Note: GPF pull-processing is triggered here!!!
+            //
+            image.getTile(task.x, task.y);
+            //
+            /////////////////////////////////////////////////////////////////////
+            numComputedTiles.incrementAndGet();
+        }
+    }
+
+    private static RenderedImage[] getSourceImages(PlanarImage[] images) {
+        final List<RenderedImage> sourceImages = new ArrayList<RenderedImage>();
+        for (PlanarImage image : images) {
+            if (image instanceof OperatorImage) {
+                final Product[] sourceProducts = ((OperatorImage) image).getOperatorContext().getSourceProducts();
+                for (Product sourceProduct : sourceProducts) {
+                    if (sourceProduct.getSceneRasterWidth() != image.getWidth()
+                        || sourceProduct.getSceneRasterHeight() != image.getHeight()) {
+                        continue;
+                    }
+                    for (Band band : sourceProduct.getBands()) {
+                        if (band.isSourceImageSet()) {
+                            final RenderedImage sourceImage = band.getSourceImage().getImage(0);
+                            if (sourceImage instanceof OpImage && !sourceImages.contains(sourceImage)) {
+                                sourceImages.add(sourceImage);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return sourceImages.toArray(new RenderedImage[sourceImages.size()]);
+    }
+
+    private class Worker implements Runnable {
+
+        private final int workerIndex;
+        private final CountDownLatch terminated;
+
+        private Worker(int workerIndex, CountDownLatch terminated) {
+            this.workerIndex = workerIndex;
+            this.terminated = terminated;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Point task;
+                while (!cancelled && error == null && (task = takeTask(workerIndex)) != null) {
+                    computeTask(task);
+                }
+            } catch (OperatorException e) {
+                setError(e);
+            } catch (Throwable t) {
+                setError(new OperatorException("Operation failed.", t));
+            } finally {
+                terminated.countDown();
+            }
+        }
+
+        private void setError(OperatorException e) {
+            synchronized (WorkStealingTileExecutor.this) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+    }
+}
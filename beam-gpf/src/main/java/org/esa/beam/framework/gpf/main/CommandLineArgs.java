@@ -20,10 +20,13 @@ import org.esa.beam.framework.dataio.ProductIO;
 import org.esa.beam.framework.dataio.ProductIOPlugInManager;
 import org.esa.beam.framework.dataio.ProductWriterPlugIn;
 import org.esa.beam.framework.gpf.GPF;
+import org.esa.beam.framework.gpf.internal.OperatorExecutor.ExecutionOrder;
 import org.esa.beam.util.io.FileUtils;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -39,6 +42,8 @@ public class CommandLineArgs {
     public static final String DEFAULT_METADATA_FILEPATH = "metadata.properties";
     public static final String DEFAULT_VELOCITY_TEMPLATE_DIRPATH = ".";
     public static final String DEFAULT_FORMAT_NAME = ProductIO.DEFAULT_FORMAT_NAME;
+    public static final String DEFAULT_BATCH_TARGET_DIRPATH = ".";
+    public static final int DEFAULT_BATCH_PARALLELISM = 1;
     public static final int DEFAULT_TILE_CACHE_SIZE_IN_M = 512;
     public static final int DEFAULT_TILE_SCHEDULER_PARALLELISM = Runtime.getRuntime().availableProcessors();
     public static final String VELOCITY_TEMPLATE_EXTENSION = ".vm";
@@ -60,6 +65,11 @@ public class CommandLineArgs {
 
     private long tileCacheCapacity;
     private int tileSchedulerParallelism;
+    private ExecutionOrder executionOrder;
+
+    private List<String> batchSourcePatterns;
+    private String batchTargetDirPath;
+    private int batchParallelism;
 
     public static CommandLineArgs parseArgs(String... args) throws Exception {
         CommandLineArgs lineArgs = new CommandLineArgs(args);
@@ -76,6 +86,9 @@ public class CommandLineArgs {
         sourceFilePathMap = new TreeMap<String, String>();
         targetFilePathMap = new TreeMap<String, String>();
         parameterMap = new TreeMap<String, String>();
+        batchSourcePatterns = new ArrayList<String>();
+        batchTargetDirPath = DEFAULT_BATCH_TARGET_DIRPATH;
+        batchParallelism = DEFAULT_BATCH_PARALLELISM;
         tileCacheCapacity = DEFAULT_TILE_CACHE_SIZE_IN_M * M;
         tileSchedulerParallelism = DEFAULT_TILE_SCHEDULER_PARALLELISM;
         stackTraceDump = isStackTraceDumpEnabled(args);
@@ -129,9 +142,24 @@ public class CommandLineArgs {
                 } else if (arg.equals("-q")) {
                     tileSchedulerParallelism = parseOptionArgumentInt(arg, i);
                     i++;
+                } else if (arg.equals("-r")) {
+                    executionOrder = parseOptionArgumentExecutionOrder(arg, i);
+                    i++;
                 } else if (arg.equals("-c")) {
                     tileCacheCapacity = parseOptionArgumentBytes(arg, i);
                     i++;
+                } else if (arg.equals("-i")) {
+                    batchSourcePatterns.add(parseOptionArgument(arg, i));
+                    i++;
+                } else if (arg.equals("-o")) {
+                    batchTargetDirPath = parseOptionArgument(arg, i);
+                    i++;
+                } else if (arg.equals("-j")) {
+                    batchParallelism = parseOptionArgumentInt(arg, i);
+                    if (batchParallelism < 1) {
+                        throw error("Value for '-j' must be greater than zero");
+                    }
+                    i++;
                 } else {
                     throw error("Unknown option '" + arg + "'");
                 }
@@ -162,6 +190,18 @@ public class CommandLineArgs {
         if (graphFilePath == null && !targetFilePathMap.isEmpty()) {
             throw error("Defined target products only valid for graph XML");
         }
+        if (isBatchMode()) {
+            if (!targetFilePathMap.isEmpty()) {
+                throw error("Defined target products not valid in batch mode");
+            }
+            if (argCount > 1) {
+                throw error("Source product arguments not valid in batch mode, use option '-i' instead");
+            }
+            if (clearCacheAfterRowWrite && batchParallelism > 1) {
+                // every job would clear the tile cache shared with the other jobs
+                throw error("Option '-x' not valid in batch mode with more than one job");
+            }
+        }
         if (metadataFilePath != null && metadataFilePath.isEmpty()) {
             metadataFilePath = null;
         }
@@ -227,6 +267,15 @@ public class CommandLineArgs {
         return tileSchedulerParallelism;
     }
 
+    /**
+     * @return The order in which the tiles of the target products are computed, or {@code null} if not given
+     *         by the '-r' option.
+     * @since BEAM 5.0
+     */
+    public ExecutionOrder getExecutionOrder() {
+        return executionOrder;
+    }
+
     public boolean isClearCacheAfterRowWrite() {
         return clearCacheAfterRowWrite;
     }
@@ -243,6 +292,39 @@ public class CommandLineArgs {
         return targetFilePathMap;
     }
 
+    /**
+     * @return The source products given by the '-i' option. Each entry is either a file path, a wildcard pattern
+     *         or the path of a text file listing the paths of the source products, prefixed by '@'.
+     * @since BEAM 5.0
+     */
+    public List<String> getBatchSourcePatterns() {
+        return batchSourcePatterns;
+    }
+
+    /**
+     * @return The directory the target products are written to in batch mode.
+     * @since BEAM 5.0
+     */
+    public String getBatchTargetDirPath() {
+        return batchTargetDirPath;
+    }
+
+    /**
+     * @return The number of source products processed concurrently in batch mode.
+     * @since BEAM 5.0
+     */
+    public int getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    /**
+     * @return {@code true}, if source products have been given by the '-i' option.
+     * @since BEAM 5.0
+     */
+    public boolean isBatchMode() {
+        return !batchSourcePatterns.isEmpty();
+    }
+
     public boolean isHelpRequested() {
         return helpRequested;
     }
@@ -264,6 +346,16 @@ public class CommandLineArgs {
         return Integer.parseInt(valueString);
     }
 
+    private ExecutionOrder parseOptionArgumentExecutionOrder(String arg, int index) throws Exception {
+        String valueString = parseOptionArgument(arg, index);
+        try {
+            return ExecutionOrder.valueOf(valueString.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw error(MessageFormat.format("Unknown execution order ''{0}'' given for option ''{1}''",
+                                             valueString, arg));
+        }
+    }
+
     private long parseOptionArgumentBytes(String arg, int index) throws Exception {
         String valueString = parseOptionArgument(arg, index);
         long factor = 1;
@@ -32,6 +32,8 @@ import com.thoughtworks.xstream.io.xml.XppDomWriter;
 import com.thoughtworks.xstream.io.xml.XppReader;
 import com.thoughtworks.xstream.io.xml.xppdom.XppDom;
 import org.apache.velocity.VelocityContext;
+import org.esa.beam.framework.dataio.ProductIOPlugInManager;
+import org.esa.beam.framework.dataio.ProductWriterPlugIn;
 import org.esa.beam.framework.datamodel.Product;
 import org.esa.beam.framework.gpf.GPF;
 import org.esa.beam.framework.gpf.Operator;
@@ -44,6 +46,7 @@ import org.esa.beam.framework.gpf.experimental.Output;
 import org.esa.beam.framework.gpf.graph.Graph;
 import org.esa.beam.framework.gpf.graph.GraphContext;
 import org.esa.beam.framework.gpf.graph.GraphException;
+import org.esa.beam.framework.gpf.graph.GraphIO;
 import org.esa.beam.framework.gpf.graph.GraphProcessingObserver;
 import org.esa.beam.framework.gpf.graph.Node;
 import org.esa.beam.framework.gpf.graph.NodeContext;
@@ -53,23 +56,38 @@ import org.esa.beam.framework.gpf.internal.OperatorProductReader;
 import org.esa.beam.gpf.operators.standard.ReadOp;
 import org.esa.beam.gpf.operators.standard.WriteOp;
 import org.esa.beam.util.io.FileUtils;
+import org.esa.beam.util.io.WildcardMatcher;
 import org.xmlpull.mxp1.MXParser;
 
 import javax.media.jai.JAI;
 import java.awt.Rectangle;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -84,6 +102,11 @@ class CommandLineTool implements GraphProcessingObserver {
     static final SimpleDateFormat DATETIME_FORMAT = new SimpleDateFormat(DATETIME_PATTERN, Locale.ENGLISH);
     static final String READ_OP_ID_PREFIX = "ReadOp@";
     public static final String WRITE_OP_ID_PREFIX = "WriteOp@";
+    static final String[] BATCH_SOURCE_IDS = {
+            GPF.SOURCE_PRODUCT_FIELD_NAME,
+            GPF.SOURCE_PRODUCT_FIELD_NAME + ".1",
+            GPF.SOURCE_PRODUCT_FIELD_NAME + "1"
+    };
 
     private final CommandLineContext commandLineContext;
     //    private final VelocityContext velocityContext;
@@ -141,6 +164,10 @@ class CommandLineTool implements GraphProcessingObserver {
 
     private void run() throws Exception {
         initializeJAI();
+        if (commandLineArgs.isBatchMode()) {
+            runBatch();
+            return;
+        }
         initVelocityContext();
         readMetadata();
         runGraphOrOperator();
@@ -165,6 +192,12 @@ class CommandLineTool implements GraphProcessingObserver {
         final int schedulerParallelism = JAI.getDefaultInstance().getTileScheduler().getParallelism();
         commandLineContext.getLogger().info(
                 MessageFormat.format("JAI tile scheduler parallelism is {0}", schedulerParallelism));
+        final OperatorExecutor.ExecutionOrder executionOrder = commandLineArgs.getExecutionOrder();
+        if (executionOrder != null) {
+            // the property is evaluated by every operator executor, including those used by the Write operator
+            System.setProperty(GPF.EXECUTION_ORDER_PROPERTY, executionOrder.name());
+            commandLineContext.getLogger().info(MessageFormat.format("Tile execution order is {0}", executionOrder));
+        }
     }
 
     private void initVelocityContext() throws Exception {
@@ -278,8 +311,6 @@ class CommandLineTool implements GraphProcessingObserver {
     }
 
     private void runGraph() throws Exception {
-        final OperatorSpiRegistry operatorSpiRegistry = GPF.getDefaultInstance().getOperatorSpiRegistry();
-
         Map<String, String> templateVariables = getRawParameterMap();
 
         Map<String, String> sourceNodeIdMap = getSourceNodeIdMap();
@@ -290,23 +321,34 @@ class CommandLineTool implements GraphProcessingObserver {
         SortedMap<String, String> sourceFilePathsMap = commandLineArgs.getSourceFilePathMap();
 
         // For each source path add a ReadOp to the graph
-        String readOperatorAlias = OperatorSpi.getOperatorAlias(ReadOp.class);
         for (Entry<String, String> entry : sourceFilePathsMap.entrySet()) {
             String sourceId = entry.getKey();
             String sourceFilePath = entry.getValue();
-            String sourceNodeId = sourceNodeIdMap.get(sourceId);
-            if (graph.getNode(sourceNodeId) == null) {
+            addReadNode(graph, sourceNodeIdMap.get(sourceId), sourceFilePath);
+        }
+        addWriteNode(graph, lastNode, commandLineArgs.getTargetFilePath());
+        executeGraph(graph);
+        VelocityContext velocityContext = metadataResourceEngine.getVelocityContext();
+        File graphFile = new File(commandLineArgs.getGraphFilePath());
+        velocityContext.put("graph", graph);
 
-                DomElement configuration = new DefaultDomElement("parameters");
-                configuration.createChild("file").setValue(sourceFilePath);
+        metadataResourceEngine.readResource("graphXml", graphFile.getPath());
+    }
 
-                Node sourceNode = new Node(sourceNodeId, readOperatorAlias);
-                sourceNode.setConfiguration(configuration);
+    private static void addReadNode(Graph graph, String sourceNodeId, String sourceFilePath) {
+        if (graph.getNode(sourceNodeId) == null) {
+            DomElement configuration = new DefaultDomElement("parameters");
+            configuration.createChild("file").setValue(sourceFilePath);
 
-                graph.addNode(sourceNode);
-            }
+            Node sourceNode = new Node(sourceNodeId, OperatorSpi.getOperatorAlias(ReadOp.class));
+            sourceNode.setConfiguration(configuration);
+
+            graph.addNode(sourceNode);
         }
+    }
 
+    private void addWriteNode(Graph graph, Node lastNode, String targetFilePath) throws GraphException {
+        final OperatorSpiRegistry operatorSpiRegistry = GPF.getDefaultInstance().getOperatorSpiRegistry();
         final String operatorName = lastNode.getOperatorName();
         final OperatorSpi lastOpSpi = operatorSpiRegistry.getOperatorSpi(operatorName);
         if (lastOpSpi == null) {
@@ -319,7 +361,7 @@ class CommandLineTool implements GraphProcessingObserver {
             String writeOperatorAlias = OperatorSpi.getOperatorAlias(WriteOp.class);
 
             DomElement configuration = new DefaultDomElement("parameters");
-            configuration.createChild("file").setValue(commandLineArgs.getTargetFilePath());
+            configuration.createChild("file").setValue(targetFilePath);
             configuration.createChild("formatName").setValue(commandLineArgs.getTargetFormatName());
             configuration.createChild("clearCacheAfterRowWrite").setValue(
                     Boolean.toString(commandLineArgs.isClearCacheAfterRowWrite()));
@@ -330,12 +372,6 @@ class CommandLineTool implements GraphProcessingObserver {
 
             graph.addNode(targetNode);
         }
-        executeGraph(graph);
-        VelocityContext velocityContext = metadataResourceEngine.getVelocityContext();
-        File graphFile = new File(commandLineArgs.getGraphFilePath());
-        velocityContext.put("graph", graph);
-
-        metadataResourceEngine.readResource("graphXml", graphFile.getPath());
     }
 
     private Map<String, Object> convertParameterMap(String operatorName, Map<String, String> parameterMap) throws
@@ -544,6 +580,379 @@ class CommandLineTool implements GraphProcessingObserver {
         }
     }
 
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    //  Batch mode
+
+    /**
+     * Processes all source products given by the '-i' option by the same operator or graph. The operator
+     * SPIs, parameters and the graph XML are only loaded once and the products share the JAI tile cache and
+     * scheduler. Metadata files and Velocity templates are not processed in batch mode.
+     */
+    private void runBatch() throws Exception {
+        final List<File> sourceFiles = getBatchSourceFiles();
+        if (sourceFiles.isEmpty()) {
+            throw new IOException("No source products found for batch processing");
+        }
+        final File targetDir = new File(commandLineArgs.getBatchTargetDirPath());
+        final Map<File, File> targetFiles = getBatchTargetFiles(sourceFiles, targetDir);
+        final BatchProcessor processor;
+        if (commandLineArgs.getOperatorName() != null) {
+            processor = createOperatorBatchProcessor();
+        } else {
+            processor = createGraphBatchProcessor();
+        }
+        final List<BatchResult> results = new ArrayList<BatchResult>(sourceFiles.size());
+        final long startTime = System.nanoTime();
+        try {
+            if (!targetDir.isDirectory() && !targetDir.mkdirs()) {
+                throw new IOException("Failed to create target directory " + targetDir);
+            }
+            final int parallelism = Math.min(commandLineArgs.getBatchParallelism(), sourceFiles.size());
+            commandLineContext.getLogger().info(MessageFormat.format("Processing {0} source products, {1} at a time",
+                                                                     sourceFiles.size(), parallelism));
+            final ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+            try {
+                final List<Future<BatchResult>> futures = new ArrayList<Future<BatchResult>>(sourceFiles.size());
+                for (final File sourceFile : sourceFiles) {
+                    final File targetFile = targetFiles.get(sourceFile);
+                    futures.add(executorService.submit(new Callable<BatchResult>() {
+                        @Override
+                        public BatchResult call() {
+                            return processBatchProduct(processor, sourceFile, targetFile);
+                        }
+                    }));
+                }
+                for (Future<BatchResult> future : futures) {
+                    results.add(future.get());
+                }
+            } finally {
+                executorService.shutdown();
+            }
+        } finally {
+            processor.dispose();
+        }
+        final long time = System.nanoTime() - startTime;
+
+        int failureCount = printBatchSummary(results, time);
+        if (failureCount > 0) {
+            throw new OperatorException(String.format("Failed to process %d of %d source products",
+                                                      failureCount, results.size()));
+        }
+    }
+
+    /**
+     * Names the target products after their source products. Fails if two source products would be written to the
+     * same target file, because they are processed concurrently and would overwrite each other.
+     */
+    private Map<File, File> getBatchTargetFiles(List<File> sourceFiles, File targetDir) throws IOException {
+        final String targetExtension = getBatchTargetExtension();
+        final Map<File, File> targetFiles = new LinkedHashMap<File, File>();
+        final Map<File, File> sourceFilesByTarget = new HashMap<File, File>();
+        for (File sourceFile : sourceFiles) {
+            final String targetName = FileUtils.getFilenameWithoutExtension(sourceFile) + targetExtension;
+            final File targetFile = new File(targetDir, targetName);
+            final File otherSourceFile = sourceFilesByTarget.put(targetFile.getCanonicalFile(), sourceFile);
+            if (otherSourceFile != null) {
+                throw new IOException(String.format("Source products '%s' and '%s' would both be written to '%s'",
+                                                    otherSourceFile, sourceFile, targetFile));
+            }
+            targetFiles.put(sourceFile, targetFile);
+        }
+        return targetFiles;
+    }
+
+    private BatchResult processBatchProduct(BatchProcessor processor, File sourceFile, File targetFile) {
+        final long startTime = System.nanoTime();
+        long pixelCount = 0;
+        Exception error = null;
+        try {
+            if (targetFile.getCanonicalFile().equals(sourceFile.getCanonicalFile())) {
+                throw new IOException("Target product must not overwrite the source product");
+            }
+            commandLineContext.getLogger().info(MessageFormat.format("Processing {0}", sourceFile));
+            pixelCount = processor.process(sourceFile, targetFile);
+        } catch (Exception e) {
+            error = e;
+            logSevereProblem(String.format("Failed to process '%s': %s", sourceFile, e.getMessage()), e);
+        }
+        return new BatchResult(sourceFile, targetFile, pixelCount, System.nanoTime() - startTime, error);
+    }
+
+    private int printBatchSummary(List<BatchResult> results, long time) {
+        final StringBuilder sb = new StringBuilder("Batch processing summary:\n");
+        int failureCount = 0;
+        for (BatchResult result : results) {
+            final double seconds = result.time * 1.0E-9;
+            if (result.error == null) {
+                final double throughput = seconds > 0.0 ? result.pixelCount / seconds / (1000 * 1000) : 0.0;
+                sb.append(String.format(Locale.ENGLISH, "  %s -> %s: %.1f s, %.2f mega-pixels/s%n",
+                                        result.sourceFile.getName(), result.targetFile.getName(),
+                                        seconds, throughput));
+            } else {
+                sb.append(String.format(Locale.ENGLISH, "  %s: failed after %.1f s: %s%n",
+                                        result.sourceFile.getName(), seconds, result.error.getMessage()));
+                failureCount++;
+            }
+        }
+        sb.append(String.format(Locale.ENGLISH, "Processed %d of %d source products in %.1f s%n",
+                                results.size() - failureCount, results.size(), time * 1.0E-9));
+        commandLineContext.print(sb.toString());
+        return failureCount;
+    }
+
+    private List<File> getBatchSourceFiles() throws IOException {
+        final Set<File> sourceFiles = new LinkedHashSet<File>();
+        for (String pattern : commandLineArgs.getBatchSourcePatterns()) {
+            if (pattern.startsWith("@")) {
+                final BufferedReader reader = new BufferedReader(commandLineContext.createReader(pattern.substring(1)));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (!line.isEmpty() && !line.startsWith("#")) {
+                            addBatchSourceFiles(line, sourceFiles);
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } else {
+                addBatchSourceFiles(pattern, sourceFiles);
+            }
+        }
+        return new ArrayList<File>(sourceFiles);
+    }
+
+    private void addBatchSourceFiles(String pattern, Set<File> sourceFiles) throws IOException {
+        final Set<File> files = new TreeSet<File>();
+        WildcardMatcher.glob(pattern, files);
+        if (files.isEmpty()) {
+            commandLineContext.getLogger().warning(String.format("No source products found for '%s'", pattern));
+        }
+        for (File file : files) {
+            sourceFiles.add(file.getCanonicalFile());
+        }
+    }
+
+    private String getBatchTargetExtension() {
+        final String formatName = commandLineArgs.getTargetFormatName();
+        final ProductIOPlugInManager plugInManager = ProductIOPlugInManager.getInstance();
+        final Iterator<ProductWriterPlugIn> writerPlugIns = plugInManager.getWriterPlugIns(formatName);
+        if (writerPlugIns.hasNext()) {
+            final String[] extensions = writerPlugIns.next().getDefaultFileExtensions();
+            if (extensions != null && extensions.length > 0) {
+                return extensions[0];
+            }
+        }
+        final String extension = FileUtils.getExtension(commandLineArgs.getTargetFilePath());
+        return extension != null ? extension : "";
+    }
+
+    private BatchProcessor createOperatorBatchProcessor() throws Exception {
+        final String operatorName = commandLineArgs.getOperatorName();
+        checkBatchOperator(operatorName);
+        final Map<String, Object> parameters = convertParameterMap(operatorName, getRawParameterMap());
+        // products given by the '-S' option are shared by all runs
+        final Map<String, Product> sharedSourceProducts = getSourceProductMap();
+        final String formatName = commandLineArgs.getTargetFormatName();
+        final boolean clearCacheAfterRowWrite = commandLineArgs.isClearCacheAfterRowWrite();
+
+        return new BatchProcessor() {
+            @Override
+            public long process(File sourceFile, File targetFile) throws Exception {
+                final Product sourceProduct = readProduct(sourceFile.getPath());
+                if (sourceProduct == null) {
+                    throw new IOException("No appropriate product reader found for " + sourceFile);
+                }
+                Product targetProduct = null;
+                try {
+                    final Map<String, Product> sourceProducts = new HashMap<String, Product>(sharedSourceProducts);
+                    for (String sourceId : BATCH_SOURCE_IDS) {
+                        sourceProducts.put(sourceId, sourceProduct);
+                    }
+                    targetProduct = createOpProduct(operatorName, new HashMap<String, Object>(parameters),
+                                                    sourceProducts);
+                    writeProduct(targetProduct, targetFile.getPath(), formatName, clearCacheAfterRowWrite);
+                    return (long) targetProduct.getSceneRasterWidth() * targetProduct.getSceneRasterHeight();
+                } finally {
+                    if (targetProduct != null) {
+                        targetProduct.dispose();
+                    }
+                    sourceProduct.dispose();
+                }
+            }
+
+            @Override
+            public void dispose() {
+                for (Product product : new HashSet<Product>(sharedSourceProducts.values())) {
+                    product.dispose();
+                }
+            }
+        };
+    }
+
+    private BatchProcessor createGraphBatchProcessor() throws Exception {
+        final Map<String, String> templateVariables = getRawParameterMap();
+        final Map<String, String> sourceNodeIdMap = getSourceNodeIdMap();
+        final String batchSourceNodeId = READ_OP_ID_PREFIX + GPF.SOURCE_PRODUCT_FIELD_NAME;
+        for (String sourceId : BATCH_SOURCE_IDS) {
+            sourceNodeIdMap.put(sourceId, batchSourceNodeId);
+        }
+        templateVariables.putAll(sourceNodeIdMap);
+        // the graph XML is read once, every run gets its own copy of the graph
+        final Graph batchGraph = readGraph(commandLineArgs.getGraphFilePath(), templateVariables);
+        checkBatchGraph(batchGraph);
+        final StringWriter graphXml = new StringWriter();
+        GraphIO.write(batchGraph, graphXml);
+        final SortedMap<String, String> sourceFilePathsMap = commandLineArgs.getSourceFilePathMap();
+
+        return new BatchProcessor() {
+            @Override
+            public long process(File sourceFile, File targetFile) throws Exception {
+                final Graph graph = GraphIO.read(new StringReader(graphXml.toString()));
+                final Node lastNode = graph.getNode(graph.getNodeCount() - 1);
+                for (Entry<String, String> entry : sourceFilePathsMap.entrySet()) {
+                    addReadNode(graph, sourceNodeIdMap.get(entry.getKey()), entry.getValue());
+                }
+                addReadNode(graph, batchSourceNodeId, sourceFile.getPath());
+                if (isWriteNode(lastNode)) {
+                    setWriteNodeTarget(lastNode, targetFile.getPath());
+                } else {
+                    addWriteNode(graph, lastNode, targetFile.getPath());
+                }
+                final BatchGraphProcessingObserver observer = new BatchGraphProcessingObserver();
+                commandLineContext.executeGraph(graph, observer);
+                return observer.pixelCount;
+            }
+
+            @Override
+            public void dispose() {
+            }
+        };
+    }
+
+    /**
+     * Only the last node of a batch graph may write its output, and only if it is a {@link WriteOp} node, whose
+     * target file is then replaced by the target file of the source product. Any other writing node would write
+     * all products to the same file.
+     */
+    private static void checkBatchGraph(Graph graph) {
+        final Node lastNode = graph.getNode(graph.getNodeCount() - 1);
+        for (Node node : graph.getNodes()) {
+            if (isWriteNode(node)) {
+                if (node != lastNode) {
+                    throw new OperatorException(String.format(
+                            "Graph node '%s' writes to a fixed file, only the last node of a graph may be a '%s' " +
+                            "node in batch mode", node.getId(), OperatorSpi.getOperatorAlias(WriteOp.class)));
+                }
+            } else {
+                checkBatchOperator(node.getOperatorName());
+            }
+        }
+    }
+
+    /**
+     * Operators implementing {@link Output} write their target products themselves and don't know the
+     * target file of a source product, so they would write all products to the same file.
+     */
+    private static void checkBatchOperator(String operatorName) {
+        if (Output.class.isAssignableFrom(getOperatorSpi(operatorName).getOperatorClass())) {
+            throw new OperatorException(String.format(
+                    "Operator '%s' writes its own output and cannot be used in batch mode", operatorName));
+        }
+    }
+
+    private static boolean isWriteNode(Node node) {
+        return WriteOp.class.isAssignableFrom(getOperatorSpi(node.getOperatorName()).getOperatorClass());
+    }
+
+    private void setWriteNodeTarget(Node writeNode, String targetFilePath) {
+        DomElement configuration = writeNode.getConfiguration();
+        if (configuration == null) {
+            configuration = new DefaultDomElement("parameters");
+            writeNode.setConfiguration(configuration);
+        }
+        setChildValue(configuration, "file", targetFilePath);
+        // the target file has the extension of this format, see getBatchTargetFiles()
+        setChildValue(configuration, "formatName", commandLineArgs.getTargetFormatName());
+        // the jobs share the tile cache, only '-x' decides whether it may be cleared, see CommandLineArgs
+        setChildValue(configuration, "clearCacheAfterRowWrite",
+                      Boolean.toString(commandLineArgs.isClearCacheAfterRowWrite()));
+    }
+
+    private static void setChildValue(DomElement element, String childName, String value) {
+        DomElement child = element.getChild(childName);
+        if (child == null) {
+            child = element.createChild(childName);
+        }
+        child.setValue(value);
+    }
+
+    private static OperatorSpi getOperatorSpi(String operatorName) {
+        final OperatorSpiRegistry operatorSpiRegistry = GPF.getDefaultInstance().getOperatorSpiRegistry();
+        final OperatorSpi operatorSpi = operatorSpiRegistry.getOperatorSpi(operatorName);
+        if (operatorSpi == null) {
+            throw new OperatorException(String.format("Unknown operator name '%s'. No SPI found.", operatorName));
+        }
+        return operatorSpi;
+    }
+
+    private interface BatchProcessor {
+
+        /**
+         * Processes a single source product.
+         *
+         * @return the number of pixels of the target product(s)
+         */
+        long process(File sourceFile, File targetFile) throws Exception;
+
+        /**
+         * Releases the resources shared by all source products.
+         */
+        void dispose();
+    }
+
+    private static class BatchResult {
+
+        private final File sourceFile;
+        private final File targetFile;
+        private final long pixelCount;
+        private final long time;
+        private final Exception error;
+
+        private BatchResult(File sourceFile, File targetFile, long pixelCount, long time, Exception error) {
+            this.sourceFile = sourceFile;
+            this.targetFile = targetFile;
+            this.pixelCount = pixelCount;
+            this.time = time;
+            this.error = error;
+        }
+    }
+
+    private static class BatchGraphProcessingObserver implements GraphProcessingObserver {
+
+        private long pixelCount;
+
+        @Override
+        public void graphProcessingStarted(GraphContext graphContext) {
+        }
+
+        @Override
+        public void graphProcessingStopped(GraphContext graphContext) {
+            for (Product product : graphContext.getOutputProducts()) {
+                pixelCount += (long) product.getSceneRasterWidth() * product.getSceneRasterHeight();
+            }
+        }
+
+        @Override
+        public void tileProcessingStarted(GraphContext graphContext, Rectangle tileRectangle) {
+        }
+
+        @Override
+        public void tileProcessingStopped(GraphContext graphContext, Rectangle tileRectangle) {
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     //  GraphProcessingObserver impl
 
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.framework.gpf.monitor;
+
+import java.awt.image.RenderedImage;
+
+/**
+ * The usage of the tile cache by a single image.
+ *
+ * @see TileComputationObserver#tileCacheStatistics(TileCacheStatistics[])
+ * @since BEAM 5.0
+ */
+public final class TileCacheStatistics {
+
+    private final RenderedImage image;
+    private final int tileCount;
+    private final long sizeInBytes;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public TileCacheStatistics(RenderedImage image, int tileCount, long sizeInBytes,
+                               long hitCount, long missCount, long evictionCount) {
+        this.image = image;
+        this.tileCount = tileCount;
+        this.sizeInBytes = sizeInBytes;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * @return The image owning the tiles.
+     */
+    public RenderedImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return The number of tiles of the image currently in the cache.
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * @return The memory currently occupied by the tiles of the image.
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return The number of tiles of the image removed from the cache in order to make room for other tiles.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return The ratio of tile requests served by the cache, or 0 if no tiles have been requested.
+     */
+    public double getHitRatio() {
+        final long requestCount = hitCount + missCount;
+        return requestCount > 0 ? (double) hitCount / requestCount : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, tiles=%d, size=%d bytes, hits=%d, misses=%d, hitRatio=%.1f%%, evictions=%d",
+                             image, tileCount, sizeInBytes, hitCount, missCount, 100.0 * getHitRatio(),
+                             evictionCount);
+    }
+}
@@ -104,6 +104,13 @@ public class TileComputationEventLogger extends TileComputationObserver {
         }
     }
 
+    @Override
+    public void tileCacheStatistics(TileCacheStatistics[] statistics) {
+        for (TileCacheStatistics imageStatistics : statistics) {
+            getLogger().log(Level.INFO, "Tile cache usage: " + imageStatistics);
+        }
+    }
+
     @Override
     public void stop() {
         recordedEventSet.clear();
@@ -57,6 +57,17 @@ public abstract class TileComputationObserver {
      */
     public abstract void tileComputed(TileComputationEvent event);
 
+    /**
+     * Called once before {@link #stop()} with the usage of the tile cache by each image, if the tile cache shared
+     * by the GPF operators records it (see {@link org.esa.beam.framework.gpf.GPF#USE_OFF_HEAP_TILE_CACHE_PROPERTY}).
+     * The default implementation does nothing.
+     *
+     * @param statistics The tile cache statistics per image.
+     * @since BEAM 5.0
+     */
+    public void tileCacheStatistics(TileCacheStatistics[] statistics) {
+    }
+
     /**
      * Stops observation of tile computation events.
      */
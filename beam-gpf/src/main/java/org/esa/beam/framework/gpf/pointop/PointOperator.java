@@ -23,11 +23,18 @@ import org.esa.beam.framework.datamodel.RasterDataNode;
 import org.esa.beam.framework.gpf.Operator;
 import org.esa.beam.framework.gpf.OperatorException;
 import org.esa.beam.framework.gpf.Tile;
+import org.esa.beam.framework.gpf.internal.TileImpl;
+import org.esa.beam.jai.ImageManager;
 import org.esa.beam.util.ProductUtils;
 
 import java.awt.*;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +54,7 @@ public abstract class PointOperator extends Operator {
 
     private transient RasterDataNode[] sourceNodes;
     private transient Band[] targetNodes;
+    private transient Map<RasterDataNode, PointOperator> fusedSourceNodes;
 
     /**
      * Configures this {@code PointOperator} by performing a number of initialisation steps in the given order:
@@ -190,8 +198,100 @@ public abstract class PointOperator extends Operator {
     }
 
     Sample[] createSourceSamples(Rectangle targetRectangle, Point location) {
-        final Tile[] sourceTiles = getSourceTiles(targetRectangle);
-        return createDefaultSamples(sourceNodes, sourceTiles, location);
+        if (fusedSourceNodes == null) {
+            final Tile[] sourceTiles = getSourceTiles(targetRectangle);
+            return createDefaultSamples(sourceNodes, sourceTiles, location);
+        }
+        final Sample[] sourceSamples = new Sample[sourceNodes.length];
+        final Map<PointOperator, FusedComputation> computations = new HashMap<PointOperator, FusedComputation>();
+        for (int i = 0; i < sourceNodes.length; i++) {
+            final RasterDataNode sourceNode = sourceNodes[i];
+            final PointOperator fusedOperator = sourceNode != null ? fusedSourceNodes.get(sourceNode) : null;
+            if (sourceNode == null) {
+                sourceSamples[i] = WritableSampleImpl.NULL;
+            } else if (fusedOperator != null) {
+                FusedComputation computation = computations.get(fusedOperator);
+                if (computation == null) {
+                    computation = new FusedComputation(fusedOperator, targetRectangle, location);
+                    computations.put(fusedOperator, computation);
+                }
+                sourceSamples[i] = new FusedSample(i, sourceNode, computation,
+                                                   fusedOperator.getTargetNodeIndex(sourceNode));
+            } else {
+                sourceSamples[i] = new WritableSampleImpl(i, getSourceTile(sourceNode, targetRectangle), location);
+            }
+        }
+        return sourceSamples;
+    }
+
+    /**
+     * Tests whether the target samples of the given operator, which computes (some of) the source products of this
+     * operator, can be computed pixel by pixel while this operator computes its target samples.
+     * <p/>
+     * A {@link SampleOperator} computes each of its target bands separately, so the fused samples would be
+     * computed once per target band. Therefore only {@link PixelOperator}s and sample operators with a single
+     * target band can be fused with their sources.
+     *
+     * @param sourceOperator The operator computing a source product.
+     * @return {@code true}, if this operator reads target samples of the given operator which can be fused.
+     */
+    boolean canFuse(PointOperator sourceOperator) {
+        if (!(sourceOperator instanceof SampleOperator || sourceOperator instanceof PixelOperator)) {
+            return false;
+        }
+        if (sourceNodes == null || sourceOperator.targetNodes == null || sourceOperator == this) {
+            return false;
+        }
+        if (!(this instanceof PixelOperator) && getTargetNodeCount() != 1) {
+            return false;
+        }
+        for (RasterDataNode sourceNode : sourceNodes) {
+            if (sourceNode != null && sourceOperator.getTargetNodeIndex(sourceNode) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lets this operator compute the samples it reads from the target product of the given operator itself,
+     * instead of requesting the tiles of the target product.
+     *
+     * @param sourceOperator The operator computing a source product.
+     */
+    void fuse(PointOperator sourceOperator) {
+        final Map<RasterDataNode, PointOperator> nodes = new HashMap<RasterDataNode, PointOperator>();
+        if (fusedSourceNodes != null) {
+            nodes.putAll(fusedSourceNodes);
+        }
+        for (RasterDataNode sourceNode : sourceNodes) {
+            if (sourceNode != null && sourceOperator.getTargetNodeIndex(sourceNode) >= 0) {
+                nodes.put(sourceNode, sourceOperator);
+            }
+        }
+        fusedSourceNodes = nodes;
+    }
+
+    private int getTargetNodeCount() {
+        int count = 0;
+        if (targetNodes != null) {
+            for (Band targetNode : targetNodes) {
+                if (targetNode != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int getTargetNodeIndex(RasterDataNode node) {
+        for (int i = 0; i < targetNodes.length; i++) {
+            //noinspection ObjectEquality
+            if (targetNodes[i] == node) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     WritableSample[] createTargetSamples(Map<Band, Tile> targetTileStack, Point location) {
@@ -340,6 +440,132 @@ public abstract class PointOperator extends Operator {
         }
     }
 
+    /**
+     * Computes the target samples of a fused operator for the current location of a tile computation. The samples
+     * are written to tiles backed by a single data element, so they are subject to the same conversions as
+     * samples which are written to and read from regular tiles.
+     */
+    private static final class FusedComputation {
+
+        private final PointOperator operator;
+        private final Point location;
+        private final Sample[] sourceSamples;
+        private final WritableSample[] targetSamples;
+        private final WritableRaster[] targetRasters;
+        private final int[] computedX;
+        private final int[] computedY;
+
+        private FusedComputation(PointOperator operator, Rectangle rectangle, Point location) {
+            this.operator = operator;
+            this.location = location;
+            this.sourceSamples = operator.createSourceSamples(rectangle, location);
+            final Band[] nodes = operator.targetNodes;
+            this.targetSamples = new WritableSample[nodes.length];
+            this.targetRasters = new WritableRaster[nodes.length];
+            this.computedX = new int[nodes.length];
+            this.computedY = new int[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] != null) {
+                    final int dataBufferType = ImageManager.getDataBufferType(nodes[i].getDataType());
+                    // pixel and scanline strides of zero map all pixels of the rectangle to the same data element
+                    final SampleModel sampleModel = new PixelInterleavedSampleModel(dataBufferType,
+                                                                                    rectangle.width,
+                                                                                    rectangle.height,
+                                                                                    0, 0, new int[]{0});
+                    targetRasters[i] = Raster.createWritableRaster(sampleModel, rectangle.getLocation());
+                    targetSamples[i] = new WritableSampleImpl(i, new TileImpl(nodes[i], targetRasters[i], rectangle),
+                                                              location);
+                } else {
+                    targetSamples[i] = WritableSampleImpl.NULL;
+                }
+                computedX[i] = Integer.MIN_VALUE;
+                computedY[i] = Integer.MIN_VALUE;
+            }
+        }
+
+        Sample getTargetSample(int targetIndex) {
+            if (computedX[targetIndex] != location.x || computedY[targetIndex] != location.y) {
+                if (operator instanceof PixelOperator) {
+                    for (int i = 0; i < targetRasters.length; i++) {
+                        clear(i);
+                    }
+                    ((PixelOperator) operator).computePixel(location.x, location.y, sourceSamples, targetSamples);
+                } else {
+                    clear(targetIndex);
+                    ((SampleOperator) operator).computeSample(location.x, location.y, sourceSamples,
+                                                              targetSamples[targetIndex]);
+                }
+            }
+            return targetSamples[targetIndex];
+        }
+
+        private void clear(int targetIndex) {
+            // a regular target tile is initialised with zeros, too
+            if (targetRasters[targetIndex] != null) {
+                targetRasters[targetIndex].setSample(location.x, location.y, 0, 0);
+            }
+            computedX[targetIndex] = location.x;
+            computedY[targetIndex] = location.y;
+        }
+    }
+
+    private static final class FusedSample implements Sample {
+
+        private final int index;
+        private final RasterDataNode node;
+        private final int dataType;
+        private final FusedComputation computation;
+        private final int targetIndex;
+
+        private FusedSample(int index, RasterDataNode node, FusedComputation computation, int targetIndex) {
+            this.index = index;
+            this.node = node;
+            this.dataType = node.getGeophysicalDataType();
+            this.computation = computation;
+            this.targetIndex = targetIndex;
+        }
+
+        @Override
+        public RasterDataNode getNode() {
+            return node;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public int getDataType() {
+            return dataType;
+        }
+
+        @Override
+        public boolean getBit(int bitIndex) {
+            return computation.getTargetSample(targetIndex).getBit(bitIndex);
+        }
+
+        @Override
+        public boolean getBoolean() {
+            return computation.getTargetSample(targetIndex).getBoolean();
+        }
+
+        @Override
+        public int getInt() {
+            return computation.getTargetSample(targetIndex).getInt();
+        }
+
+        @Override
+        public float getFloat() {
+            return computation.getTargetSample(targetIndex).getFloat();
+        }
+
+        @Override
+        public double getDouble() {
+            return computation.getTargetSample(targetIndex).getDouble();
+        }
+    }
+
     private abstract static class AbstractSampleConfigurer<T extends RasterDataNode> implements SampleConfigurer {
 
         final List<T> nodes = new ArrayList<T>();
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.gpf.pointop;
+
+import org.esa.beam.framework.gpf.Operator;
+
+/**
+ * Fuses chains of {@link PointOperator}s. If an operator is fused with the operator computing one of its source
+ * products, the source samples are computed pixel by pixel while the operator computes its own target tiles,
+ * instead of being computed tile by tile and passed through the tile cache. The behaviour of the operators is
+ * not changed by fusing them.
+ * <p/>
+ * This class is used by the graph processing framework. Clients usually don't need to use it.
+ *
+ * @since BEAM 5.0
+ */
+public final class PointOperatorFusion {
+
+    private PointOperatorFusion() {
+    }
+
+    /**
+     * Tests whether the given operators can be fused. Both operators must have been initialised. The source
+     * operator must be a {@link SampleOperator} or {@link PixelOperator}, the other operator must be a
+     * {@link PixelOperator} or a {@link SampleOperator} with a single target band.
+     *
+     * @param sourceOperator The operator computing (one of) the source products of the other operator.
+     * @param operator       The operator.
+     * @return {@code true}, if the operators can be fused.
+     */
+    public static boolean canFuse(Operator sourceOperator, Operator operator) {
+        return sourceOperator instanceof PointOperator
+               && operator instanceof PointOperator
+               && ((PointOperator) operator).canFuse((PointOperator) sourceOperator);
+    }
+
+    /**
+     * Fuses the given operators. The target tiles of the source operator will not be requested by the other
+     * operator anymore. If other clients request them, the samples are computed twice, so operators should only
+     * be fused if the other operator is the only client of the source operator.
+     *
+     * @param sourceOperator The operator computing (one of) the source products of the other operator.
+     * @param operator       The operator.
+     * @throws IllegalArgumentException if the operators cannot be fused.
+     * @see #canFuse(Operator, Operator)
+     */
+    public static void fuse(Operator sourceOperator, Operator operator) {
+        if (!canFuse(sourceOperator, operator)) {
+            throw new IllegalArgumentException("Operators cannot be fused.");
+        }
+        ((PointOperator) operator).fuse((PointOperator) sourceOperator);
+    }
+}
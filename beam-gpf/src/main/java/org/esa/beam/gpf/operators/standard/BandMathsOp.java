@@ -22,10 +22,13 @@ import com.bc.jexp.impl.SymbolFactory;
 import org.esa.beam.framework.datamodel.Band;
 import org.esa.beam.framework.datamodel.Product;
 import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.datamodel.RasterDataNode;
 import org.esa.beam.framework.dataop.barithm.BandArithmetic;
 import org.esa.beam.framework.dataop.barithm.BandArithmetic.ProductPrefixProvider;
+import org.esa.beam.framework.dataop.barithm.CompiledTerm;
 import org.esa.beam.framework.dataop.barithm.RasterDataEvalEnv;
 import org.esa.beam.framework.dataop.barithm.RasterDataSymbol;
+import org.esa.beam.framework.dataop.barithm.TermCompiler;
 import org.esa.beam.framework.gpf.Operator;
 import org.esa.beam.framework.gpf.OperatorException;
 import org.esa.beam.framework.gpf.OperatorSpi;
@@ -156,6 +159,8 @@ public class BandMathsOp extends Operator {
     private Variable[] variables;
 
     private Map<Band, BandDescriptor> descriptorMap;
+    // the band terms compiled in initialize(), tiles create new instances of them for their own terms
+    private Map<Band, CompiledTerm> compiledTermMap;
 
     public static BandMathsOp createBooleanExpressionBand(String expression, Product sourceProduct) {
         BandDescriptor[] bandDescriptors = new BandDescriptor[1];
@@ -195,6 +200,14 @@ public class BandMathsOp extends Operator {
         for (BandDescriptor bandDescriptor : targetBandDescriptors) {
             createBand(bandDescriptor, verificationParser);
         }
+        compiledTermMap = new HashMap<Band, CompiledTerm>(targetBandDescriptors.length);
+        for (Map.Entry<Band, BandDescriptor> entry : descriptorMap.entrySet()) {
+            // compile the terms once here, tiles only instantiate the compiled classes, see CompiledTerm.newInstance
+            final Term term = createTerm(entry.getValue().expression);
+            final RasterDataSymbol[] refRasterDataSymbols = BandArithmetic.getRefRasterDataSymbols(term);
+            compiledTermMap.put(entry.getKey(), TermCompiler.compile(term, refRasterDataSymbols,
+                                                                     getDataTypes(refRasterDataSymbols)));
+        }
 
         ProductUtils.copyMetadata(sourceProducts[0], targetProduct);
         ProductUtils.copyGeoCoding(sourceProducts[0], targetProduct);
@@ -226,6 +239,9 @@ public class BandMathsOp extends Operator {
         }
 
         final RasterDataEvalEnv env = new RasterDataEvalEnv(rect.x, rect.y, rect.width, rect.height);
+        final CompiledTerm compiledBandTerm = compiledTermMap.get(band);
+        final CompiledTerm compiledTerm = compiledBandTerm != null ? compiledBandTerm.newInstance(term) : null;
+        final double[] values = new double[rect.width];
         pm.beginTask("Evaluating expression", rect.height);
         try {
             int pixelIndex = 0;
@@ -233,11 +249,16 @@ public class BandMathsOp extends Operator {
                 if (pm.isCanceled()) {
                     break;
                 }
-                for (int x = rect.x; x < rect.x + rect.width; x++) {
+                if (compiledTerm != null && compiledTerm.isApplicable()) {
+                    compiledTerm.evalD(env, pixelIndex, rect.width, values);
+                } else {
                     env.setElemIndex(pixelIndex);
-                    targetTile.setSample(x, y, term.evalD(env));
-                    pixelIndex++;
+                    term.evalD(env, values, 0, rect.width);
+                }
+                for (int x = rect.x, i = 0; x < rect.x + rect.width; x++, i++) {
+                    targetTile.setSample(x, y, values[i]);
                 }
+                pixelIndex += rect.width;
                 pm.worked(1);
             }
         } finally {
@@ -289,6 +310,16 @@ public class BandMathsOp extends Operator {
         }
     }
 
+    private static int[] getDataTypes(RasterDataSymbol[] refRasterDataSymbols) {
+        final int[] dataTypes = new int[refRasterDataSymbols.length];
+        for (int i = 0; i < refRasterDataSymbols.length; i++) {
+            final RasterDataNode raster = refRasterDataSymbols[i].getRaster();
+            // see computeTile: scaled rasters are evaluated on float samples, all others on the raw samples
+            dataTypes[i] = raster.isScalingApplied() ? ProductData.TYPE_FLOAT32 : raster.getDataType();
+        }
+        return dataTypes;
+    }
+
     private Namespace createNamespace() {
         WritableNamespace namespace = BandArithmetic.createDefaultNamespace(sourceProducts, 0,
                                                                             new SourceProductPrefixProvider());
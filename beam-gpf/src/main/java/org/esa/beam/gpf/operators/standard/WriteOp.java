@@ -72,6 +72,7 @@ import java.util.Map;
  *         &lt;deleteOutputOnFailure&gt;true&lt;/deleteOutputOnFailure&gt;
  *         &lt;writeEntireTileRows&gt;true&lt;/writeEntireTileRows&gt;
  *         &lt;clearCacheAfterRowWrite&gt;true&lt;/clearCacheAfterRowWrite&gt;
+ *         &lt;writeQueueDepth&gt;16&lt;/writeQueueDepth&gt;
  *     &lt;/parameters&gt;
  * &lt;/node&gt;
  * </pre>
@@ -113,7 +114,8 @@ public class WriteOp extends Operator implements Output {
     private boolean deleteOutputOnFailure = true;
 
     @Parameter(defaultValue = "true",
-               description = "If true, the write operation waits until an entire tile row is computed.")
+               description = "If true, the write operation waits until an entire tile row is computed. " +
+                             "Ignored if BEAM-DIMAP band data files are written in tiled organisation.")
     private boolean writeEntireTileRows;
 
     /**
@@ -123,16 +125,27 @@ public class WriteOp extends Operator implements Output {
                description = "If true, the internal tile cache is cleared after a tile row has been written. Ignored if writeEntireTileRows=false.")
     private boolean clearCacheAfterRowWrite;
 
+    /**
+     * @since BEAM 5.0
+     */
+    @Parameter(defaultValue = "0",
+               description = "If greater than zero, computed tiles are written asynchronously by a dedicated I/O thread. " +
+                             "The value is the maximum number of pending write requests, tile computation blocks if it is reached.")
+    private int writeQueueDepth;
+
     private final Map<MultiLevelImage, List<Point>> todoLists = new HashMap<MultiLevelImage, List<Point>>();
     private final Map<Row, Tile[]> writeCache = new HashMap<Row, Tile[]>();
 
     private ProductWriter productWriter;
+    private WriteQueue writeQueue;
+    private boolean writeTiles;
     private List<Band> writableBands;
     private Dimension tileSize;
     private int tileCountX;
 
     private boolean outputFileExists = false;
     private boolean incremental = false;
+    private volatile boolean failed = false;
 
     public WriteOp() {
         setRequiresAllBands(true);
@@ -190,6 +203,22 @@ public class WriteOp extends Operator implements Output {
         this.clearCacheAfterRowWrite = clearCacheAfterRowWrite;
     }
 
+    public int getWriteQueueDepth() {
+        return writeQueueDepth;
+    }
+
+    /**
+     * Sets the maximum number of pending write requests. If greater than zero, tiles are written by a dedicated
+     * I/O thread, while the threads computing the tiles continue. Must be set before the operator is initialised.
+     *
+     * @param writeQueueDepth The maximum number of pending write requests, or zero for synchronous writing.
+     *
+     * @since BEAM 5.0
+     */
+    public void setWriteQueueDepth(int writeQueueDepth) {
+        this.writeQueueDepth = writeQueueDepth;
+    }
+
     /**
      * Writes the source product.
      *
@@ -201,6 +230,7 @@ public class WriteOp extends Operator implements Output {
         OperatorExecutor operatorExecutor = OperatorExecutor.create(this);
         try {
             operatorExecutor.execute(ExecutionOrder.SCHEDULE_ROW_COLUMN_BAND, pm);
+            closeWriteQueue();
 
             getLogger().info("End writing product " + getTargetProduct().getName() + " to " + getFile());
 
@@ -212,9 +242,16 @@ public class WriteOp extends Operator implements Output {
                                                   seconds,
                                                   seconds / h,
                                                   seconds / h / w));
+            if (writeQueue != null) {
+                getLogger().info(MessageFormat.format("Write queue: {0} sec. writing, {1} sec. blocked on I/O",
+                                                      writeQueue.getWritingNanos() / 1.0E9,
+                                                      writeQueue.getBlockedNanos() / 1.0E9));
+            }
 
             stopTileComputationObservation();
         } catch (OperatorException e) {
+            failed = true;
+            cancelWriteQueue();
             if (deleteOutputOnFailure && !outputFileExists) {
                 try {
                     productWriter.deleteOutput();
@@ -255,6 +292,12 @@ public class WriteOp extends Operator implements Output {
         } catch (IOException e) {
             throw new OperatorException("Not able to write product file: '" + file.getAbsolutePath() + "'", e);
         }
+        // tiled DIMAP data files are written tile by tile, in any order and concurrently
+        writeTiles = productWriter instanceof DimapProductWriter
+                     && ((DimapProductWriter) productWriter).getTileSize() != null;
+        if (writeQueueDepth > 0) {
+            writeQueue = new WriteQueue("WriteOp-" + file.getName(), writeQueueDepth);
+        }
     }
 
     @Override
@@ -264,7 +307,7 @@ public class WriteOp extends Operator implements Output {
         }
         try {
             final Rectangle rect = targetTile.getRectangle();
-            if (writeEntireTileRows) {
+            if (writeEntireTileRows && !writeTiles) {
                 int tileX = MathUtils.floorInt(targetTile.getMinX() / (double) tileSize.width);
                 int tileY = MathUtils.floorInt(targetTile.getMinY() / (double) tileSize.height);
                 Row row = new Row(targetBand, tileY);
@@ -273,14 +316,12 @@ public class WriteOp extends Operator implements Output {
                     writeTileRow(targetBand, tileRow);
                 }
             } else {
-                final ProductData rawSamples = targetTile.getRawSamples();
-                synchronized (productWriter) {
-                    productWriter.writeBandRasterData(targetBand, rect.x, rect.y, rect.width, rect.height, rawSamples,
-                                                      pm);
-                }
+                writeTile(targetBand, rect, targetTile.getRawSamples());
             }
             markTileDone(targetBand, targetTile);
         } catch (Exception e) {
+            failed = true;
+            cancelWriteQueue();
             if (deleteOutputOnFailure && !outputFileExists) {
                 try {
                     productWriter.deleteOutput();
@@ -315,7 +356,60 @@ public class WriteOp extends Operator implements Output {
         }
     }
 
-    private void writeTileRow(Band band, Tile[] cacheLine) throws IOException {
+    private void writeTile(final Band band, final Rectangle rect, final ProductData rawSamples) throws IOException {
+        write(new WriteQueue.Task() {
+            @Override
+            public void write() throws IOException {
+                if (writeTiles) {
+                    productWriter.writeBandRasterData(band, rect.x, rect.y, rect.width, rect.height, rawSamples,
+                                                      ProgressMonitor.NULL);
+                    return;
+                }
+                synchronized (productWriter) {
+                    productWriter.writeBandRasterData(band, rect.x, rect.y, rect.width, rect.height, rawSamples,
+                                                      ProgressMonitor.NULL);
+                }
+            }
+        });
+    }
+
+    private void writeTileRow(final Band band, final Tile[] cacheLine) throws IOException {
+        write(new WriteQueue.Task() {
+            @Override
+            public void write() throws IOException {
+                writeTileRowImpl(band, cacheLine);
+            }
+        });
+    }
+
+    /**
+     * Executes the given task, either directly or by handing it over to the I/O thread
+     * if asynchronous writing is enabled.
+     */
+    private void write(WriteQueue.Task task) throws IOException {
+        if (writeQueue != null) {
+            writeQueue.put(task);
+        } else {
+            task.write();
+        }
+    }
+
+    /**
+     * Waits until all pending writes are done. Failures of the I/O thread are rethrown.
+     */
+    private void closeWriteQueue() {
+        if (writeQueue != null) {
+            writeQueue.close();
+        }
+    }
+
+    private void cancelWriteQueue() {
+        if (writeQueue != null) {
+            writeQueue.cancel();
+        }
+    }
+
+    private void writeTileRowImpl(Band band, Tile[] cacheLine) throws IOException {
         Tile firstTile = cacheLine[0];
         int sceneWidth = targetProduct.getSceneRasterWidth();
         Rectangle lineBounds = new Rectangle(0, firstTile.getMinY(), sceneWidth, firstTile.getHeight());
@@ -363,10 +457,19 @@ public class WriteOp extends Operator implements Output {
             // If we get here all tiles are written
             if (productWriter instanceof DimapProductWriter) {
                 // if we can update the header (only DIMAP) rewrite it!
-                synchronized (productWriter) {
-                    productWriter.writeProductNodes(targetProduct, file);
-                }
+                // Written via the queue, so that it follows the pending band data.
+                write(new WriteQueue.Task() {
+                    @Override
+                    public void write() throws IOException {
+                        synchronized (productWriter) {
+                            productWriter.writeProductNodes(targetProduct, file);
+                        }
+                    }
+                });
             }
+            // Not all callers invoke writeProduct(), e.g. the GraphProcessor only computes the tiles
+            // and disposes the operator afterwards. Hence, the pending writes are completed here.
+            closeWriteQueue();
         }
     }
 
@@ -398,6 +501,15 @@ public class WriteOp extends Operator implements Output {
 
     @Override
     public void dispose() {
+        if (failed) {
+            cancelWriteQueue();
+        } else {
+            try {
+                closeWriteQueue();
+            } catch (OperatorException e) {
+                getLogger().severe("Failed to write pending data of " + file + ": " + e.getMessage());
+            }
+        }
         try {
             productWriter.close();
         } catch (IOException ignore) {
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.gpf.operators.standard;
+
+import org.esa.beam.framework.gpf.OperatorException;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A bounded queue of write tasks which are executed in the order of their submission by a dedicated I/O thread.
+ * <p/>
+ * Threads computing tiles hand their write tasks over to the queue and continue computing, while the I/O thread
+ * writes. If the queue is full, {@link #put(Task)} blocks until the I/O thread has caught up, so that the
+ * tile computation is throttled to the speed of the disk and the number of tiles pending to be written is bounded.
+ * <p/>
+ * The queue records the time spent by the computing threads blocked on the full queue and the time spent by the
+ * I/O thread writing.
+ * <p/>
+ * Tasks submitted after the queue has been closed are executed directly by the submitting thread.
+ *
+ * @see WriteOp#setWriteQueueDepth(int)
+ * @since BEAM 5.0
+ */
+class WriteQueue {
+
+    interface Task {
+
+        void write() throws IOException;
+    }
+
+    private static final Task END = new Task() {
+        @Override
+        public void write() {
+        }
+    };
+
+    private final BlockingQueue<Task> queue;
+    private final Thread thread;
+    private final AtomicLong blockedNanos;
+    private final AtomicLong writingNanos;
+    private final ReadWriteLock closeLock;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private volatile boolean closed;
+
+    WriteQueue(String name, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity <= 0");
+        }
+        this.queue = new ArrayBlockingQueue<Task>(capacity);
+        this.blockedNanos = new AtomicLong();
+        this.writingNanos = new AtomicLong();
+        this.closeLock = new ReentrantReadWriteLock();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Submits a task. Blocks if the queue is full.
+     *
+     * @param task The task.
+     *
+     * @throws OperatorException If a previous task has failed or the queue has been cancelled.
+     */
+    void put(Task task) throws OperatorException {
+        checkError();
+        if (cancelled) {
+            throw new OperatorException("Write queue has been closed.");
+        }
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                try {
+                    task.write();
+                } catch (IOException e) {
+                    throw new OperatorException(e);
+                }
+            } else {
+                offer(task);
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until all submitted tasks have been executed and stops the I/O thread.
+     *
+     * @throws OperatorException If a task has failed.
+     */
+    void close() throws OperatorException {
+        // wait for submissions in progress, later ones are executed directly
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        if (thread.isAlive()) {
+            checkError();
+            offer(END);
+            join();
+        }
+        checkError();
+    }
+
+    private void offer(Task task) throws OperatorException {
+        final long startNanos = System.nanoTime();
+        try {
+            while (!queue.offer(task, 100, TimeUnit.MILLISECONDS)) {
+                // don't wait forever for an I/O thread which has failed or stopped
+                checkError();
+                if (cancelled || !thread.isAlive()) {
+                    throw new OperatorException("Write queue has been closed.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperatorException(e);
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Discards all pending tasks and stops the I/O thread. Does not throw an exception if a task has failed.
+     */
+    void cancel() {
+        cancelled = true;
+        queue.clear();
+        queue.offer(END);
+        join();
+    }
+
+    /**
+     * @return The time in nanoseconds which the submitting threads spent in {@link #put(Task)}.
+     */
+    long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    /**
+     * @return The time in nanoseconds which the I/O thread spent executing tasks.
+     */
+    long getWritingNanos() {
+        return writingNanos.get();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                final Task task = queue.take();
+                if (task == END || cancelled) {
+                    return;
+                }
+                final long startNanos = System.nanoTime();
+                try {
+                    task.write();
+                } finally {
+                    writingNanos.addAndGet(System.nanoTime() - startNanos);
+                }
+            }
+        } catch (Throwable t) {
+            error = t;
+            // unblock submitting threads
+            queue.clear();
+        }
+    }
+
+    private void join() {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkError() throws OperatorException {
+        final Throwable t = error;
+        if (t instanceof OperatorException) {
+            throw (OperatorException) t;
+        } else if (t != null) {
+            throw new OperatorException(t);
+        }
+    }
+}
@@ -70,9 +70,11 @@ final class Reproject {
         leveledWarpImages = new OpImage[numLevels];
     }
 
-    private synchronized Warp getCachingWarp(Warp warp, int width, int height, Dimension tileSize, int level) {
+    private synchronized Warp getCachingWarp(Warp warp, int width, int height, Dimension tileSize, int level,
+                                             String gridFingerprint) {
         if (leveledWarpImages[level] == null) {
-            leveledWarpImages[level] = new WarpSourceCoordinatesOpImage(warp, width, height, tileSize, null);
+            leveledWarpImages[level] = new WarpSourceCoordinatesOpImage(warp, width, height, tileSize, null,
+                                                                        gridFingerprint);
         }
         return new WarpFromSourceCoordinates(leveledWarpImages[level]);
     }
@@ -243,7 +245,13 @@ final class Reproject {
                 warp = WarpTransform2D.getWarp(null, allSteps2D);
             }
             Rectangle imageRect = targetGeometry.getImageRect();
-            warp = getCachingWarp(warp, imageRect.width, imageRect.height, tileSize, targetLevel);
+            final String gridFingerprint = WarpGridCache.createFingerprint(sourceMapCrs,
+                                                                           sourceGeometry.getImage2MapTransform(),
+                                                                           targetMapCrs,
+                                                                           targetGeometry.getImage2MapTransform(),
+                                                                           imageRect.width, imageRect.height,
+                                                                           tileSize);
+            warp = getCachingWarp(warp, imageRect.width, imageRect.height, tileSize, targetLevel, gridFingerprint);
             paramBlk.add(warp).add(interpolation).add(background);
         }
         return JAI.getDefaultInstance().createNS(operation, paramBlk, targetHints);
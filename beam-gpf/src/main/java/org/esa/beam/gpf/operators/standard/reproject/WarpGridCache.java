@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.gpf.operators.standard.reproject;
+
+import org.esa.beam.util.logging.BeamLogManager;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.DerivedCRS;
+
+import java.awt.Dimension;
+import java.awt.geom.AffineTransform;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * A cache of the source pixel co-ordinates computed for the tiles of a {@link WarpSourceCoordinatesOpImage}.
+ * <p/>
+ * The co-ordinates only depend on the source and target grids, which are identified by a
+ * {@link #createFingerprint fingerprint}. Reprojections of several products with the same grid onto the same
+ * target grid, e.g. by the mosaic operator, therefore share their source co-ordinates. The most recently used
+ * co-ordinates are kept in memory, up to the number of megabytes given by the system property
+ * {@value #CACHE_SIZE_PROPERTY}. If the system property {@value #CACHE_DIR_PROPERTY} names a directory, the
+ * co-ordinates are also written to files in this directory and reused by later processes.
+ *
+ * @since BEAM 5.0
+ */
+final class WarpGridCache {
+
+    static final String CACHE_SIZE_PROPERTY = "beam.reproject.warpGridCacheSize";
+    static final String CACHE_DIR_PROPERTY = "beam.reproject.warpGridCacheDir";
+
+    private static final int DEFAULT_CACHE_SIZE = 32;
+
+    private static final WarpGridCache INSTANCE = new WarpGridCache(
+            Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE) * 1024L * 1024L,
+            System.getProperty(CACHE_DIR_PROPERTY) != null ? new File(System.getProperty(CACHE_DIR_PROPERTY)) : null);
+
+    private final long capacity;
+    private final File cacheDir;
+    private final Map<String, float[]> grids;
+    private long sizeInBytes;
+
+    WarpGridCache(long capacity, File cacheDir) {
+        this.capacity = capacity;
+        this.cacheDir = cacheDir;
+        this.grids = new LinkedHashMap<String, float[]>(16, 0.75f, true);
+    }
+
+    static WarpGridCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates the fingerprint of the grid of source co-ordinates of a reprojection.
+     *
+     * @param sourceCrs       the CRS of the source model
+     * @param sourceImage2Map the transformation from source image to source model co-ordinates
+     * @param targetCrs       the CRS of the target model
+     * @param targetImage2Map the transformation from target image to target model co-ordinates
+     * @param width           the width of the target image
+     * @param height          the height of the target image
+     * @param tileSize        the tile size of the target image
+     * @return the fingerprint, or {@code null} if one of the CRSs cannot be identified by its WKT, e.g. because
+     *         it is derived from a geo-coding which is not based on a map CRS
+     */
+    static String createFingerprint(CoordinateReferenceSystem sourceCrs, AffineTransform sourceImage2Map,
+                                    CoordinateReferenceSystem targetCrs, AffineTransform targetImage2Map,
+                                    int width, int height, Dimension tileSize) {
+        final String sourceWkt = toWkt(sourceCrs);
+        final String targetWkt = toWkt(targetCrs);
+        if (sourceWkt == null || targetWkt == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append(sourceWkt).append('|').append(toString(sourceImage2Map)).append('|');
+        sb.append(targetWkt).append('|').append(toString(targetImage2Map)).append('|');
+        sb.append(width).append('x').append(height).append('|');
+        sb.append(tileSize.width).append('x').append(tileSize.height);
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(sb.toString().getBytes("UTF-8"));
+            final StringBuilder hex = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the source co-ordinates of a tile.
+     *
+     * @param fingerprint the fingerprint of the grid
+     * @param tileX       the tile index in X direction
+     * @param tileY       the tile index in Y direction
+     * @param length      the number of co-ordinates of the tile
+     * @return the interleaved X and Y co-ordinates, or {@code null} if the tile is not cached. The array must
+     *         not be modified.
+     */
+    float[] get(String fingerprint, int tileX, int tileY, int length) {
+        final String key = createKey(fingerprint, tileX, tileY);
+        synchronized (grids) {
+            final float[] grid = grids.get(key);
+            if (grid != null && grid.length == length) {
+                return grid;
+            }
+        }
+        if (cacheDir != null) {
+            final float[] grid = read(new File(cacheDir, key), length);
+            if (grid != null) {
+                putInMemory(key, grid);
+                return grid;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts the source co-ordinates of a tile into the cache.
+     *
+     * @param fingerprint the fingerprint of the grid
+     * @param tileX       the tile index in X direction
+     * @param tileY       the tile index in Y direction
+     * @param grid        the interleaved X and Y co-ordinates, owned by the cache from now on
+     */
+    void put(String fingerprint, int tileX, int tileY, float[] grid) {
+        final String key = createKey(fingerprint, tileX, tileY);
+        putInMemory(key, grid);
+        if (cacheDir != null) {
+            final File file = new File(cacheDir, key);
+            if (!file.exists()) {
+                write(file, grid);
+            }
+        }
+    }
+
+    long getSizeInBytes() {
+        synchronized (grids) {
+            return sizeInBytes;
+        }
+    }
+
+    private void putInMemory(String key, float[] grid) {
+        final long gridSize = 4L * grid.length;
+        if (gridSize > capacity) {
+            return;
+        }
+        synchronized (grids) {
+            final float[] oldGrid = grids.put(key, grid);
+            if (oldGrid != null) {
+                sizeInBytes -= 4L * oldGrid.length;
+            }
+            sizeInBytes += gridSize;
+            final Iterator<float[]> iterator = grids.values().iterator();
+            while (sizeInBytes > capacity && iterator.hasNext()) {
+                sizeInBytes -= 4L * iterator.next().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private static String createKey(String fingerprint, int tileX, int tileY) {
+        return fingerprint + "_" + tileX + "_" + tileY;
+    }
+
+    private static float[] read(File file, int length) {
+        if (file.length() != 4L * length) {
+            return null;
+        }
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                final float[] grid = new float[length];
+                for (int i = 0; i < length; i++) {
+                    grid[i] = in.readFloat();
+                }
+                return grid;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            BeamLogManager.getSystemLogger().log(Level.WARNING, "Failed to read warp grid " + file, e);
+            return null;
+        }
+    }
+
+    private static void write(File file, float[] grid) {
+        // written to a temporary file first, so that concurrent readers never see an incomplete grid
+        final File tempFile = new File(file.getParentFile(),
+                                       file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Failed to create directory " + file.getParentFile());
+            }
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                for (float value : grid) {
+                    out.writeFloat(value);
+                }
+            } finally {
+                out.close();
+            }
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            BeamLogManager.getSystemLogger().log(Level.WARNING, "Failed to write warp grid " + file, e);
+        }
+    }
+
+    private static String toWkt(CoordinateReferenceSystem crs) {
+        // the image CRS of a geo-coding is derived by a transformation which has no WKT representation
+        if (crs == null || crs instanceof DerivedCRS) {
+            return null;
+        }
+        try {
+            return crs.toWKT();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static String toString(AffineTransform transform) {
+        final double[] matrix = new double[6];
+        transform.getMatrix(matrix);
+        return Arrays.toString(matrix);
+    }
+}
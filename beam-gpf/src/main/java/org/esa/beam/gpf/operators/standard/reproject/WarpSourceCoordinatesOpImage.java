@@ -43,8 +43,12 @@ import java.util.Map;
  */
 class WarpSourceCoordinatesOpImage extends SourcelessOpImage {
 
+    // per-thread buffer for the warp coordinates of a tile, grown as needed
+    private static final ThreadLocal<float[]> WARP_BUFFER = new ThreadLocal<float[]>();
+
     private final Warp warp;
     private final RasterFormatTag rasterFormatTag;
+    private final String gridFingerprint;
 
     private static ImageLayout createTwoBandedImageLayout(int width, int height, Dimension tileSize) {
         if (width < 0) {
@@ -76,16 +80,19 @@ class WarpSourceCoordinatesOpImage extends SourcelessOpImage {
      * @param height
      * @param tileSize
      * @param configuration
+     * @param gridFingerprint the fingerprint of the source co-ordinates in the {@link WarpGridCache},
+     *                        or {@code null} if they shall not be cached
      */
     WarpSourceCoordinatesOpImage(Warp warp, int width, int height, Dimension tileSize,
-                                 Map configuration) {
-        this(warp, createTwoBandedImageLayout(width, height, tileSize), configuration);
+                                 Map configuration, String gridFingerprint) {
+        this(warp, createTwoBandedImageLayout(width, height, tileSize), configuration, gridFingerprint);
     }
 
-    private WarpSourceCoordinatesOpImage(Warp warp, ImageLayout layout, Map configuration) {
+    private WarpSourceCoordinatesOpImage(Warp warp, ImageLayout layout, Map configuration, String gridFingerprint) {
         super(layout, configuration, layout.getSampleModel(null), layout.getMinX(null), layout.getMinY(null),
               layout.getWidth(null), layout.getHeight(null));
         this.warp = warp;
+        this.gridFingerprint = gridFingerprint;
         int compatibleTag = RasterAccessor.findCompatibleTag(null, layout.getSampleModel(null));
         rasterFormatTag = new RasterFormatTag(layout.getSampleModel(null), compatibleTag);
         OperatorContext.setTileCache(this);
@@ -112,10 +119,9 @@ class WarpSourceCoordinatesOpImage extends SourcelessOpImage {
         int pixelStride = dst.getPixelStride();
         int[] bandOffsets = dst.getBandOffsets();
         float[][] data = dst.getFloatDataArrays();
-        float[] warpData = new float[2 * dstWidth * dstHeight];
+        float[] warpData = getWarpData(dst.getX(), dst.getY(), dstWidth, dstHeight);
         int lineOffset = 0;
 
-        warp.warpRect(dst.getX(), dst.getY(), dstWidth, dstHeight, warpData);
         int count = 0;
         for (int h = 0; h < dstHeight; h++) {
             int pixelOffset = lineOffset;
@@ -136,4 +142,30 @@ class WarpSourceCoordinatesOpImage extends SourcelessOpImage {
             }
         }
     }
+
+    private float[] getWarpData(int x, int y, int width, int height) {
+        final int length = 2 * width * height;
+        final WarpGridCache cache = gridFingerprint != null ? WarpGridCache.getInstance() : null;
+        final int tileX = XToTileX(x);
+        final int tileY = YToTileY(y);
+        if (cache != null) {
+            final float[] cachedData = cache.get(gridFingerprint, tileX, tileY, length);
+            if (cachedData != null) {
+                return cachedData;
+            }
+        }
+        if (cache != null) {
+            // the cache keeps the array, so it is warped into a new one of the exact size
+            final float[] warpData = warp.warpRect(x, y, width, height, new float[length]);
+            cache.put(gridFingerprint, tileX, tileY, warpData);
+            return warpData;
+        }
+        float[] warpData = WARP_BUFFER.get();
+        if (warpData == null || warpData.length < length) {
+            warpData = new float[length];
+            WARP_BUFFER.set(warpData);
+        }
+        warp.warpRect(x, y, width, height, warpData);
+        return warpData;
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.gpf.internal;
+
+import org.esa.beam.framework.gpf.monitor.TileCacheStatistics;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+
+public class OffHeapTileCacheTest {
+
+    private static final int TILE_SIZE = 16;
+    // a float tile of 16 x 16 pixels
+    private static final long TILE_BYTES = TILE_SIZE * TILE_SIZE * 4;
+
+    @Test
+    public void testTileDataIsPreserved() {
+        final OffHeapTileCache cache = new OffHeapTileCache(10 * TILE_BYTES);
+        final RenderedImage image = createImage();
+        final WritableRaster tile = createTile(DataBuffer.TYPE_FLOAT, 1, 1);
+
+        cache.add(image, 1, 1, tile);
+        tile.setSample(TILE_SIZE, TILE_SIZE, 0, -1.0F);
+
+        final Raster cachedTile = cache.getTile(image, 1, 1);
+        assertNotNull(cachedTile);
+        assertNotSame(tile, cachedTile);
+        assertEquals(TILE_SIZE, cachedTile.getMinX());
+        assertEquals(TILE_SIZE, cachedTile.getMinY());
+        assertEquals(DataBuffer.TYPE_FLOAT, cachedTile.getSampleModel().getDataType());
+        assertEquals(0.5F, cachedTile.getSampleFloat(TILE_SIZE, TILE_SIZE, 0), 0.0F);
+        assertEquals(TILE_SIZE * TILE_SIZE - 0.5F,
+                     cachedTile.getSampleFloat(2 * TILE_SIZE - 1, 2 * TILE_SIZE - 1, 0), 0.0F);
+        assertNull(cache.getTile(image, 0, 1));
+        assertEquals(1, cache.getTileCount());
+        assertEquals(TILE_BYTES, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void testDataTypes() {
+        final OffHeapTileCache cache = new OffHeapTileCache(100 * TILE_BYTES);
+        final RenderedImage image = createImage();
+        final int[] dataTypes = {
+                DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT,
+                DataBuffer.TYPE_INT, DataBuffer.TYPE_FLOAT, DataBuffer.TYPE_DOUBLE
+        };
+        for (int i = 0; i < dataTypes.length; i++) {
+            cache.add(image, i, 0, createTile(dataTypes[i], i, 0));
+        }
+        for (int i = 0; i < dataTypes.length; i++) {
+            final Raster cachedTile = cache.getTile(image, i, 0);
+            assertEquals(dataTypes[i], cachedTile.getSampleModel().getDataType());
+            final int x = i * TILE_SIZE + 3;
+            assertEquals(3 + 0.5, cachedTile.getSampleDouble(x, 0, 0), 0.5);
+        }
+    }
+
+    @Test
+    public void testChildRasterIsCopied() {
+        final OffHeapTileCache cache = new OffHeapTileCache(10 * TILE_BYTES);
+        final RenderedImage image = createImage();
+        final WritableRaster parent = createTile(DataBuffer.TYPE_FLOAT, 0, 0);
+        final Raster child = parent.createChild(TILE_SIZE / 2, TILE_SIZE / 2, TILE_SIZE / 2, TILE_SIZE / 2,
+                                                TILE_SIZE / 2, TILE_SIZE / 2, null);
+
+        cache.add(image, 1, 1, child);
+
+        final Raster cachedTile = cache.getTile(image, 1, 1);
+        assertEquals(TILE_SIZE / 2, cachedTile.getWidth());
+        assertEquals(parent.getSampleFloat(TILE_SIZE / 2, TILE_SIZE / 2, 0),
+                     cachedTile.getSampleFloat(TILE_SIZE / 2, TILE_SIZE / 2, 0), 0.0F);
+        assertEquals(TILE_BYTES / 4, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void testCheapTilesAreEvictedFirst() {
+        final OffHeapTileCache cache = new OffHeapTileCache(4 * TILE_BYTES);
+        cache.setMemoryThreshold(1.0F);
+        final RenderedImage cheapImage = createImage();
+        final RenderedImage expensiveImage = createImage();
+        cache.tileComputed(cheapImage, 1000L);
+        cache.tileComputed(expensiveImage, 1000000L);
+
+        cache.add(expensiveImage, 0, 0, createTile(DataBuffer.TYPE_FLOAT, 0, 0));
+        cache.add(expensiveImage, 1, 0, createTile(DataBuffer.TYPE_FLOAT, 1, 0));
+        cache.add(cheapImage, 0, 0, createTile(DataBuffer.TYPE_FLOAT, 0, 0));
+        cache.add(cheapImage, 1, 0, createTile(DataBuffer.TYPE_FLOAT, 1, 0));
+        cache.add(cheapImage, 2, 0, createTile(DataBuffer.TYPE_FLOAT, 2, 0));
+
+        assertEquals(4, cache.getTileCount());
+        assertNotNull(cache.getTile(expensiveImage, 0, 0));
+        assertNotNull(cache.getTile(expensiveImage, 1, 0));
+        assertNull(cache.getTile(cheapImage, 0, 0));
+        assertNotNull(cache.getTile(cheapImage, 2, 0));
+    }
+
+    @Test
+    public void testPriority() {
+        final OffHeapTileCache cache = new OffHeapTileCache(2 * TILE_BYTES);
+        cache.setMemoryThreshold(1.0F);
+        final RenderedImage image1 = createImage();
+        final RenderedImage image2 = createImage();
+        cache.setPriority(image1, 10.0F);
+
+        cache.add(image1, 0, 0, createTile(DataBuffer.TYPE_FLOAT, 0, 0));
+        cache.add(image2, 0, 0, createTile(DataBuffer.TYPE_FLOAT, 0, 0));
+        cache.add(image2, 1, 0, createTile(DataBuffer.TYPE_FLOAT, 1, 0));
+
+        assertNotNull(cache.getTile(image1, 0, 0));
+        assertNull(cache.getTile(image2, 0, 0));
+        assertNotNull(cache.getTile(image2, 1, 0));
+    }
+
+    @Test
+    public void testQuota() {
+        final OffHeapTileCache cache = new OffHeapTileCache(10 * TILE_BYTES);
+        final RenderedImage image = createImage();
+        for (int i = 0; i < 4; i++) {
+            cache.add(image, i, 0, createTile(DataBuffer.TYPE_FLOAT, i, 0));
+        }
+        assertEquals(4, cache.getTileCount());
+
+        cache.setQuota(image, 2 * TILE_BYTES);
+        assertEquals(2, cache.getTileCount());
+        assertNull(cache.getTile(image, 0, 0));
+        assertNotNull(cache.getTile(image, 3, 0));
+
+        cache.add(image, 4, 0, createTile(DataBuffer.TYPE_FLOAT, 4, 0));
+        assertEquals(2 * TILE_BYTES, cache.getMemoryUsage());
+
+        cache.setQuota(image, 0);
+        assertEquals(0, cache.getTileCount());
+        cache.add(image, 5, 0, createTile(DataBuffer.TYPE_FLOAT, 5, 0));
+        assertEquals(0, cache.getTileCount());
+    }
+
+    @Test
+    public void testStatistics() {
+        final OffHeapTileCache cache = new OffHeapTileCache(2 * TILE_BYTES);
+        cache.setMemoryThreshold(0.5F);
+        final RenderedImage image = createImage();
+
+        assertNull(cache.getTile(image, 0, 0));
+        cache.add(image, 0, 0, createTile(DataBuffer.TYPE_FLOAT, 0, 0));
+        assertNotNull(cache.getTile(image, 0, 0));
+        assertNotNull(cache.getTile(image, 0, 0));
+        assertNull(cache.getTile(image, 1, 0));
+        cache.add(image, 1, 0, createTile(DataBuffer.TYPE_FLOAT, 1, 0));
+        cache.add(image, 2, 0, createTile(DataBuffer.TYPE_FLOAT, 2, 0));
+
+        final TileCacheStatistics[] statistics = cache.getStatistics();
+        assertEquals(1, statistics.length);
+        assertSame(image, statistics[0].getImage());
+        assertEquals(2, statistics[0].getHitCount());
+        assertEquals(2, statistics[0].getMissCount());
+        assertEquals(0.5, statistics[0].getHitRatio(), 1.0e-10);
+        assertEquals(2, statistics[0].getEvictionCount());
+        assertEquals(1, statistics[0].getTileCount());
+        assertEquals(TILE_BYTES, statistics[0].getSizeInBytes());
+    }
+
+    @Test
+    public void testRemoveAndFlush() {
+        final OffHeapTileCache cache = new OffHeapTileCache(10 * TILE_BYTES);
+        final RenderedImage image1 = createImage();
+        final RenderedImage image2 = createImage();
+        cache.addTiles(image1, new Point[]{new Point(0, 0), new Point(1, 0)},
+                       new Raster[]{createTile(DataBuffer.TYPE_FLOAT, 0, 0), createTile(DataBuffer.TYPE_FLOAT, 1, 0)},
+                       null);
+        cache.add(image2, 0, 0, createTile(DataBuffer.TYPE_FLOAT, 0, 0));
+        assertEquals(2, cache.getTiles(image1).length);
+
+        cache.remove(image1, 0, 0);
+        assertNull(cache.getTile(image1, 0, 0));
+        assertEquals(2, cache.getTileCount());
+
+        cache.removeTiles(image1);
+        assertNull(cache.getTiles(image1));
+        assertEquals(1, cache.getTileCount());
+
+        cache.flush();
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void testTilesOfCollectedImagesAreRemoved() throws Exception {
+        final OffHeapTileCache cache = new OffHeapTileCache(10 * TILE_BYTES);
+        final RenderedImage image = createImage();
+        RenderedImage collectedImage = createImage();
+        cache.add(image, 0, 0, createTile(DataBuffer.TYPE_FLOAT, 0, 0));
+        cache.add(collectedImage, 0, 0, createTile(DataBuffer.TYPE_FLOAT, 0, 0));
+        cache.add(collectedImage, 1, 0, createTile(DataBuffer.TYPE_FLOAT, 1, 0));
+        assertEquals(3 * TILE_BYTES, cache.getMemoryUsage());
+
+        final WeakReference<RenderedImage> reference = new WeakReference<RenderedImage>(collectedImage);
+        //noinspection UnusedAssignment
+        collectedImage = null;
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("the cache must not keep the image", reference.get());
+
+        // the collected reference is enqueued asynchronously by the reference handler thread
+        for (int i = 0; i < 100 && cache.getTileCount() > 1; i++) {
+            cache.memoryControl();
+            Thread.sleep(10);
+        }
+        assertEquals(1, cache.getTileCount());
+        assertEquals(TILE_BYTES, cache.getMemoryUsage());
+        assertNotNull(cache.getTile(image, 0, 0));
+    }
+
+    private static RenderedImage createImage() {
+        return new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    private static WritableRaster createTile(int dataType, int tileX, int tileY) {
+        final SampleModel sampleModel = new BandedSampleModel(dataType, TILE_SIZE, TILE_SIZE, 1);
+        final WritableRaster tile = Raster.createWritableRaster(sampleModel,
+                                                                new Point(tileX * TILE_SIZE, tileY * TILE_SIZE));
+        for (int y = 0; y < TILE_SIZE; y++) {
+            for (int x = 0; x < TILE_SIZE; x++) {
+                tile.setSample(tile.getMinX() + x, tile.getMinY() + y, 0, y * TILE_SIZE + x + 0.5);
+            }
+        }
+        return tile;
+    }
+}
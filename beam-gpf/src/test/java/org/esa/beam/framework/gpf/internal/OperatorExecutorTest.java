@@ -22,6 +22,7 @@ import org.esa.beam.framework.datamodel.Product;
 import org.esa.beam.framework.datamodel.ProductData;
 import org.esa.beam.framework.gpf.Operator;
 import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.framework.gpf.Tile;
 import org.esa.beam.framework.gpf.annotations.SourceProduct;
 import org.esa.beam.framework.gpf.internal.OperatorExecutor.ExecutionOrder;
 
@@ -32,11 +33,14 @@ import javax.media.jai.TileComputationListener;
 import javax.media.jai.TileRequest;
 import javax.media.jai.TileScheduler;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.Raster;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class OperatorExecutorTest extends TestCase {
 
@@ -243,6 +247,74 @@ public class OperatorExecutorTest extends TestCase {
         assertEquals(new Point(1, 1), recordingTileScheduler.requestedTileIndices.get(3));
     }
 
+    public void testManyTilesTwoBands_WorkStealing() {
+        System.clearProperty("beam.gpf.executionOrder");
+        Product sourceProduct = createSourceProduct();
+        sourceProduct.setPreferredTileSize(10, 10);
+        ComputingTestOP op = new ComputingTestOP(sourceProduct, false);
+        OperatorExecutor operatorExecutor = OperatorExecutor.create(op, 4);
+        operatorExecutor.execute(ExecutionOrder.PULL_WORK_STEALING, ProgressMonitor.NULL);
+
+        // the JAI tile scheduler is bypassed
+        assertEquals(0, recordingTileScheduler.requestedTileIndices.size());
+        // each tile of each band is computed exactly once
+        assertEquals(2 * 10 * 10, op.computedTiles.size());
+        for (int tileY = 0; tileY < 10; tileY++) {
+            for (int tileX = 0; tileX < 10; tileX++) {
+                assertTrue(op.computedTiles.contains("a:" + tileX + "," + tileY));
+                assertTrue(op.computedTiles.contains("b:" + tileX + "," + tileY));
+            }
+        }
+    }
+
+    public void testWorkStealingFailure() {
+        System.clearProperty("beam.gpf.executionOrder");
+        Product sourceProduct = createSourceProduct();
+        sourceProduct.setPreferredTileSize(10, 10);
+        OperatorExecutor operatorExecutor = OperatorExecutor.create(new ComputingTestOP(sourceProduct, true), 4);
+        try {
+            operatorExecutor.execute(ExecutionOrder.PULL_WORK_STEALING, ProgressMonitor.NULL);
+            fail("OperatorException expected");
+        } catch (OperatorException expected) {
+            // ok
+        }
+    }
+
+    private static class ComputingTestOP extends Operator {
+
+        @SourceProduct
+        Product source;
+
+        private final boolean fail;
+        final Set<String> computedTiles = Collections.synchronizedSet(new HashSet<String>());
+
+        ComputingTestOP(Product source, boolean fail) {
+            this.source = source;
+            this.fail = fail;
+        }
+
+        @Override
+        public void initialize() throws OperatorException {
+            Product targetProduct = new Product("target", "target", 100, 100);
+            targetProduct.addBand("a", ProductData.TYPE_INT8);
+            targetProduct.addBand("b", ProductData.TYPE_INT8);
+            targetProduct.setPreferredTileSize(source.getPreferredTileSize());
+            setTargetProduct(targetProduct);
+        }
+
+        @Override
+        public void computeTile(Band targetBand, Tile targetTile, ProgressMonitor pm) throws OperatorException {
+            if (fail) {
+                throw new OperatorException("Failed to compute tile");
+            }
+            Rectangle rectangle = targetTile.getRectangle();
+            String key = targetBand.getName() + ":" + rectangle.x / rectangle.width + "," + rectangle.y / rectangle.height;
+            if (!computedTiles.add(key)) {
+                throw new OperatorException("Tile computed twice: " + key);
+            }
+        }
+    }
+
     private Product createSourceProduct() {
         Product product = new Product("source", "source", 100, 100);
         Band bandA = product.addBand("a", ProductData.TYPE_INT8);
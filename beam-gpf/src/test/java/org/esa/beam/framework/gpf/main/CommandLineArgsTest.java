@@ -25,6 +25,7 @@ import org.esa.beam.framework.gpf.annotations.OperatorMetadata;
 import org.esa.beam.framework.gpf.annotations.Parameter;
 import org.esa.beam.framework.gpf.annotations.SourceProduct;
 import org.esa.beam.framework.gpf.annotations.TargetProduct;
+import org.esa.beam.framework.gpf.internal.OperatorExecutor.ExecutionOrder;
 import org.junit.Test;
 
 import java.util.SortedMap;
@@ -326,6 +327,41 @@ public class CommandLineArgsTest {
         assertTrue(usageText.contains(paramUnit));
     }
 
+    @Test
+    public void testBatchOptions() throws Exception {
+        CommandLineArgs lineArgs = parseArgs("Reproject", "-i", "data/*.N1", "-i", "@products.txt",
+                                             "-o", "out", "-j", "4");
+        assertEquals(true, lineArgs.isBatchMode());
+        assertEquals(2, lineArgs.getBatchSourcePatterns().size());
+        assertEquals("data/*.N1", lineArgs.getBatchSourcePatterns().get(0));
+        assertEquals("@products.txt", lineArgs.getBatchSourcePatterns().get(1));
+        assertEquals("out", lineArgs.getBatchTargetDirPath());
+        assertEquals(4, lineArgs.getBatchParallelism());
+
+        // clearing the tile cache is fine as long as a single product is processed at a time
+        lineArgs = parseArgs("Reproject", "-i", "data/*.N1", "-x");
+        assertEquals(true, lineArgs.isClearCacheAfterRowWrite());
+        assertEquals(1, lineArgs.getBatchParallelism());
+
+        lineArgs = parseArgs("Reproject", "source.dim");
+        assertEquals(false, lineArgs.isBatchMode());
+        assertEquals(CommandLineArgs.DEFAULT_BATCH_TARGET_DIRPATH, lineArgs.getBatchTargetDirPath());
+        assertEquals(CommandLineArgs.DEFAULT_BATCH_PARALLELISM, lineArgs.getBatchParallelism());
+    }
+
+    @Test
+    public void testExecutionOrderOption() throws Exception {
+        CommandLineArgs lineArgs = parseArgs("Reproject", "source.dim");
+        assertNull(lineArgs.getExecutionOrder());
+
+        lineArgs = parseArgs("Reproject", "source.dim", "-r", "PULL_WORK_STEALING", "-q", "2");
+        assertEquals(ExecutionOrder.PULL_WORK_STEALING, lineArgs.getExecutionOrder());
+        assertEquals(2, lineArgs.getTileSchedulerParallelism());
+
+        lineArgs = parseArgs("Reproject", "source.dim", "-r", "schedule_band_row_column");
+        assertEquals(ExecutionOrder.SCHEDULE_BAND_ROW_COLUMN, lineArgs.getExecutionOrder());
+    }
+
     @Test
     public void testFailures() {
         testFailure(new String[]{"Reproject", "-p"}, "Option argument missing");
@@ -335,6 +371,11 @@ public class CommandLineArgsTest {
         testFailure(new String[]{"Reproject", "-P=9"}, "Empty identifier");
         testFailure(new String[]{"Reproject", "-Pobelix10"}, "Missing '='");
         testFailure(new String[]{"Reproject", "-Tsubset=subset.dim",}, "Only valid with a given graph XML");
+        testFailure(new String[]{"Reproject", "-i", "data/*.N1", "source.dim"}, "Source arguments in batch mode");
+        testFailure(new String[]{"Reproject", "-i", "data/*.N1", "-j", "0"}, "No products in flight");
+        testFailure(new String[]{"Reproject", "-i", "data/*.N1", "-j", "2", "-x"}, "Shared tile cache cleared");
+        testFailure(new String[]{"Reproject", "-r", "RANDOM"}, "Unknown execution order");
+        testFailure(new String[]{"Reproject", "-r"}, "Option argument missing");
     }
 
     private void testFailure(String[] args, String reason) {
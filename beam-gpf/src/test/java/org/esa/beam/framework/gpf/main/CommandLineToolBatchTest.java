@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.gpf.main;
+
+import org.esa.beam.framework.dataio.ProductIO;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.gpf.GPF;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.util.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the batch mode of the {@link CommandLineTool} with products read from and written to disk.
+ */
+public class CommandLineToolBatchTest {
+
+    private static final int W = 4;
+    private static final int H = 3;
+
+    private static final String GRAPH_XML = "" +
+                                            "<graph id=\"g\">\n" +
+                                            "  <version>1.0</version>\n" +
+                                            "  <node id=\"bandMathsNode\">\n" +
+                                            "    <operator>BandMaths</operator>\n" +
+                                            "    <sources>\n" +
+                                            "      <sourceProducts>${sourceProduct}</sourceProducts>\n" +
+                                            "    </sources>\n" +
+                                            "    <parameters>\n" +
+                                            "      <targetBands>\n" +
+                                            "        <targetBand>\n" +
+                                            "          <name>b</name>\n" +
+                                            "          <expression>2 * a</expression>\n" +
+                                            "          <type>float32</type>\n" +
+                                            "        </targetBand>\n" +
+                                            "      </targetBands>\n" +
+                                            "    </parameters>\n" +
+                                            "  </node>\n" +
+                                            "</graph>\n";
+
+    private static final String WRITE_NODE_XML = "" +
+                                                 "  <node id=\"writeNode\">\n" +
+                                                 "    <operator>Write</operator>\n" +
+                                                 "    <sources>\n" +
+                                                 "      <source>${source}</source>\n" +
+                                                 "    </sources>\n" +
+                                                 "    <parameters>\n" +
+                                                 "      <file>${file}</file>\n" +
+                                                 "    </parameters>\n" +
+                                                 "  </node>\n";
+
+    private static final String PARAMETERS_XML = "" +
+                                                 "<parameters>\n" +
+                                                 "  <targetBands>\n" +
+                                                 "    <targetBand>\n" +
+                                                 "      <name>b</name>\n" +
+                                                 "      <expression>2 * a</expression>\n" +
+                                                 "      <type>float32</type>\n" +
+                                                 "    </targetBand>\n" +
+                                                 "  </targetBands>\n" +
+                                                 "</parameters>\n";
+
+    private File testDir;
+    private File sourceDir;
+    private File targetDir;
+    private TestCommandLineContext context;
+    private CommandLineTool tool;
+
+    @BeforeClass
+    public static void initClass() throws Exception {
+        GPF.getDefaultInstance().getOperatorSpiRegistry().loadOperatorSpis();
+    }
+
+    @Before
+    public void init() throws Exception {
+        testDir = new File(System.getProperty("java.io.tmpdir"), "CommandLineToolBatchTest-io");
+        FileUtils.deleteTree(testDir);
+        sourceDir = new File(testDir, "in");
+        targetDir = new File(testDir, "out");
+        assertTrue(sourceDir.mkdirs());
+        context = new TestCommandLineContext();
+        tool = new CommandLineTool(context);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteTree(testDir);
+    }
+
+    @Test
+    public void testGraph() throws Exception {
+        writeSourceProduct("asterix", 1);
+        writeSourceProduct("obelix", 2);
+        final File graphFile = writeTextFile("graph.xml", GRAPH_XML);
+
+        tool.run(graphFile.getPath(), "-i", new File(sourceDir, "*.dim").getPath(), "-o", targetDir.getPath());
+
+        assertTargetProduct("asterix", 1);
+        assertTargetProduct("obelix", 2);
+        assertTrue(context.printBuffer.toString().contains("Processed 2 of 2 source products"));
+    }
+
+    @Test
+    public void testGraphWithFinalWriteNode() throws Exception {
+        writeSourceProduct("asterix", 1);
+        writeSourceProduct("obelix", 2);
+        final File fixedFile = new File(testDir, "fixed.dim");
+        final File graphFile = writeTextFile("graph.xml", GRAPH_XML.replace(
+                "</graph>", createWriteNodeXml("bandMathsNode", fixedFile) + "</graph>"));
+
+        tool.run(graphFile.getPath(), "-i", new File(sourceDir, "*.dim").getPath(), "-o", targetDir.getPath());
+
+        // the write node writes to the target file of each source product
+        assertTargetProduct("asterix", 1);
+        assertTargetProduct("obelix", 2);
+        assertFalse(fixedFile.exists());
+    }
+
+    @Test
+    public void testGraphWithIntermediateWriteNode() throws Exception {
+        writeSourceProduct("asterix", 1);
+        final File fixedFile = new File(testDir, "fixed.dim");
+        final File graphFile = writeTextFile("graph.xml", GRAPH_XML.replace(
+                "  <node id=\"bandMathsNode\">", createWriteNodeXml("${sourceProduct}", fixedFile)
+                                                 + "  <node id=\"bandMathsNode\">"));
+
+        try {
+            tool.run(graphFile.getPath(), "-i", new File(sourceDir, "*.dim").getPath(), "-o", targetDir.getPath());
+            fail("OperatorException expected");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Graph node 'writeNode' writes to a fixed file"));
+        }
+        assertFalse(fixedFile.exists());
+        assertFalse(targetDir.exists());
+    }
+
+    @Test
+    public void testOperatorWithTwoProductsAtATime() throws Exception {
+        final String[] names = {"asterix", "obelix", "idefix", "miraculix", "majestix"};
+        for (int i = 0; i < names.length; i++) {
+            writeSourceProduct(names[i], i + 1);
+        }
+        final File parameterFile = writeTextFile("parameters.xml", PARAMETERS_XML);
+
+        tool.run("BandMaths", "-p", parameterFile.getPath(),
+                 "-i", new File(sourceDir, "*.dim").getPath(), "-o", targetDir.getPath(), "-j", "2");
+
+        for (int i = 0; i < names.length; i++) {
+            assertTargetProduct(names[i], i + 1);
+        }
+        assertTrue(context.printBuffer.toString().contains("Processed 5 of 5 source products"));
+    }
+
+    @Test
+    public void testFailingProduct() throws Exception {
+        writeSourceProduct("asterix", 1);
+        writeTextFile("in/falbala.dim", "no product");
+        writeSourceProduct("obelix", 2);
+        final File graphFile = writeTextFile("graph.xml", GRAPH_XML);
+
+        try {
+            tool.run(graphFile.getPath(), "-i", new File(sourceDir, "*.dim").getPath(), "-o", targetDir.getPath(),
+                     "-j", "2");
+            fail("OperatorException expected");
+        } catch (OperatorException e) {
+            assertEquals("Failed to process 1 of 3 source products", e.getMessage());
+        }
+
+        // the other products are processed nevertheless
+        assertTargetProduct("asterix", 1);
+        assertTargetProduct("obelix", 2);
+        final String summary = context.printBuffer.toString();
+        assertTrue(summary.contains("falbala.dim: failed after"));
+        assertTrue(summary.contains("Processed 2 of 3 source products"));
+    }
+
+    private void writeSourceProduct(String name, int factor) throws IOException {
+        final Product product = new Product(name, "TEST", W, H);
+        final float[] data = new float[W * H];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = factor * i;
+        }
+        final Band band = product.addBand("a", ProductData.TYPE_FLOAT32);
+        band.setRasterData(ProductData.createInstance(data));
+        ProductIO.writeProduct(product, new File(sourceDir, name + ".dim").getPath(), "BEAM-DIMAP");
+        product.dispose();
+    }
+
+    private static String createWriteNodeXml(String source, File file) {
+        return WRITE_NODE_XML.replace("${source}", source).replace("${file}", file.getPath());
+    }
+
+    private File writeTextFile(String name, String text) throws IOException {
+        final File file = new File(testDir, name);
+        final Writer writer = new FileWriter(file);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private void assertTargetProduct(String name, int factor) throws IOException {
+        final File targetFile = new File(targetDir, name + ".dim");
+        assertTrue(targetFile + " expected", targetFile.isFile());
+        final Product product = ProductIO.readProduct(targetFile);
+        try {
+            final float[] data = product.getBand("b").readPixels(0, 0, W, H, (float[]) null);
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(name + " at " + i, 2.0f * factor * i, data[i], 1.0e-6f);
+            }
+        } finally {
+            product.dispose();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.esa.beam.framework.gpf.graph.GraphException;
 import org.esa.beam.framework.gpf.graph.GraphProcessingObserver;
 import org.esa.beam.framework.gpf.internal.OperatorContext;
 import org.esa.beam.framework.gpf.internal.OperatorProductReader;
+import org.esa.beam.util.io.FileUtils;
 
 import javax.media.jai.JAI;
 import javax.media.jai.TileScheduler;
@@ -39,6 +40,9 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -51,6 +55,8 @@ public class CommandLineToolOperatorTest extends TestCase {
     private static final TestOps.Op5.Spi OP5_SPI = new TestOps.Op5.Spi();
     private static final TestOps.OpImplementingOutput.Spi OUTPUT_OP_SPI = new TestOps.OpImplementingOutput.Spi();
     private TileScheduler jaiTileScheduler;
+    // holds the (empty) source files of the batch mode tests
+    private File batchDir;
 
     @Override
     protected void setUp() throws Exception {
@@ -65,6 +71,8 @@ public class CommandLineToolOperatorTest extends TestCase {
         SunTileScheduler tileScheduler = new SunTileScheduler();
         tileScheduler.setParallelism(Runtime.getRuntime().availableProcessors());
         jai.setTileScheduler(tileScheduler);
+        batchDir = new File(System.getProperty("java.io.tmpdir"), getClass().getSimpleName() + "-batch");
+        FileUtils.deleteTree(batchDir);
     }
 
     @Override
@@ -74,6 +82,7 @@ public class CommandLineToolOperatorTest extends TestCase {
         GPF.getDefaultInstance().getOperatorSpiRegistry().removeOperatorSpi(OP5_SPI);
         GPF.getDefaultInstance().getOperatorSpiRegistry().removeOperatorSpi(OUTPUT_OP_SPI);
         JAI.getDefaultInstance().setTileScheduler(jaiTileScheduler);
+        FileUtils.deleteTree(batchDir);
     }
 
     public void testPrintUsage() throws Exception {
@@ -200,6 +209,61 @@ public class CommandLineToolOperatorTest extends TestCase {
         assertEquals(0, context.writeProductCounter);
     }
 
+    public void testOperatorBatchMode() throws Exception {
+        final File[] sourceFiles = {createBatchSourceFile("asterix.N1"), createBatchSourceFile("obelix.N1")};
+        final File targetDir = new File(batchDir, "out");
+        clTool.run("Op3", "-i", new File(batchDir, "*.N1").getPath(), "-o", targetDir.getPath());
+
+        String expectedLog = "s0=" + sourceFiles[0].getCanonicalPath() + ";" +
+                "o=Op3;t0=" + new File(targetDir, "asterix.dim").getPath() + ";" +
+                "s1=" + sourceFiles[1].getCanonicalPath() + ";" +
+                "o=Op3;t1=" + new File(targetDir, "obelix.dim").getPath() + ";";
+        assertEquals(expectedLog, context.logString);
+        assertSame(context.sourceProducts.get("sourceProduct"), context.sourceProducts.get("sourceProduct.1"));
+        assertTrue(context.output.contains("Processed 2 of 2 source products"));
+    }
+
+    public void testOperatorBatchModeDisposesSharedSourceProducts() throws Exception {
+        final File sourceFile = createBatchSourceFile("asterix.N1");
+        final File targetDir = new File(batchDir, "out");
+        clTool.run("Op3", "-Sinput1=vercingetorix.dim", "-i", sourceFile.getPath(), "-o", targetDir.getPath());
+
+        assertEquals(2, context.readProducts.size());
+        assertEquals(new HashSet<Product>(context.readProducts), new HashSet<Product>(context.disposedProducts));
+    }
+
+    public void testOperatorBatchModeFailsForDuplicateTargetNames() throws Exception {
+        final File[] sourceFiles = {createBatchSourceFile("a/asterix.N1"), createBatchSourceFile("b/asterix.N1")};
+        final File targetDir = new File(batchDir, "out");
+        try {
+            clTool.run("Op3", "-i", sourceFiles[0].getPath(), "-i", sourceFiles[1].getPath(),
+                       "-o", targetDir.getPath());
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("would both be written to"));
+        }
+        assertEquals("", context.logString);
+        assertFalse(targetDir.exists());
+    }
+
+    public void testOperatorBatchModeRejectsOutputOperator() throws Exception {
+        final File sourceFile = createBatchSourceFile("asterix.N1");
+        try {
+            clTool.run("OutputOp", "-i", sourceFile.getPath(), "-o", new File(batchDir, "out").getPath());
+            fail("OperatorException expected");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage().contains("cannot be used in batch mode"));
+        }
+        assertEquals("", context.logString);
+    }
+
+    private File createBatchSourceFile(String path) throws IOException {
+        final File sourceFile = new File(batchDir, path);
+        assertTrue(sourceFile.getParentFile().isDirectory() || sourceFile.getParentFile().mkdirs());
+        assertTrue(sourceFile.createNewFile());
+        return sourceFile;
+    }
+
     public void testFailureNoReaderFound() {
         CommandLineTool tool = new CommandLineTool(new OpCommandLineContext() {
             @Override
@@ -227,6 +291,8 @@ public class CommandLineToolOperatorTest extends TestCase {
         private Map<String, Object> parameters;
         private Map<String, Product> sourceProducts;
         private String output = "";
+        private final List<Product> readProducts = new ArrayList<Product>();
+        private final List<Product> disposedProducts = new ArrayList<Product>();
 
         private OpCommandLineContext() {
             logString = "";
@@ -236,7 +302,15 @@ public class CommandLineToolOperatorTest extends TestCase {
         public Product readProduct(String productFilepath) throws IOException {
             logString += "s" + readProductCounter + "=" + productFilepath + ";";
             readProductCounter++;
-            return new Product("S", "ST", 10, 10);
+            final Product product = new Product("S", "ST", 10, 10) {
+                @Override
+                public void dispose() {
+                    disposedProducts.add(this);
+                    super.dispose();
+                }
+            };
+            readProducts.add(product);
+            return product;
         }
 
         @Override
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.framework.gpf.pointop;
+
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.gpf.Operator;
+import org.junit.Test;
+
+import java.awt.image.Raster;
+
+import static org.junit.Assert.*;
+
+public class PointOperatorFusionTest {
+
+    private static final int W = 10;
+    private static final int H = 10;
+
+    @Test
+    public void testCanFuse() {
+        final Product sourceProduct = createSourceProduct();
+        final Operator ndviOp = createNdviOp(sourceProduct);
+        final Operator scaleOp = createScaleOp(ndviOp.getTargetProduct());
+
+        assertTrue(PointOperatorFusion.canFuse(ndviOp, scaleOp));
+        assertFalse(PointOperatorFusion.canFuse(scaleOp, ndviOp));
+
+        final Operator ndviOp2 = createNdviOp(sourceProduct);
+        assertTrue(PointOperatorFusion.canFuse(ndviOp2, createSingleBandScaleOp(ndviOp2.getTargetProduct())));
+
+        // the fused samples would be computed once per target band
+        final Operator ndviOp3 = createNdviOp(sourceProduct);
+        final Operator scaleSampleOp = new ScaleSampleOp();
+        scaleSampleOp.setSourceProduct(ndviOp3.getTargetProduct());
+        scaleSampleOp.getTargetProduct();
+        assertFalse(PointOperatorFusion.canFuse(ndviOp3, scaleSampleOp));
+
+        final Operator ndviTileOp = new PointOperatorTest.NdviTileOp();
+        ndviTileOp.setSourceProduct(sourceProduct);
+        assertFalse(PointOperatorFusion.canFuse(ndviTileOp, createScaleOp(ndviTileOp.getTargetProduct())));
+    }
+
+    @Test
+    public void testFusedOperatorsComputeSameSamples() {
+        final Product sourceProduct = createSourceProduct();
+
+        final Operator scaleOp = createScaleOp(createNdviOp(sourceProduct).getTargetProduct());
+        final Operator ndviOp = createNdviOp(sourceProduct);
+        final Operator fusedScaleOp = createScaleOp(ndviOp.getTargetProduct());
+        PointOperatorFusion.fuse(ndviOp, fusedScaleOp);
+
+        for (String bandName : new String[]{"ndvi_scaled", "ndvi_flags_copy"}) {
+            final Raster expected = scaleOp.getTargetProduct().getBand(bandName).getSourceImage().getData();
+            final Raster actual = fusedScaleOp.getTargetProduct().getBand(bandName).getSourceImage().getData();
+            for (int y = 0; y < H; y++) {
+                for (int x = 0; x < W; x++) {
+                    assertEquals(bandName + " at " + x + "," + y,
+                                 expected.getSample(x, y, 0), actual.getSample(x, y, 0));
+                }
+            }
+        }
+        assertEquals(0.2F, fusedScaleOp.getTargetProduct().getBand("ndvi_scaled").getGeophysicalImage().getData()
+                .getSampleFloat(0, 0, 0), 1.0e-3F);
+    }
+
+    @Test
+    public void testFusedSampleOperatorComputesSameSamples() {
+        final Product sourceProduct = createSourceProduct();
+
+        final Operator scaleOp = createSingleBandScaleOp(createNdviOp(sourceProduct).getTargetProduct());
+        final Operator ndviOp = createNdviOp(sourceProduct);
+        final Operator fusedScaleOp = createSingleBandScaleOp(ndviOp.getTargetProduct());
+        PointOperatorFusion.fuse(ndviOp, fusedScaleOp);
+
+        final Raster expected = scaleOp.getTargetProduct().getBand("ndvi_scaled").getSourceImage().getData();
+        final Raster actual = fusedScaleOp.getTargetProduct().getBand("ndvi_scaled").getSourceImage().getData();
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                assertEquals("ndvi_scaled at " + x + "," + y, expected.getSample(x, y, 0), actual.getSample(x, y, 0));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFuseFailsForUnrelatedOperators() {
+        final Product sourceProduct = createSourceProduct();
+        PointOperatorFusion.fuse(createNdviOp(sourceProduct), createNdviOp(sourceProduct));
+    }
+
+    private static Operator createNdviOp(Product sourceProduct) {
+        final Operator op = new PointOperatorTest.NdviPixelOp();
+        op.setSourceProduct(sourceProduct);
+        op.getTargetProduct();
+        return op;
+    }
+
+    private static Operator createScaleOp(Product sourceProduct) {
+        final Operator op = new ScaleOp();
+        op.setSourceProduct(sourceProduct);
+        op.getTargetProduct();
+        return op;
+    }
+
+    private static Operator createSingleBandScaleOp(Product sourceProduct) {
+        final Operator op = new SingleBandScaleOp();
+        op.setSourceProduct(sourceProduct);
+        op.getTargetProduct();
+        return op;
+    }
+
+    private static Product createSourceProduct() {
+        final Product product = new Product("TEST", "TEST", W, H);
+        final short[] rad8 = new short[W * H];
+        final short[] rad10 = new short[W * H];
+        for (int i = 0; i < rad8.length; i++) {
+            rad8[i] = (short) (2000 + 13 * i);
+            rad10[i] = (short) (3000 - 17 * i);
+        }
+        final Band band8 = product.addBand("radiance_8", ProductData.TYPE_INT16);
+        final Band band10 = product.addBand("radiance_10", ProductData.TYPE_INT16);
+        band8.setScalingFactor(0.01);
+        band10.setScalingFactor(0.01);
+        band8.setRasterData(ProductData.createInstance(rad8));
+        band10.setRasterData(ProductData.createInstance(rad10));
+        return product;
+    }
+
+    private static class ScaleOp extends PixelOperator {
+
+        @Override
+        protected void configureTargetProduct(ProductConfigurer productConfigurer) {
+            super.configureTargetProduct(productConfigurer);
+            productConfigurer.addBand("ndvi_scaled", ProductData.TYPE_INT16).setScalingFactor(0.001);
+            productConfigurer.addBand("ndvi_flags_copy", ProductData.TYPE_INT16);
+        }
+
+        @Override
+        protected void configureSourceSamples(SampleConfigurer sampleConfigurer) {
+            sampleConfigurer.defineSample(0, "ndvi");
+            sampleConfigurer.defineSample(1, "ndvi_flags");
+        }
+
+        @Override
+        protected void configureTargetSamples(SampleConfigurer sampleConfigurer) {
+            sampleConfigurer.defineSample(0, "ndvi_scaled");
+            sampleConfigurer.defineSample(1, "ndvi_flags_copy");
+        }
+
+        @Override
+        protected void computePixel(int x, int y, Sample[] sourceSamples, WritableSample[] targetSamples) {
+            targetSamples[0].set(sourceSamples[0].getFloat());
+            targetSamples[1].set(sourceSamples[1].getInt());
+        }
+    }
+
+    private static class ScaleSampleOp extends SampleOperator {
+
+        @Override
+        protected void configureTargetProduct(ProductConfigurer productConfigurer) {
+            super.configureTargetProduct(productConfigurer);
+            productConfigurer.addBand("ndvi_scaled", ProductData.TYPE_INT16).setScalingFactor(0.001);
+            productConfigurer.addBand("ndvi_flags_copy", ProductData.TYPE_INT16);
+        }
+
+        @Override
+        protected void configureSourceSamples(SampleConfigurer sampleConfigurer) {
+            sampleConfigurer.defineSample(0, "ndvi");
+            sampleConfigurer.defineSample(1, "ndvi_flags");
+        }
+
+        @Override
+        protected void configureTargetSamples(SampleConfigurer sampleConfigurer) {
+            sampleConfigurer.defineSample(0, "ndvi_scaled");
+            sampleConfigurer.defineSample(1, "ndvi_flags_copy");
+        }
+
+        @Override
+        protected void computeSample(int x, int y, Sample[] sourceSamples, WritableSample targetSample) {
+            if (targetSample.getIndex() == 0) {
+                targetSample.set(sourceSamples[0].getFloat());
+            } else {
+                targetSample.set(sourceSamples[1].getInt());
+            }
+        }
+    }
+
+    private static class SingleBandScaleOp extends SampleOperator {
+
+        @Override
+        protected void configureTargetProduct(ProductConfigurer productConfigurer) {
+            super.configureTargetProduct(productConfigurer);
+            productConfigurer.addBand("ndvi_scaled", ProductData.TYPE_INT16).setScalingFactor(0.001);
+        }
+
+        @Override
+        protected void configureSourceSamples(SampleConfigurer sampleConfigurer) {
+            sampleConfigurer.defineSample(0, "ndvi");
+        }
+
+        @Override
+        protected void configureTargetSamples(SampleConfigurer sampleConfigurer) {
+            sampleConfigurer.defineSample(0, "ndvi_scaled");
+        }
+
+        @Override
+        protected void computeSample(int x, int y, Sample[] sourceSamples, WritableSample targetSample) {
+            targetSample.set(sourceSamples[0].getFloat());
+        }
+    }
+}
@@ -117,6 +117,74 @@ public class WriteOpTest extends TestCase {
         productOnDisk.dispose();
     }
 
+    public void testWriteAsynchronously() throws Exception {
+        final File syncOutputFile = new File(outputFile.getParentFile(), "syncProduct.dim");
+        final File asyncOutputFile = new File(outputFile.getParentFile(), "asyncProduct.dim");
+        final WriteOp syncWriteOp = new WriteOp(GPF.createProduct("Algo", GPF.NO_PARAMS), syncOutputFile,
+                                                ProductIO.DEFAULT_FORMAT_NAME);
+        syncWriteOp.writeProduct(ProgressMonitor.NULL);
+
+        final WriteOp asyncWriteOp = new WriteOp(GPF.createProduct("Algo", GPF.NO_PARAMS), asyncOutputFile,
+                                                 ProductIO.DEFAULT_FORMAT_NAME);
+        asyncWriteOp.setWriteQueueDepth(2);
+        asyncWriteOp.writeProduct(ProgressMonitor.NULL);
+
+        final Product syncProduct = ProductIO.readProduct(syncOutputFile);
+        final Product asyncProduct = ProductIO.readProduct(asyncOutputFile);
+        try {
+            assertEquals(syncProduct.getNumBands(), asyncProduct.getNumBands());
+            final Band syncBand = syncProduct.getBand("OperatorBand");
+            final Band asyncBand = asyncProduct.getBand("OperatorBand");
+            syncBand.loadRasterData();
+            asyncBand.loadRasterData();
+            for (int i = 0; i < RASTER_WIDTH * RASTER_HEIGHT; i++) {
+                assertEquals(syncBand.getRasterData().getElemIntAt(i), asyncBand.getRasterData().getElemIntAt(i));
+            }
+        } finally {
+            syncProduct.dispose();
+            asyncProduct.dispose();
+        }
+    }
+
+    public void testWriteAsynchronouslyThroughGraph() throws Exception {
+        String graphOpXml = "<graph id=\"myOneNodeGraph\">\n"
+                + "  <version>1.0</version>\n"
+                + "  <node id=\"node1\">\n"
+                + "    <operator>Algo</operator>\n"
+                + "  </node>\n"
+                + "  <node id=\"node2\">\n"
+                + "    <operator>Write</operator>\n"
+                + "    <sources>\n"
+                + "      <source refid=\"node1\"/>\n"
+                + "    </sources>\n"
+                + "    <parameters>\n"
+                + "       <file>" + outputFile.getAbsolutePath() + "</file>\n"
+                + "       <writeQueueDepth>2</writeQueueDepth>\n"
+                + "    </parameters>\n"
+                + "  </node>\n"
+                + "</graph>";
+        Graph graph = GraphIO.read(new StringReader(graphOpXml));
+
+        // the GraphProcessor does not call WriteOp.writeProduct(), pending writes must not be discarded
+        GraphProcessor processor = new GraphProcessor();
+        processor.executeGraph(graph, ProgressMonitor.NULL);
+
+        Product productOnDisk = ProductIO.readProduct(outputFile);
+        assertNotNull(productOnDisk);
+        try {
+            // the initial header has been written without any pins, the rewritten one after all tiles has them
+            assertTrue(productOnDisk.getPinGroup().getNodeCount() > 0);
+
+            Band operatorBand = productOnDisk.getBand("OperatorBand");
+            operatorBand.loadRasterData();
+            for (int i = 0; i < RASTER_WIDTH * RASTER_HEIGHT; i++) {
+                assertEquals((byte) 12345, operatorBand.getRasterData().getElemIntAt(i));
+            }
+        } finally {
+            productOnDisk.dispose();
+        }
+    }
+
     /**
      * Some algorithm.
      */
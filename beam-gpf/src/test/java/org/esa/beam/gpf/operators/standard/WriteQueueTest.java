@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.beam.gpf.operators.standard;
+
+import org.esa.beam.framework.gpf.OperatorException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WriteQueueTest {
+
+    @Test
+    public void testTasksAreWrittenInOrder() throws Exception {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        final WriteQueue writeQueue = new WriteQueue("test", 2);
+        for (int i = 0; i < 20; i++) {
+            writeQueue.put(new RecordingTask(i, written, 1));
+        }
+        writeQueue.close();
+
+        assertEquals(20, written.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, written.get(i).intValue());
+        }
+        assertTrue(writeQueue.getWritingNanos() > 0);
+        // the queue only holds 2 tasks, so submitting 20 slow tasks must have blocked
+        assertTrue(writeQueue.getBlockedNanos() > 0);
+    }
+
+    @Test
+    public void testFailureIsReported() throws Exception {
+        final WriteQueue writeQueue = new WriteQueue("test", 2);
+        writeQueue.put(new WriteQueue.Task() {
+            @Override
+            public void write() throws IOException {
+                throw new IOException("disk full");
+            }
+        });
+        try {
+            for (int i = 0; i < 100; i++) {
+                writeQueue.put(new RecordingTask(i, new ArrayList<Integer>(), 0));
+            }
+            writeQueue.close();
+            fail("OperatorException expected");
+        } catch (OperatorException e) {
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testTasksPutAfterCloseAreWrittenDirectly() throws Exception {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        final WriteQueue writeQueue = new WriteQueue("test", 2);
+        writeQueue.put(new RecordingTask(0, written, 1));
+        writeQueue.close();
+        writeQueue.put(new RecordingTask(1, written, 0));
+        // closing twice is harmless
+        writeQueue.close();
+
+        assertEquals(2, written.size());
+        assertEquals(0, written.get(0).intValue());
+        assertEquals(1, written.get(1).intValue());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        final WriteQueue writeQueue = new WriteQueue("test", 10);
+        for (int i = 0; i < 10; i++) {
+            writeQueue.put(new RecordingTask(i, written, 10));
+        }
+        writeQueue.cancel();
+
+        assertTrue(written.size() < 10);
+        try {
+            writeQueue.put(new RecordingTask(10, written, 0));
+            fail("OperatorException expected");
+        } catch (OperatorException expected) {
+            // ok
+        }
+    }
+
+    private static class RecordingTask implements WriteQueue.Task {
+
+        private final int id;
+        private final List<Integer> written;
+        private final long millis;
+
+        private RecordingTask(int id, List<Integer> written, long millis) {
+            this.id = id;
+            this.written = written;
+            this.millis = millis;
+        }
+
+        @Override
+        public void write() throws IOException {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                throw new IOException(e.getMessage());
+            }
+            written.add(id);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.gpf.operators.standard.reproject;
+
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.awt.geom.AffineTransform;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class WarpGridCacheTest {
+
+    @Test
+    public void testPutAndGet() {
+        final WarpGridCache cache = new WarpGridCache(1024, null);
+        final float[] grid = {1.5f, 2.5f, 3.5f, 4.5f};
+
+        cache.put("abc", 1, 2, grid);
+
+        assertSame(grid, cache.get("abc", 1, 2, 4));
+        assertNull(cache.get("abc", 2, 1, 4));
+        assertNull(cache.get("abd", 1, 2, 4));
+        assertNull(cache.get("abc", 1, 2, 6));
+        assertEquals(16, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedGridsAreEvicted() {
+        final WarpGridCache cache = new WarpGridCache(3 * 16, null);
+        cache.put("abc", 0, 0, new float[4]);
+        cache.put("abc", 1, 0, new float[4]);
+        cache.put("abc", 2, 0, new float[4]);
+        assertNotNull(cache.get("abc", 0, 0, 4));
+
+        cache.put("abc", 3, 0, new float[4]);
+
+        assertNotNull(cache.get("abc", 0, 0, 4));
+        assertNull(cache.get("abc", 1, 0, 4));
+        assertNotNull(cache.get("abc", 2, 0, 4));
+        assertNotNull(cache.get("abc", 3, 0, 4));
+        assertEquals(3 * 16, cache.getSizeInBytes());
+
+        cache.put("abc", 4, 0, new float[16]);
+        assertNull(cache.get("abc", 4, 0, 16));
+    }
+
+    @Test
+    public void testGridsArePersisted() throws Exception {
+        final File cacheDir = new File(System.getProperty("java.io.tmpdir"), "WarpGridCacheTest-" + System.nanoTime());
+        try {
+            final float[] grid = {1.5f, Float.NaN, -3.5f, 4.5f};
+            new WarpGridCache(1024, cacheDir).put("abc", 1, 2, grid);
+
+            final WarpGridCache cache = new WarpGridCache(1024, cacheDir);
+            final float[] persistedGrid = cache.get("abc", 1, 2, 4);
+            assertNotNull(persistedGrid);
+            assertArrayEquals(grid, persistedGrid, 0.0f);
+            assertNull(cache.get("abc", 1, 2, 6));
+            assertNull(cache.get("abc", 2, 2, 4));
+        } finally {
+            final File[] files = cacheDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            cacheDir.delete();
+        }
+    }
+
+    @Test
+    public void testFingerprint() {
+        final AffineTransform sourceI2m = new AffineTransform(0.1, 0.0, 0.0, -0.1, 10.0, 50.0);
+        final AffineTransform targetI2m = new AffineTransform(0.05, 0.0, 0.0, -0.05, 10.0, 50.0);
+        final Dimension tileSize = new Dimension(256, 256);
+
+        final String fingerprint = WarpGridCache.createFingerprint(DefaultGeographicCRS.WGS84, sourceI2m,
+                                                                   DefaultGeographicCRS.WGS84, targetI2m,
+                                                                   1000, 800, tileSize);
+        assertNotNull(fingerprint);
+        assertEquals(fingerprint, WarpGridCache.createFingerprint(DefaultGeographicCRS.WGS84,
+                                                                  new AffineTransform(sourceI2m),
+                                                                  DefaultGeographicCRS.WGS84,
+                                                                  new AffineTransform(targetI2m),
+                                                                  1000, 800, new Dimension(256, 256)));
+        assertFalse(fingerprint.equals(WarpGridCache.createFingerprint(DefaultGeographicCRS.WGS84, targetI2m,
+                                                                       DefaultGeographicCRS.WGS84, sourceI2m,
+                                                                       1000, 800, tileSize)));
+        assertFalse(fingerprint.equals(WarpGridCache.createFingerprint(DefaultGeographicCRS.WGS84, sourceI2m,
+                                                                       DefaultGeographicCRS.WGS84, targetI2m,
+                                                                       1000, 800, new Dimension(512, 512))));
+    }
+}
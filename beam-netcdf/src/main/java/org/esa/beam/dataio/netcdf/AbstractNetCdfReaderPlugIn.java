@@ -30,6 +30,20 @@ import java.io.IOException;
 
 public abstract class AbstractNetCdfReaderPlugIn implements ProductReaderPlugIn {
 
+    /**
+     * The name of the system property giving the default of {@link #getFilePoolSize()}.
+     *
+     * @since BEAM 5.0
+     */
+    public static final String FILE_POOL_SIZE_PROPERTY = "beam.netcdf.filePoolSize";
+
+    /**
+     * The name of the system property giving the default of {@link #getChunkCacheSize()} in megabytes.
+     *
+     * @since BEAM 5.0
+     */
+    public static final String CHUNK_CACHE_SIZE_PROPERTY = "beam.netcdf.chunkCacheSize";
+
     ///////////////////////////////////////////////
     // ProductReaderPlugIn related methods
 
@@ -99,6 +113,37 @@ public abstract class AbstractNetCdfReaderPlugIn implements ProductReaderPlugIn
         ctx.setRasterDigest(rasterDigest);
     }
 
+    /**
+     * Gets the maximum number of additional handles of the NetCDF file which are opened to read image data
+     * concurrently, see {@link org.esa.beam.dataio.netcdf.util.NetcdfFilePool}. If zero, all image data is read
+     * through the single handle of the product, one tile at a time.
+     * <p/>
+     * The default implementation returns the value of the system property {@code beam.netcdf.filePoolSize},
+     * or zero if it is not set. Plug-ins for formats which profit from concurrent reading, e.g. compressed
+     * NetCDF-4 files, may override this method.
+     *
+     * @return the maximum number of additional file handles
+     * @since BEAM 5.0
+     */
+    protected int getFilePoolSize() {
+        return Integer.getInteger(FILE_POOL_SIZE_PROPERTY, 0);
+    }
+
+    /**
+     * Gets the capacity of the cache of decompressed chunks which is shared by the images of a product, see
+     * {@link org.esa.beam.dataio.netcdf.util.NetcdfChunkCache}. The cache is only used for chunked NetCDF-4/HDF5
+     * variables. If zero, no cache is used.
+     * <p/>
+     * The default implementation returns the value of the system property {@code beam.netcdf.chunkCacheSize}
+     * converted from megabytes, or 32 MB if it is not set.
+     *
+     * @return the capacity of the chunk cache in bytes
+     * @since BEAM 5.0
+     */
+    protected long getChunkCacheSize() {
+        return Integer.getInteger(CHUNK_CACHE_SIZE_PROPERTY, 32) * 1024L * 1024L;
+    }
+
     /**
      * Gets the qualification of the product reader to decode the given {@link NetcdfFile NetCDF file}.
      *
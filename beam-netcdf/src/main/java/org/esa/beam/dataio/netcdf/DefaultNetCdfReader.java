@@ -18,11 +18,14 @@ package org.esa.beam.dataio.netcdf;
 
 import com.bc.ceres.core.ProgressMonitor;
 import org.esa.beam.dataio.netcdf.util.Constants;
+import org.esa.beam.dataio.netcdf.util.NetcdfChunkCache;
+import org.esa.beam.dataio.netcdf.util.NetcdfFilePool;
 import org.esa.beam.framework.dataio.AbstractProductReader;
 import org.esa.beam.framework.datamodel.Band;
 import org.esa.beam.framework.datamodel.Product;
 import org.esa.beam.framework.datamodel.ProductData;
 import org.esa.beam.util.io.FileUtils;
+import org.esa.beam.util.logging.BeamLogManager;
 import ucar.nc2.NetcdfFile;
 
 import java.io.File;
@@ -31,6 +34,8 @@ import java.io.IOException;
 class DefaultNetCdfReader extends AbstractProductReader {
 
     private NetcdfFile netcdfFile;
+    private NetcdfFilePool filePool;
+    private NetcdfChunkCache chunkCache;
 
     public DefaultNetCdfReader(AbstractNetCdfReaderPlugIn netCdfReaderPlugIn) {
         super(netCdfReaderPlugIn);
@@ -50,6 +55,16 @@ class DefaultNetCdfReader extends AbstractProductReader {
         final ProfileReadContext context = new ProfileReadContextImpl(netcdfFile);
         String filename = extractProductName(fileLocation);
         context.setProperty(Constants.PRODUCT_FILENAME_PROPERTY, filename);
+        final int filePoolSize = plugIn.getFilePoolSize();
+        if (filePoolSize > 0) {
+            filePool = new NetcdfFilePool(fileLocation.getPath(), filePoolSize);
+            context.setProperty(Constants.FILE_POOL_PROPERTY, filePool);
+        }
+        final long chunkCacheSize = plugIn.getChunkCacheSize();
+        if (chunkCacheSize > 0) {
+            chunkCache = new NetcdfChunkCache(chunkCacheSize);
+            context.setProperty(Constants.CHUNK_CACHE_PROPERTY, chunkCache);
+        }
         plugIn.initReadContext(context);
         NetCdfReadProfile profile = new NetCdfReadProfile();
         configureProfile(plugIn, profile);
@@ -97,6 +112,15 @@ class DefaultNetCdfReader extends AbstractProductReader {
 
     @Override
     public void close() throws IOException {
+        if (chunkCache != null) {
+            BeamLogManager.getSystemLogger().fine(getInput() + ": " + chunkCache);
+            chunkCache.clear();
+            chunkCache = null;
+        }
+        if (filePool != null) {
+            filePool.close();
+            filePool = null;
+        }
         if (netcdfFile != null) {
             netcdfFile.close();
             netcdfFile = null;
@@ -18,8 +18,11 @@ package org.esa.beam.dataio.netcdf;
 
 import org.esa.beam.dataio.netcdf.metadata.ProfileInitPartReader;
 import org.esa.beam.dataio.netcdf.metadata.ProfilePartReader;
+import org.esa.beam.dataio.netcdf.util.RasterDigest;
+import org.esa.beam.dataio.netcdf.util.ReaderUtils;
 import org.esa.beam.framework.datamodel.Product;
 
+import java.awt.Dimension;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -45,6 +48,14 @@ class NetCdfReadProfile {
     public Product readProduct(final ProfileReadContext ctx) throws IOException {
 
         final Product product = profileInitPart.readProductBody(ctx);
+        final RasterDigest rasterDigest = ctx.getRasterDigest();
+        if (product.getPreferredTileSize() == null && rasterDigest != null) {
+            // read whole chunks of compressed NetCDF-4 variables per tile
+            final Dimension tileSize = ReaderUtils.getChunkAlignedTileSize(rasterDigest);
+            if (tileSize != null) {
+                product.setPreferredTileSize(tileSize);
+            }
+        }
         for (ProfilePartReader profilePart : profileParts) {
             profilePart.preDecode(ctx, product);
         }
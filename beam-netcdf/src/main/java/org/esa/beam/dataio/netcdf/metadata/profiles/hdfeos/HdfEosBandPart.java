@@ -23,6 +23,8 @@ import org.esa.beam.dataio.netcdf.metadata.profiles.cf.CfBandPart;
 import org.esa.beam.dataio.netcdf.util.AbstractNetcdfMultiLevelImage;
 import org.esa.beam.dataio.netcdf.util.Constants;
 import org.esa.beam.dataio.netcdf.util.DataTypeUtils;
+import org.esa.beam.dataio.netcdf.util.NetcdfChunkCache;
+import org.esa.beam.dataio.netcdf.util.NetcdfFilePool;
 import org.esa.beam.dataio.netcdf.util.NetcdfMultiLevelImage;
 import org.esa.beam.dataio.netcdf.util.NetcdfOpImage;
 import org.esa.beam.dataio.netcdf.util.RasterDigest;
@@ -89,6 +91,8 @@ public class HdfEosBandPart extends ProfilePartIO {
         protected RenderedImage createImage(int level) {
             RasterDataNode rdn = getRasterDataNode();
             NetcdfFile lock = ctx.getNetcdfFile();
+            NetcdfFilePool filePool = (NetcdfFilePool) ctx.getProperty(Constants.FILE_POOL_PROPERTY);
+            NetcdfChunkCache chunkCache = (NetcdfChunkCache) ctx.getProperty(Constants.CHUNK_CACHE_PROPERTY);
             final Object object = ctx.getProperty(Constants.Y_FLIPPED_PROPERTY_NAME);
             boolean isYFlipped = object instanceof Boolean && (Boolean) object;
             int dataBufferType = ImageManager.getDataBufferType(rdn.getDataType());
@@ -100,14 +104,14 @@ public class HdfEosBandPart extends ProfilePartIO {
             RenderedImage netcdfImg;
             if (variable.getDataType() == DataType.LONG) {
                 if (rdn.getName().endsWith("_lsb")) {
-                    netcdfImg = NetcdfOpImage.createLsbImage(variable, imageOrigin, isYFlipped, lock, dataBufferType,
-                                                             sourceWidth, sourceHeight, tileSize, resolutionLevel);
+                    netcdfImg = NetcdfOpImage.createLsbImage(variable, imageOrigin, isYFlipped, lock, filePool, chunkCache,
+                                                             dataBufferType, sourceWidth, sourceHeight, tileSize, resolutionLevel);
                 } else {
-                    netcdfImg = NetcdfOpImage.createMsbImage(variable, imageOrigin, isYFlipped, lock, dataBufferType,
-                                                             sourceWidth, sourceHeight, tileSize, resolutionLevel);
+                    netcdfImg = NetcdfOpImage.createMsbImage(variable, imageOrigin, isYFlipped, lock, filePool, chunkCache,
+                                                             dataBufferType, sourceWidth, sourceHeight, tileSize, resolutionLevel);
                 }
             } else {
-                netcdfImg = new NetcdfOpImage(variable, imageOrigin, isYFlipped, lock,
+                netcdfImg = new NetcdfOpImage(variable, imageOrigin, isYFlipped, lock, filePool, chunkCache,
                                               dataBufferType, sourceWidth, sourceHeight, tileSize, resolutionLevel);
             }
 
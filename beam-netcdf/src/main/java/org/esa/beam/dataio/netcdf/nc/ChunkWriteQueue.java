@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.dataio.netcdf.nc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the writes of a file on a dedicated thread, in the order of their submission.
+ * <p/>
+ * The NetCDF 4 library compresses a chunk within the call which appends it to the file, and it must not be called
+ * concurrently. Handing the chunks over to this queue moves the compression off the threads computing the data.
+ * At most {@code capacity} chunks are pending, further submissions block until the I/O thread has caught up.
+ *
+ * @since BEAM 5.0
+ */
+class ChunkWriteQueue {
+
+    interface Task {
+
+        void write() throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private volatile IOException error;
+
+    ChunkWriteQueue(final String name, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity <= 0");
+        }
+        this.permits = new Semaphore(capacity);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Submits a task. Blocks if the queue is full.
+     *
+     * @param task The task.
+     *
+     * @throws IOException If a previous task has failed.
+     */
+    void submit(final Task task) throws IOException {
+        checkError();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for the write queue.");
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // after a failure the file is broken anyway, skip the remaining tasks
+                    if (error == null) {
+                        task.write();
+                    }
+                } catch (IOException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new IOException(e);
+                } finally {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits until all submitted tasks have been executed and stops the I/O thread.
+     *
+     * @throws IOException If a task has failed.
+     */
+    void close() throws IOException {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // wait for the pending writes
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            throw new InterruptedIOException("Interrupted while waiting for the write queue.");
+        }
+        checkError();
+    }
+
+    private void checkError() throws IOException {
+        final IOException e = error;
+        if (e != null) {
+            throw e;
+        }
+    }
+}
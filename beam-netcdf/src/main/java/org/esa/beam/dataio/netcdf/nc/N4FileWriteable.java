@@ -24,6 +24,7 @@ import edu.ucar.ral.nujan.netcdf.NhVariable;
 import ucar.ma2.DataType;
 
 import java.awt.Dimension;
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -35,20 +36,61 @@ import java.util.Map;
  */
 public class N4FileWriteable implements NFileWriteable {
 
+    /**
+     * The name of the system property giving the deflate level (0-9) of the variables, 0 disables compression.
+     *
+     * @since BEAM 5.0
+     */
+    public static final String COMPRESSION_LEVEL_PROPERTY = "beam.netcdf4.compressionLevel";
+    /**
+     * The name of the system property giving the maximum number of chunks pending to be compressed and written
+     * by a dedicated I/O thread. If zero, the chunks are compressed and written by the calling thread.
+     *
+     * @since BEAM 5.0
+     */
+    public static final String WRITE_QUEUE_DEPTH_PROPERTY = "beam.netcdf4.writeQueueDepth";
+
     private static final int DEFAULT_COMPRESSION = 6;
     private final NhFileWriter nhFileWriter;
+    private final int compressionLevel;
+    private final ChunkWriteQueue writeQueue;
     private Map<String, NVariable> variables;
 
     public static NFileWriteable create(String filename) throws IOException {
+        return create(filename, Integer.getInteger(COMPRESSION_LEVEL_PROPERTY, DEFAULT_COMPRESSION),
+                      Integer.getInteger(WRITE_QUEUE_DEPTH_PROPERTY, 0));
+    }
+
+    /**
+     * @param filename         The name of the file.
+     * @param compressionLevel The deflate level (0-9) of the variables, 0 disables compression.
+     * @param writeQueueDepth  The maximum number of chunks pending to be compressed and written by a dedicated
+     *                         I/O thread. If zero, the chunks are compressed and written by the calling thread.
+     * @return The writeable.
+     * @throws IOException If the file cannot be created.
+     * @since BEAM 5.0
+     */
+    public static NFileWriteable create(String filename, int compressionLevel, int writeQueueDepth) throws
+                                                                                                   IOException {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("compressionLevel < 0 || compressionLevel > 9");
+        }
         try {
-            return new N4FileWriteable(new NhFileWriter(filename, NhFileWriter.OPT_OVERWRITE));
+            final NhFileWriter nhFileWriter = new NhFileWriter(filename, NhFileWriter.OPT_OVERWRITE);
+            ChunkWriteQueue writeQueue = null;
+            if (writeQueueDepth > 0) {
+                writeQueue = new ChunkWriteQueue("NetCDF4 writer " + new File(filename).getName(), writeQueueDepth);
+            }
+            return new N4FileWriteable(nhFileWriter, compressionLevel, writeQueue);
         } catch (NhException e) {
             throw new IOException(e);
         }
     }
 
-    private N4FileWriteable(NhFileWriter nhFileWriter) {
+    private N4FileWriteable(NhFileWriter nhFileWriter, int compressionLevel, ChunkWriteQueue writeQueue) {
         this.nhFileWriter = nhFileWriter;
+        this.compressionLevel = compressionLevel;
+        this.writeQueue = writeQueue;
         this.variables = new HashMap<String, NVariable>();
     }
 
@@ -88,7 +130,7 @@ public class N4FileWriteable implements NFileWriteable {
         int nhType = N4DataType.convert(dataType, unsigned);
         try {
             NhVariable variable = rootGroup.addVariable(name, nhType, new NhDimension[0], new int[0], null, 0);
-            NVariable nVariable = new N4Variable(variable, null);
+            NVariable nVariable = new N4Variable(variable, null, writeQueue);
             variables.put(name, nVariable);
             return nVariable;
         } catch (NhException e) {
@@ -133,8 +175,8 @@ public class N4FileWriteable implements NFileWriteable {
         Object fillValue = null; // TODO
         try {
             NhVariable variable = rootGroup.addVariable(name, nhType, nhDims, chunkLens, fillValue,
-                                                        DEFAULT_COMPRESSION);
-            NVariable nVariable = new N4Variable(variable, tileSize);
+                                                        compressionLevel);
+            NVariable nVariable = new N4Variable(variable, tileSize, writeQueue);
             variables.put(name, nVariable);
             return nVariable;
         } catch (NhException e) {
@@ -159,9 +201,15 @@ public class N4FileWriteable implements NFileWriteable {
     @Override
     public void close() throws IOException {
         try {
-            nhFileWriter.close();
-        } catch (NhException e) {
-            throw new IOException(e);
+            if (writeQueue != null) {
+                writeQueue.close();
+            }
+        } finally {
+            try {
+                nhFileWriter.close();
+            } catch (NhException e) {
+                throw new IOException(e);
+            }
         }
     }
 }
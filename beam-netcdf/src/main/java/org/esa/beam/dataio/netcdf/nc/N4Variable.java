@@ -38,11 +38,24 @@ public class N4Variable implements NVariable {
 
     private final NhVariable variable;
     private final Dimension tileSize;
+    private final ChunkWriteQueue writeQueue;
     private ChunkWriter writer;
 
     public N4Variable(NhVariable variable, Dimension tileSize) {
+        this(variable, tileSize, null);
+    }
+
+    /**
+     * @param variable   The wrapped variable.
+     * @param tileSize   The tile size, which is the chunk size of the variable.
+     * @param writeQueue The queue to which the data is handed over for compression and writing,
+     *                   may be {@code null}
+     * @since BEAM 5.0
+     */
+    N4Variable(NhVariable variable, Dimension tileSize, ChunkWriteQueue writeQueue) {
         this.variable = variable;
         this.tileSize = tileSize;
+        this.writeQueue = writeQueue;
     }
 
     @Override
@@ -90,11 +103,7 @@ public class N4Variable implements NVariable {
     @Override
     public void writeFully(Array values) throws IOException {
         int[] idxes = new int[values.getShape().length];
-        try {
-            variable.writeData(idxes, values);
-        } catch (NhException e) {
-            throw new IOException(e);
-        }
+        writeData(idxes, values);
     }
 
     @Override
@@ -114,6 +123,27 @@ public class N4Variable implements NVariable {
         return new NetCDF4ChunkWriter(sceneWidth, sceneHeight, chunkWidth, chunkHeight, isYFlipped);
     }
 
+    private void writeData(final int[] origin, final Array values) throws IOException {
+        if (writeQueue != null) {
+            writeQueue.submit(new ChunkWriteQueue.Task() {
+                @Override
+                public void write() throws IOException {
+                    writeDataImpl(origin, values);
+                }
+            });
+        } else {
+            writeDataImpl(origin, values);
+        }
+    }
+
+    private void writeDataImpl(int[] origin, Array values) throws IOException {
+        try {
+            variable.writeData(origin, values);
+        } catch (NhException e) {
+            throw new IOException(e);
+        }
+    }
+
     private class NetCDF4ChunkWriter extends ChunkWriter {
 
         private final Set<Rectangle> writtenChunkRects;
@@ -130,12 +160,14 @@ public class N4Variable implements NVariable {
                 final int[] origin = new int[]{rect.y, rect.x};
                 final int[] shape = new int[]{rect.height, rect.width};
                 DataType dataType = N4DataType.convert(variable.getType());
-                final Array values = Array.factory(dataType, shape, data.getElems());
-                try {
-                    variable.writeData(origin, values);
-                } catch (NhException e) {
-                    throw new IOException(e);
+                Object elems = data.getElems();
+                if (writeQueue != null) {
+                    // the caller may reuse its buffer as soon as this method returns
+                    elems = ProductData.createInstance(data.getType(), data.getNumElems()).getElems();
+                    System.arraycopy(data.getElems(), 0, elems, 0, data.getNumElems());
                 }
+                final Array values = Array.factory(dataType, shape, elems);
+                writeData(origin, values);
                 writtenChunkRects.add(rect);
             }
         }
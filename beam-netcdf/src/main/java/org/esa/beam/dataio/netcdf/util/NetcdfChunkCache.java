@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.dataio.netcdf.util;
+
+import ucar.ma2.Array;
+import ucar.nc2.Variable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the decompressed chunks of chunked (NetCDF-4/HDF5) variables.
+ * <p/>
+ * Reading any part of a compressed chunk requires to decompress the entire chunk. If image tiles are not aligned
+ * to the chunks, neighbouring tiles share chunks and would decompress them repeatedly. With this cache, each chunk
+ * is decompressed once and the tiles copy their pixels from the cached arrays. When the cache exceeds its capacity,
+ * the least recently used chunks are dropped.
+ * <p/>
+ * The cache is safe for concurrent use. If two threads miss the same chunk at the same time, both of them read it.
+ *
+ * @since BEAM 5.0
+ */
+public class NetcdfChunkCache {
+
+    private final long maxSizeInBytes;
+    private final Map<ChunkKey, Array> chunks;
+    private long sizeInBytes;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * @param maxSizeInBytes The capacity of the cache in bytes.
+     */
+    public NetcdfChunkCache(long maxSizeInBytes) {
+        if (maxSizeInBytes <= 0) {
+            throw new IllegalArgumentException("maxSizeInBytes <= 0");
+        }
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.chunks = new LinkedHashMap<ChunkKey, Array>(64, 0.75f, true);
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * Gets a cached chunk. The returned array must not be modified.
+     *
+     * @param variable    The variable.
+     * @param chunkOrigin The origin of the chunk within the variable.
+     *
+     * @return The chunk, or {@code null} if it is not cached.
+     */
+    public synchronized Array get(Variable variable, int[] chunkOrigin) {
+        final Array chunk = chunks.get(new ChunkKey(variable, chunkOrigin));
+        if (chunk != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return chunk;
+    }
+
+    /**
+     * Puts a chunk into the cache. Chunks larger than the capacity of the cache are not cached.
+     *
+     * @param variable    The variable.
+     * @param chunkOrigin The origin of the chunk within the variable.
+     * @param chunk       The chunk.
+     */
+    public synchronized void put(Variable variable, int[] chunkOrigin, Array chunk) {
+        final long chunkSize = chunk.getSizeBytes();
+        if (chunkSize > maxSizeInBytes) {
+            return;
+        }
+        final Array oldChunk = chunks.put(new ChunkKey(variable, chunkOrigin.clone()), chunk);
+        if (oldChunk != null) {
+            sizeInBytes -= oldChunk.getSizeBytes();
+        }
+        sizeInBytes += chunkSize;
+        final Iterator<Array> iterator = chunks.values().iterator();
+        while (sizeInBytes > maxSizeInBytes) {
+            sizeInBytes -= iterator.next().getSizeBytes();
+            iterator.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        chunks.clear();
+        sizeInBytes = 0;
+    }
+
+    public synchronized int getChunkCount() {
+        return chunks.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        final long requestCount = hitCount + missCount;
+        return "NetcdfChunkCache[" +
+               "chunks=" + chunks.size() +
+               ", size=" + sizeInBytes + "/" + maxSizeInBytes + " bytes" +
+               ", hits=" + hitCount +
+               ", misses=" + missCount +
+               ", hitRatio=" + (requestCount > 0 ? (100 * hitCount / requestCount) : 0) + "%" +
+               "]";
+    }
+
+    private static final class ChunkKey {
+
+        private final Variable variable;
+        private final int[] origin;
+
+        private ChunkKey(Variable variable, int[] origin) {
+            this.variable = variable;
+            this.origin = origin;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ChunkKey)) {
+                return false;
+            }
+            final ChunkKey other = (ChunkKey) o;
+            // variables are compared by identity, the same name may occur in different files
+            return variable == other.variable && Arrays.equals(origin, other.origin);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(variable) + Arrays.hashCode(origin);
+        }
+    }
+}
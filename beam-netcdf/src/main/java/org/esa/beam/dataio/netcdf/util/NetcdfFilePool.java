@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.dataio.netcdf.util;
+
+import ucar.nc2.NetcdfFile;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of independently opened handles of the same NetCDF file.
+ * <p/>
+ * A {@link NetcdfFile} must not be read by multiple threads at the same time. Instead of serialising all reads
+ * of a file with a single lock, image tiles can be read concurrently by acquiring a handle of their own from the
+ * pool. The handles are opened on demand, at most {@link #getMaxSize()} of them. If all of them are in use,
+ * {@link #acquire()} waits until one is released.
+ *
+ * @since BEAM 5.0
+ */
+public class NetcdfFilePool {
+
+    private final String location;
+    private final int maxSize;
+    private final List<NetcdfFile> idleFiles;
+    private int numFiles;
+    private boolean closed;
+
+    /**
+     * @param location The location of the NetCDF file.
+     * @param maxSize  The maximum number of handles.
+     */
+    public NetcdfFilePool(String location, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.location = location;
+        this.maxSize = maxSize;
+        this.idleFiles = new ArrayList<NetcdfFile>(maxSize);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Acquires a handle for the exclusive use by the current thread. It must be given back by {@link #release}.
+     *
+     * @return A handle of the NetCDF file.
+     *
+     * @throws IOException If the file cannot be opened or the pool has been closed.
+     */
+    public NetcdfFile acquire() throws IOException {
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new IOException("NetCDF file pool has been closed: " + location);
+                }
+                if (!idleFiles.isEmpty()) {
+                    return idleFiles.remove(idleFiles.size() - 1);
+                }
+                if (numFiles < maxSize) {
+                    numFiles++;
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while waiting for a NetCDF file handle.");
+                }
+            }
+        }
+        // opening parses the file header, don't block the pool meanwhile
+        try {
+            return NetcdfFile.open(location);
+        } catch (IOException e) {
+            synchronized (this) {
+                numFiles--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gives back a handle acquired by {@link #acquire()}.
+     *
+     * @param netcdfFile The handle.
+     */
+    public void release(NetcdfFile netcdfFile) {
+        boolean closeFile;
+        synchronized (this) {
+            closeFile = closed;
+            if (!closeFile) {
+                idleFiles.add(netcdfFile);
+                notifyAll();
+            }
+        }
+        if (closeFile) {
+            closeQuietly(netcdfFile);
+        }
+    }
+
+    /**
+     * Closes all idle handles. Handles currently in use are closed as soon as they are released.
+     */
+    public void close() {
+        final List<NetcdfFile> files;
+        synchronized (this) {
+            closed = true;
+            files = new ArrayList<NetcdfFile>(idleFiles);
+            idleFiles.clear();
+            notifyAll();
+        }
+        for (NetcdfFile file : files) {
+            closeQuietly(file);
+        }
+    }
+
+    private static void closeQuietly(NetcdfFile netcdfFile) {
+        try {
+            netcdfFile.close();
+        } catch (IOException ignore) {
+            // ok
+        }
+    }
+}
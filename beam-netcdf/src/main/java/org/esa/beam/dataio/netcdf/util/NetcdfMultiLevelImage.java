@@ -64,6 +64,8 @@ public class NetcdfMultiLevelImage extends AbstractNetcdfMultiLevelImage {
     protected RenderedImage createImage(int level) {
         RasterDataNode rdn = getRasterDataNode();
         NetcdfFile lock = ctx.getNetcdfFile();
+        NetcdfFilePool filePool = (NetcdfFilePool) ctx.getProperty(Constants.FILE_POOL_PROPERTY);
+        NetcdfChunkCache chunkCache = (NetcdfChunkCache) ctx.getProperty(Constants.CHUNK_CACHE_PROPERTY);
         final Object object = ctx.getProperty(Constants.Y_FLIPPED_PROPERTY_NAME);
         boolean isYFlipped = object instanceof Boolean && (Boolean) object;
         int dataBufferType = ImageManager.getDataBufferType(rdn.getDataType());
@@ -74,14 +76,16 @@ public class NetcdfMultiLevelImage extends AbstractNetcdfMultiLevelImage {
 
         if (variable.getDataType() == DataType.LONG) {
             if (rdn.getName().endsWith("_lsb")) {
-                return NetcdfOpImage.createLsbImage(variable, imageOrigin, isYFlipped, lock, dataBufferType,
-                                                    sceneRasterWidth, sceneRasterHeight, tileSize, resolutionLevel);
+                return NetcdfOpImage.createLsbImage(variable, imageOrigin, isYFlipped, lock, filePool, chunkCache,
+                                                    dataBufferType, sceneRasterWidth, sceneRasterHeight, tileSize,
+                                                    resolutionLevel);
             } else {
-                return NetcdfOpImage.createMsbImage(variable, imageOrigin, isYFlipped, lock, dataBufferType,
-                                                    sceneRasterWidth, sceneRasterHeight, tileSize, resolutionLevel);
+                return NetcdfOpImage.createMsbImage(variable, imageOrigin, isYFlipped, lock, filePool, chunkCache,
+                                                    dataBufferType, sceneRasterWidth, sceneRasterHeight, tileSize,
+                                                    resolutionLevel);
             }
         } else {
-            return new NetcdfOpImage(variable, imageOrigin, isYFlipped, lock,
+            return new NetcdfOpImage(variable, imageOrigin, isYFlipped, lock, filePool, chunkCache,
                                      dataBufferType, sceneRasterWidth, sceneRasterHeight, tileSize, resolutionLevel);
         }
     }
@@ -23,6 +23,7 @@ import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
 import javax.media.jai.PlanarImage;
@@ -31,11 +32,19 @@ import java.awt.Rectangle;
 import java.awt.image.RenderedImage;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * An image that renders the data of a netcdf variable. Using the
  * "stride" feature to allow for faster subsetting.
+ * <p/>
+ * If a {@link NetcdfFilePool} is given, tiles are read through handles acquired from the pool, so that they can be
+ * read concurrently. Otherwise all reads are serialised by the read lock.
+ * <p/>
+ * If a {@link NetcdfChunkCache} is given and the variable is chunked, the level 0 image reads whole chunks and keeps
+ * them in the cache, so that tiles which are not aligned to the chunks don't decompress the same chunk repeatedly.
+ * Variables whose chunks are too large for the cache are read tile by tile as if there was no cache.
  */
 public class NetcdfOpImage extends SingleBandedOpImage {
 
@@ -44,6 +53,9 @@ public class NetcdfOpImage extends SingleBandedOpImage {
     private final int sourceHeight;
     private final int[] imageOrigin;
     private final Object readLock;
+    private final NetcdfFilePool filePool;
+    private final NetcdfChunkCache chunkCache;
+    private final int[] chunkShape;
     private final ArrayConverter arrayConverter;
     private final int xIndex;
     private final int yIndex;
@@ -54,16 +66,40 @@ public class NetcdfOpImage extends SingleBandedOpImage {
                                                Object readLock, int dataBufferType,
                                                int sourceWidth, int sourceHeight,
                                                Dimension tileSize, ResolutionLevel level) {
-        return new NetcdfOpImage(variable, imageOrigin, flipY, readLock, dataBufferType, sourceWidth, sourceHeight,
-                                 tileSize, level, ArrayConverter.LSB);
+        return createLsbImage(variable, imageOrigin, flipY, readLock, null, null, dataBufferType,
+                              sourceWidth, sourceHeight, tileSize, level);
+    }
+
+    /**
+     * @since BEAM 5.0
+     */
+    public static RenderedImage createLsbImage(Variable variable, int[] imageOrigin, boolean flipY,
+                                               Object readLock, NetcdfFilePool filePool,
+                                               NetcdfChunkCache chunkCache, int dataBufferType,
+                                               int sourceWidth, int sourceHeight,
+                                               Dimension tileSize, ResolutionLevel level) {
+        return new NetcdfOpImage(variable, imageOrigin, flipY, readLock, filePool, chunkCache, dataBufferType,
+                                 sourceWidth, sourceHeight, tileSize, level, ArrayConverter.LSB);
     }
 
     public static RenderedImage createMsbImage(Variable variable, int[] imageOrigin, boolean flipY,
                                                Object readLock, int dataBufferType,
                                                int sourceWidth, int sourceHeight,
                                                Dimension tileSize, ResolutionLevel level) {
-        return new NetcdfOpImage(variable, imageOrigin, flipY, readLock, dataBufferType, sourceWidth, sourceHeight,
-                                 tileSize, level, ArrayConverter.MSB);
+        return createMsbImage(variable, imageOrigin, flipY, readLock, null, null, dataBufferType,
+                              sourceWidth, sourceHeight, tileSize, level);
+    }
+
+    /**
+     * @since BEAM 5.0
+     */
+    public static RenderedImage createMsbImage(Variable variable, int[] imageOrigin, boolean flipY,
+                                               Object readLock, NetcdfFilePool filePool,
+                                               NetcdfChunkCache chunkCache, int dataBufferType,
+                                               int sourceWidth, int sourceHeight,
+                                               Dimension tileSize, ResolutionLevel level) {
+        return new NetcdfOpImage(variable, imageOrigin, flipY, readLock, filePool, chunkCache, dataBufferType,
+                                 sourceWidth, sourceHeight, tileSize, level, ArrayConverter.MSB);
     }
 
     /**
@@ -82,17 +118,43 @@ public class NetcdfOpImage extends SingleBandedOpImage {
     public NetcdfOpImage(Variable variable, int[] imageOrigin, boolean flipY, Object readLock, int dataBufferType,
                          int sourceWidth, int sourceHeight,
                          Dimension tileSize, ResolutionLevel level) {
-        this(variable, imageOrigin, flipY, readLock, dataBufferType, sourceWidth, sourceHeight, tileSize, level,
-             ArrayConverter.IDENTITY);
+        this(variable, imageOrigin, flipY, readLock, null, null, dataBufferType, sourceWidth, sourceHeight, tileSize,
+             level);
+    }
+
+    /**
+     * Used to construct an image which reads its tiles concurrently.
+     *
+     * @param variable       The netCDF variable
+     * @param imageOrigin    The index within a multidimensional image dataset
+     * @param flipY          The {@code true} if this data should be flipped along the yAxis.
+     * @param readLock       The the lock used for reading, usually the netcdf file that contains the variable
+     * @param filePool       The pool of file handles used for reading, may be {@code null}
+     * @param chunkCache     The cache of decompressed chunks, may be {@code null}
+     * @param dataBufferType The data type.
+     * @param sourceWidth    The width of the level 0 image.
+     * @param sourceHeight   The height of the level 0 image.
+     * @param tileSize       The tile size for this image.
+     * @param level          The resolution level.
+     * @since BEAM 5.0
+     */
+    public NetcdfOpImage(Variable variable, int[] imageOrigin, boolean flipY, Object readLock,
+                         NetcdfFilePool filePool, NetcdfChunkCache chunkCache, int dataBufferType,
+                         int sourceWidth, int sourceHeight,
+                         Dimension tileSize, ResolutionLevel level) {
+        this(variable, imageOrigin, flipY, readLock, filePool, chunkCache, dataBufferType, sourceWidth, sourceHeight,
+             tileSize, level, ArrayConverter.IDENTITY);
     }
 
-    private NetcdfOpImage(Variable variable, int[] imageOrigin, boolean flipY, Object readLock, int dataBufferType,
+    private NetcdfOpImage(Variable variable, int[] imageOrigin, boolean flipY, Object readLock,
+                          NetcdfFilePool filePool, NetcdfChunkCache chunkCache, int dataBufferType,
                           int sourceWidth, int sourceHeight,
                           Dimension tileSize, ResolutionLevel level, ArrayConverter arrayConverter) {
         super(dataBufferType, sourceWidth, sourceHeight, tileSize, null, level);
         this.variable = variable;
         this.imageOrigin = imageOrigin.clone();
         this.readLock = readLock;
+        this.filePool = filePool;
         this.flipY = flipY;
         this.sourceHeight = sourceHeight;
         this.arrayConverter = arrayConverter;
@@ -102,6 +164,26 @@ public class NetcdfOpImage extends SingleBandedOpImage {
         xIndex = rasterDim.findXDimensionIndex();
         yIndex = rasterDim.findYDimensionIndex();
         startIndexToCopy = DimKey.findStartIndexOfBandVariables(variableDimensions);
+        if (chunkCache != null && getLevel() == 0 && variable.getDataType().isNumeric()) {
+            this.chunkShape = ReaderUtils.getChunkShape(variable);
+        } else {
+            this.chunkShape = null;
+        }
+        if (chunkShape != null && getChunkSizeInBytes() <= chunkCache.getMaxSizeInBytes()) {
+            this.chunkCache = chunkCache;
+        } else {
+            // a chunk which cannot be cached would be read entirely for each tile it intersects
+            this.chunkCache = null;
+        }
+    }
+
+    /**
+     * @return The size of the x/y plane of a chunk, which is the part of a chunk that is read and cached.
+     */
+    private long getChunkSizeInBytes() {
+        final long chunkWidth = Math.min(chunkShape[xIndex], variable.getDimension(xIndex).getLength());
+        final long chunkHeight = Math.min(chunkShape[yIndex], variable.getDimension(yIndex).getLength());
+        return chunkWidth * chunkHeight * variable.getDataType().getSize();
     }
 
     @Override
@@ -143,15 +225,17 @@ public class NetcdfOpImage extends SingleBandedOpImage {
             stride[xIndex] = (int) scale;
 
             Array array;
-            synchronized (readLock) {
-                try {
+            try {
+                if (chunkCache != null) {
+                    array = readChunked(origin, shape);
+                } else {
                     final Section section = new Section(origin, shape, stride);
-                    array = variable.read(section);
-                } catch (IOException e) {
-                    throw new IllegalStateException(e);
-                } catch (InvalidRangeException e) {
-                    throw new IllegalArgumentException(e);
+                    array = read(section);
                 }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            } catch (InvalidRangeException e) {
+                throw new IllegalArgumentException(e);
             }
             if (xIndex < yIndex) {
                 array = array.transpose(xIndex, yIndex);
@@ -178,6 +262,82 @@ public class NetcdfOpImage extends SingleBandedOpImage {
         }
     }
 
+    private Array read(Section section) throws IOException, InvalidRangeException {
+        if (filePool != null) {
+            final NetcdfFile netcdfFile = filePool.acquire();
+            try {
+                final Variable pooledVariable = netcdfFile.findVariable(variable.getName());
+                if (pooledVariable != null) {
+                    return pooledVariable.read(section);
+                }
+            } finally {
+                filePool.release(netcdfFile);
+            }
+        }
+        // no pool, or a variable which has not been read from the file as is
+        synchronized (readLock) {
+            return variable.read(section);
+        }
+    }
+
+    /**
+     * Reads a section of the x/y plane by copying it from the chunks it intersects.
+     */
+    private Array readChunked(int[] origin, int[] shape) throws IOException, InvalidRangeException {
+        final int minX = origin[xIndex];
+        final int minY = origin[yIndex];
+        final int maxX = minX + shape[xIndex];
+        final int maxY = minY + shape[yIndex];
+        // chunk arrays and the result are row-major and have a length of 1 in all but the x and y dimensions
+        final int inner = Math.max(xIndex, yIndex);
+        final int outer = Math.min(xIndex, yIndex);
+        final int[] chunkOrigin = origin.clone();
+        Array result = null;
+        for (int chunkMinY = minY - minY % chunkShape[yIndex]; chunkMinY < maxY; chunkMinY += chunkShape[yIndex]) {
+            for (int chunkMinX = minX - minX % chunkShape[xIndex]; chunkMinX < maxX; chunkMinX += chunkShape[xIndex]) {
+                chunkOrigin[xIndex] = chunkMinX;
+                chunkOrigin[yIndex] = chunkMinY;
+                final Array chunk = getChunk(chunkOrigin);
+                final int[] actualChunkShape = chunk.getShape();
+                if (chunkMinX == minX && chunkMinY == minY && Arrays.equals(actualChunkShape, shape)) {
+                    return chunk;
+                }
+                if (result == null) {
+                    result = Array.factory(chunk.getElementType(), shape);
+                    result.setUnsigned(chunk.isUnsigned());
+                }
+                final int minI = Math.max(origin[inner], chunkOrigin[inner]);
+                final int maxI = Math.min(origin[inner] + shape[inner], chunkOrigin[inner] + actualChunkShape[inner]);
+                final int minO = Math.max(origin[outer], chunkOrigin[outer]);
+                final int maxO = Math.min(origin[outer] + shape[outer], chunkOrigin[outer] + actualChunkShape[outer]);
+                for (int o = minO; o < maxO; o++) {
+                    System.arraycopy(chunk.getStorage(),
+                                     (o - chunkOrigin[outer]) * actualChunkShape[inner] + (minI - chunkOrigin[inner]),
+                                     result.getStorage(),
+                                     (o - origin[outer]) * shape[inner] + (minI - origin[inner]),
+                                     maxI - minI);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Array getChunk(int[] chunkOrigin) throws IOException, InvalidRangeException {
+        Array chunk = chunkCache.get(variable, chunkOrigin);
+        if (chunk == null) {
+            // only the x/y plane of the image is read, even if the chunks extend into further dimensions
+            final int[] shape = new int[chunkOrigin.length];
+            Arrays.fill(shape, 1);
+            final int width = variable.getDimension(xIndex).getLength();
+            final int height = variable.getDimension(yIndex).getLength();
+            shape[xIndex] = Math.min(chunkShape[xIndex], width - chunkOrigin[xIndex]);
+            shape[yIndex] = Math.min(chunkShape[yIndex], height - chunkOrigin[yIndex]);
+            chunk = read(new Section(chunkOrigin, shape));
+            chunkCache.put(variable, chunkOrigin, chunk);
+        }
+        return chunk;
+    }
+
     private boolean isGlobalShifted180() {
         for (Attribute attribute : variable.getAttributes()) {
             // for the special case of a global image shifted by 180deg longitude, this attribute was added in CfGeocodingPart
@@ -225,17 +385,15 @@ public class NetcdfOpImage extends SingleBandedOpImage {
 
         Array arrayLeft;
         Array arrayRight;
-        synchronized (readLock) {
-            try {
-                final Section sectionLeft = new Section(originLeft, shapeLeft, stride);
-                final Section sectionRight = new Section(originRight, shapeRight, stride);
-                arrayLeft = variable.read(sectionLeft);
-                arrayRight = variable.read(sectionRight);
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
-            } catch (InvalidRangeException e) {
-                throw new IllegalArgumentException(e);
-            }
+        try {
+            final Section sectionLeft = new Section(originLeft, shapeLeft, stride);
+            final Section sectionRight = new Section(originRight, shapeRight, stride);
+            arrayLeft = read(sectionLeft);
+            arrayRight = read(sectionRight);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } catch (InvalidRangeException e) {
+            throw new IllegalArgumentException(e);
         }
         if (xIndex < yIndex) {
             arrayLeft = arrayLeft.transpose(xIndex, yIndex);
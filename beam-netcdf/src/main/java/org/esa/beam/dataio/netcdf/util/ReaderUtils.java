@@ -23,6 +23,7 @@ import ucar.nc2.Attribute;
 import ucar.nc2.Variable;
 import ucar.nc2.iosp.netcdf3.N3iosp;
 
+import java.awt.Dimension;
 import java.util.List;
 
 /**
@@ -30,6 +31,13 @@ import java.util.List;
  */
 public class ReaderUtils {
 
+    /**
+     * The names of the attributes by which the NetCDF library exposes the chunk shape of NetCDF-4/HDF5 variables.
+     */
+    private static final String[] CHUNK_SIZE_ATT_NAMES = {"_ChunkSizes", "_ChunkSize"};
+    private static final int MIN_TILE_LENGTH = 256;
+    private static final int MAX_TILE_LENGTH = 1024;
+
     public static ProductData createProductData(int productDataType, Array values) {
         Object data = values.getStorage();
         if (data instanceof char[]) {
@@ -86,5 +94,77 @@ public class ReaderUtils {
             return variable.getName();
         }
     }
-}
 
+    /**
+     * Gets the chunk shape of a chunked (NetCDF-4/HDF5) variable.
+     *
+     * @param variable the variable
+     * @return the chunk shape, or {@code null} if the variable is not chunked or its chunk shape is unknown
+     * @since BEAM 5.0
+     */
+    public static int[] getChunkShape(Variable variable) {
+        Attribute attribute = null;
+        for (String attName : CHUNK_SIZE_ATT_NAMES) {
+            attribute = variable.findAttribute(attName);
+            if (attribute != null) {
+                break;
+            }
+        }
+        final int rank = variable.getRank();
+        if (attribute == null || attribute.getLength() < rank) {
+            return null;
+        }
+        final int[] chunkShape = new int[rank];
+        for (int i = 0; i < rank; i++) {
+            final Number value = attribute.getNumericValue(i);
+            if (value == null || value.intValue() <= 0) {
+                return null;
+            }
+            chunkShape[i] = value.intValue();
+        }
+        return chunkShape;
+    }
+
+    /**
+     * Computes a tile size aligned to the chunks of the raster variables, so that a tile covers whole chunks and
+     * each chunk is decompressed for a single tile only. The chunk shape of the first chunked raster variable is used.
+     *
+     * @param rasterDigest the raster digest
+     * @return the tile size, or {@code null} if none of the raster variables is chunked
+     * @since BEAM 5.0
+     */
+    public static Dimension getChunkAlignedTileSize(RasterDigest rasterDigest) {
+        final int rasterWidth = rasterDigest.getRasterDim().getDimensionX().getLength();
+        final int rasterHeight = rasterDigest.getRasterDim().getDimensionY().getLength();
+        for (Variable variable : rasterDigest.getRasterVariables()) {
+            final int[] chunkShape = getChunkShape(variable);
+            if (chunkShape != null) {
+                final List<ucar.nc2.Dimension> dimensions = variable.getDimensions();
+                final DimKey dimKey = new DimKey(dimensions.toArray(new ucar.nc2.Dimension[dimensions.size()]));
+                final int xIndex = dimKey.findXDimensionIndex();
+                final int yIndex = dimKey.findYDimensionIndex();
+                if (xIndex >= 0 && yIndex >= 0) {
+                    return new Dimension(alignToChunk(chunkShape[xIndex], rasterWidth),
+                                         alignToChunk(chunkShape[yIndex], rasterHeight));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes a tile length from a chunk length. Small chunks are combined, large chunks are divided evenly.
+     */
+    static int alignToChunk(int chunkLength, int rasterLength) {
+        final int length = Math.min(chunkLength, rasterLength);
+        if (length < MIN_TILE_LENGTH) {
+            return Math.min(length * ((MIN_TILE_LENGTH + length - 1) / length), rasterLength);
+        }
+        if (length > MAX_TILE_LENGTH) {
+            // the tiles dividing a chunk share its decompressed data through the chunk cache
+            final int numTiles = (length + MAX_TILE_LENGTH - 1) / MAX_TILE_LENGTH;
+            return (length + numTiles - 1) / numTiles;
+        }
+        return length;
+    }
+}
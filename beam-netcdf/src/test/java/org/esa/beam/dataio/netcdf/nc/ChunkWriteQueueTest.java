@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.dataio.netcdf.nc;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChunkWriteQueueTest {
+
+    @Test
+    public void testTasksAreExecutedInOrder() throws Exception {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        final ChunkWriteQueue queue = new ChunkWriteQueue("test", 2);
+        for (int i = 0; i < 10; i++) {
+            final int index = i;
+            queue.submit(new ChunkWriteQueue.Task() {
+                @Override
+                public void write() throws IOException {
+                    written.add(index);
+                }
+            });
+        }
+        queue.close();
+
+        assertEquals(10, written.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, written.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testFailureIsReported() throws Exception {
+        final ChunkWriteQueue queue = new ChunkWriteQueue("test", 1);
+        final int[] writeCount = new int[1];
+        queue.submit(new ChunkWriteQueue.Task() {
+            @Override
+            public void write() throws IOException {
+                throw new IOException("disk full");
+            }
+        });
+        final ChunkWriteQueue.Task task = new ChunkWriteQueue.Task() {
+            @Override
+            public void write() throws IOException {
+                writeCount[0]++;
+            }
+        };
+        try {
+            // the failed task has to be executed before the next one can be queued
+            queue.submit(task);
+            queue.submit(task);
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        try {
+            queue.close();
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        assertEquals(0, writeCount[0]);
+    }
+}
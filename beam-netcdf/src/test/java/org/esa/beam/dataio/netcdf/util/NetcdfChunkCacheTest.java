@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.dataio.netcdf.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFileWriteable;
+import ucar.nc2.Variable;
+
+import java.awt.Dimension;
+
+import static org.junit.Assert.*;
+
+public class NetcdfChunkCacheTest {
+
+    private Variable variable1;
+    private Variable variable2;
+
+    @Before
+    public void setUp() throws Exception {
+        final NetcdfFileWriteable writeable = NetcdfFileWriteable.createNew("chunks.nc");
+        writeable.addDimension("y", 2000);
+        writeable.addDimension("x", 3000);
+        variable1 = writeable.addVariable("data1", DataType.FLOAT, writeable.getRootGroup().getDimensions());
+        variable2 = writeable.addVariable("data2", DataType.FLOAT, writeable.getRootGroup().getDimensions());
+    }
+
+    @Test
+    public void testGetAndPut() throws Exception {
+        final NetcdfChunkCache cache = new NetcdfChunkCache(1000);
+        final Array chunk = createChunk();
+
+        assertNull(cache.get(variable1, new int[]{0, 10}));
+        cache.put(variable1, new int[]{0, 10}, chunk);
+        assertSame(chunk, cache.get(variable1, new int[]{0, 10}));
+        assertNull(cache.get(variable1, new int[]{10, 0}));
+        assertNull(cache.get(variable2, new int[]{0, 10}));
+
+        assertEquals(1, cache.getChunkCount());
+        assertEquals(400, cache.getSizeInBytes());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedChunksAreDropped() throws Exception {
+        final NetcdfChunkCache cache = new NetcdfChunkCache(1000);
+        cache.put(variable1, new int[]{0, 0}, createChunk());
+        cache.put(variable1, new int[]{0, 10}, createChunk());
+        assertNotNull(cache.get(variable1, new int[]{0, 0}));
+
+        cache.put(variable1, new int[]{0, 20}, createChunk());
+
+        assertEquals(2, cache.getChunkCount());
+        assertEquals(800, cache.getSizeInBytes());
+        assertNotNull(cache.get(variable1, new int[]{0, 0}));
+        assertNull(cache.get(variable1, new int[]{0, 10}));
+        assertNotNull(cache.get(variable1, new int[]{0, 20}));
+    }
+
+    @Test
+    public void testChunkLargerThanCacheIsNotCached() throws Exception {
+        final NetcdfChunkCache cache = new NetcdfChunkCache(100);
+        cache.put(variable1, new int[]{0, 0}, createChunk());
+
+        assertEquals(0, cache.getChunkCount());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void testGetChunkShape() throws Exception {
+        assertNull(ReaderUtils.getChunkShape(variable1));
+
+        variable1.addAttribute(new Attribute("_ChunkSizes", Array.factory(DataType.INT, new int[]{2},
+                                                                           new int[]{100, 50})));
+        assertArrayEquals(new int[]{100, 50}, ReaderUtils.getChunkShape(variable1));
+    }
+
+    @Test
+    public void testGetChunkAlignedTileSize() throws Exception {
+        final RasterDigest rasterDigest = new RasterDigest(new DimKey(variable1.getDimensions().toArray(
+                new ucar.nc2.Dimension[2])), new Variable[]{variable1, variable2});
+        assertNull(ReaderUtils.getChunkAlignedTileSize(rasterDigest));
+
+        variable2.addAttribute(new Attribute("_ChunkSizes", Array.factory(DataType.INT, new int[]{2},
+                                                                           new int[]{100, 500})));
+        assertEquals(new Dimension(500, 300), ReaderUtils.getChunkAlignedTileSize(rasterDigest));
+    }
+
+    @Test
+    public void testAlignToChunk() throws Exception {
+        assertEquals(512, ReaderUtils.alignToChunk(512, 3000));
+        assertEquals(300, ReaderUtils.alignToChunk(100, 3000));
+        assertEquals(256, ReaderUtils.alignToChunk(1, 3000));
+        assertEquals(200, ReaderUtils.alignToChunk(1, 200));
+        assertEquals(1000, ReaderUtils.alignToChunk(3000, 3000));
+        assertEquals(1000, ReaderUtils.alignToChunk(2000, 2000));
+        assertEquals(1000, ReaderUtils.alignToChunk(4000, 2000));
+    }
+
+    private static Array createChunk() {
+        return Array.factory(DataType.FLOAT, new int[]{10, 10});
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2013 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.beam.dataio.netcdf.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriteable;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class NetcdfFilePoolTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("pool", ".nc");
+        final NetcdfFileWriteable writeable = NetcdfFileWriteable.createNew(file.getPath());
+        try {
+            writeable.addDimension("y", 2);
+            writeable.addDimension("x", 3);
+            writeable.addVariable("data", DataType.INT, writeable.getRootGroup().getDimensions());
+            writeable.create();
+            writeable.write("data", Array.factory(DataType.INT, new int[]{2, 3}, new int[]{0, 1, 2, 3, 4, 5}));
+        } finally {
+            writeable.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testAcquireAndRelease() throws Exception {
+        final NetcdfFilePool filePool = new NetcdfFilePool(file.getPath(), 2);
+        try {
+            final NetcdfFile file1 = filePool.acquire();
+            final NetcdfFile file2 = filePool.acquire();
+            assertNotSame(file1, file2);
+            assertEquals(5, file1.findVariable("data").read().getInt(5));
+            assertEquals(5, file2.findVariable("data").read().getInt(5));
+            filePool.release(file1);
+            // handles are reused
+            assertSame(file1, filePool.acquire());
+            filePool.release(file1);
+            filePool.release(file2);
+        } finally {
+            filePool.close();
+        }
+    }
+
+    @Test
+    public void testAcquireWaitsForRelease() throws Exception {
+        final NetcdfFilePool filePool = new NetcdfFilePool(file.getPath(), 1);
+        try {
+            final NetcdfFile file1 = filePool.acquire();
+            final NetcdfFile[] acquired = new NetcdfFile[1];
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        acquired[0] = filePool.acquire();
+                    } catch (IOException e) {
+                        // acquired[0] remains null
+                    }
+                }
+            });
+            thread.start();
+            thread.join(200);
+            assertTrue(thread.isAlive());
+            filePool.release(file1);
+            thread.join(5000);
+            assertSame(file1, acquired[0]);
+            filePool.release(acquired[0]);
+        } finally {
+            filePool.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testAcquireFromClosedPool() throws Exception {
+        final NetcdfFilePool filePool = new NetcdfFilePool(file.getPath(), 1);
+        filePool.close();
+        filePool.acquire();
+    }
+}